@@ -1,23 +1,100 @@
 package com.ecommerce.configs;
 
+import com.ecommerce.repositories.UserRepository;
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.CaffeineSpec;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.EnableCaching;
-import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.core.env.Environment;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 @Configuration
 @EnableCaching
 public class CacheConfig {
+    private static final Logger logger = LoggerFactory.getLogger(CacheConfig.class);
+
+    // Cấu hình mặc định (CaffeineSpec) cho từng cache, ghi đè bằng app.cache.specs.<tên cache>
+    private static final Map<String, String> DEFAULT_SPECS = new LinkedHashMap<>();
+    static {
+        DEFAULT_SPECS.put("users", "maximumSize=10000,expireAfterAccess=30m,expireAfterWrite=2h,refreshAfterWrite=10m,recordStats");
+        DEFAULT_SPECS.put("products", "maximumSize=5000,expireAfterWrite=10m,recordStats");
+        DEFAULT_SPECS.put("categories", "maximumSize=500,expireAfterWrite=30m,recordStats");
+        DEFAULT_SPECS.put("roles", "maximumSize=50,expireAfterWrite=1h,recordStats");
+        DEFAULT_SPECS.put("stores", "maximumSize=2000,expireAfterWrite=10m,recordStats");
+        DEFAULT_SPECS.put("orders", "maximumSize=5000,expireAfterAccess=5m,expireAfterWrite=15m,recordStats");
+    }
+
+    // Cache tạo động (không khai báo ở trên) cũng phải có giới hạn
+    private static final String DYNAMIC_CACHE_SPEC = "maximumSize=1000,expireAfterWrite=10m,recordStats";
+
+    @Autowired
+    private Environment env;
+
+    @Autowired
+    @Lazy
+    private UserRepository userRepository;
+
+    @Autowired
+    @Lazy
+    private PlatformTransactionManager transactionManager;
+
+    // Refresh bất đồng bộ chạy trên pool riêng để không chiếm ForkJoinPool.commonPool bằng truy vấn JDBC
+    private final Executor refreshExecutor = Executors.newFixedThreadPool(2, runnable -> {
+        Thread thread = new Thread(runnable, "cache-refresh");
+        thread.setDaemon(true);
+        return thread;
+    });
 
     @Bean
     public CacheManager cacheManager() {
-        return new ConcurrentMapCacheManager(
-                "users",
-                "products",
-                "categories",
-                "roles",
-                "stores",
-                "orders");
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+        cacheManager.setCaffeineSpec(CaffeineSpec.parse(
+                env.getProperty("app.cache.specs.default", DYNAMIC_CACHE_SPEC)));
+
+        Map<String, CacheLoader<Object, Object>> loaders = cacheLoaders();
+        DEFAULT_SPECS.forEach((name, defaultSpec) -> {
+            String spec = env.getProperty("app.cache.specs." + name, defaultSpec);
+            CacheLoader<Object, Object> loader = loaders.get(name);
+            if (loader == null && spec.contains("refreshAfterWrite")) {
+                logger.warn("Cache '{}' has no loader, ignoring refreshAfterWrite", name);
+                spec = Arrays.stream(spec.split(","))
+                        .filter(option -> !option.trim().startsWith("refreshAfterWrite"))
+                        .collect(Collectors.joining(","));
+            }
+            Caffeine<Object, Object> builder = Caffeine.from(spec).executor(refreshExecutor);
+            cacheManager.registerCustomCache(name, loader != null ? builder.build(loader) : builder.build());
+            logger.info("Configured cache '{}' with spec [{}]", name, spec);
+        });
+        return cacheManager;
+    }
+
+    // Loader dùng cho refreshAfterWrite: key của cache phải là id của entity
+    private Map<String, CacheLoader<Object, Object>> cacheLoaders() {
+        Map<String, CacheLoader<Object, Object>> loaders = new HashMap<>();
+        // loadById: findById trả về bản trong map của UserRepositoryImpl, refresh sẽ không thấy thay đổi
+        loaders.put("users", key -> readOnlyTransaction().execute(status -> userRepository.loadById((Long) key)));
+        return loaders;
+    }
+
+    private TransactionTemplate readOnlyTransaction() {
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        template.setReadOnly(true);
+        return template;
     }
-}
\ No newline at end of file
+}
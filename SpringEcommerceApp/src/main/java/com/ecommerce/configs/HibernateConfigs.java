@@ -4,13 +4,15 @@
  */
 package com.ecommerce.configs;
 
+import com.ecommerce.utils.ConnectionPoolMetrics;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
 import java.util.Properties;
 import javax.sql.DataSource;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.env.Environment;
-import org.springframework.jdbc.datasource.DriverManagerDataSource;
 import org.springframework.orm.hibernate5.HibernateTransactionManager;
 import org.springframework.orm.hibernate5.LocalSessionFactoryBean;
 import org.springframework.transaction.annotation.EnableTransactionManagement;
@@ -34,13 +36,45 @@ public class HibernateConfigs {
     }
 
     @Bean
+    public ConnectionPoolMetrics connectionPoolMetrics() {
+        return new ConnectionPoolMetrics();
+    }
+
+    @Bean(destroyMethod = "close")
     public DataSource dataSource() {
-        DriverManagerDataSource dataSource = new DriverManagerDataSource();
-        dataSource.setDriverClassName(env.getProperty("hibernate.connection.driverClass"));
-        dataSource.setUrl(env.getProperty("hibernate.connection.url"));
-        dataSource.setUsername(env.getProperty("hibernate.connection.username"));
-        dataSource.setPassword(env.getProperty("hibernate.connection.password"));
-        return dataSource;
+        HikariConfig config = new HikariConfig();
+        config.setPoolName("ecommerce-pool");
+        config.setDriverClassName(env.getProperty("hibernate.connection.driverClass"));
+        config.setJdbcUrl(env.getProperty("hibernate.connection.url"));
+        config.setUsername(env.getProperty("hibernate.connection.username"));
+        config.setPassword(env.getProperty("hibernate.connection.password"));
+
+        config.setMinimumIdle(env.getProperty("hibernate.hikari.minimumIdle", Integer.class, 5));
+        config.setMaximumPoolSize(env.getProperty("hibernate.hikari.maximumPoolSize", Integer.class, 10));
+        config.setIdleTimeout(env.getProperty("hibernate.hikari.idleTimeout", Long.class, 30000L));
+        config.setMaxLifetime(env.getProperty("hibernate.hikari.maxLifetime", Long.class, 1800000L));
+        config.setConnectionTimeout(env.getProperty("hibernate.hikari.connectionTimeout", Long.class, 30000L));
+        config.setLeakDetectionThreshold(
+                env.getProperty("hibernate.hikari.leakDetectionThreshold", Long.class, 60000L));
+        config.setAutoCommit(env.getProperty("hibernate.hikari.autoCommit", Boolean.class, false));
+
+        // Cache prepared statement phía driver MySQL
+        config.addDataSourceProperty("cachePrepStmts",
+                env.getProperty("hibernate.hikari.dataSource.cachePrepStmts", "true"));
+        config.addDataSourceProperty("prepStmtCacheSize",
+                env.getProperty("hibernate.hikari.dataSource.prepStmtCacheSize", "250"));
+        config.addDataSourceProperty("prepStmtCacheSqlLimit",
+                env.getProperty("hibernate.hikari.dataSource.prepStmtCacheSqlLimit", "2048"));
+        config.addDataSourceProperty("useServerPrepStmts",
+                env.getProperty("hibernate.hikari.dataSource.useServerPrepStmts", "true"));
+        config.addDataSourceProperty("rewriteBatchedStatements",
+                env.getProperty("hibernate.hikari.dataSource.rewriteBatchedStatements", "true"));
+        // Truy vấn có đặt fetch size (export Excel) đọc theo từng lô qua cursor phía server thay vì nạp hết kết quả
+        config.addDataSourceProperty("useCursorFetch",
+                env.getProperty("hibernate.hikari.dataSource.useCursorFetch", "true"));
+
+        config.setMetricsTrackerFactory(connectionPoolMetrics());
+        return new HikariDataSource(config);
     }
 
     private Properties hibernateProperties() {
@@ -49,6 +83,8 @@ public class HibernateConfigs {
         props.setProperty("hibernate.dialect", env.getProperty("hibernate.dialect"));
         props.setProperty("hibernate.show_sql", env.getProperty("hibernate.showSql"));
         props.setProperty("hibernate.hbm2ddl.auto", env.getProperty("hibernate.hbm2ddl.auto"));
+        props.setProperty("hibernate.connection.provider_disables_autocommit",
+                String.valueOf(!env.getProperty("hibernate.hikari.autoCommit", Boolean.class, false)));
 
       
         props.setProperty("hibernate.jdbc.batch_size", "50");
@@ -57,8 +93,17 @@ public class HibernateConfigs {
         props.setProperty("hibernate.jdbc.batch_versioned_data", "true");
 
       
-        props.setProperty("hibernate.cache.use_second_level_cache", "false");
-        props.setProperty("hibernate.cache.use_query_cache", "false");
+        props.setProperty("hibernate.cache.use_second_level_cache",
+                env.getProperty("hibernate.cache.useSecondLevelCache", "true"));
+        props.setProperty("hibernate.cache.use_query_cache",
+                env.getProperty("hibernate.cache.useQueryCache", "true"));
+        props.setProperty("hibernate.cache.region.factory_class", "jcache");
+        props.setProperty("hibernate.javax.cache.provider", "org.ehcache.jsr107.EhcacheCachingProvider");
+        props.setProperty("hibernate.javax.cache.uri", "ehcache.xml");
+        props.setProperty("hibernate.javax.cache.missing_cache_strategy", "create-warn");
+        // Collection cache phía inverse (Category.products) bị xóa khi phía owner thay đổi
+        props.setProperty("hibernate.cache.auto_evict_collection_cache", "true");
+        props.setProperty("hibernate.generate_statistics", env.getProperty("hibernate.generateStatistics", "true"));
 
         return props;
     }
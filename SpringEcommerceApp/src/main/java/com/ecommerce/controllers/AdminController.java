@@ -8,16 +8,22 @@ import com.ecommerce.pojo.Role;
 import com.ecommerce.pojo.Store;
 import com.ecommerce.pojo.User;
 import com.ecommerce.services.CategoryService;
+import com.ecommerce.services.DashboardMetricsService;
 import com.ecommerce.services.OrderService;
 import com.ecommerce.services.ProductService;
 import com.ecommerce.services.RoleService;
 import com.ecommerce.services.UserService;
 import com.ecommerce.services.StoreService;
 import com.ecommerce.services.SellerRequestService;
+import com.ecommerce.utils.ExcelUtils;
 import com.ecommerce.utils.IpUtils;
-import com.ecommerce.services.ReportService;
+import com.ecommerce.services.ReportJobService;
 import com.ecommerce.services.RecentActivityService;
+import com.ecommerce.services.ActivityFeedService;
 import com.ecommerce.pojo.RecentActivity;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.text.SimpleDateFormat;
 import java.util.Calendar;
 import java.util.Date;
@@ -27,7 +33,9 @@ import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
@@ -43,10 +51,13 @@ import org.slf4j.LoggerFactory;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 
 @Controller
 @RequestMapping("/admin")
@@ -65,39 +76,51 @@ public class AdminController {
     @Autowired
     private StoreService storeService;
     @Autowired
-    private ReportService reportService;
-    @Autowired
     private RecentActivityService recentActivityService;
     @Autowired
     private SellerRequestService sellerRequestService;
+    @Autowired
+    private DashboardMetricsService dashboardMetricsService;
+    @Autowired
+    private ReportJobService reportJobService;
+    @Autowired
+    private ActivityFeedService activityFeedService;
+
+    // Thời gian chờ báo cáo xong trước khi trả trang "đang tạo báo cáo"
+    @Value("${app.reports.inline-wait-ms:3000}")
+    private long reportInlineWaitMs;
 
     @GetMapping("")
     public String adminDashboard(Model model) {
-        List<User> users = userService.findAll();
-        model.addAttribute("totalUsers", users.size());
-        List<Product> products = productService.findAll();
-        model.addAttribute("totalProducts", products.size());
-        List<Order> orders = orderService.findAll();
-        model.addAttribute("totalOrders", orders.size());
-        double totalRevenue = orders.stream()
-                .filter(order -> "COMPLETED".equals(order.getStatus()))
-                .mapToDouble(order -> order.getTotalAmount())
-                .sum();
-        model.addAttribute("totalRevenue", totalRevenue);
-        Calendar cal = Calendar.getInstance();
-        cal.add(Calendar.DAY_OF_MONTH, -30);
-        Date fromDate = cal.getTime();
-        Date toDate = new Date();
-        Map<String, Object> revenueData = reportService.generateSalesReport("monthly", fromDate, toDate);
-        model.addAttribute("revenueData", revenueData.get("revenueByPeriod"));
-        model.addAttribute("orderStatusData", revenueData.get("orderStatus"));
-        List<RecentActivity> recentActivities = recentActivityService.getRecentActivities(10);
+        Map<String, Object> metrics = dashboardMetricsService.getDashboardMetrics();
+        model.addAttribute("totalUsers", metrics.get("totalUsers"));
+        model.addAttribute("totalProducts", metrics.get("totalProducts"));
+        model.addAttribute("totalOrders", metrics.get("totalOrders"));
+        model.addAttribute("totalRevenue", metrics.get("totalRevenue"));
+        model.addAttribute("revenueData", metrics.get("revenueByPeriod"));
+        model.addAttribute("orderStatusData", metrics.get("orderStatus"));
+        // Đọc id trước danh sách: sự kiện đến giữa hai lần đọc được gửi lại chứ không bị mất
+        model.addAttribute("activityFeedLastId", activityFeedService.getLastEventId());
+        List<RecentActivity> recentActivities = activityFeedService.getLatest(10);
         model.addAttribute("recentActivities", recentActivities);
         model.addAttribute("activeMenu", "dashboard");
         model.addAttribute("content", "dashboard :: content");
         return "admin";
     }
 
+    // Luồng SSE các hoạt động mới cho dashboard; khi kết nối lại trình duyệt gửi kèm header Last-Event-ID
+    @GetMapping(value = "/activity-feed", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> activityFeed(
+            @RequestHeader(value = "Last-Event-ID", required = false) String lastEventIdHeader,
+            @RequestParam(required = false) String lastEventId) {
+        try {
+            return ResponseEntity.ok(activityFeedService.subscribe(
+                    lastEventIdHeader != null ? lastEventIdHeader : lastEventId));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+    }
+
     @GetMapping("/users")
     public String manageUsers(
             @RequestParam(defaultValue = "0") int page,
@@ -105,38 +128,16 @@ public class AdminController {
             @RequestParam(required = false) String role,
             @RequestParam(required = false) String status,
             @RequestParam(required = false) String keyword,
+            @RequestParam(required = false) Long afterId,
             Model model) {
-        List<User> allUsers = userService.findAll();
-        if (role != null && !role.isEmpty()) {
-            allUsers = allUsers.stream()
-                    .filter(user -> user.getRoles().stream()
-                            .anyMatch(r -> r.getName().equals(role)))
-                    .collect(Collectors.toList());
-        }
-        if (status != null && !status.isEmpty()) {
-            boolean isActive = "active".equals(status);
-            allUsers = allUsers.stream()
-                    .filter(user -> user.isActive() == isActive)
-                    .collect(Collectors.toList());
-        }
-        if (keyword != null && !keyword.isEmpty()) {
-            allUsers = allUsers.stream()
-                    .filter(user -> (user.getUsername() != null
-                            && user.getUsername().toLowerCase().contains(keyword.toLowerCase())) ||
-                            (user.getEmail() != null && user.getEmail().toLowerCase().contains(keyword.toLowerCase()))
-                            ||
-                            (user.getFullname() != null
-                                    && user.getFullname().toLowerCase().contains(keyword.toLowerCase())))
-                    .collect(Collectors.toList());
-        }
-        int start = page * size;
-        int end = Math.min(start + size, allUsers.size());
-        List<User> paginatedUsers = allUsers.subList(start, end);
+        Boolean active = parseActiveStatus(status);
+        List<User> paginatedUsers = userService.findByFilters(keyword, role, active, afterId, page, size);
+        long totalElements = userService.countByFilters(keyword, role, active);
         List<Role> allRoles = roleService.findAll();
         model.addAttribute("users", paginatedUsers);
         model.addAttribute("allRoles", allRoles);
-        model.addAttribute("currentPage", page);
-        model.addAttribute("totalPages", (int) Math.ceil((double) allUsers.size() / size));
+        addPaginationAttributes(model, page, size, totalElements,
+                paginatedUsers.isEmpty() ? null : paginatedUsers.get(paginatedUsers.size() - 1).getId());
         model.addAttribute("activeMenu", "users");
         model.addAttribute("user", new User());
         model.addAttribute("content", "users :: content");
@@ -150,31 +151,11 @@ public class AdminController {
             @RequestParam(required = false) Long category,
             @RequestParam(required = false) String status,
             @RequestParam(required = false) String keyword,
+            @RequestParam(required = false) Long afterId,
             Model model) {
-        List<Product> allProducts = productService.findAll();
-        if (category != null) {
-            allProducts = allProducts.stream()
-                    .filter(product -> product.getCategory() != null &&
-                            product.getCategory().getId().equals(category))
-                    .collect(Collectors.toList());
-        }
-        if (status != null && !status.isEmpty()) {
-            boolean isActive = "active".equals(status);
-            allProducts = allProducts.stream()
-                    .filter(product -> product.isActive() == isActive)
-                    .collect(Collectors.toList());
-        }
-        if (keyword != null && !keyword.isEmpty()) {
-            allProducts = allProducts.stream()
-                    .filter(product -> (product.getName() != null
-                            && product.getName().toLowerCase().contains(keyword.toLowerCase())) ||
-                            (product.getDescription() != null
-                                    && product.getDescription().toLowerCase().contains(keyword.toLowerCase())))
-                    .collect(Collectors.toList());
-        }
-        int start = page * size;
-        int end = Math.min(start + size, allProducts.size());
-        List<Product> paginatedProducts = allProducts.subList(start, end);
+        Boolean active = parseActiveStatus(status);
+        List<Product> paginatedProducts = productService.findByFilters(keyword, category, active, afterId, page, size);
+        long totalElements = productService.countByFilters(keyword, category, active);
         List<Category> categories = categoryService.findAll();
         List<Store> stores = storeService.findAll();
         Product emptyProduct = new Product();
@@ -184,14 +165,12 @@ public class AdminController {
         model.addAttribute("categories", categories);
         model.addAttribute("stores", stores);
         model.addAttribute("product", emptyProduct);
-        model.addAttribute("currentPage", page);
-        model.addAttribute("totalPages", (int) Math.ceil((double) allProducts.size() / size));
+        addPaginationAttributes(model, page, size, totalElements,
+                paginatedProducts.isEmpty() ? null : paginatedProducts.get(paginatedProducts.size() - 1).getId());
         model.addAttribute("activeMenu", "products");
         model.addAttribute("content", "products :: content");
-        logger.debug("Total products in DB: {}", allProducts.size());
-        logger.debug("Filter params: category={}, status={}, keyword={}", category, status, keyword);
-        logger.debug("Page={}, Size={}", page, size);
-        logger.debug("Products after pagination: {}", paginatedProducts.size());
+        logger.debug("Filter params: category={}, status={}, keyword={}, afterId={}", category, status, keyword, afterId);
+        logger.debug("Page={}, Size={}, total={}", page, size, totalElements);
         return "admin";
     }
 
@@ -203,50 +182,42 @@ public class AdminController {
             @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM-dd") Date fromDate,
             @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM-dd") Date toDate,
             @RequestParam(required = false) String keyword,
+            @RequestParam(required = false) Long afterId,
             Model model) {
-        List<Order> allOrders = orderService.findAll();
-        if (status != null && !status.isEmpty()) {
-            allOrders = allOrders.stream()
-                    .filter(order -> status.equals(order.getStatus()))
-                    .collect(Collectors.toList());
-        }
-        if (fromDate != null && toDate != null) {
-            allOrders = allOrders.stream()
-                    .filter(order -> !order.getOrderDate().before(fromDate) && !order.getOrderDate().after(toDate))
-                    .collect(Collectors.toList());
-        } else if (fromDate != null) {
-            allOrders = allOrders.stream()
-                    .filter(order -> !order.getOrderDate().before(fromDate))
-                    .collect(Collectors.toList());
-        } else if (toDate != null) {
-            allOrders = allOrders.stream()
-                    .filter(order -> !order.getOrderDate().after(toDate))
-                    .collect(Collectors.toList());
-        }
-        if (keyword != null && !keyword.isEmpty()) {
-            allOrders = allOrders.stream()
-                    .filter(order -> (order.getId() != null && order.getId().toString().contains(keyword)) ||
-                            (order.getUser() != null && order.getUser().getFullname() != null &&
-                                    order.getUser().getFullname().toLowerCase().contains(keyword.toLowerCase())))
-                    .collect(Collectors.toList());
-        }
-        int start = page * size;
-        int end = Math.min(start + size, allOrders.size());
-        List<Order> paginatedOrders = allOrders.subList(start, end);
+        List<Order> paginatedOrders = orderService.findByFilters(status, fromDate, toDate, keyword, afterId, page, size);
+        long totalElements = orderService.countByFilters(status, fromDate, toDate, keyword);
         model.addAttribute("orders", paginatedOrders);
-        model.addAttribute("currentPage", page);
-        model.addAttribute("totalPages", (int) Math.ceil((double) allOrders.size() / size));
+        addPaginationAttributes(model, page, size, totalElements,
+                paginatedOrders.isEmpty() ? null : paginatedOrders.get(paginatedOrders.size() - 1).getId());
         model.addAttribute("activeMenu", "orders");
         model.addAttribute("content", "orders :: content");
         return "admin";
     }
 
+    private Boolean parseActiveStatus(String status) {
+        if (status == null || status.isEmpty()) {
+            return null;
+        }
+        return "active".equals(status);
+    }
+
+    // nextAfterId là id cuối của trang hiện tại, dùng cho keyset pagination khi sang trang sau
+    private void addPaginationAttributes(Model model, int page, int size, long totalElements, Long nextAfterId) {
+        model.addAttribute("currentPage", page);
+        model.addAttribute("pageSize", size);
+        model.addAttribute("totalElements", totalElements);
+        model.addAttribute("totalPages", (int) Math.ceil((double) totalElements / size));
+        model.addAttribute("nextAfterId", nextAfterId);
+    }
+
     @GetMapping("/reports")
     public String viewReports(
             @RequestParam(defaultValue = "sales") String reportType,
             @RequestParam(defaultValue = "monthly") String periodType,
             @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM-dd") Date fromDate,
             @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM-dd") Date toDate,
+            @RequestParam(required = false) String jobId,
+            @RequestParam(required = false) String exportJobId,
             Model model) {
         if (fromDate == null) {
             Calendar cal = Calendar.getInstance();
@@ -256,18 +227,37 @@ public class AdminController {
         if (toDate == null) {
             toDate = new Date();
         }
-        Map<String, Object> reportData;
-        switch (reportType) {
-            case "sales":
-                reportData = reportService.generateSalesReport(periodType, fromDate, toDate);
-                break;
-            case "sellers":
-                reportData = reportService.generateSellerReport(fromDate, toDate);
-                break;
-            default:
-                reportData = reportService.generateSalesReport(periodType, fromDate, toDate);
+        // Báo cáo tạo ở luồng nền; xong nhanh thì hiển thị luôn, chưa xong thì trang tự theo dõi tiến độ
+        Map<String, Object> reportData = Map.of();
+        Map<String, Object> reportJob = null;
+        try {
+            Map<String, Object> job = jobId != null ? reportJobService.getStatus(jobId) : null;
+            if (!isReportJobFor(job, reportType, periodType, fromDate, toDate)) {
+                job = reportJobService.submit(ReportJobService.FORMAT_DATA, reportType, periodType, fromDate, toDate);
+            }
+            Map<String, Object> awaited = reportJobService.await((String) job.get("jobId"), reportInlineWaitMs);
+            if (awaited == null) {
+                // Job vừa bị dọn khỏi bộ nhớ sau khi nhận: gửi lại một lần
+                job = reportJobService.submit(ReportJobService.FORMAT_DATA, reportType, periodType, fromDate, toDate);
+                awaited = reportJobService.await((String) job.get("jobId"), reportInlineWaitMs);
+            }
+            Map<String, Object> data = null;
+            if (awaited != null && ReportJobService.STATUS_DONE.equals(awaited.get("status"))) {
+                data = reportJobService.getReportData((String) awaited.get("jobId"));
+            }
+            if (data != null) {
+                reportData = data;
+            } else if (awaited != null && !ReportJobService.STATUS_DONE.equals(awaited.get("status"))) {
+                reportJob = awaited;
+            } else {
+                model.addAttribute("errorMessage", "Kết quả báo cáo đã hết hạn, vui lòng tải lại trang");
+            }
+        } catch (IllegalStateException | IOException e) {
+            model.addAttribute("errorMessage", e.getMessage());
         }
         model.addAttribute("reportData", reportData);
+        model.addAttribute("reportJob", reportJob);
+        model.addAttribute("exportJob", exportJobId != null ? reportJobService.getStatus(exportJobId) : null);
         model.addAttribute("reportType", reportType);
         model.addAttribute("periodType", periodType);
         model.addAttribute("fromDate", fromDate);
@@ -277,6 +267,62 @@ public class AdminController {
         return "admin";
     }
 
+    // jobId trong URL chỉ dùng lại khi job đúng là báo cáo đang xem (cùng loại, kỳ và khoảng ngày)
+    private boolean isReportJobFor(Map<String, Object> job, String reportType, String periodType, Date fromDate,
+            Date toDate) {
+        if (job == null) {
+            return false;
+        }
+        SimpleDateFormat dayFormat = new SimpleDateFormat("yyyy-MM-dd");
+        return ReportJobService.FORMAT_DATA.equals(job.get("format"))
+                && reportType.equals(job.get("reportType"))
+                && periodType.equals(job.get("periodType"))
+                && dayFormat.format(fromDate).equals(job.get("fromDate"))
+                && dayFormat.format(toDate).equals(job.get("toDate"));
+    }
+
+    @PostMapping("/reports/jobs")
+    public ResponseEntity<?> submitReportJob(
+            @RequestParam(defaultValue = ReportJobService.FORMAT_DATA) String format,
+            @RequestParam(defaultValue = "sales") String reportType,
+            @RequestParam(defaultValue = "monthly") String periodType,
+            @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd") Date fromDate,
+            @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd") Date toDate) {
+        if (!ReportJobService.FORMAT_DATA.equals(format) && !ReportJobService.FORMAT_EXCEL.equals(format)) {
+            return ResponseEntity.badRequest().body(Map.of("success", false, "message", "Định dạng báo cáo không hợp lệ"));
+        }
+        try {
+            Map<String, Object> job = reportJobService.submit(format, reportType, periodType, fromDate, toDate);
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(Map.of("success", true, "job", job));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .body(Map.of("success", false, "message", e.getMessage()));
+        }
+    }
+
+    @GetMapping("/reports/jobs/{jobId}")
+    public ResponseEntity<?> getReportJob(@PathVariable String jobId) {
+        Map<String, Object> job = reportJobService.getStatus(jobId);
+        if (job == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(Map.of("success", false, "message", "Không tìm thấy báo cáo hoặc báo cáo đã hết hạn"));
+        }
+        return ResponseEntity.ok(Map.of("success", true, "job", job));
+    }
+
+    @GetMapping("/reports/jobs/{jobId}/download")
+    public void downloadReportJob(@PathVariable String jobId, HttpServletResponse response) throws IOException {
+        Map<String, Object> job = reportJobService.getStatus(jobId);
+        Path file = reportJobService.getResultFile(jobId);
+        if (job == null || file == null || !ReportJobService.FORMAT_EXCEL.equals(job.get("format"))) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND, "Báo cáo chưa sẵn sàng hoặc đã hết hạn");
+            return;
+        }
+        prepareExcelResponse(response, job.get("reportType") + "-report.xlsx");
+        response.setContentLengthLong(Files.size(file));
+        Files.copy(file, response.getOutputStream());
+    }
+
     @GetMapping("/orders/print/{id}")
     public String printOrder(@PathVariable Long id, Model model) {
         Order order = orderService.findById(id);
@@ -290,26 +336,24 @@ public class AdminController {
     }
 
     @GetMapping("/orders/export")
-    public ResponseEntity<byte[]> exportOrders(
+    public void exportOrders(
             @RequestParam(required = false) String status,
             @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM-dd") Date fromDate,
-            @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM-dd") Date toDate) {
-        List<Order> orders = orderService.findByStatusAndDateRange(status, fromDate, toDate);
-        byte[] excelContent = orderService.generateOrderExcel(orders);
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(
-                MediaType.parseMediaType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"));
-        headers.setContentDispositionFormData("attachment",
+            @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM-dd") Date toDate,
+            HttpServletResponse response) throws IOException {
+        // Ghi thẳng ra response theo từng lô, không dựng cả file trong bộ nhớ
+        prepareExcelResponse(response,
                 "orders_export_" + new SimpleDateFormat("yyyyMMdd").format(new Date()) + ".xlsx");
-        headers.setContentLength(excelContent.length);
-        return new ResponseEntity<>(excelContent, headers, HttpStatus.OK);
+        orderService.writeOrderExcel(status, fromDate, toDate, response.getOutputStream());
     }
 
     @GetMapping("/reports/export")
-    public ResponseEntity<byte[]> exportReports(
+    public void exportReports(
             @RequestParam(defaultValue = "sales") String reportType,
             @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM-dd") Date fromDate,
-            @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM-dd") Date toDate) {
+            @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM-dd") Date toDate,
+            HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
         if (fromDate == null) {
             Calendar cal = Calendar.getInstance();
             cal.add(Calendar.DAY_OF_MONTH, -30);
@@ -318,13 +362,35 @@ public class AdminController {
         if (toDate == null) {
             toDate = new Date();
         }
-        byte[] excelContent = reportService.exportReportToExcel(reportType, fromDate, toDate);
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(
-                MediaType.parseMediaType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"));
-        headers.setContentDispositionFormData("attachment", reportType + "-report.xlsx");
-        headers.setContentLength(excelContent.length);
-        return new ResponseEntity<>(excelContent, headers, HttpStatus.OK);
+        Map<String, Object> job;
+        try {
+            job = reportJobService.submit(ReportJobService.FORMAT_EXCEL, reportType, "monthly", fromDate, toDate);
+        } catch (IllegalStateException e) {
+            response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, e.getMessage());
+            return;
+        }
+        String jobId = (String) job.get("jobId");
+        job = reportJobService.await(jobId, reportInlineWaitMs);
+        if (job == null) {
+            response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE,
+                    "Kết quả báo cáo đã hết hạn, vui lòng thử lại");
+            return;
+        }
+        if (ReportJobService.STATUS_DONE.equals(job.get("status"))) {
+            downloadReportJob(jobId, response);
+            return;
+        }
+        // Chưa xong: quay lại trang báo cáo, trang sẽ theo dõi job và tải file khi hoàn tất
+        SimpleDateFormat dayFormat = new SimpleDateFormat("yyyy-MM-dd");
+        response.sendRedirect(request.getContextPath() + "/admin/reports?reportType=" + reportType
+                + "&fromDate=" + dayFormat.format(fromDate) + "&toDate=" + dayFormat.format(toDate)
+                + "&exportJobId=" + jobId);
+    }
+
+    private void prepareExcelResponse(HttpServletResponse response, String fileName) {
+        response.setContentType(ExcelUtils.CONTENT_TYPE);
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                ContentDisposition.attachment().filename(fileName).build().toString());
     }
 
     @PostMapping("/users/add")
@@ -681,17 +747,8 @@ public class AdminController {
                     }
                 } catch (Exception e) {
                 }
-                orderService.updateWithoutHistory(order);
-                orderService.addOrderStatusHistory(order, status, note, userId);
-                if (userDetails != null && currentUser != null) {
-                    String ipAddress = IpUtils.getClientIpAddress(request);
-                    recentActivityService.logOrderStatusChanged(
-                            currentUser.getEmail(),
-                            currentUser.getFullname(),
-                            order.getId(),
-                            status,
-                            ipAddress);
-                }
+                orderService.changeStatus(order, previousStatus, note != null && !note.isEmpty() ? note : null,
+                        userId, IpUtils.getClientIpAddress(request));
                 if ("COMPLETED".equals(status)) {
                 }
                 redirectAttributes.addFlashAttribute("successMessage",
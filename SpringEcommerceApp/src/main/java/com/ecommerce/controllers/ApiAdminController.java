@@ -4,18 +4,31 @@ import com.ecommerce.pojo.Product;
 import com.ecommerce.pojo.Role;
 import com.ecommerce.pojo.Store;
 import com.ecommerce.pojo.User;
+import com.ecommerce.services.ActivityFeedService;
+import com.ecommerce.services.ActivityLogWriter;
+import com.ecommerce.services.CacheStatisticsService;
+import com.ecommerce.services.DashboardMetricsService;
+import com.ecommerce.services.EmailOutboxService;
+import com.ecommerce.services.HotStockService;
+import com.ecommerce.services.OrderEventService;
+import com.ecommerce.services.ProductSearchService;
 import com.ecommerce.services.ProductService;
+import com.ecommerce.services.RecentActivityService;
 import com.ecommerce.services.RoleService;
+import com.ecommerce.services.SalesRollupService;
 import com.ecommerce.services.StoreService;
 import com.ecommerce.services.UserService;
+import com.ecommerce.utils.ConnectionPoolMetrics;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.time.LocalDate;
 import java.util.*;
 
 @RestController
@@ -33,7 +46,155 @@ public class ApiAdminController {
     private ProductService productService;
 
     @Autowired
-    private StoreService storeService; // API để lấy danh sách người dùng với phân trang và lọc
+    private StoreService storeService;
+
+    @Autowired
+    private ConnectionPoolMetrics connectionPoolMetrics;
+
+    @Autowired
+    private CacheStatisticsService cacheStatisticsService;
+    @Autowired
+    private DashboardMetricsService dashboardMetricsService;
+    @Autowired
+    private ProductSearchService productSearchService;
+    @Autowired
+    private SalesRollupService salesRollupService;
+    @Autowired
+    private HotStockService hotStockService;
+
+    @Autowired
+    private ActivityLogWriter activityLogWriter;
+
+    @Autowired
+    private ActivityFeedService activityFeedService;
+
+    @Autowired
+    private EmailOutboxService emailOutboxService;
+
+    @Autowired
+    private OrderEventService orderEventService;
+
+    @Autowired
+    private RecentActivityService recentActivityService;
+
+    // API để xem số liệu connection pool (active, idle, pending, histogram thời gian lấy connection)
+    @GetMapping("/metrics/db-pool")
+    public ResponseEntity<?> getConnectionPoolMetrics() {
+        return ResponseEntity.ok(Map.of("success", true, "pools", connectionPoolMetrics.snapshot()));
+    }
+
+    // API để xem hit/miss/eviction của từng region second-level cache của Hibernate
+    @GetMapping("/metrics/l2-cache")
+    public ResponseEntity<?> getSecondLevelCacheMetrics() {
+        return ResponseEntity.ok(Map.of("success", true, "cache", cacheStatisticsService.getSecondLevelCacheStatistics()));
+    }
+
+    // API để xem hit ratio, số lần eviction và thời gian load của các cache ứng dụng (users, products, ...)
+    @GetMapping("/metrics/caches")
+    public ResponseEntity<?> getApplicationCacheMetrics() {
+        return ResponseEntity.ok(Map.of("success", true, "caches", cacheStatisticsService.getApplicationCacheStatistics()));
+    }
+
+    // API để xem trạng thái index tìm kiếm sản phẩm
+    @GetMapping("/metrics/search-index")
+    public ResponseEntity<?> getSearchIndexMetrics() {
+        return ResponseEntity.ok(Map.of("success", true, "index", productSearchService.getStatistics()));
+    }
+
+    // API để rebuild index tìm kiếm sản phẩm (chạy nền)
+    @PostMapping("/search-index/rebuild")
+    public ResponseEntity<?> rebuildSearchIndex() {
+        Thread rebuildThread = new Thread(productSearchService::rebuild, "product-index-rebuild");
+        rebuildThread.setDaemon(true);
+        rebuildThread.start();
+        return ResponseEntity.ok(Map.of("success", true, "message", "Đang rebuild index tìm kiếm"));
+    }
+
+    // API để xem bộ đếm tồn kho trong bộ nhớ của các sản phẩm hot và tình trạng flush
+    @GetMapping("/metrics/hot-stock")
+    public ResponseEntity<?> getHotStockMetrics() {
+        return ResponseEntity.ok(Map.of("success", true, "hotStock", hotStockService.getStatistics()));
+    }
+
+    // API để xem hàng đợi ghi nhật ký hoạt động (số bản ghi chờ, đã ghi, bị bỏ)
+    @GetMapping("/metrics/activity-log")
+    public ResponseEntity<?> getActivityLogMetrics() {
+        return ResponseEntity.ok(Map.of("success", true, "activityLog", activityLogWriter.getStatistics()));
+    }
+
+    // API để xem số kết nối SSE tới luồng hoạt động, số sự kiện đã gửi và số kết nối chậm bị ngắt
+    @GetMapping("/metrics/activity-feed")
+    public ResponseEntity<?> getActivityFeedMetrics() {
+        return ResponseEntity.ok(Map.of("success", true, "activityFeed", activityFeedService.getStatistics()));
+    }
+
+    // API để xem hàng đợi email (số email theo trạng thái, đã gửi, thử lại, bỏ cuộc)
+    @GetMapping("/metrics/email-outbox")
+    public ResponseEntity<?> getEmailOutboxMetrics() {
+        return ResponseEntity.ok(Map.of("success", true, "emailOutbox", emailOutboxService.getStatistics()));
+    }
+
+    // API để xem outbox sự kiện đơn hàng (số sự kiện theo trạng thái, đã xử lý, thử lại, bỏ cuộc)
+    @GetMapping("/metrics/order-events")
+    public ResponseEntity<?> getOrderEventMetrics() {
+        return ResponseEntity.ok(Map.of("success", true, "orderEvents", orderEventService.getStatistics()));
+    }
+
+    // API để tính lại bảng tổng hợp doanh số theo ngày (chạy nền), mặc định 30 ngày gần nhất
+    @PostMapping("/rollups/backfill")
+    public ResponseEntity<?> backfillSalesRollups(
+            @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate fromDate,
+            @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate toDate) {
+        LocalDate to = toDate != null ? toDate : LocalDate.now();
+        LocalDate from = fromDate != null ? fromDate : to.minusDays(29);
+        if (from.isAfter(to)) {
+            return ResponseEntity.badRequest().body(Map.of("success", false, "message", "Khoảng ngày không hợp lệ"));
+        }
+        Thread backfillThread = new Thread(() -> salesRollupService.backfill(from, to), "sales-rollup-backfill");
+        backfillThread.setDaemon(true);
+        backfillThread.start();
+        return ResponseEntity.ok(Map.of("success", true,
+                "message", "Đang tính lại bảng tổng hợp doanh số từ " + from + " đến " + to));
+    }
+
+    // API để chuyển bảng recent_activity sang partition theo ngày (chạy nền, chặn ghi nhật ký trong lúc chạy)
+    @PostMapping("/activity/partition")
+    public ResponseEntity<?> partitionRecentActivity() {
+        Thread partitionThread = new Thread(() -> {
+            try {
+                if (!recentActivityService.partitionTable()) {
+                    logger.warn("recent_activity was not partitioned: unsupported, already partitioned or busy");
+                }
+            } catch (Exception e) {
+                logger.error("Partitioning recent_activity failed: {}", e.getMessage(), e);
+            }
+        }, "activity-partition");
+        partitionThread.setDaemon(true);
+        partitionThread.start();
+        return ResponseEntity.ok(Map.of("success", true,
+                "message", "Đang chuyển bảng recent_activity sang partition theo ngày, xem log để biết kết quả"));
+    }
+
+    // API để kiểm tra bảng tổng hợp doanh số với dữ liệu gốc và sửa các ngày bị lệch
+    @PostMapping("/rollups/reconcile")
+    public ResponseEntity<?> reconcileSalesRollups(
+            @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate fromDate,
+            @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate toDate) {
+        LocalDate to = toDate != null ? toDate : LocalDate.now();
+        LocalDate from = fromDate != null ? fromDate : to.minusDays(6);
+        if (from.isAfter(to)) {
+            return ResponseEntity.badRequest().body(Map.of("success", false, "message", "Khoảng ngày không hợp lệ"));
+        }
+        return ResponseEntity.ok(Map.of("success", true, "result", salesRollupService.reconcile(from, to)));
+    }
+
+    // API để lấy số liệu dashboard đã tổng hợp sẵn (không truy vấn database)
+    @GetMapping("/metrics/dashboard")
+    public ResponseEntity<?> getDashboardMetrics() {
+        return ResponseEntity.ok(Map.of("success", true, "metrics", dashboardMetricsService.getDashboardMetrics()));
+    }
+
+    // API để lấy danh sách người dùng với phân trang và lọc
 
     @GetMapping("/users")
     public ResponseEntity<?> getAllUsers(
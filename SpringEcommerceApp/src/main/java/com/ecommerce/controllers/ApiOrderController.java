@@ -3,6 +3,7 @@ package com.ecommerce.controllers;
 import com.ecommerce.dtos.OrderDTO;
 import com.ecommerce.dtos.OrderCreateDTO;
 import com.ecommerce.dtos.OrderSummaryDTO;
+import com.ecommerce.exceptions.ProductException;
 import com.ecommerce.pojo.Order;
 import com.ecommerce.pojo.OrderDetail;
 import com.ecommerce.pojo.OrderStatusHistory;
@@ -13,11 +14,9 @@ import com.ecommerce.pojo.User;
 import com.ecommerce.services.OrderService;
 import com.ecommerce.services.PaymentService;
 import com.ecommerce.services.OrderDetailService;
-import com.ecommerce.services.ProductService;
 import com.ecommerce.services.UserService;
-import com.ecommerce.services.EmailService;
-import com.ecommerce.services.RecentActivityService;
 import com.ecommerce.services.OrderValidationService;
+import com.ecommerce.services.OrderValidationContext;
 import com.ecommerce.utils.JwtUtils;
 import com.ecommerce.utils.IpUtils;
 import jakarta.servlet.http.HttpServletRequest;
@@ -39,6 +38,7 @@ import java.util.Map;
 
 public class ApiOrderController {
     private static final Logger logger = LoggerFactory.getLogger(ApiOrderController.class);
+    private static final int MAX_ORDER_PAGE_SIZE = 100;
 
     @Autowired
     private OrderService orderService;
@@ -47,14 +47,8 @@ public class ApiOrderController {
     @Autowired
     private UserService userService;
     @Autowired
-    private ProductService productService;
-    @Autowired
     private PaymentService paymentService;
     @Autowired
-    private EmailService emailService;
-    @Autowired
-    private RecentActivityService recentActivityService;
-    @Autowired
     private OrderValidationService orderValidationService;
 
     @GetMapping("")
@@ -151,8 +145,13 @@ public class ApiOrderController {
         }
     }
 
+    // Không truyền size thì trả về toàn bộ lịch sử (mảng); có size thì phân trang keyset theo ngày đặt,
+    // trang sau truyền beforeDate (epoch millis) và beforeId lấy từ nextBeforeDate/nextBeforeId
     @GetMapping("/my-orders")
-    public ResponseEntity<?> getMyOrders(HttpServletRequest request) {
+    public ResponseEntity<?> getMyOrders(HttpServletRequest request,
+            @RequestParam(required = false) Integer size,
+            @RequestParam(required = false) Long beforeDate,
+            @RequestParam(required = false) Long beforeId) {
         try {
             String authHeader = request.getHeader("Authorization");
             String jwtToken = null;
@@ -171,9 +170,29 @@ public class ApiOrderController {
                         .body(Map.of("success", false, "message", "User not found"));
             }
             try {
-                List<OrderSummaryDTO> orders = orderService.findByUserIdAsDTO(user.getId());
-                logger.debug("About to return {} order DTOs to frontend", orders.size());
-                return ResponseEntity.ok(orders);
+                if (size == null) {
+                    List<OrderSummaryDTO> orders = orderService.findByUserIdAsDTO(user.getId());
+                    logger.debug("About to return {} order DTOs to frontend", orders.size());
+                    return ResponseEntity.ok(orders);
+                }
+                int pageSize = Math.max(1, Math.min(size, MAX_ORDER_PAGE_SIZE));
+                // Lấy dư một dòng để biết còn trang sau hay không
+                List<OrderSummaryDTO> orders = orderService.findByUserIdAsDTO(user.getId(),
+                        beforeDate != null ? new Date(beforeDate) : null, beforeId, pageSize + 1);
+                boolean hasMore = orders.size() > pageSize;
+                if (hasMore) {
+                    orders = orders.subList(0, pageSize);
+                }
+                Map<String, Object> response = new HashMap<>();
+                response.put("success", true);
+                response.put("orders", orders);
+                response.put("hasMore", hasMore);
+                if (hasMore) {
+                    OrderSummaryDTO last = orders.get(orders.size() - 1);
+                    response.put("nextBeforeDate", last.getOrderDate().getTime());
+                    response.put("nextBeforeId", last.getId());
+                }
+                return ResponseEntity.ok(response);
             } catch (Exception e) {
                 logger.error("Error fetching orders for user {}", user.getId(), e);
                 return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -195,23 +214,9 @@ public class ApiOrderController {
             if (order.getStatus() == null || order.getStatus().isEmpty()) {
                 order.setStatus("PENDING");
             }
-            orderService.save(order);
             String username = JwtUtils.extractUsernameFromRequest(request);
             User user = userService.findByUsername(username);
-            if (user != null) {
-                orderService.addOrderStatusHistory(order, order.getStatus(), "Order created", user.getId());
-                String ipAddress = IpUtils.getClientIpAddress(request);
-                recentActivityService.logOrderCreated(
-                        user.getEmail(),
-                        user.getFullname() != null ? user.getFullname() : user.getUsername(),
-                        order.getId(),
-                        ipAddress);
-            }
-            try {
-                emailService.sendOrderConfirmationEmail(order);
-            } catch (Exception e) {
-                logger.warn("Failed to send order confirmation email", e);
-            }
+            orderService.save(order, user != null ? user.getId() : null, IpUtils.getClientIpAddress(request));
             return ResponseEntity.ok(Map.of(
                     "success", true,
                     "message", "Order created successfully",
@@ -244,8 +249,6 @@ public class ApiOrderController {
             String paymentMethod = request.get("paymentMethod");
             String transactionId = request.get("transactionId");
             String note = request.get("note");
-            String previousStatus = order.getStatus();
-            order.setStatus("PROCESSING");
             String statusNote = "Payment completed via " + (paymentMethod != null ? paymentMethod : "online payment");
             if (transactionId != null && !transactionId.isEmpty()) {
                 statusNote += " (Transaction ID: " + transactionId + ")";
@@ -253,15 +256,7 @@ public class ApiOrderController {
             if (note != null && !note.isEmpty()) {
                 statusNote += " - " + note;
             }
-            orderService.updateWithoutHistory(order);
-            if (user != null) {
-                orderService.addOrderStatusHistory(order, "PROCESSING", statusNote, user.getId());
-            }
-            try {
-                emailService.sendOrderStatusUpdateEmail(order, previousStatus, "PROCESSING");
-            } catch (Exception e) {
-                logger.warn("Failed to send payment completion email", e);
-            }
+            boolean completed = orderService.completePayment(order, statusNote, user != null ? user.getId() : null);
             Map<String, Object> orderResponse = Map.of(
                     "id", order.getId(),
                     "status", order.getStatus(),
@@ -270,7 +265,7 @@ public class ApiOrderController {
                     "userId", order.getUser().getId());
             return ResponseEntity.ok(Map.of(
                     "success", true,
-                    "message", "Payment completed successfully",
+                    "message", completed ? "Payment completed successfully" : "Payment was already completed",
                     "order", orderResponse));
         } catch (Exception e) {
             logger.error("Error marking payment completed for order: {}", id, e);
@@ -301,27 +296,8 @@ public class ApiOrderController {
             User user = userService.findByUsername(username);
             Long userId = user != null ? user.getId() : null;
             order.setStatus(status);
-            if (note != null && !note.isEmpty()) {
-                orderService.updateWithoutHistory(order);
-                orderService.addOrderStatusHistory(order, status, note, userId);
-            } else {
-                orderService.update(order, userId);
-            }
-            if (user != null) {
-                String ipAddress = IpUtils.getClientIpAddress(httpRequest);
-                recentActivityService.logOrderStatusChanged(
-                        user.getEmail(),
-                        user.getFullname() != null ? user.getFullname() : user.getUsername(),
-                        order.getId(),
-                        status,
-                        ipAddress);
-            }
-            try {
-                emailService.sendOrderStatusUpdateEmail(order, previousStatus, status);
-                logger.debug("Email notification sent successfully for order #{}", order.getId());
-            } catch (Exception e) {
-                logger.warn("Failed to send order status update email", e);
-            }
+            orderService.changeStatus(order, previousStatus, note != null && !note.isEmpty() ? note : null, userId,
+                    IpUtils.getClientIpAddress(httpRequest));
             Map<String, Object> safeOrderData = Map.of(
                     "id", order.getId(),
                     "status", order.getStatus(),
@@ -502,8 +478,9 @@ public class ApiOrderController {
                 return ResponseEntity.status(HttpStatus.BAD_REQUEST)
                         .body(Map.of("success", false, "message", e.getMessage()));
             }
+            OrderValidationContext validationContext;
             try {
-                orderValidationService.validateOrderCreation(orderCreateDTO);
+                validationContext = orderValidationService.validateOrderCreation(orderCreateDTO);
             } catch (Exception validationException) {
                 return ResponseEntity.status(HttpStatus.BAD_REQUEST)
                         .body(Map.of("success", false, "message",
@@ -557,7 +534,7 @@ public class ApiOrderController {
                                         "Invalid order item data (productId/quantity/price is required)"));
                     }
                     OrderDetail detail = new OrderDetail();
-                    Product product = productService.findById(itemDTO.getProductId());
+                    Product product = validationContext.getProduct(itemDTO.getProductId());
                     if (product != null) {
                         detail.setProduct(product);
                         detail.setQuantity(itemDTO.getQuantity());
@@ -592,17 +569,12 @@ public class ApiOrderController {
             }
             OrderStatusHistory initialStatus = new OrderStatusHistory(order, order.getStatus(), "Order created", user);
             order.addStatusHistory(initialStatus);
-            orderService.save(order);
-            String ipAddress = IpUtils.getClientIpAddress(request);
-            recentActivityService.logOrderCreated(
-                    user.getEmail(),
-                    user.getFullname() != null ? user.getFullname() : user.getUsername(),
-                    order.getId(),
-                    ipAddress);
             try {
-                emailService.sendOrderConfirmationEmail(order);
-            } catch (Exception e) {
-                logger.warn("Failed to send order confirmation email", e);
+                orderService.save(order, user.getId(), IpUtils.getClientIpAddress(request));
+            } catch (ProductException.InsufficientStockException e) {
+                // Hàng vừa bị đơn khác mua hết sau bước kiểm tra
+                return ResponseEntity.status(HttpStatus.CONFLICT)
+                        .body(Map.of("success", false, "message", e.getMessage()));
             }
             return ResponseEntity.ok(Map.of(
                     "success", true,
@@ -677,19 +649,9 @@ public class ApiOrderController {
                 logger.error("Error saving/updating payment", paymentException);
                 throw paymentException;
             }
-            String previousStatus = order.getStatus();
-            order.setStatus("PROCESSING");
             String statusNote = "PayPal payment completed (Order ID: " + paypalOrderId +
                     ", Capture ID: " + captureId + ")";
-            orderService.updateWithoutHistory(order);
-            if (user != null) {
-                orderService.addOrderStatusHistory(order, "PROCESSING", statusNote, user.getId());
-            }
-            try {
-                emailService.sendOrderStatusUpdateEmail(order, previousStatus, "PROCESSING");
-            } catch (Exception e) {
-                logger.warn("Failed to send payment completion email", e);
-            }
+            boolean completed = orderService.completePayment(order, statusNote, user != null ? user.getId() : null);
             Map<String, Object> orderResponse = Map.of(
                     "id", order.getId(),
                     "status", order.getStatus(),
@@ -705,7 +667,8 @@ public class ApiOrderController {
                     "paymentDate", payment.getPaymentDate());
             return ResponseEntity.ok(Map.of(
                     "success", true,
-                    "message", "PayPal payment completed successfully",
+                    "message", completed ? "PayPal payment completed successfully"
+                            : "PayPal payment was already completed",
                     "order", orderResponse,
                     "payment", paymentResponse));
         } catch (Exception e) {
@@ -5,6 +5,7 @@ import com.ecommerce.pojo.Category;
 import com.ecommerce.pojo.Product;
 import com.ecommerce.pojo.Store;
 import com.ecommerce.pojo.User;
+import com.ecommerce.services.AutocompleteService;
 import com.ecommerce.services.CategoryService;
 import com.ecommerce.services.ProductService;
 import com.ecommerce.services.RecentActivityService;
@@ -40,6 +41,8 @@ public class ApiProductController {
     private RecentActivityService recentActivityService;
     @Autowired
     private UserService userService;
+    @Autowired
+    private AutocompleteService autocompleteService;
 
     @GetMapping("")
     public ResponseEntity<?> getAllProducts(@RequestParam(value = "q", required = false) String keyword) {
@@ -218,8 +221,16 @@ public class ApiProductController {
             @RequestParam(defaultValue = "name") String sortBy,
             @RequestParam(defaultValue = "asc") String sortDir,
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "20") int size) {
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(required = false) Long categoryId,
+            @RequestParam(required = false) Boolean inStock,
+            @RequestParam(defaultValue = "false") boolean facets) {
         try {
+            // facets=true: trả về trang kết quả kèm số lượng theo danh mục, cửa hàng, khoảng giá, tồn kho
+            if (facets) {
+                return ResponseEntity.ok(productService.searchWithFacets(name, categoryId, storeId, minPrice,
+                        maxPrice, inStock, sortBy, sortDir, page, size));
+            }
             List<Product> products = productService.searchAdvanced(name, storeId, minPrice, maxPrice, sortBy, sortDir,
                     page, size);
             return ResponseEntity.ok(products);
@@ -230,6 +241,14 @@ public class ApiProductController {
         }
     }
 
+    // Gợi ý khi đang gõ (tên sản phẩm, danh mục, cửa hàng), sắp xếp theo độ phổ biến
+    @GetMapping("/autocomplete")
+    public ResponseEntity<?> autocomplete(
+            @RequestParam("q") String prefix,
+            @RequestParam(defaultValue = "8") int limit) {
+        return ResponseEntity.ok(autocompleteService.suggest(prefix, limit));
+    }
+
     @GetMapping("/compare")
     public ResponseEntity<?> compareProductsByCategory(@RequestParam Long categoryId) {
         try {
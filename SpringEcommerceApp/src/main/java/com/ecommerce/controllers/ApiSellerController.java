@@ -2,10 +2,9 @@ package com.ecommerce.controllers;
 
 import com.ecommerce.pojo.SellerRequest;
 import com.ecommerce.pojo.User;
-import com.ecommerce.pojo.Order;
 import com.ecommerce.services.SellerRequestService;
 import com.ecommerce.services.UserService;
-import com.ecommerce.services.OrderService;
+import com.ecommerce.services.ReportService;
 import com.ecommerce.utils.JwtUtils;
 import java.util.List;
 import java.util.Map;
@@ -37,7 +36,7 @@ public class ApiSellerController {
     @Autowired
     private UserService userService;
     @Autowired
-    private OrderService orderService;
+    private ReportService reportService;
 
     @PostMapping(value = "/register", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
     public ResponseEntity<?> registerSeller(
@@ -328,109 +327,8 @@ public class ApiSellerController {
                 }
                 fromDate = cal.getTime();
             }
-            List<Order> sellerOrders = orderService.findOrdersBySellerId(currentUser.getId());
-            List<Order> filteredOrders = sellerOrders.stream()
-                    .filter(order -> {
-                        Date orderDate = order.getOrderDate();
-                        return orderDate.compareTo(fromDate) >= 0 && orderDate.compareTo(toDate) <= 0;
-                    })
-                    .collect(java.util.stream.Collectors.toList());
-            Map<String, Object> statistics = new HashMap<>();
-            double totalRevenue = filteredOrders.stream()
-                    .mapToDouble(Order::getTotalAmount)
-                    .sum();
-            int totalOrders = filteredOrders.size();
-            double avgOrderValue = totalOrders > 0 ? totalRevenue / totalOrders : 0;
-            Map<String, Double> revenueByPeriod = new HashMap<>();
-            SimpleDateFormat periodFormat;
-            if ("quarter".equals(period)) {
-                periodFormat = new SimpleDateFormat("yyyy");
-                for (Order order : filteredOrders) {
-                    Calendar orderCal = Calendar.getInstance();
-                    orderCal.setTime(order.getOrderDate());
-                    int year = orderCal.get(Calendar.YEAR);
-                    int month = orderCal.get(Calendar.MONTH) + 1;
-                    int quarter = (month - 1) / 3 + 1;
-                    String quarterKey = year + "-Q" + quarter;
-                    revenueByPeriod.merge(quarterKey, order.getTotalAmount(), (current, add) -> current + add);
-                }
-            } else if ("year".equals(period)) {
-                periodFormat = new SimpleDateFormat("yyyy");
-                for (Order order : filteredOrders) {
-                    String yearKey = periodFormat.format(order.getOrderDate());
-                    revenueByPeriod.merge(yearKey, order.getTotalAmount(), (current, add) -> current + add);
-                }
-            } else {
-                periodFormat = new SimpleDateFormat("yyyy-MM");
-                for (Order order : filteredOrders) {
-                    String monthKey = periodFormat.format(order.getOrderDate());
-                    revenueByPeriod.merge(monthKey, order.getTotalAmount(), (current, add) -> current + add);
-                }
-            }
-            Map<String, Integer> productSales = new HashMap<>();
-            Map<String, Double> productRevenue = new HashMap<>();
-            for (Order order : filteredOrders) {
-                if (order.getOrderDetails() != null) {
-                    order.getOrderDetails().forEach(detail -> {
-                        String productName = detail.getProduct().getName();
-                        Integer quantity = detail.getQuantity();
-                        int safeQuantity = quantity != null ? quantity : 0;
-                        productSales.merge(productName, safeQuantity,
-                                (current, add) -> (current == null ? 0 : current) + (add == null ? 0 : add));
-                        productRevenue.merge(productName, safeQuantity * detail.getPrice(),
-                            (current, add) -> current + add);
-                    });
-                }
-            }
-            List<Map<String, Object>> topProducts = productSales.entrySet().stream()
-                    .sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
-                    .limit(5)
-                    .map(entry -> {
-                        Map<String, Object> product = new HashMap<>();
-                        product.put("name", entry.getKey());
-                        product.put("quantity", entry.getValue());
-                        product.put("revenue", productRevenue.getOrDefault(entry.getKey(), 0.0));
-                        return product;
-                    })
-                    .collect(java.util.stream.Collectors.toList());
-            Map<String, Double> categoryRevenue = new HashMap<>();
-            for (Order order : filteredOrders) {
-                if (order.getOrderDetails() != null) {
-                    order.getOrderDetails().forEach(detail -> {
-                        String categoryName = detail.getProduct().getCategory() != null
-                                ? detail.getProduct().getCategory().getName()
-                                : "Uncategorized";
-                        categoryRevenue.merge(categoryName, detail.getQuantity() * detail.getPrice(),
-                            (current, add) -> current + add);
-                    });
-                }
-            }
-            Map<String, Object> summary = new HashMap<>();
-            summary.put("totalRevenue", totalRevenue);
-            summary.put("totalOrders", totalOrders);
-            summary.put("totalProducts", productSales.size());
-            summary.put("averageOrderValue", avgOrderValue);
-            List<Map<String, Object>> revenueByPeriodList = revenueByPeriod.entrySet().stream()
-                    .sorted(Map.Entry.comparingByKey())
-                    .map(entry -> {
-                        Map<String, Object> item = new HashMap<>();
-                        item.put("period", entry.getKey());
-                        item.put("revenue", entry.getValue());
-                        return item;
-                    })
-                    .collect(java.util.stream.Collectors.toList());
-            List<Map<String, Object>> categoryRevenueList = categoryRevenue.entrySet().stream()
-                    .map(entry -> {
-                        Map<String, Object> item = new HashMap<>();
-                        item.put("name", entry.getKey());
-                        item.put("revenue", entry.getValue());
-                        return item;
-                    })
-                    .collect(java.util.stream.Collectors.toList());
-            statistics.put("summary", summary);
-            statistics.put("revenueByPeriod", revenueByPeriodList);
-            statistics.put("productRevenue", topProducts);
-            statistics.put("categoryRevenue", categoryRevenueList);
+            Map<String, Object> statistics = reportService.getSellerStatistics(currentUser.getId(), period,
+                    fromDate, toDate);
             statistics.put("dateRange", Map.of(
                     "from", new SimpleDateFormat("yyyy-MM-dd").format(fromDate),
                     "to", new SimpleDateFormat("yyyy-MM-dd").format(toDate)));
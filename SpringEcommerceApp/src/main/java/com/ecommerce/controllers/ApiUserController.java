@@ -1,5 +1,6 @@
 package com.ecommerce.controllers;
 import com.ecommerce.pojo.User;
+import com.ecommerce.services.LastLoginService;
 import com.ecommerce.services.UserService;
 import com.ecommerce.services.RecentActivityService;
 import com.ecommerce.utils.JwtUtils;
@@ -16,7 +17,6 @@ import org.springframework.security.core.context.SecurityContextHolder;
 import java.util.Map;
 import java.util.List;
 import java.util.HashMap;
-import java.util.Date;
 import java.util.Base64;
 import com.cloudinary.Cloudinary;
 import com.cloudinary.utils.ObjectUtils;
@@ -51,6 +51,8 @@ public class ApiUserController {
     @Autowired
     private RecentActivityService recentActivityService;
     @Autowired
+    private LastLoginService lastLoginService;
+    @Autowired
     private Cloudinary cloudinary;
     @GetMapping("")
     public List<User> getAllUsers() {
@@ -200,8 +202,7 @@ public class ApiUserController {
                             .body(new AuthResponse(false, "Lỗi hệ thống: User không tồn tại sau khi xác thực", null,
                                     null));
                 }
-                user.setLastLogin(new Date());
-                userService.update(user);
+                lastLoginService.recordLogin(user.getId());
                 String ipAddress = IpUtils.getClientIpAddress(request);
                 recentActivityService.logUserLogin(user.getEmail(), user.getUsername(), ipAddress);
                 String token = JwtUtils.generateToken(user.getUsername());
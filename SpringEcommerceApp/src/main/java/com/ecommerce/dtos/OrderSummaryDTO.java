@@ -1,5 +1,6 @@
 package com.ecommerce.dtos;
 
+import com.ecommerce.pojo.PaymentMethod;
 import java.util.Date;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -26,6 +27,33 @@ public class OrderSummaryDTO {
     private String firstProductName;
     private String storeName;
     private Long storeId;
+
+    // Dùng cho truy vấn projection lịch sử đơn hàng; giá trị mặc định giống khi chuyển từ entity Order
+    public OrderSummaryDTO(Long id, Date orderDate, String status, Double totalAmount, Long userId, String username,
+            String fullname, String email, PaymentMethod paymentMethod, String paymentStatus, Long itemCount,
+            String firstProductName, Long storeId, String storeName) {
+        this.id = id;
+        this.orderDate = orderDate;
+        this.status = status;
+        this.totalAmount = totalAmount;
+        this.userId = userId;
+        this.username = username;
+        this.customerId = userId;
+        this.customerName = userId == null ? "Khách hàng không xác định" : fullname != null ? fullname : username;
+        this.customerEmail = userId == null ? "" : email;
+        this.paymentMethod = paymentMethod != null ? paymentMethod.toString() : "Chưa xác định";
+        this.paymentStatus = paymentStatus != null ? paymentStatus : "Chưa thanh toán";
+        this.itemCount = itemCount != null ? itemCount.intValue() : 0;
+        this.orderDetailsCount = this.itemCount;
+        if (this.itemCount == 0) {
+            this.firstProductName = "Không có sản phẩm";
+            this.storeName = "Không có cửa hàng";
+        } else {
+            this.firstProductName = firstProductName != null ? firstProductName : "Sản phẩm không xác định";
+            this.storeName = storeId != null ? storeName : "Cửa hàng không xác định";
+            this.storeId = storeId;
+        }
+    }
     
  
     @Data
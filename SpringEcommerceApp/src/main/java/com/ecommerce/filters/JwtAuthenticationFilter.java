@@ -48,16 +48,23 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         // 3. Lấy token JWT từ header (bỏ "Bearer " ở đầu)
         try {
             String jwt = authHeader.substring(7);
+            // Chữ ký và hạn dùng chỉ được kiểm tra một lần ở đây (có cache theo digest của token)
             String username = JwtUtils.extractUsername(jwt);
             logger.debug("Extracted username from token: {}", username);
 
             // 4. Kiểm tra username và authentication trong context
             if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-                // 5. Lấy thông tin user từ database
-                UserDetails userDetails = userService.loadUserByUsername(username);
+                // 5. Lấy thông tin user: lưu cùng token đã xác thực, chỉ nạp từ UserService lần đầu hoặc sau khi
+                // user thay đổi (UserServiceImpl gọi JwtUtils.evictUserDetails)
+                UserDetails userDetails = JwtUtils.getCachedUserDetails(jwt);
+                if (userDetails == null) {
+                    long evictions = JwtUtils.userDetailsEvictions();
+                    userDetails = userService.loadUserByUsername(username);
+                    JwtUtils.cacheUserDetails(jwt, userDetails, evictions);
+                }
 
-                // 6. Xác thực token
-                if (userDetails != null && JwtUtils.validateToken(jwt, username)) {
+                // 6. Token đã được xác thực ở bước 3, chỉ cần user còn tồn tại
+                if (userDetails != null) {
                     UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
                             userDetails,
                             null,
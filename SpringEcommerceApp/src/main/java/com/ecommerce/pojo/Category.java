@@ -24,7 +24,7 @@ public class Category {
     
     private String description;
       @OneToMany(mappedBy = "category")
-    @Cache(usage = CacheConcurrencyStrategy.READ_ONLY)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
     @JsonIgnoreProperties("category")
     private Set<Product> products;
 
@@ -20,7 +20,9 @@ import java.util.Set;
  * OrderStatusHistory entities.
  */
 @Entity
-@Table(name = "orders")
+@Table(name = "orders", indexes = {
+        @Index(name = "idx_orders_order_date", columnList = "order_date"),
+        @Index(name = "idx_orders_user_order_date", columnList = "user_id, order_date") })
 
 @NoArgsConstructor
 @AllArgsConstructor
@@ -41,6 +43,12 @@ public class Order {
     @Column(nullable = false, length = 50)
     private String status;
 
+    // Số lần đổi trạng thái, chỉ tăng qua OrderRepository.nextStatusVersion (giá trị trên entity có thể cũ)
+    @Column(name = "status_version", nullable = false, insertable = false, updatable = false,
+            columnDefinition = "INT NOT NULL DEFAULT 0")
+    @JsonIgnore
+    private int statusVersion;
+
     @Column(name = "total_amount", nullable = false)
     private double totalAmount;
     
@@ -61,7 +69,7 @@ public class Order {
 
     @OneToMany(mappedBy = "order", fetch = FetchType.LAZY, cascade = { CascadeType.PERSIST,
             CascadeType.MERGE }, orphanRemoval = true)
-    @Cache(usage = CacheConcurrencyStrategy.READ_ONLY)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
     @JsonManagedReference
     private Set<OrderDetail> orderDetails;
 
@@ -104,6 +112,10 @@ public class Order {
         this.status = status;
     }
 
+    public int getStatusVersion() {
+        return statusVersion;
+    }
+
     public double getTotalAmount() {
         return totalAmount;
     }    public void setTotalAmount(double totalAmount) {
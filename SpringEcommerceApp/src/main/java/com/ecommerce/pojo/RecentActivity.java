@@ -11,7 +11,11 @@ import java.time.LocalDateTime;
 
 
 @Entity
-@Table(name = "recent_activity")
+@Table(name = "recent_activity", indexes = {
+        @Index(name = "idx_recent_activity_created", columnList = "created_at"),
+        @Index(name = "idx_recent_activity_type_created", columnList = "activity_type, created_at"),
+        @Index(name = "idx_recent_activity_user_created", columnList = "user_email, created_at")
+})
 @NoArgsConstructor
 @AllArgsConstructor
 @JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
@@ -0,0 +1,24 @@
+package com.ecommerce.pojo;
+
+import jakarta.persistence.*;
+
+/**
+ * Doanh số theo ngày của từng danh mục; doanh thu là tổng quantity * price các dòng thuộc danh mục.
+ */
+@Entity
+@Table(name = "sales_daily_category", uniqueConstraints = @UniqueConstraint(name = "uk_sales_daily_category",
+        columnNames = { "sale_date", "category_id", "status" }))
+public class SalesDailyCategory extends SalesDailyRollup {
+
+    // 0 nếu sản phẩm chưa có danh mục
+    @Column(name = "category_id", nullable = false)
+    private Long categoryId;
+
+    public Long getCategoryId() {
+        return categoryId;
+    }
+
+    public void setCategoryId(Long categoryId) {
+        this.categoryId = categoryId;
+    }
+}
@@ -0,0 +1,23 @@
+package com.ecommerce.pojo;
+
+import jakarta.persistence.*;
+
+/**
+ * Doanh số theo ngày của từng sản phẩm.
+ */
+@Entity
+@Table(name = "sales_daily_product", uniqueConstraints = @UniqueConstraint(name = "uk_sales_daily_product",
+        columnNames = { "sale_date", "product_id", "status" }))
+public class SalesDailyProduct extends SalesDailyRollup {
+
+    @Column(name = "product_id", nullable = false)
+    private Long productId;
+
+    public Long getProductId() {
+        return productId;
+    }
+
+    public void setProductId(Long productId) {
+        this.productId = productId;
+    }
+}
@@ -0,0 +1,81 @@
+package com.ecommerce.pojo;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDate;
+
+/**
+ * Các cột chung của bảng tổng hợp doanh số theo ngày. Mỗi dòng là số liệu của một ngày,
+ * một trạng thái đơn hàng và (ở lớp con) một cửa hàng / danh mục / sản phẩm.
+ * Dữ liệu do SalesRollupService ghi, không sửa trực tiếp qua entity.
+ */
+@MappedSuperclass
+public abstract class SalesDailyRollup {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "sale_date", nullable = false)
+    private LocalDate saleDate;
+
+    @Column(name = "status", nullable = false, length = 50)
+    private String status;
+
+    @Column(name = "order_count", nullable = false)
+    private long orderCount;
+
+    @Column(name = "items_sold", nullable = false)
+    private long itemsSold;
+
+    @Column(name = "revenue", nullable = false)
+    private double revenue;
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public LocalDate getSaleDate() {
+        return saleDate;
+    }
+
+    public void setSaleDate(LocalDate saleDate) {
+        this.saleDate = saleDate;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public long getOrderCount() {
+        return orderCount;
+    }
+
+    public void setOrderCount(long orderCount) {
+        this.orderCount = orderCount;
+    }
+
+    public long getItemsSold() {
+        return itemsSold;
+    }
+
+    public void setItemsSold(long itemsSold) {
+        this.itemsSold = itemsSold;
+    }
+
+    public double getRevenue() {
+        return revenue;
+    }
+
+    public void setRevenue(double revenue) {
+        this.revenue = revenue;
+    }
+}
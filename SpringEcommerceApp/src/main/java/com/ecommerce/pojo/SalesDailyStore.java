@@ -0,0 +1,24 @@
+package com.ecommerce.pojo;
+
+import jakarta.persistence.*;
+
+/**
+ * Doanh số theo ngày của từng cửa hàng; doanh thu là tổng quantity * price các dòng thuộc cửa hàng.
+ */
+@Entity
+@Table(name = "sales_daily_store", uniqueConstraints = @UniqueConstraint(name = "uk_sales_daily_store",
+        columnNames = { "sale_date", "store_id", "status" }))
+public class SalesDailyStore extends SalesDailyRollup {
+
+    // 0 nếu sản phẩm không thuộc cửa hàng nào
+    @Column(name = "store_id", nullable = false)
+    private Long storeId;
+
+    public Long getStoreId() {
+        return storeId;
+    }
+
+    public void setStoreId(Long storeId) {
+        this.storeId = storeId;
+    }
+}
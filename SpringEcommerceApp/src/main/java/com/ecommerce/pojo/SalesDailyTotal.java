@@ -0,0 +1,12 @@
+package com.ecommerce.pojo;
+
+import jakarta.persistence.*;
+
+/**
+ * Doanh số toàn sàn theo ngày và trạng thái; doanh thu là tổng total_amount của đơn.
+ */
+@Entity
+@Table(name = "sales_daily_totals", uniqueConstraints = @UniqueConstraint(name = "uk_sales_daily_totals",
+        columnNames = { "sale_date", "status" }))
+public class SalesDailyTotal extends SalesDailyRollup {
+}
@@ -0,0 +1,60 @@
+package com.ecommerce.pojo;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDate;
+
+/**
+ * Ngày, trạng thái và tổng tiền mà một đơn hàng đang được tính trong các bảng sales_daily_*.
+ * Khi đơn đổi trạng thái, phần đã tính theo trạng thái cũ được trừ ra trước khi cộng theo
+ * trạng thái mới, nên việc đồng bộ một đơn nhiều lần không làm lệch số liệu.
+ */
+@Entity
+@Table(name = "sales_rollup_state", indexes = @Index(name = "idx_sales_rollup_state_date", columnList = "sale_date"))
+public class SalesRollupState {
+
+    @Id
+    @Column(name = "order_id")
+    private Long orderId;
+
+    @Column(name = "sale_date", nullable = false)
+    private LocalDate saleDate;
+
+    @Column(name = "status", nullable = false, length = 50)
+    private String status;
+
+    @Column(name = "total_amount", nullable = false)
+    private double totalAmount;
+
+    public Long getOrderId() {
+        return orderId;
+    }
+
+    public void setOrderId(Long orderId) {
+        this.orderId = orderId;
+    }
+
+    public LocalDate getSaleDate() {
+        return saleDate;
+    }
+
+    public void setSaleDate(LocalDate saleDate) {
+        this.saleDate = saleDate;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public double getTotalAmount() {
+        return totalAmount;
+    }
+
+    public void setTotalAmount(double totalAmount) {
+        this.totalAmount = totalAmount;
+    }
+}
@@ -0,0 +1,113 @@
+package com.ecommerce.pojo;
+
+import jakarta.persistence.*;
+
+import java.util.Date;
+
+/**
+ * Số lượng một sản phẩm đã trừ khỏi kho cho một đơn hàng. Đơn thanh toán online (PayPal/MoMo)
+ * giữ chỗ có hạn: quá hạn mà chưa thanh toán thì hàng được trả về kho và đơn bị huỷ.
+ * Với sản phẩm bán chạy (hot), hàng được lấy từ bộ đếm trong bộ nhớ và stockPending = true
+ * cho tới khi lượt flush trừ số lượng này vào bảng products.
+ */
+@Entity
+@Table(name = "stock_reservations", indexes = {
+        @Index(name = "idx_stock_reservations_order", columnList = "order_id"),
+        @Index(name = "idx_stock_reservations_status_expires", columnList = "status, expires_at"),
+        @Index(name = "idx_stock_reservations_pending", columnList = "stock_pending")
+})
+public class StockReservation {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "order_id", nullable = false)
+    private Long orderId;
+
+    @Column(name = "product_id", nullable = false)
+    private Long productId;
+
+    @Column(nullable = false)
+    private int quantity;
+
+    @Column(nullable = false, length = 20)
+    private String status;
+
+    @Temporal(TemporalType.TIMESTAMP)
+    @Column(name = "created_at", nullable = false)
+    private Date createdAt;
+
+    // true nếu số lượng chưa được trừ vào products.quantity
+    @Column(name = "stock_pending", nullable = false)
+    private boolean stockPending;
+
+    // null nếu giữ chỗ không hết hạn (COD hoặc đã thanh toán)
+    @Temporal(TemporalType.TIMESTAMP)
+    @Column(name = "expires_at")
+    private Date expiresAt;
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getOrderId() {
+        return orderId;
+    }
+
+    public void setOrderId(Long orderId) {
+        this.orderId = orderId;
+    }
+
+    public Long getProductId() {
+        return productId;
+    }
+
+    public void setProductId(Long productId) {
+        this.productId = productId;
+    }
+
+    public int getQuantity() {
+        return quantity;
+    }
+
+    public void setQuantity(int quantity) {
+        this.quantity = quantity;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public boolean isStockPending() {
+        return stockPending;
+    }
+
+    public void setStockPending(boolean stockPending) {
+        this.stockPending = stockPending;
+    }
+
+    public Date getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(Date createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public Date getExpiresAt() {
+        return expiresAt;
+    }
+
+    public void setExpiresAt(Date expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+}
@@ -6,6 +6,8 @@ import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
 import java.util.Set;
 import java.util.Date;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
@@ -17,6 +19,7 @@ import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 @AllArgsConstructor
 
 @JsonIgnoreProperties({ "hibernateLazyInitializer", "handler" })
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 public class Store {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -0,0 +1,24 @@
+package com.ecommerce.repositories;
+
+import com.ecommerce.pojo.EmailOutbox;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+public interface EmailOutboxRepository {
+    void save(EmailOutbox email);
+
+    // Khoá tối đa limit email ở các trạng thái cho trước đã đến hạn (nextAttemptAt <= now), cũ nhất trước
+    List<EmailOutbox> findDueForUpdate(Collection<String> statuses, Date now, int limit);
+
+    List<EmailOutbox> findByIds(Collection<Long> ids);
+
+    int markSent(Collection<Long> ids, Date sentAt);
+
+    int deleteSentBefore(Date cutoff);
+
+    // Trạng thái -> số email
+    Map<String, Long> countByStatus();
+}
@@ -11,4 +11,5 @@ public interface OrderDetailRepository {
     List<OrderDetail> findAll();
     List<OrderDetail> findByOrderId(Long orderId);
     long countByProductId(Long productId);
+    List<Object[]> findQuantitySoldByProduct();
 }
\ No newline at end of file
@@ -0,0 +1,26 @@
+package com.ecommerce.repositories;
+
+import com.ecommerce.pojo.OrderEvent;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+public interface OrderEventRepository {
+    void save(OrderEvent event);
+
+    boolean existsByIdempotencyKey(String idempotencyKey);
+
+    // Khoá tối đa limit sự kiện ở các trạng thái cho trước đã đến hạn (nextAttemptAt <= now), theo thứ tự ghi
+    List<OrderEvent> findDueForUpdate(Collection<String> statuses, Date now, int limit);
+
+    // Khoá sự kiện nếu vẫn đang được giữ bởi lượt nhận có leaseUntil này, null nếu đã bị lượt khác nhận lại
+    OrderEvent findClaimedForUpdate(Long id, Date leaseUntil);
+
+    // Xoá sự kiện đã xử lý trước cutoff, trừ các loại trong keepTypes
+    int deleteDoneBefore(Date cutoff, Collection<String> keepTypes);
+
+    // Trạng thái -> số sự kiện
+    Map<String, Long> countByStatus();
+}
@@ -1,9 +1,11 @@
 package com.ecommerce.repositories;
 
+import com.ecommerce.dtos.OrderSummaryDTO;
 import com.ecommerce.pojo.Order;
 import org.springframework.stereotype.Repository;
 import java.util.Date;
 import java.util.List;
+import java.util.function.Consumer;
 
 @Repository
 public interface OrderRepository {
@@ -13,17 +15,45 @@ public interface OrderRepository {
     void delete(Long id);
     Order findById(Long id);
     List<Order> findAll();
+    // Tăng orders.status_version trong transaction hiện tại (khoá dòng đơn tới khi commit), trả về giá trị mới
+    int nextStatusVersion(Long orderId);
     
     List<Order> findByUserId(Long userId);
+    // Lịch sử đơn của người dùng dạng DTO, mới nhất trước; trang sau lấy các đơn trước (beforeDate, beforeId).
+    // limit <= 0 thì lấy hết
+    List<OrderSummaryDTO> findSummariesByUserId(Long userId, Date beforeDate, Long beforeId, int limit);
     List<Order> findByStatusAndDateRange(String status, Date fromDate, Date toDate);
+    // Duyệt đơn hàng bằng cursor, mỗi lần lấy fetchSize dòng, không giữ entity trong session
+    // [id, ngày đặt, tên khách, email, SĐT, trạng thái, địa chỉ giao, tổng tiền]
+    void scrollExportRows(String status, Date fromDate, Date toDate, int fetchSize, Consumer<Object[]> consumer);
+    // Các dòng sản phẩm của đơn, đơn không có dòng nào vẫn có một dòng với phần sản phẩm null
+    // [orderId, tổng tiền đơn, productId, tên sản phẩm, ảnh, tên danh mục, số lượng, đơn giá]
+    void scrollSalesLines(String status, Date fromDate, Date toDate, int fetchSize, Consumer<Object[]> consumer);
     List<Object[]> findOrderCountByStatus();
+    List<Object[]> findOrderTotalsByStatus();
     List<Object[]> findRevenueByDateRange(String groupBy, Date fromDate, Date toDate);
     List<Object[]> findOrderCountByDateRange(String groupBy, Date fromDate, Date toDate);
     List<Object[]> findTopSellingProducts(int limit);
     List<Object[]> findRevenueByCategoryDateRange(Date fromDate, Date toDate);
+    // [sellerId, fullname, username, email, số đơn, số sản phẩm bán, doanh thu] của mỗi người bán trong khoảng ngày
+    List<Object[]> findSalesBySeller(Date fromDate, Date toDate);
+
+    // Thống kê của một người bán, chỉ tính các dòng sản phẩm thuộc cửa hàng của người bán trong khoảng ngày
+    // [số đơn, doanh thu, số sản phẩm khác nhau]
+    Object[] findSellerSalesSummary(Long sellerId, Date fromDate, Date toDate);
+    // [năm, tháng, doanh thu]
+    List<Object[]> findSellerRevenueByMonth(Long sellerId, Date fromDate, Date toDate);
+    // [tên sản phẩm, số lượng bán, doanh thu], theo số lượng giảm dần
+    List<Object[]> findSellerTopProducts(Long sellerId, Date fromDate, Date toDate, int limit);
+    // [tên danh mục, doanh thu]
+    List<Object[]> findSellerRevenueByCategory(Long sellerId, Date fromDate, Date toDate);
    
     List<Order> findOrdersByStoreId(Long storeId);
     List<Order> findOrdersByStoreIdAndStatus(Long storeId, String status);
     List<Order> findOrdersBySellerId(Long sellerId);
     List<Order> findOrdersBySellerIdAndStatus(Long sellerId, String status);
+
+    // Lọc + phân trang phía database cho trang quản trị; afterId != null thì dùng keyset thay cho offset
+    List<Order> findByFilters(String status, Date fromDate, Date toDate, String keyword, Long afterId, int page, int size);
+    long countByFilters(String status, Date fromDate, Date toDate, String keyword);
 }
\ No newline at end of file
@@ -2,7 +2,9 @@ package com.ecommerce.repositories;
 
 import com.ecommerce.pojo.Product;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 public interface ProductRepository {
     void save(Product product);
@@ -10,8 +12,17 @@ public interface ProductRepository {
     void delete(Long id);
     Product findById(Long id);
     List<Product> findAll();
+    // searchAdvanced, searchWithFilters, countWithFilters, findByName, search: chỉ sản phẩm đang bán (như index
+    // tìm kiếm mà chúng thay thế khi index chưa sẵn sàng)
     List<Product> searchAdvanced(String name, Long storeId, Double minPrice, Double maxPrice, String sortBy, String sortDir, int page, int size);
 
+    // Như searchAdvanced, thêm lọc danh mục và còn hàng (inStock null = không lọc)
+    List<Product> searchWithFilters(String name, Long categoryId, Long storeId, Double minPrice, Double maxPrice,
+            Boolean inStock, String sortBy, String sortDir, int page, int size);
+
+    long countWithFilters(String name, Long categoryId, Long storeId, Double minPrice, Double maxPrice,
+            Boolean inStock);
+
     public List<Product> findByName(String name);
 
     public List<Product> findByCategoryId(Long categoryId);    public List<Product> findByPriceRange(Double minPrice, Double maxPrice);
@@ -19,4 +30,25 @@ public interface ProductRepository {
     public List<Product> search(String keyword);
     
     public List<Product> findByStoreId(Long storeId);
+
+    // Lọc + phân trang phía database cho trang quản trị; afterId != null thì dùng keyset thay cho offset
+    List<Product> findByFilters(String keyword, Long categoryId, Boolean active, Long afterId, int page, int size);
+
+    long countByFilters(String keyword, Long categoryId, Boolean active);
+
+    // Nạp sản phẩm theo danh sách id, giữ nguyên thứ tự của ids
+    List<Product> findByIds(Collection<Long> ids);
+
+    // Nạp nhiều sản phẩm trong một truy vấn, id không tồn tại thì không có trong map
+    Map<Long, Product> findAllByIds(Collection<Long> ids);
+
+    // Trừ kho có điều kiện (quantity >= số cần trừ) cho nhiều sản phẩm trong một batch JDBC.
+    // Trả về id các sản phẩm không đủ hàng (không bị trừ); không cập nhật second-level cache
+    List<Long> decrementStock(Map<Long, Integer> quantities);
+
+    // Cộng (có thể âm) vào tồn kho, không điều kiện; không cập nhật second-level cache
+    void addStock(Map<Long, Integer> quantities);
+
+    // Khoá dòng sản phẩm (SELECT ... FOR UPDATE) và trả về tồn kho hiện tại trong database, null nếu không có
+    Integer lockQuantity(Long productId);
 }
@@ -1,6 +1,7 @@
 package com.ecommerce.repositories;
 
 import com.ecommerce.pojo.RecentActivity;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
 
@@ -27,4 +28,19 @@ public interface RecentActivityRepository {
     Long countTodayActivities();
      
     void deleteOldActivities(LocalDateTime cutoffDate);
+
+    // Bảng chia partition theo ngày: partition pYYYYMMDD chứa các dòng của ngày đó, pmax chứa phần còn lại.
+    // Chỉ MySQL hỗ trợ; với database khác các hàm dưới đây không được gọi
+    boolean supportsPartitions();
+
+    // Danh sách rỗng nếu bảng chưa chia partition
+    List<String> findPartitionNames();
+
+    // Chuyển bảng sang partition theo ngày: các dòng trước firstDay nằm chung partition của ngày firstDay - 1
+    void partitionByDay(LocalDate firstDay, LocalDate lastDay);
+
+    // Tách các ngày mới ra khỏi pmax
+    void addDayPartitions(List<LocalDate> days);
+
+    void dropPartitions(List<String> partitionNames);
 }
@@ -0,0 +1,47 @@
+package com.ecommerce.repositories;
+
+import com.ecommerce.pojo.SalesRollupState;
+import java.time.LocalDate;
+import java.util.Date;
+import java.util.List;
+
+public interface SalesRollupRepository {
+    String TOTAL = "TOTAL";
+    String STORE = "STORE";
+    String CATEGORY = "CATEGORY";
+    String PRODUCT = "PRODUCT";
+
+    // Khoá dòng trạng thái (SELECT ... FOR UPDATE) để các lần đồng bộ cùng một đơn chạy tuần tự
+    SalesRollupState findStateForUpdate(Long orderId);
+    void saveState(SalesRollupState state);
+    // Chỉ dùng khi chắc chắn chưa có dòng (sau deleteDay)
+    void insertState(SalesRollupState state);
+    void deleteState(Long orderId);
+    long countStates();
+
+    // [orderDate, status, totalAmount] hiện tại của đơn, null nếu không có
+    Object[] findOrderSnapshot(Long orderId);
+    // [storeId, categoryId, productId, số lượng, doanh thu] theo sản phẩm của một đơn (0 nếu không có cửa hàng/danh mục)
+    List<Object[]> findOrderLines(Long orderId);
+
+    // Cộng dồn (có thể âm) vào dòng (ngày, dimensionId, trạng thái), tạo dòng nếu chưa có
+    void increment(String dimension, LocalDate saleDate, long dimensionId, String status,
+            long orderCount, long itemsSold, double revenue);
+
+    // Tính lại từ orders/order_details cho các đơn có orderDate trong [start, end)
+    List<Object[]> aggregateOrders(Date start, Date end);
+    List<Object[]> aggregateLines(String dimension, Date start, Date end);
+    Date findFirstOrderDate();
+
+    // Số liệu đã lưu của một ngày: [dimensionId, status, số đơn, số sản phẩm, doanh thu]
+    List<Object[]> findDay(String dimension, LocalDate day);
+    void deleteDay(LocalDate day);
+
+    // Đọc cho báo cáo, khoảng ngày tính cả hai đầu
+    // [ngày, số đơn, doanh thu]
+    List<Object[]> findTotalsByDay(LocalDate fromDay, LocalDate toDay);
+    // [tên danh mục, doanh thu]
+    List<Object[]> findRevenueByCategory(LocalDate fromDay, LocalDate toDay);
+    // [sellerId, fullname, username, email, số đơn, số sản phẩm bán, doanh thu]
+    List<Object[]> findSalesBySeller(LocalDate fromDay, LocalDate toDay);
+}
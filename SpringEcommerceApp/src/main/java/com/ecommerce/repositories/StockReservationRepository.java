@@ -0,0 +1,24 @@
+package com.ecommerce.repositories;
+
+import com.ecommerce.pojo.StockReservation;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+public interface StockReservationRepository {
+    void save(StockReservation reservation);
+
+    // Khoá (SELECT ... FOR UPDATE) các dòng giữ chỗ của đơn ở các trạng thái cho trước,
+    // để xác nhận/hoàn kho cùng một đơn chạy tuần tự
+    List<StockReservation> findByOrderIdForUpdate(Long orderId, Collection<String> statuses);
+
+    // Đổi trạng thái các dòng đang ở fromStatus, trả về số dòng đã đổi
+    int updateStatus(Long orderId, String fromStatus, String toStatus);
+
+    // Khoá tối đa limit dòng có stockPending = true (chưa trừ vào products), theo thứ tự id
+    List<StockReservation> findPendingForUpdate(int limit);
+
+    // Các đơn có giữ chỗ ở trạng thái status đã quá hạn trước thời điểm now
+    List<Long> findExpiredOrderIds(String status, Date now, int limit);
+}
@@ -15,6 +15,9 @@ public interface UserRepository {
 
     User findById(Long id);
 
+    // Như findById nhưng luôn đọc qua Hibernate (bỏ qua map cache của repository) rồi cập nhật map
+    User loadById(Long id);
+
     List<User> findAll();
 
     User findByUsername(String username);
@@ -25,4 +28,12 @@ public interface UserRepository {
     List<User> findByRole(String roleName);
     
     List<User> searchUsers(String keyword);
+
+    // Lọc + phân trang phía database cho trang quản trị; afterId != null thì dùng keyset thay cho offset
+    List<User> findByFilters(String keyword, String roleName, Boolean active, Long afterId, int page, int size);
+
+    long countByFilters(String keyword, String roleName, Boolean active);
+
+    // Bỏ user khỏi map cache của repository, dùng khi dòng users được ghi không qua repository (JDBC)
+    void evict(Long id);
 }
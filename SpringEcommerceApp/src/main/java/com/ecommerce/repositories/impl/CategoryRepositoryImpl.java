@@ -85,6 +85,8 @@ public class CategoryRepositoryImpl implements CategoryRepository {
                     "SELECT c FROM Category c LEFT JOIN FETCH c.products WHERE c.id = :id",
                     Category.class);
             query.setParameter("id", id);
+            query.setCacheable(true);
+            query.setCacheRegion(ProductRepositoryImpl.CATALOG_QUERY_REGION);
             Category category = query.uniqueResult();
 
             if (category != null) {
@@ -113,6 +115,7 @@ public class CategoryRepositoryImpl implements CategoryRepository {
             Query<Category> query = session.createQuery(
                     "SELECT DISTINCT c FROM Category c LEFT JOIN FETCH c.products", Category.class);
             query.setCacheable(true); // Enable query cache
+            query.setCacheRegion(ProductRepositoryImpl.CATALOG_QUERY_REGION);
 
             List<Category> categories = query.list();
 
@@ -156,6 +159,7 @@ public class CategoryRepositoryImpl implements CategoryRepository {
                     Category.class);
             query.setParameter("name", normalizedName);
             query.setCacheable(true);
+            query.setCacheRegion(ProductRepositoryImpl.CATALOG_QUERY_REGION);
 
             Category category = query.uniqueResult();
 
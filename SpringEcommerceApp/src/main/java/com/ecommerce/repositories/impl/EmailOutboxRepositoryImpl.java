@@ -0,0 +1,79 @@
+package com.ecommerce.repositories.impl;
+
+import com.ecommerce.pojo.EmailOutbox;
+import com.ecommerce.repositories.EmailOutboxRepository;
+import jakarta.persistence.LockModeType;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@Repository
+public class EmailOutboxRepositoryImpl implements EmailOutboxRepository {
+
+    @Autowired
+    private SessionFactory sessionFactory;
+
+    private Session getCurrentSession() {
+        return sessionFactory.getCurrentSession();
+    }
+
+    @Override
+    public void save(EmailOutbox email) {
+        getCurrentSession().persist(email);
+    }
+
+    @Override
+    public List<EmailOutbox> findDueForUpdate(Collection<String> statuses, Date now, int limit) {
+        String hql = "SELECT e FROM EmailOutbox e WHERE e.status IN (:statuses) AND e.nextAttemptAt <= :now " +
+                "ORDER BY e.nextAttemptAt, e.id";
+        return getCurrentSession().createQuery(hql, EmailOutbox.class)
+                .setParameterList("statuses", statuses)
+                .setParameter("now", now)
+                .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    @Override
+    public List<EmailOutbox> findByIds(Collection<Long> ids) {
+        return getCurrentSession().createQuery("SELECT e FROM EmailOutbox e WHERE e.id IN (:ids)", EmailOutbox.class)
+                .setParameterList("ids", ids)
+                .getResultList();
+    }
+
+    @Override
+    public int markSent(Collection<Long> ids, Date sentAt) {
+        return getCurrentSession().createMutationQuery(
+                "UPDATE EmailOutbox e SET e.status = 'SENT', e.sentAt = :sentAt, e.lastError = NULL WHERE e.id IN (:ids)")
+                .setParameter("sentAt", sentAt)
+                .setParameterList("ids", ids)
+                .executeUpdate();
+    }
+
+    @Override
+    public int deleteSentBefore(Date cutoff) {
+        return getCurrentSession().createMutationQuery(
+                "DELETE FROM EmailOutbox e WHERE e.status = 'SENT' AND e.sentAt < :cutoff")
+                .setParameter("cutoff", cutoff)
+                .executeUpdate();
+    }
+
+    @Override
+    public Map<String, Long> countByStatus() {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        List<Object[]> rows = getCurrentSession().createQuery(
+                "SELECT e.status, COUNT(e) FROM EmailOutbox e GROUP BY e.status ORDER BY e.status", Object[].class)
+                .getResultList();
+        for (Object[] row : rows) {
+            counts.put((String) row[0], (Long) row[1]);
+        }
+        return counts;
+    }
+}
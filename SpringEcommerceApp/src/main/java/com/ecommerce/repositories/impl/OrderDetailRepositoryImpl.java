@@ -67,4 +67,11 @@ public class OrderDetailRepositoryImpl implements OrderDetailRepository {
         query.setParameter("productId", productId);
         return query.uniqueResult();
     }
+
+    @Override
+    public List<Object[]> findQuantitySoldByProduct() {
+        Session session = sessionFactory.getCurrentSession();
+        String hql = "SELECT od.product.id, SUM(od.quantity) FROM OrderDetail od GROUP BY od.product.id";
+        return session.createQuery(hql, Object[].class).list();
+    }
 }
\ No newline at end of file
@@ -0,0 +1,86 @@
+package com.ecommerce.repositories.impl;
+
+import com.ecommerce.pojo.OrderEvent;
+import com.ecommerce.repositories.OrderEventRepository;
+import jakarta.persistence.LockModeType;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@Repository
+public class OrderEventRepositoryImpl implements OrderEventRepository {
+
+    @Autowired
+    private SessionFactory sessionFactory;
+
+    private Session getCurrentSession() {
+        return sessionFactory.getCurrentSession();
+    }
+
+    @Override
+    public void save(OrderEvent event) {
+        getCurrentSession().persist(event);
+    }
+
+    @Override
+    public boolean existsByIdempotencyKey(String idempotencyKey) {
+        return !getCurrentSession().createQuery(
+                "SELECT e.id FROM OrderEvent e WHERE e.idempotencyKey = :key", Long.class)
+                .setParameter("key", idempotencyKey)
+                .setMaxResults(1)
+                .getResultList()
+                .isEmpty();
+    }
+
+    @Override
+    public List<OrderEvent> findDueForUpdate(Collection<String> statuses, Date now, int limit) {
+        String hql = "SELECT e FROM OrderEvent e WHERE e.status IN (:statuses) AND e.nextAttemptAt <= :now " +
+                "ORDER BY e.id";
+        return getCurrentSession().createQuery(hql, OrderEvent.class)
+                .setParameterList("statuses", statuses)
+                .setParameter("now", now)
+                .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    @Override
+    public OrderEvent findClaimedForUpdate(Long id, Date leaseUntil) {
+        return getCurrentSession().createQuery(
+                "SELECT e FROM OrderEvent e WHERE e.id = :id AND e.status = 'PROCESSING' AND e.nextAttemptAt = :lease",
+                OrderEvent.class)
+                .setParameter("id", id)
+                .setParameter("lease", leaseUntil)
+                .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                .uniqueResult();
+    }
+
+    @Override
+    public int deleteDoneBefore(Date cutoff, Collection<String> keepTypes) {
+        return getCurrentSession().createMutationQuery(
+                "DELETE FROM OrderEvent e WHERE e.status = 'DONE' AND e.processedAt < :cutoff " +
+                "AND e.eventType NOT IN (:keepTypes)")
+                .setParameter("cutoff", cutoff)
+                .setParameterList("keepTypes", keepTypes)
+                .executeUpdate();
+    }
+
+    @Override
+    public Map<String, Long> countByStatus() {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        List<Object[]> rows = getCurrentSession().createQuery(
+                "SELECT e.status, COUNT(e) FROM OrderEvent e GROUP BY e.status ORDER BY e.status", Object[].class)
+                .getResultList();
+        for (Object[] row : rows) {
+            counts.put((String) row[0], (Long) row[1]);
+        }
+        return counts;
+    }
+}
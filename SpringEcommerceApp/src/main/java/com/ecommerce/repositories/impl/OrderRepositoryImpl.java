@@ -1,16 +1,21 @@
 package com.ecommerce.repositories.impl;
 
+import com.ecommerce.dtos.OrderSummaryDTO;
 import com.ecommerce.pojo.Order;
-import com.ecommerce.pojo.OrderDetail;
 import com.ecommerce.repositories.OrderRepository;
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
-import org.hibernate.Hibernate;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 import org.hibernate.query.Query;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.function.Consumer;
 
 @Repository
 public class OrderRepositoryImpl implements OrderRepository {
@@ -56,6 +61,25 @@ public class OrderRepositoryImpl implements OrderRepository {
         session.merge(order);
     }
 
+    @Override
+    public int nextStatusVersion(Long orderId) {
+        // JDBC thay cho UPDATE HQL: câu bulk HQL xoá toàn bộ region Order trong second-level cache
+        return sessionFactory.getCurrentSession().doReturningWork(connection -> {
+            try (PreparedStatement update = connection.prepareStatement(
+                    "UPDATE orders SET status_version = status_version + 1 WHERE id = ?")) {
+                update.setLong(1, orderId);
+                update.executeUpdate();
+            }
+            try (PreparedStatement select = connection.prepareStatement(
+                    "SELECT status_version FROM orders WHERE id = ?")) {
+                select.setLong(1, orderId);
+                try (ResultSet rs = select.executeQuery()) {
+                    return rs.next() ? rs.getInt(1) : 0;
+                }
+            }
+        });
+    }
+
     @Override
     public List<Order> findAll() {
         Session session = sessionFactory.getCurrentSession();
@@ -71,63 +95,42 @@ public class OrderRepositoryImpl implements OrderRepository {
     @Override
     public List<Order> findByUserId(Long userId) {
         Session session = sessionFactory.getCurrentSession();
+        // Nạp luôn chi tiết, sản phẩm và thanh toán trong một truy vấn thay vì khởi tạo từng đơn
+        String hql = "SELECT DISTINCT o FROM Order o LEFT JOIN FETCH o.orderDetails od LEFT JOIN FETCH od.product "
+                + "LEFT JOIN FETCH o.payment WHERE o.user.id = :userId ORDER BY o.orderDate DESC";
+        Query<Order> query = session.createQuery(hql, Order.class);
+        query.setParameter("userId", userId);
+        return query.list();
+    }
 
-        String countHql = "SELECT COUNT(o) FROM Order o WHERE o.user.id = :userId";
-        Query<Long> countQuery = session.createQuery(countHql, Long.class);
-        countQuery.setParameter("userId", userId);
-        Long orderCount = countQuery.uniqueResult();
-        System.out.println("Total orders for user " + userId + ": " + orderCount);
-
-        String orderHql = "SELECT o FROM Order o WHERE o.user.id = :userId ORDER BY o.orderDate DESC";
-        Query<Order> orderQuery = session.createQuery(orderHql, Order.class);
-        orderQuery.setParameter("userId", userId);
-
-        List<Order> orders = orderQuery.list();
-        System.out.println("Orders returned from simple query: " + orders.size());
-
-        if (orders.isEmpty()) {
-            return orders;
+    @Override
+    public List<OrderSummaryDTO> findSummariesByUserId(Long userId, Date beforeDate, Long beforeId, int limit) {
+        Session session = sessionFactory.getCurrentSession();
+        // Số dòng và sản phẩm/cửa hàng của dòng đầu tiên (id nhỏ nhất) tính ngay trong SQL
+        StringBuilder hql = new StringBuilder(
+                "SELECT new com.ecommerce.dtos.OrderSummaryDTO(o.id, o.orderDate, o.status, o.totalAmount, "
+                        + "u.id, u.username, u.fullname, u.email, pay.paymentMethod, pay.status, "
+                        + "(SELECT COUNT(d) FROM OrderDetail d WHERE d.order = o), fp.name, fs.id, fs.name) "
+                        + "FROM Order o LEFT JOIN o.user u LEFT JOIN o.payment pay "
+                        + "LEFT JOIN OrderDetail fd ON fd.order = o "
+                        + "AND fd.id = (SELECT MIN(d2.id) FROM OrderDetail d2 WHERE d2.order = o) "
+                        + "LEFT JOIN fd.product fp LEFT JOIN fp.store fs "
+                        + "WHERE o.user.id = :userId");
+        if (beforeDate != null && beforeId != null) {
+            hql.append(" AND (o.orderDate < :beforeDate OR (o.orderDate = :beforeDate AND o.id < :beforeId))");
         }
+        hql.append(" ORDER BY o.orderDate DESC, o.id DESC");
 
-        for (Order order : orders) {
-            System.out.println("Processing order ID: " + order.getId());
-            try {
-                if (order.getOrderDetails() != null) {
-                    Hibernate.initialize(order.getOrderDetails());
-                    System.out.println("  Order details count: " + order.getOrderDetails().size());
-
-                    for (OrderDetail detail : order.getOrderDetails()) {
-                        if (detail.getProduct() != null) {
-                            Hibernate.initialize(detail.getProduct());
-                        }
-                    }
-                }
-
-                if (order.getPayment() != null) {
-                    order.getPayment().getId();
-                }
-
-                if (order.getOrderDetails() != null) {
-                    order.getOrderDetails().size();
-                }
-
-                try {
-                    if (order.getStatusHistory() != null) {
-                        order.getStatusHistory().size();
-                    }
-                } catch (Exception e) {
-                    System.err.println(
-                            "Warning: Could not load statusHistory for order " + order.getId() + ": " + e.getMessage());
-                }
-
-            } catch (Exception e) {
-                System.err.println(
-                        "Error initializing collections for order ID " + order.getId() + ": " + e.getMessage());
-            }
+        Query<OrderSummaryDTO> query = session.createQuery(hql.toString(), OrderSummaryDTO.class);
+        query.setParameter("userId", userId);
+        if (beforeDate != null && beforeId != null) {
+            query.setParameter("beforeDate", beforeDate);
+            query.setParameter("beforeId", beforeId);
         }
-
-        System.out.println("Final orders returned: " + orders.size());
-        return orders;
+        if (limit > 0) {
+            query.setMaxResults(limit);
+        }
+        return query.list();
     }
 
     @Override
@@ -178,6 +181,59 @@ public class OrderRepositoryImpl implements OrderRepository {
         return orders;
     }
 
+    @Override
+    public void scrollExportRows(String status, Date fromDate, Date toDate, int fetchSize,
+            Consumer<Object[]> consumer) {
+        scrollByStatusAndDateRange(
+                "SELECT o.id, o.orderDate, u.fullname, u.email, u.phone, o.status, o.shippingAddress, o.totalAmount "
+                        + "FROM Order o LEFT JOIN o.user u",
+                status, fromDate, toDate, fetchSize, consumer);
+    }
+
+    @Override
+    public void scrollSalesLines(String status, Date fromDate, Date toDate, int fetchSize,
+            Consumer<Object[]> consumer) {
+        scrollByStatusAndDateRange(
+                "SELECT o.id, o.totalAmount, p.id, p.name, p.image, c.name, od.quantity, od.price "
+                        + "FROM Order o LEFT JOIN o.orderDetails od LEFT JOIN od.product p LEFT JOIN p.category c",
+                status, fromDate, toDate, fetchSize, consumer);
+    }
+
+    // Duyệt kết quả theo thứ tự o.id bằng cursor, các dòng của cùng một đơn nằm liền nhau
+    private void scrollByStatusAndDateRange(String selectFrom, String status, Date fromDate, Date toDate,
+            int fetchSize, Consumer<Object[]> consumer) {
+        Session session = sessionFactory.getCurrentSession();
+        StringBuilder hql = new StringBuilder(selectFrom).append(" WHERE 1=1");
+        if (status != null && !status.isEmpty()) {
+            hql.append(" AND o.status = :status");
+        }
+        if (fromDate != null) {
+            hql.append(" AND o.orderDate >= :fromDate");
+        }
+        if (toDate != null) {
+            hql.append(" AND o.orderDate <= :toDate");
+        }
+        hql.append(" ORDER BY o.id");
+
+        Query<Object[]> query = session.createQuery(hql.toString(), Object[].class);
+        if (status != null && !status.isEmpty()) {
+            query.setParameter("status", status);
+        }
+        if (fromDate != null) {
+            query.setParameter("fromDate", fromDate);
+        }
+        if (toDate != null) {
+            query.setParameter("toDate", toDate);
+        }
+        query.setFetchSize(fetchSize);
+        query.setReadOnly(true);
+        try (ScrollableResults<Object[]> rows = query.scroll(ScrollMode.FORWARD_ONLY)) {
+            while (rows.next()) {
+                consumer.accept(rows.get());
+            }
+        }
+    }
+
     @Override
     public List<Object[]> findOrderCountByStatus() {
         Session session = sessionFactory.getCurrentSession();
@@ -185,6 +241,13 @@ public class OrderRepositoryImpl implements OrderRepository {
         return session.createQuery(hql, Object[].class).list();
     }
 
+    @Override
+    public List<Object[]> findOrderTotalsByStatus() {
+        Session session = sessionFactory.getCurrentSession();
+        String hql = "SELECT status, COUNT(id), COALESCE(SUM(totalAmount), 0) FROM Order GROUP BY status";
+        return session.createQuery(hql, Object[].class).list();
+    }
+
     @Override
     public List<Object[]> findRevenueByDateRange(String groupBy, Date fromDate, Date toDate) {
         Session session = sessionFactory.getCurrentSession();
@@ -268,6 +331,72 @@ public class OrderRepositoryImpl implements OrderRepository {
         return query.list();
     }
 
+    @Override
+    public List<Object[]> findSalesBySeller(Date fromDate, Date toDate) {
+        Session session = sessionFactory.getCurrentSession();
+        // Doanh thu chỉ tính các dòng sản phẩm thuộc cửa hàng của người bán, không tính cả đơn
+        String hql = "SELECT u.id, u.fullname, u.username, u.email, " +
+                "COUNT(DISTINCT o.id), SUM(od.quantity), SUM(od.quantity * od.price) as revenue " +
+                "FROM OrderDetail od " +
+                "JOIN od.order o " +
+                "JOIN od.product p " +
+                "JOIN p.store s " +
+                "JOIN s.seller u " +
+                "WHERE o.orderDate BETWEEN :fromDate AND :toDate " +
+                "GROUP BY u.id, u.fullname, u.username, u.email " +
+                "ORDER BY revenue DESC";
+
+        Query<Object[]> query = session.createQuery(hql, Object[].class);
+        query.setParameter("fromDate", fromDate);
+        query.setParameter("toDate", toDate);
+        return query.list();
+    }
+
+    @Override
+    public Object[] findSellerSalesSummary(Long sellerId, Date fromDate, Date toDate) {
+        return sellerSalesQuery("SELECT COUNT(DISTINCT o.id), SUM(od.quantity * od.price), COUNT(DISTINCT p.id) ",
+                "", sellerId, fromDate, toDate).getSingleResult();
+    }
+
+    @Override
+    public List<Object[]> findSellerRevenueByMonth(Long sellerId, Date fromDate, Date toDate) {
+        return sellerSalesQuery("SELECT YEAR(o.orderDate), MONTH(o.orderDate), SUM(od.quantity * od.price) ",
+                "GROUP BY YEAR(o.orderDate), MONTH(o.orderDate) ORDER BY YEAR(o.orderDate), MONTH(o.orderDate)",
+                sellerId, fromDate, toDate).list();
+    }
+
+    @Override
+    public List<Object[]> findSellerTopProducts(Long sellerId, Date fromDate, Date toDate, int limit) {
+        return sellerSalesQuery("SELECT p.name, SUM(od.quantity) as quantity, SUM(od.quantity * od.price) ",
+                "GROUP BY p.id, p.name ORDER BY quantity DESC", sellerId, fromDate, toDate)
+                .setMaxResults(limit)
+                .list();
+    }
+
+    @Override
+    public List<Object[]> findSellerRevenueByCategory(Long sellerId, Date fromDate, Date toDate) {
+        return sellerSalesQuery("SELECT c.name, SUM(od.quantity * od.price) as revenue ",
+                "GROUP BY c.name ORDER BY revenue DESC", sellerId, fromDate, toDate).list();
+    }
+
+    // Điều kiện theo khoảng ngày để MySQL dùng index order_date thay vì quét toàn bộ lịch sử đơn của người bán
+    private Query<Object[]> sellerSalesQuery(String select, String groupBy, Long sellerId, Date fromDate, Date toDate) {
+        Session session = sessionFactory.getCurrentSession();
+        String hql = select +
+                "FROM OrderDetail od " +
+                "JOIN od.order o " +
+                "JOIN od.product p " +
+                "JOIN p.store s " +
+                "LEFT JOIN p.category c " +
+                "WHERE s.seller.id = :sellerId AND o.orderDate BETWEEN :fromDate AND :toDate " +
+                groupBy;
+        Query<Object[]> query = session.createQuery(hql, Object[].class);
+        query.setParameter("sellerId", sellerId);
+        query.setParameter("fromDate", fromDate);
+        query.setParameter("toDate", toDate);
+        return query;
+    }
+
     @Override
     public List<Order> findOrdersByStoreId(Long storeId) {
         Session session = sessionFactory.getCurrentSession();
@@ -325,4 +454,81 @@ public class OrderRepositoryImpl implements OrderRepository {
         query.setParameter("status", status);
         return query.list();
     }
-}
\ No newline at end of file
+
+    @Override
+    public List<Order> findByFilters(String status, Date fromDate, Date toDate, String keyword, Long afterId,
+            int page, int size) {
+        Session session = sessionFactory.getCurrentSession();
+
+        // Bước 1: phân trang trên id, tránh LIMIT/OFFSET trong bộ nhớ khi có JOIN FETCH collection
+        StringBuilder hql = new StringBuilder("SELECT o.id FROM Order o LEFT JOIN o.user u WHERE 1=1");
+        appendFilters(hql, status, fromDate, toDate, keyword);
+        if (afterId != null) {
+            hql.append(" AND o.id < :afterId");
+        }
+        hql.append(" ORDER BY o.id DESC");
+
+        Query<Long> idQuery = session.createQuery(hql.toString(), Long.class);
+        bindFilters(idQuery, status, fromDate, toDate, keyword);
+        if (afterId != null) {
+            idQuery.setParameter("afterId", afterId);
+        } else {
+            idQuery.setFirstResult(Math.max(page, 0) * size);
+        }
+        idQuery.setMaxResults(size);
+        List<Long> ids = idQuery.getResultList();
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        // Bước 2: nạp đủ dữ liệu trang quản trị cần hiển thị trong một truy vấn
+        Query<Order> query = session.createQuery(
+                "SELECT DISTINCT o FROM Order o LEFT JOIN FETCH o.user " +
+                        "LEFT JOIN FETCH o.payment " +
+                        "LEFT JOIN FETCH o.orderDetails od LEFT JOIN FETCH od.product " +
+                        "WHERE o.id IN (:ids) ORDER BY o.id DESC",
+                Order.class);
+        query.setParameterList("ids", ids);
+        return query.getResultList();
+    }
+
+    @Override
+    public long countByFilters(String status, Date fromDate, Date toDate, String keyword) {
+        StringBuilder hql = new StringBuilder("SELECT COUNT(o.id) FROM Order o LEFT JOIN o.user u WHERE 1=1");
+        appendFilters(hql, status, fromDate, toDate, keyword);
+
+        Query<Long> query = sessionFactory.getCurrentSession().createQuery(hql.toString(), Long.class);
+        bindFilters(query, status, fromDate, toDate, keyword);
+        return query.uniqueResult();
+    }
+
+    private void appendFilters(StringBuilder hql, String status, Date fromDate, Date toDate, String keyword) {
+        if (status != null && !status.isEmpty()) {
+            hql.append(" AND o.status = :status");
+        }
+        if (fromDate != null) {
+            hql.append(" AND o.orderDate >= :fromDate");
+        }
+        if (toDate != null) {
+            hql.append(" AND o.orderDate <= :toDate");
+        }
+        if (keyword != null && !keyword.isBlank()) {
+            hql.append(" AND (CAST(o.id AS String) LIKE :kw OR LOWER(u.fullname) LIKE :kw)");
+        }
+    }
+
+    private void bindFilters(Query<?> query, String status, Date fromDate, Date toDate, String keyword) {
+        if (status != null && !status.isEmpty()) {
+            query.setParameter("status", status);
+        }
+        if (fromDate != null) {
+            query.setParameter("fromDate", fromDate);
+        }
+        if (toDate != null) {
+            query.setParameter("toDate", toDate);
+        }
+        if (keyword != null && !keyword.isBlank()) {
+            query.setParameter("kw", "%" + keyword.trim().toLowerCase() + "%");
+        }
+    }
+}
@@ -9,11 +9,25 @@ import org.hibernate.query.Query;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Repository
 @Transactional
 public class ProductRepositoryImpl implements ProductRepository {
+    public static final String CATALOG_QUERY_REGION = "catalog-query-results";
+
+    // Điều kiện quantity >= ? nằm trong chính câu UPDATE nên hai đơn đồng thời không thể cùng trừ quá tồn kho
+    private static final String DECREMENT_STOCK_SQL =
+            "UPDATE products SET quantity = quantity - ? WHERE id = ? AND quantity >= ?";
+    private static final String ADD_STOCK_SQL = "UPDATE products SET quantity = quantity + ? WHERE id = ?";
 
     @Autowired
     private SessionFactory sessionFactory;
@@ -41,6 +55,8 @@ public class ProductRepositoryImpl implements ProductRepository {
         return getCurrentSession()
                 .createQuery(hql, Product.class)
                 .setParameter("id", id)
+                .setCacheable(true)
+                .setCacheRegion(CATALOG_QUERY_REGION)
                 .uniqueResult();
     }
 
@@ -49,6 +65,8 @@ public class ProductRepositoryImpl implements ProductRepository {
         Query<Product> query = getCurrentSession().createQuery(
                 "SELECT DISTINCT p FROM Product p LEFT JOIN FETCH p.category",
                 Product.class);
+        query.setCacheable(true);
+        query.setCacheRegion(CATALOG_QUERY_REGION);
         List<Product> products = query.getResultList();
 
         for (Product product : products) {
@@ -62,7 +80,8 @@ public class ProductRepositoryImpl implements ProductRepository {
 
     @Override
     public List<Product> findByName(String name) {
-        String hql = "SELECT DISTINCT p FROM Product p LEFT JOIN FETCH p.category WHERE LOWER(p.name) LIKE :kw";
+        String hql = "SELECT DISTINCT p FROM Product p LEFT JOIN FETCH p.category "
+                + "WHERE p.active = true AND LOWER(p.name) LIKE :kw";
         List<Product> products = getCurrentSession()
                 .createQuery(hql, Product.class)
                 .setParameter("kw", "%" + name.toLowerCase() + "%")
@@ -83,6 +102,8 @@ public class ProductRepositoryImpl implements ProductRepository {
         List<Product> products = getCurrentSession()
                 .createQuery(hql, Product.class)
                 .setParameter("catId", categoryId)
+                .setCacheable(true)
+                .setCacheRegion(CATALOG_QUERY_REGION)
                 .getResultList();
 
         for (Product product : products) {
@@ -114,7 +135,8 @@ public class ProductRepositoryImpl implements ProductRepository {
 
     @Override
     public List<Product> search(String keyword) {
-        String hql = "SELECT DISTINCT p FROM Product p LEFT JOIN FETCH p.category WHERE LOWER(p.name) LIKE :kw";
+        String hql = "SELECT DISTINCT p FROM Product p LEFT JOIN FETCH p.category "
+                + "WHERE p.active = true AND LOWER(p.name) LIKE :kw";
         List<Product> products = getCurrentSession()
                 .createQuery(hql, Product.class)
                 .setParameter("kw", "%" + keyword.toLowerCase() + "%")
@@ -135,6 +157,8 @@ public class ProductRepositoryImpl implements ProductRepository {
         List<Product> products = getCurrentSession()
                 .createQuery(hql, Product.class)
                 .setParameter("storeId", storeId)
+                .setCacheable(true)
+                .setCacheRegion(CATALOG_QUERY_REGION)
                 .getResultList();
 
         for (Product product : products) {
@@ -149,20 +173,14 @@ public class ProductRepositoryImpl implements ProductRepository {
     @Override
     public List<Product> searchAdvanced(String name, Long storeId, Double minPrice, Double maxPrice,
             String sortBy, String sortDir, int page, int size) {
-        StringBuilder hql = new StringBuilder("SELECT DISTINCT p FROM Product p LEFT JOIN FETCH p.category WHERE 1=1");
+        return searchWithFilters(name, null, storeId, minPrice, maxPrice, null, sortBy, sortDir, page, size);
+    }
 
-        if (name != null && !name.isEmpty()) {
-            hql.append(" AND LOWER(p.name) LIKE :name");
-        }
-        if (storeId != null) {
-            hql.append(" AND p.store.id = :storeId");
-        }
-        if (minPrice != null) {
-            hql.append(" AND p.price >= :minPrice");
-        }
-        if (maxPrice != null) {
-            hql.append(" AND p.price <= :maxPrice");
-        }
+    @Override
+    public List<Product> searchWithFilters(String name, Long categoryId, Long storeId, Double minPrice,
+            Double maxPrice, Boolean inStock, String sortBy, String sortDir, int page, int size) {
+        StringBuilder hql = new StringBuilder("SELECT DISTINCT p FROM Product p LEFT JOIN FETCH p.category WHERE 1=1");
+        appendSearchFilters(hql, name, categoryId, storeId, minPrice, maxPrice, inStock);
 
         // Sorting
         if (sortBy != null && !sortBy.isEmpty()) {
@@ -176,16 +194,7 @@ public class ProductRepositoryImpl implements ProductRepository {
 
         Session session = getCurrentSession();
         Query<Product> query = session.createQuery(hql.toString(), Product.class);
-
-        if (name != null && !name.isEmpty()) {
-            query.setParameter("name", "%" + name.toLowerCase() + "%");
-        }
-        if (storeId != null)
-            query.setParameter("storeId", storeId);
-        if (minPrice != null)
-            query.setParameter("minPrice", minPrice);
-        if (maxPrice != null)
-            query.setParameter("maxPrice", maxPrice);
+        bindSearchFilters(query, name, categoryId, storeId, minPrice, maxPrice);
 
         query.setFirstResult(page * size);
         query.setMaxResults(size);
@@ -201,6 +210,190 @@ public class ProductRepositoryImpl implements ProductRepository {
         return products;
     }
 
+    @Override
+    public long countWithFilters(String name, Long categoryId, Long storeId, Double minPrice, Double maxPrice,
+            Boolean inStock) {
+        StringBuilder hql = new StringBuilder("SELECT COUNT(p.id) FROM Product p WHERE 1=1");
+        appendSearchFilters(hql, name, categoryId, storeId, minPrice, maxPrice, inStock);
+
+        Query<Long> query = getCurrentSession().createQuery(hql.toString(), Long.class);
+        bindSearchFilters(query, name, categoryId, storeId, minPrice, maxPrice);
+        return query.uniqueResult();
+    }
+
+    @Override
+    public List<Product> findByFilters(String keyword, Long categoryId, Boolean active, Long afterId,
+            int page, int size) {
+        StringBuilder hql = new StringBuilder(
+                "SELECT p FROM Product p LEFT JOIN FETCH p.category LEFT JOIN FETCH p.store WHERE 1=1");
+        appendFilters(hql, keyword, categoryId, active);
+        if (afterId != null) {
+            hql.append(" AND p.id < :afterId");
+        }
+        hql.append(" ORDER BY p.id DESC");
+
+        Query<Product> query = getCurrentSession().createQuery(hql.toString(), Product.class);
+        bindFilters(query, keyword, categoryId, active);
+        if (afterId != null) {
+            query.setParameter("afterId", afterId);
+        } else {
+            query.setFirstResult(Math.max(page, 0) * size);
+        }
+        query.setMaxResults(size);
+        return query.getResultList();
+    }
+
+    @Override
+    public long countByFilters(String keyword, Long categoryId, Boolean active) {
+        StringBuilder hql = new StringBuilder("SELECT COUNT(p.id) FROM Product p WHERE 1=1");
+        appendFilters(hql, keyword, categoryId, active);
+
+        Query<Long> query = getCurrentSession().createQuery(hql.toString(), Long.class);
+        bindFilters(query, keyword, categoryId, active);
+        return query.uniqueResult();
+    }
+
+    @Override
+    public List<Product> findByIds(Collection<Long> ids) {
+        Map<Long, Product> byId = findAllByIds(ids);
+
+        List<Product> products = new ArrayList<>(byId.size());
+        for (Long id : ids) {
+            Product product = byId.get(id);
+            if (product != null) {
+                products.add(product);
+            }
+        }
+        return products;
+    }
+
+    @Override
+    public Map<Long, Product> findAllByIds(Collection<Long> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return new HashMap<>();
+        }
+        String hql = "SELECT p FROM Product p LEFT JOIN FETCH p.category LEFT JOIN FETCH p.store WHERE p.id IN (:ids)";
+        return getCurrentSession()
+                .createQuery(hql, Product.class)
+                .setParameterList("ids", new HashSet<>(ids))
+                .getResultList()
+                .stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+    }
+
+    @Override
+    public List<Long> decrementStock(Map<Long, Integer> quantities) {
+        List<Long> productIds = new ArrayList<>(quantities.keySet());
+        List<Long> insufficient = new ArrayList<>();
+        getCurrentSession().doWork(connection -> {
+            try (PreparedStatement ps = connection.prepareStatement(DECREMENT_STOCK_SQL)) {
+                for (Long productId : productIds) {
+                    int quantity = quantities.get(productId);
+                    ps.setInt(1, quantity);
+                    ps.setLong(2, productId);
+                    ps.setInt(3, quantity);
+                    ps.addBatch();
+                }
+                int[] counts = ps.executeBatch();
+                for (int i = 0; i < counts.length; i++) {
+                    if (counts[i] <= 0) {
+                        insufficient.add(productIds.get(i));
+                    }
+                }
+            }
+        });
+        return insufficient;
+    }
+
+    @Override
+    public void addStock(Map<Long, Integer> quantities) {
+        getCurrentSession().doWork(connection -> {
+            try (PreparedStatement ps = connection.prepareStatement(ADD_STOCK_SQL)) {
+                for (Map.Entry<Long, Integer> entry : quantities.entrySet()) {
+                    ps.setInt(1, entry.getValue());
+                    ps.setLong(2, entry.getKey());
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+        });
+    }
+
+    @Override
+    public Integer lockQuantity(Long productId) {
+        return getCurrentSession()
+                .createNativeQuery("SELECT quantity FROM products WHERE id = :id FOR UPDATE", Integer.class)
+                .setParameter("id", productId)
+                .uniqueResult();
+    }
+
+    private void appendFilters(StringBuilder hql, String keyword, Long categoryId, Boolean active) {
+        if (keyword != null && !keyword.isBlank()) {
+            hql.append(" AND (LOWER(p.name) LIKE :kw OR LOWER(p.description) LIKE :kw)");
+        }
+        if (categoryId != null) {
+            hql.append(" AND p.category.id = :categoryId");
+        }
+        if (active != null) {
+            hql.append(" AND p.active = :active");
+        }
+    }
+
+    private void bindFilters(Query<?> query, String keyword, Long categoryId, Boolean active) {
+        if (keyword != null && !keyword.isBlank()) {
+            query.setParameter("kw", "%" + keyword.trim().toLowerCase() + "%");
+        }
+        if (categoryId != null) {
+            query.setParameter("categoryId", categoryId);
+        }
+        if (active != null) {
+            query.setParameter("active", active);
+        }
+    }
+
+    private void appendSearchFilters(StringBuilder hql, String name, Long categoryId, Long storeId,
+            Double minPrice, Double maxPrice, Boolean inStock) {
+        // Giống index tìm kiếm: chỉ sản phẩm đang bán
+        hql.append(" AND p.active = true");
+        if (name != null && !name.isEmpty()) {
+            hql.append(" AND LOWER(p.name) LIKE :name");
+        }
+        if (categoryId != null) {
+            hql.append(" AND p.category.id = :categoryId");
+        }
+        if (storeId != null) {
+            hql.append(" AND p.store.id = :storeId");
+        }
+        if (minPrice != null) {
+            hql.append(" AND p.price >= :minPrice");
+        }
+        if (maxPrice != null) {
+            hql.append(" AND p.price <= :maxPrice");
+        }
+        if (inStock != null) {
+            hql.append(inStock ? " AND p.quantity > 0" : " AND p.quantity <= 0");
+        }
+    }
+
+    private void bindSearchFilters(Query<?> query, String name, Long categoryId, Long storeId, Double minPrice,
+            Double maxPrice) {
+        if (name != null && !name.isEmpty()) {
+            query.setParameter("name", "%" + name.toLowerCase() + "%");
+        }
+        if (categoryId != null) {
+            query.setParameter("categoryId", categoryId);
+        }
+        if (storeId != null) {
+            query.setParameter("storeId", storeId);
+        }
+        if (minPrice != null) {
+            query.setParameter("minPrice", minPrice);
+        }
+        if (maxPrice != null) {
+            query.setParameter("maxPrice", maxPrice);
+        }
+    }
+
     private Session getCurrentSession() {
         return sessionFactory.getCurrentSession();
     }
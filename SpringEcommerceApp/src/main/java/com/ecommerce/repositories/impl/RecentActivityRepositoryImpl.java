@@ -4,18 +4,27 @@ import com.ecommerce.pojo.RecentActivity;
 import com.ecommerce.repositories.RecentActivityRepository;
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
+import org.hibernate.dialect.MySQLDialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
 import org.hibernate.query.Query;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.sql.Statement;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.List;
 
 @Repository
 @Transactional
 public class RecentActivityRepositoryImpl implements RecentActivityRepository {
 
+    private static final String TABLE = "recent_activity";
+    private static final String MAX_PARTITION = "PARTITION pmax VALUES LESS THAN (MAXVALUE)";
+
     @Autowired
     private SessionFactory sessionFactory;
 
@@ -102,4 +111,68 @@ public class RecentActivityRepositoryImpl implements RecentActivityRepository {
         query.setParameter("cutoffDate", cutoffDate);
         query.executeUpdate();
     }
+
+    @Override
+    public boolean supportsPartitions() {
+        return sessionFactory.unwrap(SessionFactoryImplementor.class).getJdbcServices()
+                .getDialect() instanceof MySQLDialect;
+    }
+
+    @Override
+    public List<String> findPartitionNames() {
+        return sessionFactory.getCurrentSession()
+                .createNativeQuery("SELECT PARTITION_NAME FROM information_schema.PARTITIONS "
+                        + "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = '" + TABLE + "' "
+                        + "AND PARTITION_NAME IS NOT NULL ORDER BY PARTITION_ORDINAL_POSITION", String.class)
+                .getResultList();
+    }
+
+    @Override
+    public void partitionByDay(LocalDate firstDay, LocalDate lastDay) {
+        List<String> partitions = new ArrayList<>();
+        partitions.add(dayPartition(firstDay.minusDays(1)));
+        for (LocalDate day = firstDay; !day.isAfter(lastDay); day = day.plusDays(1)) {
+            partitions.add(dayPartition(day));
+        }
+        partitions.add(MAX_PARTITION);
+        // Mọi khoá unique của bảng partition phải chứa cột phân vùng nên khoá chính đổi thành (id, created_at)
+        execute("ALTER TABLE " + TABLE + " DROP PRIMARY KEY, ADD PRIMARY KEY (id, created_at)");
+        execute("ALTER TABLE " + TABLE + " PARTITION BY RANGE COLUMNS(created_at) ("
+                + String.join(", ", partitions) + ")");
+    }
+
+    @Override
+    public void addDayPartitions(List<LocalDate> days) {
+        if (days.isEmpty()) {
+            return;
+        }
+        List<String> partitions = new ArrayList<>();
+        for (LocalDate day : days) {
+            partitions.add(dayPartition(day));
+        }
+        partitions.add(MAX_PARTITION);
+        execute("ALTER TABLE " + TABLE + " REORGANIZE PARTITION pmax INTO (" + String.join(", ", partitions) + ")");
+    }
+
+    @Override
+    public void dropPartitions(List<String> partitionNames) {
+        if (partitionNames.isEmpty()) {
+            return;
+        }
+        execute("ALTER TABLE " + TABLE + " DROP PARTITION " + String.join(", ", partitionNames));
+    }
+
+    private static String dayPartition(LocalDate day) {
+        return "PARTITION p" + day.format(DateTimeFormatter.BASIC_ISO_DATE)
+                + " VALUES LESS THAN ('" + day.plusDays(1) + "')";
+    }
+
+    // Chạy DDL bằng JDBC: native query của Hibernate không khai báo bảng sẽ xoá toàn bộ second-level cache
+    private void execute(String ddl) {
+        sessionFactory.getCurrentSession().doWork(connection -> {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute(ddl);
+            }
+        });
+    }
 }
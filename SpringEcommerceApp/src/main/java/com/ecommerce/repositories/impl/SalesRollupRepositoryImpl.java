@@ -0,0 +1,224 @@
+package com.ecommerce.repositories.impl;
+
+import com.ecommerce.pojo.SalesDailyCategory;
+import com.ecommerce.pojo.SalesDailyProduct;
+import com.ecommerce.pojo.SalesDailyStore;
+import com.ecommerce.pojo.SalesDailyTotal;
+import com.ecommerce.pojo.SalesRollupState;
+import com.ecommerce.repositories.SalesRollupRepository;
+import java.time.LocalDate;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import org.hibernate.LockMode;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.query.NativeQuery;
+import org.hibernate.query.Query;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public class SalesRollupRepositoryImpl implements SalesRollupRepository {
+
+    // dimension -> [entity, thuộc tính id, bảng, cột id]; TOTAL không có cột id
+    private static final Map<String, String[]> DIMENSIONS = Map.of(
+            TOTAL, new String[] { "SalesDailyTotal", null, "sales_daily_totals", null },
+            STORE, new String[] { "SalesDailyStore", "storeId", "sales_daily_store", "store_id" },
+            CATEGORY, new String[] { "SalesDailyCategory", "categoryId", "sales_daily_category", "category_id" },
+            PRODUCT, new String[] { "SalesDailyProduct", "productId", "sales_daily_product", "product_id" });
+
+    private static final Map<String, Class<?>> ENTITIES = Map.of(
+            TOTAL, SalesDailyTotal.class,
+            STORE, SalesDailyStore.class,
+            CATEGORY, SalesDailyCategory.class,
+            PRODUCT, SalesDailyProduct.class);
+
+    // Biểu thức nhóm trên order_details cho từng dimension khi tính lại từ dữ liệu gốc
+    private static final Map<String, String> LINE_GROUPS = Map.of(
+            TOTAL, "0",
+            STORE, "COALESCE(p.store.id, 0)",
+            CATEGORY, "COALESCE(p.category.id, 0)",
+            PRODUCT, "p.id");
+
+    @Autowired
+    private SessionFactory sessionFactory;
+
+    private Session getCurrentSession() {
+        return sessionFactory.getCurrentSession();
+    }
+
+    @Override
+    public SalesRollupState findStateForUpdate(Long orderId) {
+        return getCurrentSession().get(SalesRollupState.class, orderId, LockMode.PESSIMISTIC_WRITE);
+    }
+
+    @Override
+    public void saveState(SalesRollupState state) {
+        getCurrentSession().merge(state);
+    }
+
+    @Override
+    public void insertState(SalesRollupState state) {
+        getCurrentSession().persist(state);
+    }
+
+    @Override
+    public void deleteState(Long orderId) {
+        getCurrentSession().createMutationQuery("DELETE FROM SalesRollupState s WHERE s.orderId = :orderId")
+                .setParameter("orderId", orderId)
+                .executeUpdate();
+    }
+
+    @Override
+    public long countStates() {
+        return getCurrentSession().createQuery("SELECT COUNT(s) FROM SalesRollupState s", Long.class)
+                .getSingleResult();
+    }
+
+    @Override
+    public Object[] findOrderSnapshot(Long orderId) {
+        List<Object[]> rows = getCurrentSession()
+                .createQuery("SELECT o.orderDate, o.status, o.totalAmount FROM Order o WHERE o.id = :orderId",
+                        Object[].class)
+                .setParameter("orderId", orderId)
+                .list();
+        return rows.isEmpty() ? null : rows.get(0);
+    }
+
+    @Override
+    public List<Object[]> findOrderLines(Long orderId) {
+        String hql = "SELECT COALESCE(p.store.id, 0), COALESCE(p.category.id, 0), p.id, SUM(od.quantity), " +
+                "SUM(od.quantity * od.price) " +
+                "FROM OrderDetail od " +
+                "JOIN od.product p " +
+                "WHERE od.order.id = :orderId " +
+                "GROUP BY COALESCE(p.store.id, 0), COALESCE(p.category.id, 0), p.id";
+        return getCurrentSession().createQuery(hql, Object[].class)
+                .setParameter("orderId", orderId)
+                .list();
+    }
+
+    @Override
+    public void increment(String dimension, LocalDate saleDate, long dimensionId, String status,
+            long orderCount, long itemsSold, double revenue) {
+        String[] mapping = DIMENSIONS.get(dimension);
+        boolean hasId = mapping[3] != null;
+        String sql = "INSERT INTO " + mapping[2] + " (sale_date, " + (hasId ? mapping[3] + ", " : "") +
+                "status, order_count, items_sold, revenue) " +
+                "VALUES (:saleDate, " + (hasId ? ":dimensionId, " : "") +
+                ":status, :orderCount, :itemsSold, :revenue) " +
+                "ON DUPLICATE KEY UPDATE order_count = order_count + VALUES(order_count), " +
+                "items_sold = items_sold + VALUES(items_sold), revenue = revenue + VALUES(revenue)";
+        NativeQuery<?> query = getCurrentSession().createNativeQuery(sql, Object.class);
+        // Khai báo bảng bị ghi để Hibernate không xoá toàn bộ second-level cache sau câu lệnh native
+        query.addSynchronizedEntityClass(ENTITIES.get(dimension));
+        query.setParameter("saleDate", saleDate);
+        if (hasId) {
+            query.setParameter("dimensionId", dimensionId);
+        }
+        query.setParameter("status", status);
+        query.setParameter("orderCount", orderCount);
+        query.setParameter("itemsSold", itemsSold);
+        query.setParameter("revenue", revenue);
+        query.executeUpdate();
+    }
+
+    @Override
+    public List<Object[]> aggregateOrders(Date start, Date end) {
+        String hql = "SELECT o.id, o.status, o.totalAmount FROM Order o " +
+                "WHERE o.orderDate >= :start AND o.orderDate < :end";
+        return getCurrentSession().createQuery(hql, Object[].class)
+                .setParameter("start", start)
+                .setParameter("end", end)
+                .list();
+    }
+
+    @Override
+    public List<Object[]> aggregateLines(String dimension, Date start, Date end) {
+        String group = LINE_GROUPS.get(dimension);
+        String hql = "SELECT " + group + ", o.status, COUNT(DISTINCT o.id), SUM(od.quantity), " +
+                "SUM(od.quantity * od.price) " +
+                "FROM OrderDetail od " +
+                "JOIN od.order o " +
+                "JOIN od.product p " +
+                "WHERE o.orderDate >= :start AND o.orderDate < :end " +
+                "GROUP BY " + group + ", o.status";
+        return getCurrentSession().createQuery(hql, Object[].class)
+                .setParameter("start", start)
+                .setParameter("end", end)
+                .list();
+    }
+
+    @Override
+    public Date findFirstOrderDate() {
+        return getCurrentSession().createQuery("SELECT MIN(o.orderDate) FROM Order o", Date.class)
+                .getSingleResult();
+    }
+
+    @Override
+    public List<Object[]> findDay(String dimension, LocalDate day) {
+        String[] mapping = DIMENSIONS.get(dimension);
+        String hql = "SELECT " + (mapping[1] != null ? "r." + mapping[1] : "0") +
+                ", r.status, r.orderCount, r.itemsSold, r.revenue FROM " + mapping[0] + " r " +
+                "WHERE r.saleDate = :day";
+        return getCurrentSession().createQuery(hql, Object[].class)
+                .setParameter("day", day)
+                .list();
+    }
+
+    @Override
+    public void deleteDay(LocalDate day) {
+        Session session = getCurrentSession();
+        for (String[] mapping : DIMENSIONS.values()) {
+            session.createMutationQuery("DELETE FROM " + mapping[0] + " r WHERE r.saleDate = :day")
+                    .setParameter("day", day)
+                    .executeUpdate();
+        }
+        session.createMutationQuery("DELETE FROM SalesRollupState s WHERE s.saleDate = :day")
+                .setParameter("day", day)
+                .executeUpdate();
+    }
+
+    @Override
+    public List<Object[]> findTotalsByDay(LocalDate fromDay, LocalDate toDay) {
+        String hql = "SELECT t.saleDate, SUM(t.orderCount), SUM(t.revenue) FROM SalesDailyTotal t " +
+                "WHERE t.saleDate BETWEEN :fromDay AND :toDay " +
+                "GROUP BY t.saleDate " +
+                "HAVING SUM(t.orderCount) > 0 " +
+                "ORDER BY t.saleDate";
+        return rangeQuery(hql, fromDay, toDay).list();
+    }
+
+    @Override
+    public List<Object[]> findRevenueByCategory(LocalDate fromDay, LocalDate toDay) {
+        String hql = "SELECT c.name, SUM(r.revenue) as revenue FROM SalesDailyCategory r " +
+                "JOIN Category c ON c.id = r.categoryId " +
+                "WHERE r.saleDate BETWEEN :fromDay AND :toDay " +
+                "GROUP BY c.name " +
+                "HAVING SUM(r.orderCount) > 0 " +
+                "ORDER BY revenue DESC";
+        return rangeQuery(hql, fromDay, toDay).list();
+    }
+
+    @Override
+    public List<Object[]> findSalesBySeller(LocalDate fromDay, LocalDate toDay) {
+        String hql = "SELECT u.id, u.fullname, u.username, u.email, " +
+                "SUM(r.orderCount), SUM(r.itemsSold), SUM(r.revenue) as revenue " +
+                "FROM SalesDailyStore r " +
+                "JOIN Store s ON s.id = r.storeId " +
+                "JOIN s.seller u " +
+                "WHERE r.saleDate BETWEEN :fromDay AND :toDay " +
+                "GROUP BY u.id, u.fullname, u.username, u.email " +
+                "HAVING SUM(r.orderCount) > 0 " +
+                "ORDER BY revenue DESC";
+        return rangeQuery(hql, fromDay, toDay).list();
+    }
+
+    private Query<Object[]> rangeQuery(String hql, LocalDate fromDay, LocalDate toDay) {
+        Query<Object[]> query = getCurrentSession().createQuery(hql, Object[].class);
+        query.setParameter("fromDay", fromDay);
+        query.setParameter("toDay", toDay);
+        return query;
+    }
+}
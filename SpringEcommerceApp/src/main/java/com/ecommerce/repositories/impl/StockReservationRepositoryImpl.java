@@ -0,0 +1,72 @@
+package com.ecommerce.repositories.impl;
+
+import com.ecommerce.pojo.StockReservation;
+import com.ecommerce.repositories.StockReservationRepository;
+import jakarta.persistence.LockModeType;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+@Repository
+public class StockReservationRepositoryImpl implements StockReservationRepository {
+
+    @Autowired
+    private SessionFactory sessionFactory;
+
+    private Session getCurrentSession() {
+        return sessionFactory.getCurrentSession();
+    }
+
+    @Override
+    public void save(StockReservation reservation) {
+        getCurrentSession().persist(reservation);
+    }
+
+    @Override
+    public List<StockReservation> findByOrderIdForUpdate(Long orderId, Collection<String> statuses) {
+        String hql = "SELECT r FROM StockReservation r WHERE r.orderId = :orderId AND r.status IN (:statuses) " +
+                "ORDER BY r.productId";
+        return getCurrentSession().createQuery(hql, StockReservation.class)
+                .setParameter("orderId", orderId)
+                .setParameterList("statuses", statuses)
+                .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                .getResultList();
+    }
+
+    @Override
+    public int updateStatus(Long orderId, String fromStatus, String toStatus) {
+        return getCurrentSession().createMutationQuery(
+                "UPDATE StockReservation r SET r.status = :toStatus, r.expiresAt = NULL " +
+                        "WHERE r.orderId = :orderId AND r.status = :fromStatus")
+                .setParameter("toStatus", toStatus)
+                .setParameter("orderId", orderId)
+                .setParameter("fromStatus", fromStatus)
+                .executeUpdate();
+    }
+
+    @Override
+    public List<StockReservation> findPendingForUpdate(int limit) {
+        return getCurrentSession()
+                .createQuery("SELECT r FROM StockReservation r WHERE r.stockPending = true ORDER BY r.id",
+                        StockReservation.class)
+                .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    @Override
+    public List<Long> findExpiredOrderIds(String status, Date now, int limit) {
+        String hql = "SELECT DISTINCT r.orderId FROM StockReservation r " +
+                "WHERE r.status = :status AND r.expiresAt < :now ORDER BY r.orderId";
+        return getCurrentSession().createQuery(hql, Long.class)
+                .setParameter("status", status)
+                .setParameter("now", now)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+}
@@ -76,6 +76,18 @@ public class UserRepositoryImpl implements UserRepository {
         }
     }
 
+    @Override
+    public void evict(Long id) {
+        if (id == null) {
+            return;
+        }
+        User cachedUser = idCache.remove(id);
+        if (cachedUser != null && cachedUser.getUsername() != null) {
+            usernameCache.computeIfPresent(cachedUser.getUsername(),
+                    (username, user) -> id.equals(user.getId()) ? null : user);
+        }
+    }
+
     @Override
     public User findById(Long id) {
         if (id == null) {
@@ -86,6 +98,14 @@ public class UserRepositoryImpl implements UserRepository {
         if (cachedUser != null) {
             return cachedUser;
         }
+        return loadById(id);
+    }
+
+    @Override
+    public User loadById(Long id) {
+        if (id == null) {
+            return null;
+        }
 
         Session session = sessionFactory.getCurrentSession();
         User user = session.get(User.class, id);
@@ -95,6 +115,8 @@ public class UserRepositoryImpl implements UserRepository {
             if (user.getUsername() != null) {
                 usernameCache.put(user.getUsername(), user);
             }
+        } else {
+            evict(id);
         }
 
         return user;
@@ -275,4 +297,72 @@ public class UserRepositoryImpl implements UserRepository {
             return Collections.emptyList();
         }
     }
+
+    @Override
+    public List<User> findByFilters(String keyword, String roleName, Boolean active, Long afterId,
+            int page, int size) {
+        Session session = sessionFactory.getCurrentSession();
+
+        // Bước 1: lấy id của trang hiện tại (không join roles để LIMIT/OFFSET chạy trên bảng user)
+        StringBuilder hql = new StringBuilder("SELECT u.id FROM User u WHERE 1=1");
+        appendFilters(hql, keyword, roleName, active);
+        if (afterId != null) {
+            hql.append(" AND u.id < :afterId");
+        }
+        hql.append(" ORDER BY u.id DESC");
+
+        Query<Long> idQuery = session.createQuery(hql.toString(), Long.class);
+        bindFilters(idQuery, keyword, roleName, active);
+        if (afterId != null) {
+            idQuery.setParameter("afterId", afterId);
+        } else {
+            idQuery.setFirstResult(Math.max(page, 0) * size);
+        }
+        idQuery.setMaxResults(size);
+        List<Long> ids = idQuery.getResultList();
+        if (ids.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        // Bước 2: nạp user kèm roles cho đúng các id đó
+        Query<User> query = session.createQuery(
+                "SELECT DISTINCT u FROM User u LEFT JOIN FETCH u.roles WHERE u.id IN (:ids) ORDER BY u.id DESC",
+                User.class);
+        query.setParameterList("ids", ids);
+        return query.getResultList();
+    }
+
+    @Override
+    public long countByFilters(String keyword, String roleName, Boolean active) {
+        StringBuilder hql = new StringBuilder("SELECT COUNT(u.id) FROM User u WHERE 1=1");
+        appendFilters(hql, keyword, roleName, active);
+
+        Query<Long> query = sessionFactory.getCurrentSession().createQuery(hql.toString(), Long.class);
+        bindFilters(query, keyword, roleName, active);
+        return query.uniqueResult();
+    }
+
+    private void appendFilters(StringBuilder hql, String keyword, String roleName, Boolean active) {
+        if (keyword != null && !keyword.isBlank()) {
+            hql.append(" AND (LOWER(u.username) LIKE :kw OR LOWER(u.email) LIKE :kw OR LOWER(u.fullname) LIKE :kw)");
+        }
+        if (roleName != null && !roleName.isBlank()) {
+            hql.append(" AND EXISTS (SELECT 1 FROM User u2 JOIN u2.roles r WHERE u2.id = u.id AND r.name = :roleName)");
+        }
+        if (active != null) {
+            hql.append(" AND u.isActive = :active");
+        }
+    }
+
+    private void bindFilters(Query<?> query, String keyword, String roleName, Boolean active) {
+        if (keyword != null && !keyword.isBlank()) {
+            query.setParameter("kw", "%" + keyword.trim().toLowerCase() + "%");
+        }
+        if (roleName != null && !roleName.isBlank()) {
+            query.setParameter("roleName", roleName);
+        }
+        if (active != null) {
+            query.setParameter("active", active);
+        }
+    }
 }
@@ -1,8 +1,10 @@
 package com.ecommerce.security;
 
+import com.ecommerce.services.LastLoginService;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.web.authentication.AuthenticationSuccessHandler;
 import org.springframework.stereotype.Component;
@@ -11,6 +13,9 @@ import java.io.IOException;
 
 @Component
 public class AdminAuthenticationSuccessHandler implements AuthenticationSuccessHandler {
+    @Autowired
+    private LastLoginService lastLoginService;
+
     @Override
     public void onAuthenticationSuccess(HttpServletRequest request, HttpServletResponse response,
             Authentication authentication) throws IOException, ServletException {
@@ -19,6 +24,9 @@ public class AdminAuthenticationSuccessHandler implements AuthenticationSuccessH
                 .anyMatch(grantedAuthority -> grantedAuthority.getAuthority().equals("ADMIN"));
 
         if (isAdmin) {
+            if (authentication.getPrincipal() instanceof UserPrincipal principal) {
+                lastLoginService.recordLogin(principal.getUser().getId());
+            }
             response.sendRedirect(request.getContextPath() + "/admin");
         } else {
 
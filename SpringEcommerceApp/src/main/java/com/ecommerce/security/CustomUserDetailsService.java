@@ -2,7 +2,6 @@ package com.ecommerce.security;
 
 import com.ecommerce.pojo.User;
 import com.ecommerce.services.UserService;
-import java.util.Date;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Primary;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -35,14 +34,6 @@ public class CustomUserDetailsService implements UserDetailsService {
             throw new UsernameNotFoundException("Không tìm thấy người dùng với tên đăng nhập: " + username);
         }
 
-        updateLastLogin(user);
-
         return UserPrincipal.create(user);
     }
-
-    @Transactional
-    private void updateLastLogin(User user) {
-        user.setLastLogin(new Date());
-        userService.update(user);
-    }
 }
@@ -0,0 +1,27 @@
+package com.ecommerce.services;
+
+import com.ecommerce.pojo.RecentActivity;
+import java.util.List;
+import java.util.Map;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * Luồng hoạt động mới cho trang quản trị: các bản ghi đã lưu được giữ trong ring buffer (đánh số tăng dần)
+ * và đẩy tới trình duyệt qua Server-Sent Events.
+ */
+public interface ActivityFeedService {
+    // Gọi sau khi các bản ghi đã được lưu vào database
+    void publish(List<RecentActivity> activities);
+
+    // Các bản ghi mới nhất trong ring buffer, mới nhất trước
+    List<RecentActivity> getLatest(int limit);
+
+    // Id của sự kiện mới nhất (epoch-số thứ tự), dùng làm lastEventId khi trang mở kết nối lần đầu
+    String getLastEventId();
+
+    // Gửi lại các sự kiện sau lastEventId còn trong buffer (null: chỉ nhận sự kiện mới); id của lần chạy
+    // trước hoặc đã ra khỏi buffer thì gửi sự kiện reset. Đã đủ số kết nối thì ném IllegalStateException
+    SseEmitter subscribe(String lastEventId);
+
+    Map<String, Object> getStatistics();
+}
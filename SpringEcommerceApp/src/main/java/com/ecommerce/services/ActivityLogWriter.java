@@ -0,0 +1,25 @@
+package com.ecommerce.services;
+
+import com.ecommerce.pojo.RecentActivity;
+import java.util.Map;
+
+/**
+ * Ghi recent_activity theo lô: luồng request chỉ đưa bản ghi vào hàng đợi trong bộ nhớ (có giới hạn,
+ * không bao giờ chờ), một luồng nền ghi xuống database bằng JDBC batch.
+ */
+public interface ActivityLogWriter {
+    // Hết chỗ thì bỏ bản ghi theo app.activity.drop-policy; false nếu bản ghi này bị bỏ
+    boolean enqueue(RecentActivity activity);
+
+    // Ghi hết hàng đợi hiện tại, trả về số dòng đã ghi
+    int flush();
+
+    // Số bản ghi của hôm nay, đếm trong bộ nhớ (khởi tạo từ database khi khởi động); bản ghi bị bỏ không được đếm.
+    // Bộ đếm riêng của mỗi JVM: chỉ đúng khi chạy một node, nhiều node thì mỗi node chỉ thấy bản ghi của mình
+    long getTodayCount();
+
+    // Gọi sau khi một bản ghi được lưu trực tiếp, không qua hàng đợi: cập nhật bộ đếm và luồng hoạt động
+    void recordSaved(RecentActivity activity);
+
+    Map<String, Object> getStatistics();
+}
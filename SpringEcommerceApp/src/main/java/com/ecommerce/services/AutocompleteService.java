@@ -0,0 +1,16 @@
+package com.ecommerce.services;
+
+import java.util.List;
+import java.util.Map;
+
+public interface AutocompleteService {
+    boolean isReady();
+
+    List<Map<String, Object>> suggest(String prefix, int limit);
+
+    void indexProduct(Long productId);
+
+    void removeProduct(Long productId);
+
+    void rebuild();
+}
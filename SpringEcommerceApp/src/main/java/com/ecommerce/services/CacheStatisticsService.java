@@ -0,0 +1,13 @@
+package com.ecommerce.services;
+
+import java.util.Map;
+
+/**
+ * Service cung cấp số liệu hit/miss/eviction của các cache trong ứng dụng
+ */
+public interface CacheStatisticsService {
+
+    Map<String, Object> getSecondLevelCacheStatistics();
+
+    Map<String, Object> getApplicationCacheStatistics();
+}
@@ -0,0 +1,9 @@
+package com.ecommerce.services;
+
+import java.util.Map;
+
+public interface DashboardMetricsService {
+    Map<String, Object> getDashboardMetrics();
+
+    void reconcile();
+}
@@ -0,0 +1,22 @@
+package com.ecommerce.services;
+
+import java.util.Map;
+
+/**
+ * Hàng đợi email bền vững (bảng email_outbox): ghi email trong transaction của request,
+ * một pool worker gửi theo lô và thử lại khi lỗi.
+ */
+public interface EmailOutboxService {
+    String STATUS_PENDING = "PENDING";
+    String STATUS_SENDING = "SENDING";
+    String STATUS_SENT = "SENT";
+    String STATUS_FAILED = "FAILED";
+
+    // Tham gia transaction hiện tại nếu có; email chỉ được gửi sau khi transaction commit
+    void enqueue(String to, String subject, String body, boolean html);
+
+    // Gửi các email đã đến hạn, trả về số email đã nhận để gửi
+    int dispatch();
+
+    Map<String, Object> getStatistics();
+}
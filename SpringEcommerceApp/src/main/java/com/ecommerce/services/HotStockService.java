@@ -0,0 +1,30 @@
+package com.ecommerce.services;
+
+import java.util.Map;
+
+/**
+ * Tồn kho trong bộ nhớ cho các sản phẩm bán chạy (app.stock.hot-product-ids): đặt hàng chỉ trừ
+ * bộ đếm, không khoá dòng products; phần đã bán được flush định kỳ vào database.
+ * Chỉ đúng khi chạy một instance ứng dụng.
+ */
+public interface HotStockService {
+    boolean isHot(Long productId);
+
+    // Lấy hàng từ bộ đếm; false nếu không đủ (không chờ, không truy vấn database)
+    boolean tryAcquire(Long productId, int quantity);
+
+    // Trả hàng về bộ đếm
+    void release(Long productId, int quantity);
+
+    // Số lượng còn bán được theo bộ đếm
+    int getAvailable(Long productId);
+
+    // Gọi trong transaction sửa sản phẩm, trước khi ghi: bộ đếm được cộng phần chênh lệch
+    // giữa tồn kho mới và tồn kho trong database sau khi transaction commit
+    void onStockEdited(Long productId, int newQuantity);
+
+    // Trừ các giữ chỗ chưa ghi vào products.quantity, trả về số dòng giữ chỗ đã ghi
+    int flush();
+
+    Map<String, Object> getStatistics();
+}
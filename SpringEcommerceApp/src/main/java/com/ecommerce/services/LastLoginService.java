@@ -0,0 +1,7 @@
+package com.ecommerce.services;
+
+public interface LastLoginService {
+    void recordLogin(Long userId);
+
+    int flush();
+}
@@ -0,0 +1,13 @@
+package com.ecommerce.services;
+
+import com.ecommerce.pojo.Order;
+import com.ecommerce.pojo.OrderEvent;
+
+/**
+ * Xử lý một loại tác vụ phụ cho sự kiện đơn hàng. Được gọi trong transaction đánh dấu sự kiện đã xử lý:
+ * ném exception thì mọi thay đổi của các handler bị rollback và cả sự kiện được thử lại.
+ * Việc không nằm trong database (hàng đợi bộ nhớ...) phải để sau commit để không bị làm hai lần.
+ */
+public interface OrderEventHandler {
+    void handle(OrderEvent event, Order order);
+}
@@ -0,0 +1,34 @@
+package com.ecommerce.services;
+
+import com.ecommerce.pojo.Order;
+import java.util.Map;
+
+/**
+ * Outbox sự kiện đơn hàng (bảng order_events): các thay đổi của đơn chỉ ghi thêm một dòng sự kiện
+ * trong transaction của chúng, lịch sử trạng thái, email và nhật ký hoạt động do các OrderEventHandler
+ * xử lý sau (ít nhất một lần).
+ */
+public interface OrderEventService {
+    String ORDER_CREATED = "ORDER_CREATED";
+    String ORDER_STATUS_CHANGED = "ORDER_STATUS_CHANGED";
+    String PAYMENT_COMPLETED = "PAYMENT_COMPLETED";
+
+    String STATUS_PENDING = "PENDING";
+    String STATUS_PROCESSING = "PROCESSING";
+    String STATUS_DONE = "DONE";
+    String STATUS_FAILED = "FAILED";
+
+    // Tham gia transaction hiện tại; ghi trùng idempotency key (ORDER_CREATED, PAYMENT_COMPLETED của cùng đơn)
+    // thì vi phạm khoá unique, người gọi kiểm tra isPublished trước. ORDER_STATUS_CHANGED có khoá
+    // orderId:status_version:cũ:mới, tăng status_version của đơn trong cùng transaction
+    void publish(String eventType, Order order, String oldStatus, String note, Long actorId, String ipAddress);
+
+    // Sự kiện loại chỉ xảy ra một lần cho mỗi đơn đã được ghi chưa. Sự kiện PAYMENT_COMPLETED không bị
+    // xoá khi dọn sự kiện cũ nên luôn trả lời đúng
+    boolean isPublished(String eventType, Long orderId);
+
+    // Xử lý các sự kiện đã đến hạn, trả về số sự kiện đã nhận để xử lý
+    int dispatch();
+
+    Map<String, Object> getStatistics();
+}
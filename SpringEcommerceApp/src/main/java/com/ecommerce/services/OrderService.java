@@ -3,6 +3,8 @@ package com.ecommerce.services;
 import com.ecommerce.pojo.Order;
 import com.ecommerce.pojo.OrderStatusHistory;
 import com.ecommerce.dtos.OrderSummaryDTO;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
@@ -15,19 +17,39 @@ public interface OrderService {    void save(Order order);
     List<Order> findAll();
     List<Order> findByUserId(Long userId);
     List<OrderSummaryDTO> findByUserIdAsDTO(Long userId);
+    // Một trang lịch sử đơn, mới nhất trước; trang tiếp theo truyền ngày đặt và id của đơn cuối trang trước
+    List<OrderSummaryDTO> findByUserIdAsDTO(Long userId, Date beforeDate, Long beforeId, int size);
     List<Order> findByStatusAndDateRange(String status, Date fromDate, Date toDate);
+    List<Order> findByFilters(String status, Date fromDate, Date toDate, String keyword, Long afterId, int page, int size);
+    long countByFilters(String status, Date fromDate, Date toDate, String keyword);
     Map<String, Long> getOrderCountByStatus();
     Map<String, Double> getRevenueByDateRange(String groupBy, Date fromDate, Date toDate);
     Map<String, Integer> getOrderCountByDateRange(String groupBy, Date fromDate, Date toDate);
     Map<String, Integer> getTopSellingProducts(int limit);
     Map<String, Double> getRevenueByCategoryDateRange(Date fromDate, Date toDate);
-    byte[] generateOrderExcel(List<Order> orders);
+    List<Map<String, Object>> getSalesBySeller(Date fromDate, Date toDate);
+    // Ghi file Excel đơn hàng thẳng ra stream, bộ nhớ dùng không phụ thuộc số đơn
+    void writeOrderExcel(String status, Date fromDate, Date toDate, OutputStream out) throws IOException;
     byte[] generateReportExcel(String reportType, Date fromDate, Date toDate);
     List<OrderStatusHistory> getOrderStatusHistory(Long orderId);
     
     void addOrderStatusHistory(Order order, String status, String note, Long userId);
     
     void updateWithoutHistory(Order order);
+
+    // Các thao tác dưới đây ghi thêm một sự kiện vào order_events trong cùng transaction;
+    // lịch sử trạng thái, email và nhật ký hoạt động được OrderEventService xử lý sau
+
+    // Lưu đơn mới (sự kiện ORDER_CREATED), actorId là người đặt đơn
+    void save(Order order, Long actorId, String ipAddress);
+
+    // Lưu trạng thái mới đã gán vào order (sự kiện ORDER_STATUS_CHANGED); không có note thì lịch sử dùng
+    // ghi chú mặc định, hoặc không ghi nếu trạng thái không đổi
+    void changeStatus(Order order, String previousStatus, String note, Long actorId, String ipAddress);
+
+    // Chuyển đơn sang PROCESSING sau thanh toán (sự kiện PAYMENT_COMPLETED). Chỉ lần đầu cho mỗi đơn:
+    // đơn đã được báo thanh toán trước đó thì không bị đổi và trả về false
+    boolean completePayment(Order order, String note, Long actorId);
     
     List<Order> findOrdersByStoreId(Long storeId);
     List<Order> findOrdersByStoreIdAndStatus(Long storeId, String status);
@@ -0,0 +1,25 @@
+package com.ecommerce.services;
+
+import com.ecommerce.pojo.Product;
+
+import java.util.Map;
+
+/**
+ * Kết quả kiểm tra đơn hàng: các sản phẩm đã nạp một lần khi kiểm tra,
+ * dùng lại khi tạo chi tiết đơn để không phải truy vấn từng sản phẩm.
+ */
+public class OrderValidationContext {
+    private final Map<Long, Product> products;
+
+    public OrderValidationContext(Map<Long, Product> products) {
+        this.products = products;
+    }
+
+    public Product getProduct(Long productId) {
+        return products.get(productId);
+    }
+
+    public Map<Long, Product> getProducts() {
+        return products;
+    }
+}
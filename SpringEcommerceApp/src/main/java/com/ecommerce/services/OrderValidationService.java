@@ -9,7 +9,8 @@ import com.ecommerce.pojo.Order;
 public interface OrderValidationService {
     
     
-    void validateOrderCreation(OrderCreateDTO orderDTO);
+    // Trả về các sản phẩm đã nạp khi kiểm tra để dùng lại lúc tạo đơn
+    OrderValidationContext validateOrderCreation(OrderCreateDTO orderDTO);
     
    
     void validateOrderUpdate(Order existingOrder, Order updatedOrder);
@@ -0,0 +1,28 @@
+package com.ecommerce.services;
+
+import java.util.List;
+import java.util.Map;
+
+public interface ProductSearchService {
+    boolean isReady();
+
+    // Trả về id sản phẩm theo thứ tự điểm BM25 giảm dần
+    List<Long> search(String keyword, int limit);
+
+    // Trả về null nếu index chưa sẵn sàng hoặc không hỗ trợ kiểu sắp xếp, khi đó dùng truy vấn SQL
+    List<Long> searchAdvanced(String name, Long storeId, Double minPrice, Double maxPrice,
+            String sortBy, String sortDir, int page, int size);
+
+    // Trang kết quả (productIds, totalElements) kèm số lượng theo danh mục, cửa hàng, khoảng giá, tồn kho;
+    // null nếu index chưa sẵn sàng
+    Map<String, Object> facetedSearch(String name, Long categoryId, Long storeId, Double minPrice, Double maxPrice,
+            Boolean inStock, String sortBy, String sortDir, int page, int size);
+
+    void indexProduct(Long productId);
+
+    void removeProduct(Long productId);
+
+    void rebuild();
+
+    Map<String, Object> getStatistics();
+}
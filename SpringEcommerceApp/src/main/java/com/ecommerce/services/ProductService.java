@@ -4,7 +4,9 @@ import com.ecommerce.dtos.ProductComparisonDTO;
 import com.ecommerce.pojo.Product;
 
 import org.springframework.web.multipart.MultipartFile;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 public interface ProductService {
     Product save(Product product);
@@ -15,6 +17,9 @@ public interface ProductService {
 
     Product findById(Long id);
 
+    // Nạp nhiều sản phẩm trong một truy vấn, key là id sản phẩm
+    Map<Long, Product> findAllByIds(Collection<Long> ids);
+
     List<Product> findAll();
 
     List<Product> findByName(String name);
@@ -30,7 +35,14 @@ public interface ProductService {
     List<Product> searchAdvanced(String name, Long storeId, Double minPrice, Double maxPrice,
             String sortBy, String sortDir, int page, int size);
 
+    Map<String, Object> searchWithFacets(String name, Long categoryId, Long storeId, Double minPrice,
+            Double maxPrice, Boolean inStock, String sortBy, String sortDir, int page, int size);
+
     String uploadProductImage(MultipartFile imageFile) throws Exception;
 
     List<ProductComparisonDTO> compareProductsByCategory(Long categoryId);
+
+    List<Product> findByFilters(String keyword, Long categoryId, Boolean active, Long afterId, int page, int size);
+
+    long countByFilters(String keyword, Long categoryId, Boolean active);
 }
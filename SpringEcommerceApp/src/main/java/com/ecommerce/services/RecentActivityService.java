@@ -11,6 +11,7 @@ public interface RecentActivityService {
   
     RecentActivity saveActivity(RecentActivity activity);
       
+    // Ghi bất đồng bộ theo lô: bản ghi trả về chưa có id, có thể bị bỏ khi hàng đợi đầy
     RecentActivity logActivity(String activityType, String description, String userEmail, 
                               String userName, Long entityId, String entityType, String ipAddress);
     
@@ -33,6 +34,11 @@ public interface RecentActivityService {
     
     
     void cleanupOldActivities(int daysToKeep);
+
+    // Chuyển recent_activity sang partition theo ngày (chỉ MySQL). Hai lệnh ALTER TABLE chép lại cả bảng và
+    // chặn ghi trong lúc chạy (ActivityLogWriter có thể bỏ các lô ghi lỗi) nên không tự chạy, admin gọi khi
+    // ít truy cập. False nếu database không hỗ trợ, bảng đã có partition hoặc đang có lượt bảo trì khác
+    boolean partitionTable();
     void logUserLogin(String userEmail, String userName, String ipAddress);
     void logUserLogout(String userEmail, String userName, String ipAddress);
     void logUserRegistration(String userEmail, String userName, String ipAddress);
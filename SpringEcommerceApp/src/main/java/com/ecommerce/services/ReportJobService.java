@@ -0,0 +1,46 @@
+package com.ecommerce.services;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Date;
+import java.util.Map;
+
+/**
+ * Tạo báo cáo chạy nền: gửi yêu cầu nhận về jobId, theo dõi tiến độ, lấy kết quả khi xong.
+ */
+public interface ReportJobService {
+    // Dữ liệu báo cáo để hiển thị trên trang quản trị
+    String FORMAT_DATA = "DATA";
+    // File Excel để tải về
+    String FORMAT_EXCEL = "EXCEL";
+
+    String STATUS_QUEUED = "QUEUED";
+    String STATUS_RUNNING = "RUNNING";
+    String STATUS_DONE = "DONE";
+    String STATUS_FAILED = "FAILED";
+
+    // Giai đoạn của job (trường "stage"); "progress" là phần trăm cố định của từng giai đoạn, không tính theo số
+    // dòng đã xử lý (trường "progressBasis" luôn là "STAGE")
+    String STAGE_QUEUED = "QUEUED";
+    // Truy vấn và tổng hợp dữ liệu (file Excel được ghi luôn trong giai đoạn này)
+    String STAGE_GENERATING = "GENERATING";
+    // Ghi kết quả dạng dữ liệu ra file
+    String STAGE_WRITING = "WRITING";
+    String STAGE_DONE = "DONE";
+
+    // Yêu cầu giống hệt đang chờ/đang chạy thì trả về job đó thay vì tạo job mới.
+    // Hàng đợi đầy thì ném IllegalStateException
+    Map<String, Object> submit(String format, String reportType, String periodType, Date fromDate, Date toDate);
+
+    // null nếu job không tồn tại hoặc kết quả đã hết hạn
+    Map<String, Object> getStatus(String jobId);
+
+    // Chờ job xong tối đa timeoutMs rồi trả về trạng thái hiện tại; null nếu job không tồn tại hoặc đã bị dọn
+    Map<String, Object> await(String jobId, long timeoutMs);
+
+    // null nếu job chưa xong, không tồn tại hoặc đã bị dọn
+    Map<String, Object> getReportData(String jobId) throws IOException;
+
+    // null nếu job chưa xong
+    Path getResultFile(String jobId);
+}
@@ -1,5 +1,7 @@
 package com.ecommerce.services;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.Date;
 import java.util.Map;
 
@@ -12,10 +14,14 @@ public interface ReportService {
     
   
     Map<String, Object> generateSellerReport(Date fromDate, Date toDate);
+
+    // Thống kê doanh thu của một người bán; period = month | quarter | year
+    Map<String, Object> getSellerStatistics(Long sellerId, String period, Date fromDate, Date toDate);
     
    
     Map<String, Object> generateInventoryReport();
     
   
-    byte[] exportReportToExcel(String reportType, Date fromDate, Date toDate);
+    // Ghi báo cáo Excel thẳng ra stream
+    void exportReportToExcel(String reportType, Date fromDate, Date toDate, OutputStream out) throws IOException;
 }
@@ -0,0 +1,31 @@
+package com.ecommerce.services;
+
+import java.time.LocalDate;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+public interface SalesRollupService {
+    // Đánh dấu đơn cần cập nhật bảng tổng hợp, gọi trong transaction ghi đơn hàng; chỉ ghi khi flush sau commit
+    void syncOrder(Long orderId);
+
+    // Ghi các đơn đã đánh dấu vào bảng tổng hợp theo lô, trả về số đơn đã xử lý
+    int flush();
+
+    // Gọi trước khi xoá đơn (cần các dòng order_details để trừ)
+    void removeOrder(Long orderId);
+
+    // Tính lại toàn bộ các ngày trong khoảng từ dữ liệu gốc, trả về số ngày đã ghi
+    int backfill(LocalDate fromDay, LocalDate toDay);
+
+    // So sánh bảng tổng hợp với dữ liệu gốc, tính lại các ngày bị lệch
+    Map<String, Object> reconcile(LocalDate fromDay, LocalDate toDay);
+
+    Map<String, Double> getRevenueByPeriod(String periodType, Date fromDate, Date toDate);
+
+    Map<String, Integer> getOrderCountByPeriod(String periodType, Date fromDate, Date toDate);
+
+    Map<String, Double> getRevenueByCategory(Date fromDate, Date toDate);
+
+    List<Map<String, Object>> getSalesBySeller(Date fromDate, Date toDate);
+}
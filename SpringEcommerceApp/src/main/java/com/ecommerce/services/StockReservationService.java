@@ -0,0 +1,33 @@
+package com.ecommerce.services;
+
+import com.ecommerce.pojo.Order;
+
+import java.util.List;
+
+/**
+ * Giữ hàng trong kho cho đơn hàng: trừ kho khi tạo đơn, trả lại khi đơn bị huỷ
+ * hoặc đơn thanh toán online quá hạn mà chưa thanh toán.
+ */
+public interface StockReservationService {
+    // Đơn thanh toán online đang chờ thanh toán, quá hạn thì hoàn kho
+    String STATUS_RESERVED = "RESERVED";
+    // Đã thanh toán hoặc COD, không hết hạn
+    String STATUS_CONFIRMED = "CONFIRMED";
+    String STATUS_RELEASED = "RELEASED";
+
+    // Trừ kho cho tất cả sản phẩm của đơn (đơn đã có id), gọi trong transaction tạo đơn.
+    // Sản phẩm nào không đủ hàng thì ném ProductException.InsufficientStockException để rollback cả đơn
+    void reserve(Order order);
+
+    // Giữ chỗ thành chính thức. Nếu hàng của đơn đã bị hoàn kho (thanh toán sau khi hết hạn) thì trừ kho lại
+    void confirm(Long orderId);
+
+    // Trả hàng của đơn về kho; gọi nhiều lần không trừ/cộng lặp
+    void release(Long orderId);
+
+    // Chỉ trả hàng nếu đơn vẫn đang chờ thanh toán; true nếu đã trả
+    boolean releaseIfReserved(Long orderId);
+
+    // Các đơn có giữ chỗ đã quá hạn
+    List<Long> findExpiredOrderIds(int limit);
+}
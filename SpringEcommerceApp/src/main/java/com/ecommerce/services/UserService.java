@@ -20,6 +20,8 @@ public interface UserService extends UserDetailsService {
     User findByEmail(String email);    List<User> findByActiveStatus(boolean isActive);
     List<User> findByRole(String roleName);
     List<User> searchUsers(String keyword);
+    List<User> findByFilters(String keyword, String roleName, Boolean active, Long afterId, int page, int size);
+    long countByFilters(String keyword, String roleName, Boolean active);
     
    
     void updateAvatar(User user, MultipartFile avatar);
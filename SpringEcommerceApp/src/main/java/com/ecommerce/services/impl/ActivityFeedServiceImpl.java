@@ -0,0 +1,357 @@
+package com.ecommerce.services.impl;
+
+import com.ecommerce.pojo.RecentActivity;
+import com.ecommerce.repositories.RecentActivityRepository;
+import com.ecommerce.services.ActivityFeedService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * Mỗi kết nối có hàng đợi riêng giới hạn client-buffer sự kiện, được gửi bởi một pool luồng nhỏ (senders)
+ * nên kết nối chậm không làm chậm luồng ghi hay các kết nối khác. Hàng đợi đầy thì kết nối bị đóng;
+ * trình duyệt tự kết nối lại kèm Last-Event-ID và nhận lại phần còn thiếu từ ring buffer. Nếu phần thiếu
+ * đã bị ghi đè khỏi buffer, hoặc Last-Event-ID thuộc lần chạy trước của ứng dụng (id có dạng epoch-số thứ tự,
+ * số thứ tự bắt đầu lại từ 0 mỗi lần khởi động), thì nhận sự kiện reset để tải lại trang.
+ */
+@Service
+public class ActivityFeedServiceImpl implements ActivityFeedService {
+    private static final Logger logger = LoggerFactory.getLogger(ActivityFeedServiceImpl.class);
+
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm");
+    // Sự kiện đặc biệt chỉ gửi comment để giữ kết nối và phát hiện trình duyệt đã đóng
+    private static final FeedEvent HEARTBEAT = new FeedEvent(0, null, null, null);
+    private static final FeedEvent RESET = new FeedEvent(0, null, null, null);
+
+    @Autowired
+    private RecentActivityRepository recentActivityRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${app.activity.feed.buffer-size:1000}")
+    private int bufferSize;
+
+    @Value("${app.activity.feed.client-buffer:1000}")
+    private int clientBuffer;
+
+    // ActivityLogWriter publish cả lượt ghi một lần nên hàng đợi mỗi kết nối phải chứa được ít nhất hai lượt,
+    // nếu không mỗi đợt đăng nhập/đặt hàng dồn dập sẽ đóng mọi kết nối cùng lúc
+    @Value("${app.activity.batch-size:500}")
+    private int writerBatchSize;
+
+    @Value("${app.activity.feed.max-subscribers:2000}")
+    private int maxSubscribers;
+
+    @Value("${app.activity.feed.timeout-ms:1800000}")
+    private long timeoutMs;
+
+    @Value("${app.activity.feed.senders:4}")
+    private int senderThreads;
+
+    // Phân biệt id sự kiện của lần khởi động này với Last-Event-ID trình duyệt giữ từ lần chạy trước
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+
+    // Ring buffer: sự kiện id nằm ở ô id % bufferSize; ghi và đăng ký kết nối đều giữ khoá ring
+    private FeedEvent[] ring;
+    private long lastEventId;
+
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private ThreadPoolExecutor senders;
+
+    private final AtomicLong published = new AtomicLong();
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong slowDisconnects = new AtomicLong();
+    private final AtomicLong rejectedSubscribers = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        bufferSize = Math.max(1, bufferSize);
+        int minClientBuffer = 2 * Math.max(1, writerBatchSize);
+        if (clientBuffer < minClientBuffer) {
+            logger.warn("app.activity.feed.client-buffer {} is below twice the activity writer batch size, using {}",
+                    clientBuffer, minClientBuffer);
+            clientBuffer = minClientBuffer;
+        }
+        ring = new FeedEvent[bufferSize];
+        AtomicInteger threadCount = new AtomicInteger();
+        senders = new ThreadPoolExecutor(Math.max(1, senderThreads), Math.max(1, senderThreads), 0L,
+                TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable, "activity-feed-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        // Nạp sẵn các hoạt động gần nhất để dashboard không phải đọc database
+        List<RecentActivity> latest = new ArrayList<>(
+                recentActivityRepository.findRecentActivities(Math.min(bufferSize, 100)));
+        Collections.reverse(latest);
+        publish(latest);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (Subscriber subscriber : subscribers) {
+            subscriber.emitter.complete();
+        }
+        subscribers.clear();
+        senders.shutdownNow();
+    }
+
+    @Override
+    public void publish(List<RecentActivity> activities) {
+        if (activities.isEmpty()) {
+            return;
+        }
+        List<FeedEvent> events = new ArrayList<>(activities.size());
+        synchronized (ring) {
+            for (RecentActivity activity : activities) {
+                ++lastEventId;
+                FeedEvent event = new FeedEvent(lastEventId, epoch + "-" + lastEventId, activity, toJson(activity));
+                ring[(int) (event.id % bufferSize)] = event;
+                events.add(event);
+            }
+            // Đưa vào hàng đợi của từng kết nối trong khoá để thứ tự luôn giống ring buffer
+            for (Subscriber subscriber : subscribers) {
+                for (FeedEvent event : events) {
+                    if (!subscriber.offer(event, true)) {
+                        break;
+                    }
+                }
+            }
+        }
+        published.addAndGet(events.size());
+    }
+
+    @Override
+    public List<RecentActivity> getLatest(int limit) {
+        List<RecentActivity> latest = new ArrayList<>();
+        synchronized (ring) {
+            for (long id = lastEventId; id > 0 && id > lastEventId - bufferSize && latest.size() < limit; id--) {
+                latest.add(ring[(int) (id % bufferSize)].activity);
+            }
+        }
+        return latest;
+    }
+
+    @Override
+    public String getLastEventId() {
+        synchronized (ring) {
+            return epoch + "-" + lastEventId;
+        }
+    }
+
+    @Override
+    public SseEmitter subscribe(String fromEventId) {
+        if (subscribers.size() >= maxSubscribers) {
+            rejectedSubscribers.incrementAndGet();
+            throw new IllegalStateException("Quá nhiều kết nối theo dõi hoạt động");
+        }
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        Subscriber subscriber = new Subscriber(emitter);
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscriber.close());
+        emitter.onError(error -> subscriber.close());
+        synchronized (ring) {
+            if (fromEventId != null) {
+                long from = parseSequence(fromEventId);
+                long oldest = Math.max(1, lastEventId - bufferSize + 1);
+                // Id của lần chạy khác, lớn hơn sự kiện mới nhất hay đã bị ghi đè khỏi buffer
+                if (from < 0 || from > lastEventId || from + 1 < oldest) {
+                    subscriber.offer(RESET, false);
+                } else {
+                    for (long id = from + 1; id <= lastEventId; id++) {
+                        subscriber.offer(ring[(int) (id % bufferSize)], false);
+                    }
+                }
+            }
+            subscribers.add(subscriber);
+        }
+        return emitter;
+    }
+
+    @Scheduled(fixedDelayString = "${app.activity.feed.heartbeat-interval-ms:20000}")
+    public void heartbeat() {
+        for (Subscriber subscriber : subscribers) {
+            subscriber.offer(HEARTBEAT, true);
+        }
+    }
+
+    @Override
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("subscribers", subscribers.size());
+        stats.put("maxSubscribers", maxSubscribers);
+        stats.put("epoch", epoch);
+        stats.put("lastEventId", getLastEventId());
+        stats.put("bufferSize", bufferSize);
+        stats.put("clientBuffer", clientBuffer);
+        stats.put("published", published.get());
+        stats.put("sent", sent.get());
+        stats.put("slowDisconnects", slowDisconnects.get());
+        stats.put("rejectedSubscribers", rejectedSubscribers.get());
+        return stats;
+    }
+
+    // Số thứ tự trong id dạng epoch-số thứ tự, -1 nếu id không thuộc lần chạy này
+    private long parseSequence(String eventId) {
+        int separator = eventId.lastIndexOf('-');
+        if (separator < 0 || !epoch.equals(eventId.substring(0, separator))) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(eventId.substring(separator + 1));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private String toJson(RecentActivity activity) {
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("activityType", activity.getActivityType());
+        data.put("description", activity.getDescription());
+        data.put("userEmail", activity.getUserEmail());
+        data.put("userName", activity.getUserName());
+        data.put("entityId", activity.getEntityId());
+        data.put("entityType", activity.getEntityType());
+        data.put("ipAddress", activity.getIpAddress());
+        data.put("createdAt", activity.getCreatedAt() != null ? TIME_FORMAT.format(activity.getCreatedAt()) : null);
+        try {
+            return objectMapper.writeValueAsString(data);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static final class FeedEvent {
+        final long id;
+        // Id gửi cho trình duyệt (epoch-id)
+        final String eventId;
+        final RecentActivity activity;
+        // Chuỗi JSON tạo một lần, dùng chung cho mọi kết nối
+        final String json;
+
+        FeedEvent(long id, String eventId, RecentActivity activity, String json) {
+            this.id = id;
+            this.eventId = eventId;
+            this.activity = activity;
+            this.json = json;
+        }
+    }
+
+    private final class Subscriber {
+        final SseEmitter emitter;
+        final Queue<FeedEvent> queue = new ConcurrentLinkedQueue<>();
+        final AtomicInteger queueSize = new AtomicInteger();
+        // Mỗi kết nối chỉ có một luồng gửi tại một thời điểm
+        final AtomicBoolean draining = new AtomicBoolean(false);
+        volatile boolean closed;
+
+        Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        // false nếu kết nối đã đóng (hoặc vừa bị đóng vì hàng đợi đầy)
+        boolean offer(FeedEvent event, boolean bounded) {
+            if (closed) {
+                return false;
+            }
+            if (bounded && queueSize.get() >= clientBuffer) {
+                slowDisconnects.incrementAndGet();
+                close();
+                return false;
+            }
+            queueSize.incrementAndGet();
+            queue.offer(event);
+            scheduleDrain();
+            return true;
+        }
+
+        // Không gọi emitter.complete() ở đây vì luồng gửi có thể đang ghi dở vào kết nối chậm
+        void close() {
+            closed = true;
+            subscribers.remove(this);
+            scheduleDrain();
+        }
+
+        void scheduleDrain() {
+            if (draining.compareAndSet(false, true)) {
+                try {
+                    senders.execute(this::drain);
+                } catch (RuntimeException e) {
+                    draining.set(false);
+                }
+            }
+        }
+
+        void drain() {
+            while (true) {
+                try {
+                    FeedEvent event;
+                    while (!closed && (event = queue.poll()) != null) {
+                        queueSize.decrementAndGet();
+                        send(event);
+                    }
+                    if (closed) {
+                        queue.clear();
+                        emitter.complete();
+                        return;
+                    }
+                } catch (Exception e) {
+                    // Trình duyệt đã đóng kết nối
+                    logger.debug("Activity feed subscriber disconnected: {}", e.getMessage());
+                    closed = true;
+                    subscribers.remove(this);
+                    queue.clear();
+                    emitter.completeWithError(e);
+                    return;
+                } finally {
+                    draining.set(false);
+                }
+                // Có sự kiện mới đến sau lần poll cuối mà lượt gửi khác chưa được lên lịch
+                if (queue.isEmpty() || !draining.compareAndSet(false, true)) {
+                    return;
+                }
+            }
+        }
+
+        void send(FeedEvent event) throws IOException {
+            if (event == HEARTBEAT) {
+                emitter.send(SseEmitter.event().comment("ping"));
+                return;
+            }
+            if (event == RESET) {
+                emitter.send(SseEmitter.event().name("reset").data(""));
+                return;
+            }
+            emitter.send(SseEmitter.event().id(event.eventId).name("activity")
+                    .data(event.json, MediaType.APPLICATION_JSON));
+            sent.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,290 @@
+package com.ecommerce.services.impl;
+
+import com.ecommerce.pojo.RecentActivity;
+import com.ecommerce.repositories.RecentActivityRepository;
+import com.ecommerce.services.ActivityFeedService;
+import com.ecommerce.services.ActivityLogWriter;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+import org.hibernate.SessionFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Hàng đợi là ConcurrentLinkedQueue (không khoá) kèm bộ đếm kích thước để giới hạn queue-capacity.
+ * Luồng activity-log-writer ghi mỗi flush-interval-ms, hoặc sớm hơn khi hàng đợi đủ batch-size dòng.
+ * Ghi lỗi thì thử lại lô đó ở lần sau, quá MAX_WRITE_ATTEMPTS lần thì bỏ; trong lúc đó hàng đợi đầy
+ * dần và bản ghi mới bị bỏ theo drop-policy (NEWEST: bỏ bản ghi mới, OLDEST: bỏ bản ghi cũ nhất).
+ */
+@Service
+public class ActivityLogWriterImpl implements ActivityLogWriter {
+    private static final Logger logger = LoggerFactory.getLogger(ActivityLogWriterImpl.class);
+
+    private static final String INSERT_SQL = "INSERT INTO recent_activity (activity_type, description, user_email, "
+            + "user_name, entity_id, entity_type, created_at, ip_address) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final int MAX_WRITE_ATTEMPTS = 3;
+    private static final long SHUTDOWN_WAIT_MS = 5000;
+
+    @Autowired
+    private SessionFactory sessionFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private RecentActivityRepository recentActivityRepository;
+
+    @Autowired
+    private ActivityFeedService activityFeedService;
+
+    @Value("${app.activity.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${app.activity.batch-size:500}")
+    private int batchSize;
+
+    @Value("${app.activity.flush-interval-ms:200}")
+    private long flushIntervalMs;
+
+    @Value("${app.activity.drop-policy:NEWEST}")
+    private String dropPolicy;
+
+    private final Queue<RecentActivity> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queueSize = new AtomicInteger();
+
+    private final AtomicLong enqueued = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong failedRows = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private volatile int lastBatchRows;
+    private volatile long lastBatchMillis;
+
+    private final AtomicReference<DayCount> todayCount = new AtomicReference<>(new DayCount(LocalDate.now()));
+
+    // Lô ghi lỗi, chỉ ghi trong flush(); khác null thì luồng nền chờ hết flush-interval-ms mới thử lại
+    private volatile List<RecentActivity> retryBatch;
+    private int retryAttempts;
+
+    private boolean dropOldest;
+    private volatile boolean running;
+    private Thread drainer;
+
+    @PostConstruct
+    public void init() {
+        queueCapacity = Math.max(1, queueCapacity);
+        batchSize = Math.max(1, batchSize);
+        dropOldest = "OLDEST".equalsIgnoreCase(dropPolicy);
+        DayCount today = new DayCount(LocalDate.now());
+        today.count.set(recentActivityRepository.countTodayActivities());
+        todayCount.set(today);
+        running = true;
+        drainer = new Thread(this::drainLoop, "activity-log-writer");
+        drainer.setDaemon(true);
+        drainer.start();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        LockSupport.unpark(drainer);
+        try {
+            drainer.join(SHUTDOWN_WAIT_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // Ghi nốt các bản ghi đến sau lượt cuối của luồng nền
+        flush();
+        if (queueSize.get() > 0) {
+            logger.warn("{} activities were not written before shutdown", queueSize.get());
+        }
+    }
+
+    @Override
+    public boolean enqueue(RecentActivity activity) {
+        if (activity.getCreatedAt() == null) {
+            activity.setCreatedAt(LocalDateTime.now());
+        }
+        int size = queueSize.incrementAndGet();
+        if (size > queueCapacity) {
+            if (!dropOldest || queue.poll() == null) {
+                queueSize.decrementAndGet();
+                dropped.incrementAndGet();
+                return false;
+            }
+            queueSize.decrementAndGet();
+            dropped.incrementAndGet();
+        }
+        queue.offer(activity);
+        enqueued.incrementAndGet();
+        if (size % batchSize == 0) {
+            LockSupport.unpark(drainer);
+        }
+        return true;
+    }
+
+    @Override
+    public synchronized int flush() {
+        int total = 0;
+        while (true) {
+            List<RecentActivity> batch = retryBatch != null ? retryBatch : pollBatch();
+            if (batch.isEmpty()) {
+                return total;
+            }
+            retryBatch = null;
+            long start = System.currentTimeMillis();
+            try {
+                write(batch);
+            } catch (Exception e) {
+                int attempt = ++retryAttempts;
+                if (attempt < MAX_WRITE_ATTEMPTS) {
+                    retryBatch = batch;
+                } else {
+                    retryAttempts = 0;
+                    failedRows.addAndGet(batch.size());
+                }
+                logger.error("Failed to write {} activities (attempt {}/{}): {}", batch.size(), attempt,
+                        MAX_WRITE_ATTEMPTS, e.getMessage());
+                return total;
+            }
+            retryAttempts = 0;
+            lastBatchRows = batch.size();
+            lastBatchMillis = System.currentTimeMillis() - start;
+            batches.incrementAndGet();
+            written.addAndGet(batch.size());
+            total += batch.size();
+            for (RecentActivity activity : batch) {
+                countWritten(activity.getCreatedAt().toLocalDate());
+            }
+            activityFeedService.publish(batch);
+        }
+    }
+
+    @Override
+    public long getTodayCount() {
+        DayCount current = todayCount.get();
+        return current.day.equals(LocalDate.now()) ? current.count.get() : 0;
+    }
+
+    @Override
+    public void recordSaved(RecentActivity activity) {
+        if (activity.getCreatedAt() != null) {
+            countWritten(activity.getCreatedAt().toLocalDate());
+        }
+        activityFeedService.publish(List.of(activity));
+    }
+
+    @Override
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("queueSize", queueSize.get());
+        stats.put("queueCapacity", queueCapacity);
+        stats.put("dropPolicy", dropOldest ? "OLDEST" : "NEWEST");
+        stats.put("enqueued", enqueued.get());
+        stats.put("dropped", dropped.get());
+        stats.put("written", written.get());
+        stats.put("failedRows", failedRows.get());
+        stats.put("batches", batches.get());
+        stats.put("lastBatchRows", lastBatchRows);
+        stats.put("lastBatchMillis", lastBatchMillis);
+        stats.put("todayCount", getTodayCount());
+        return stats;
+    }
+
+    private void drainLoop() {
+        while (running) {
+            if (queueSize.get() < batchSize || retryBatch != null) {
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(flushIntervalMs));
+            }
+            try {
+                flush();
+            } catch (Exception e) {
+                logger.error("Activity log writer failed: {}", e.getMessage(), e);
+            }
+        }
+    }
+
+    // Bản ghi của ngày mới hơn thì chuyển bộ đếm sang ngày đó; bản ghi của ngày cũ hơn bỏ qua
+    private void countWritten(LocalDate day) {
+        while (true) {
+            DayCount current = todayCount.get();
+            if (day.equals(current.day)) {
+                current.count.incrementAndGet();
+                return;
+            }
+            if (day.isBefore(current.day)) {
+                return;
+            }
+            todayCount.compareAndSet(current, new DayCount(day));
+        }
+    }
+
+    private List<RecentActivity> pollBatch() {
+        List<RecentActivity> batch = new ArrayList<>(Math.min(batchSize, Math.max(1, queueSize.get())));
+        RecentActivity activity;
+        while (batch.size() < batchSize && (activity = queue.poll()) != null) {
+            queueSize.decrementAndGet();
+            batch.add(activity);
+        }
+        return batch;
+    }
+
+    private void write(List<RecentActivity> batch) {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                sessionFactory.getCurrentSession().doWork(connection -> {
+                    try (PreparedStatement ps = connection.prepareStatement(INSERT_SQL)) {
+                        for (RecentActivity activity : batch) {
+                            ps.setString(1, activity.getActivityType());
+                            // Một dòng quá dài làm hỏng cả lô nên cắt theo độ dài cột
+                            ps.setString(2, truncate(activity.getDescription(), 500));
+                            ps.setString(3, truncate(activity.getUserEmail(), 100));
+                            ps.setString(4, truncate(activity.getUserName(), 100));
+                            if (activity.getEntityId() != null) {
+                                ps.setLong(5, activity.getEntityId());
+                            } else {
+                                ps.setNull(5, Types.BIGINT);
+                            }
+                            ps.setString(6, activity.getEntityType());
+                            ps.setTimestamp(7, Timestamp.valueOf(activity.getCreatedAt()));
+                            ps.setString(8, truncate(activity.getIpAddress(), 45));
+                            ps.addBatch();
+                        }
+                        ps.executeBatch();
+                    }
+                }));
+    }
+
+    private static String truncate(String value, int maxLength) {
+        return value != null && value.length() > maxLength ? value.substring(0, maxLength) : value;
+    }
+
+    private static final class DayCount {
+        final LocalDate day;
+        final AtomicLong count = new AtomicLong();
+
+        DayCount(LocalDate day) {
+            this.day = day;
+        }
+    }
+}
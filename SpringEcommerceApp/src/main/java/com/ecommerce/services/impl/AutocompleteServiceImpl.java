@@ -0,0 +1,320 @@
+package com.ecommerce.services.impl;
+
+import com.ecommerce.pojo.Product;
+import com.ecommerce.repositories.OrderDetailRepository;
+import com.ecommerce.repositories.ProductRepository;
+import com.ecommerce.services.AutocompleteService;
+import com.ecommerce.utils.SuggestionTrie;
+import com.ecommerce.utils.SuggestionTrie.Suggestion;
+import com.ecommerce.utils.TextNormalizer;
+import com.ecommerce.utils.TransactionUtils;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Gợi ý tìm kiếm theo tiền tố cho tên sản phẩm, danh mục và cửa hàng.
+ * Độ phổ biến của sản phẩm là tổng số lượng đã bán; của danh mục/cửa hàng là tổng
+ * độ phổ biến các sản phẩm đang bán thuộc về nó.
+ */
+@Service
+public class AutocompleteServiceImpl implements AutocompleteService {
+    private static final Logger logger = LoggerFactory.getLogger(AutocompleteServiceImpl.class);
+
+    public static final int MAX_SUGGESTIONS = 10;
+    // Chỉ lưu 30 ký tự đầu của mỗi cụm từ, đủ cho gợi ý khi đang gõ
+    private static final int MAX_KEY_LENGTH = 30;
+    // Cho phép gợi ý khi gõ từ thứ 2, 3... của tên ("thun" -> "Áo thun nam")
+    private static final int MAX_WORD_STARTS = 4;
+    private static final int REBUILD_BATCH_SIZE = 1000;
+
+    private static final String TYPE_PRODUCT = "PRODUCT";
+    private static final String TYPE_CATEGORY = "CATEGORY";
+    private static final String TYPE_STORE = "STORE";
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private OrderDetailRepository orderDetailRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private volatile State state = new State();
+    private volatile boolean ready = false;
+
+    private final AtomicBoolean rebuilding = new AtomicBoolean(false);
+    private final Set<Long> changedDuringRebuild = ConcurrentHashMap.newKeySet();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        Thread warmUpThread = new Thread(this::rebuild, "autocomplete-warmup");
+        warmUpThread.setDaemon(true);
+        warmUpThread.start();
+    }
+
+    // Độ phổ biến (số lượng bán) chỉ được cập nhật khi rebuild
+    @Scheduled(initialDelayString = "${app.autocomplete.rebuild-interval-ms:600000}",
+            fixedDelayString = "${app.autocomplete.rebuild-interval-ms:600000}")
+    public void scheduledRebuild() {
+        rebuild();
+    }
+
+    @Override
+    public boolean isReady() {
+        return ready;
+    }
+
+    @Override
+    public List<Map<String, Object>> suggest(String prefix, int limit) {
+        List<Map<String, Object>> result = new ArrayList<>();
+        String key = String.join(" ", TextNormalizer.tokenize(prefix));
+        if (key.isEmpty() || limit < 1) {
+            return result;
+        }
+        for (Suggestion suggestion : state.trie.suggest(key, Math.min(limit, MAX_SUGGESTIONS))) {
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("type", suggestion.getType());
+            item.put("id", suggestion.getId());
+            item.put("text", suggestion.getText());
+            item.put("popularity", suggestion.getWeight());
+            result.add(item);
+        }
+        return result;
+    }
+
+    @Override
+    public void rebuild() {
+        if (!rebuilding.compareAndSet(false, true)) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        try {
+            changedDuringRebuild.clear();
+            TransactionTemplate template = readOnlyTransaction();
+            State fresh = new State();
+            template.executeWithoutResult(status -> {
+                for (Object[] row : orderDetailRepository.findQuantitySoldByProduct()) {
+                    fresh.soldByProduct.put((Long) row[0], ((Number) row[1]).longValue());
+                }
+            });
+
+            Long afterId = null;
+            while (true) {
+                final Long cursor = afterId;
+                List<Product> batch = template.execute(status -> {
+                    List<Product> products = productRepository.findByFilters(null, null, true, cursor, 0,
+                            REBUILD_BATCH_SIZE);
+                    products.forEach(product -> fresh.addProduct(ProductEntry.of(product)));
+                    return products;
+                });
+                if (batch == null || batch.isEmpty()) {
+                    break;
+                }
+                afterId = batch.get(batch.size() - 1).getId();
+            }
+            fresh.buildTrie();
+
+            synchronized (this) {
+                state = fresh;
+                ready = true;
+                for (Long productId : changedDuringRebuild) {
+                    applyChange(productId);
+                }
+                changedDuringRebuild.clear();
+            }
+            logger.info("Autocomplete index rebuilt: {} suggestions in {} ms",
+                    fresh.trie.size(), System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            logger.error("Autocomplete index rebuild failed: {}", e.getMessage(), e);
+        } finally {
+            rebuilding.set(false);
+        }
+    }
+
+    @Override
+    public void indexProduct(Long productId) {
+        if (productId != null) {
+            TransactionUtils.runAfterCommit(() -> onProductChanged(productId));
+        }
+    }
+
+    @Override
+    public void removeProduct(Long productId) {
+        if (productId != null) {
+            TransactionUtils.runAfterCommit(() -> onProductChanged(productId));
+        }
+    }
+
+    private synchronized void onProductChanged(Long productId) {
+        if (rebuilding.get()) {
+            changedDuringRebuild.add(productId);
+        }
+        try {
+            applyChange(productId);
+        } catch (Exception e) {
+            logger.error("Could not update autocomplete for product {}: {}", productId, e.getMessage());
+        }
+    }
+
+    // Đọc lại sản phẩm sau commit; sản phẩm đã xoá hoặc ngừng bán thì bỏ khỏi gợi ý
+    private void applyChange(Long productId) {
+        TransactionTemplate template = readOnlyTransaction();
+        template.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        ProductEntry entry = template.execute(status -> {
+            List<Product> products = productRepository.findByIds(List.of(productId));
+            return products.isEmpty() || !products.get(0).isActive() ? null : ProductEntry.of(products.get(0));
+        });
+
+        State current = state;
+        ProductEntry previous = current.removeProduct(productId);
+        current.trie.remove(TYPE_PRODUCT + ":" + productId);
+        if (entry != null) {
+            current.addProduct(entry);
+            current.trie.put(current.productSuggestion(entry), phrases(entry.name));
+        }
+        refreshGroup(current, TYPE_CATEGORY, previous != null ? previous.categoryId : null);
+        refreshGroup(current, TYPE_STORE, previous != null ? previous.storeId : null);
+        if (entry != null) {
+            refreshGroup(current, TYPE_CATEGORY, entry.categoryId);
+            refreshGroup(current, TYPE_STORE, entry.storeId);
+        }
+    }
+
+    private void refreshGroup(State current, String type, Long groupId) {
+        if (groupId == null) {
+            return;
+        }
+        Group group = (TYPE_CATEGORY.equals(type) ? current.categories : current.stores).get(groupId);
+        if (group == null || group.productCount <= 0 || group.name == null) {
+            current.trie.remove(type + ":" + groupId);
+        } else {
+            current.trie.put(new Suggestion(type, groupId, group.name, group.popularity), phrases(group.name));
+        }
+    }
+
+    private TransactionTemplate readOnlyTransaction() {
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        template.setReadOnly(true);
+        return template;
+    }
+
+    // Các cụm từ bắt đầu từ mỗi từ trong tên: "Áo thun nam" -> "ao thun nam", "thun nam", "nam"
+    private static List<String> phrases(String text) {
+        List<String> tokens = TextNormalizer.tokenize(text);
+        List<String> phrases = new ArrayList<>();
+        for (int i = 0; i < Math.min(tokens.size(), MAX_WORD_STARTS); i++) {
+            phrases.add(String.join(" ", tokens.subList(i, tokens.size())));
+        }
+        return phrases;
+    }
+
+    private static final class ProductEntry {
+        Long id;
+        String name;
+        Long categoryId;
+        String categoryName;
+        Long storeId;
+        String storeName;
+
+        static ProductEntry of(Product product) {
+            ProductEntry entry = new ProductEntry();
+            entry.id = product.getId();
+            entry.name = product.getName();
+            if (product.getCategory() != null) {
+                entry.categoryId = product.getCategory().getId();
+                entry.categoryName = product.getCategory().getName();
+            }
+            if (product.getStore() != null) {
+                entry.storeId = product.getStore().getId();
+                entry.storeName = product.getStore().getName();
+            }
+            return entry;
+        }
+    }
+
+    private static final class Group {
+        String name;
+        long popularity;
+        int productCount;
+    }
+
+    private static final class State {
+        final SuggestionTrie trie = new SuggestionTrie(MAX_SUGGESTIONS, MAX_KEY_LENGTH);
+        final Map<Long, Long> soldByProduct = new HashMap<>();
+        final Map<Long, ProductEntry> products = new HashMap<>();
+        final Map<Long, Group> categories = new HashMap<>();
+        final Map<Long, Group> stores = new HashMap<>();
+
+        long popularity(Long productId) {
+            return soldByProduct.getOrDefault(productId, 0L);
+        }
+
+        Suggestion productSuggestion(ProductEntry entry) {
+            return new Suggestion(TYPE_PRODUCT, entry.id, entry.name, popularity(entry.id));
+        }
+
+        void addProduct(ProductEntry entry) {
+            products.put(entry.id, entry);
+            long popularity = popularity(entry.id);
+            addToGroup(categories, entry.categoryId, entry.categoryName, popularity, 1);
+            addToGroup(stores, entry.storeId, entry.storeName, popularity, 1);
+        }
+
+        ProductEntry removeProduct(Long productId) {
+            ProductEntry entry = products.remove(productId);
+            if (entry != null) {
+                long popularity = popularity(entry.id);
+                addToGroup(categories, entry.categoryId, entry.categoryName, -popularity, -1);
+                addToGroup(stores, entry.storeId, entry.storeName, -popularity, -1);
+            }
+            return entry;
+        }
+
+        private void addToGroup(Map<Long, Group> groups, Long groupId, String name, long popularity, int count) {
+            if (groupId == null) {
+                return;
+            }
+            Group group = groups.computeIfAbsent(groupId, key -> new Group());
+            if (name != null) {
+                group.name = name;
+            }
+            group.popularity += popularity;
+            group.productCount += count;
+        }
+
+        void buildTrie() {
+            Map<Suggestion, List<String>> entries = new LinkedHashMap<>();
+            for (ProductEntry entry : products.values()) {
+                entries.put(productSuggestion(entry), phrases(entry.name));
+            }
+            categories.forEach((id, group) -> {
+                if (group.productCount > 0 && group.name != null) {
+                    entries.put(new Suggestion(TYPE_CATEGORY, id, group.name, group.popularity), phrases(group.name));
+                }
+            });
+            stores.forEach((id, group) -> {
+                if (group.productCount > 0 && group.name != null) {
+                    entries.put(new Suggestion(TYPE_STORE, id, group.name, group.popularity), phrases(group.name));
+                }
+            });
+            trie.putAll(entries);
+        }
+    }
+}
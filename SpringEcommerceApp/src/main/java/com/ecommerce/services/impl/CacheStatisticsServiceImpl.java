@@ -0,0 +1,129 @@
+package com.ecommerce.services.impl;
+
+import com.ecommerce.services.CacheStatisticsService;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Service;
+
+@Service
+public class CacheStatisticsServiceImpl implements CacheStatisticsService {
+    private static final Logger logger = LoggerFactory.getLogger(CacheStatisticsServiceImpl.class);
+
+    @Autowired
+    private SessionFactory sessionFactory;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Override
+    public Map<String, Object> getApplicationCacheStatistics() {
+        Map<String, Object> caches = new LinkedHashMap<>();
+        for (String cacheName : cacheManager.getCacheNames()) {
+            Cache cache = cacheManager.getCache(cacheName);
+            if (cache == null || !(cache.getNativeCache() instanceof com.github.benmanes.caffeine.cache.Cache)) {
+                continue;
+            }
+            com.github.benmanes.caffeine.cache.Cache<?, ?> nativeCache =
+                    (com.github.benmanes.caffeine.cache.Cache<?, ?>) cache.getNativeCache();
+            CacheStats stats = nativeCache.stats();
+
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("estimatedSize", nativeCache.estimatedSize());
+            map.put("hitCount", stats.hitCount());
+            map.put("missCount", stats.missCount());
+            map.put("hitRatio", stats.hitRate());
+            map.put("evictionCount", stats.evictionCount());
+            map.put("loadSuccessCount", stats.loadSuccessCount());
+            map.put("loadFailureCount", stats.loadFailureCount());
+            map.put("averageLoadMillis", stats.averageLoadPenalty() / 1_000_000.0);
+            map.put("totalLoadMillis", stats.totalLoadTime() / 1_000_000);
+            caches.put(cacheName, map);
+        }
+        return caches;
+    }
+
+    @Override
+    public Map<String, Object> getSecondLevelCacheStatistics() {
+        Statistics statistics = sessionFactory.getStatistics();
+        Map<String, Long> evictions = getJCacheEvictions();
+
+        Map<String, Object> regions = new LinkedHashMap<>();
+        for (String regionName : statistics.getSecondLevelCacheRegionNames()) {
+            CacheRegionStatistics regionStats = statistics.getCacheRegionStatistics(regionName);
+            if (regionStats == null) {
+                continue;
+            }
+            regions.put(regionName, toMap(regionStats, evictions.get(regionName)));
+        }
+        for (String regionName : new String[] { "default-query-results-region", "default-update-timestamps-region" }) {
+            if (!regions.containsKey(regionName)) {
+                CacheRegionStatistics regionStats = statistics.getCacheRegionStatistics(regionName);
+                if (regionStats != null) {
+                    regions.put(regionName, toMap(regionStats, evictions.get(regionName)));
+                }
+            }
+        }
+
+        Map<String, Object> totals = new LinkedHashMap<>();
+        totals.put("statisticsEnabled", statistics.isStatisticsEnabled());
+        totals.put("secondLevelHitCount", statistics.getSecondLevelCacheHitCount());
+        totals.put("secondLevelMissCount", statistics.getSecondLevelCacheMissCount());
+        totals.put("secondLevelPutCount", statistics.getSecondLevelCachePutCount());
+        totals.put("queryCacheHitCount", statistics.getQueryCacheHitCount());
+        totals.put("queryCacheMissCount", statistics.getQueryCacheMissCount());
+        totals.put("queryCachePutCount", statistics.getQueryCachePutCount());
+        totals.put("queryExecutionCount", statistics.getQueryExecutionCount());
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("totals", totals);
+        result.put("regions", regions);
+        return result;
+    }
+
+    private Map<String, Object> toMap(CacheRegionStatistics regionStats, Long evictions) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        long hits = regionStats.getHitCount();
+        long misses = regionStats.getMissCount();
+        map.put("hitCount", hits);
+        map.put("missCount", misses);
+        map.put("putCount", regionStats.getPutCount());
+        map.put("hitRatio", hits + misses == 0 ? 0.0 : (double) hits / (hits + misses));
+        map.put("evictionCount", evictions != null ? evictions : 0L);
+        map.put("elementCountInMemory", regionStats.getElementCountInMemory());
+        map.put("elementCountOnDisk", regionStats.getElementCountOnDisk());
+        return map;
+    }
+
+    // Số lần eviction chỉ có ở MBean thống kê JSR-107 (bật bằng enable-statistics trong ehcache.xml)
+    private Map<String, Long> getJCacheEvictions() {
+        Map<String, Long> evictions = new HashMap<>();
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            Set<ObjectName> names = server.queryNames(new ObjectName("javax.cache:type=CacheStatistics,*"), null);
+            for (ObjectName name : names) {
+                String cacheName = name.getKeyProperty("Cache");
+                Object value = server.getAttribute(name, "CacheEvictions");
+                if (cacheName != null && value instanceof Number) {
+                    evictions.merge(cacheName, ((Number) value).longValue(), Long::sum);
+                }
+            }
+        } catch (Exception e) {
+            logger.warn("Could not read JCache eviction statistics: {}", e.getMessage());
+        }
+        return evictions;
+    }
+}
@@ -0,0 +1,344 @@
+package com.ecommerce.services.impl;
+
+import com.ecommerce.pojo.Order;
+import com.ecommerce.pojo.Product;
+import com.ecommerce.pojo.User;
+import com.ecommerce.repositories.OrderRepository;
+import com.ecommerce.repositories.ProductRepository;
+import com.ecommerce.repositories.UserRepository;
+import com.ecommerce.services.DashboardMetricsService;
+import jakarta.annotation.PostConstruct;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import org.hibernate.SessionFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostCommitDeleteEventListener;
+import org.hibernate.event.spi.PostCommitInsertEventListener;
+import org.hibernate.event.spi.PostCommitUpdateEventListener;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.persister.entity.EntityPersister;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Số liệu dashboard quản trị được cộng dồn theo sự kiện commit của Hibernate
+ * (User, Product, Order) nên đọc dashboard không cần truy vấn database.
+ * Định kỳ đối chiếu lại với database để sửa sai lệch (bulk HQL, lỗi giữa chừng...).
+ */
+@Service
+public class DashboardMetricsServiceImpl implements DashboardMetricsService,
+        PostCommitInsertEventListener, PostCommitUpdateEventListener, PostCommitDeleteEventListener {
+    private static final Logger logger = LoggerFactory.getLogger(DashboardMetricsServiceImpl.class);
+
+    private static final String COMPLETED = "COMPLETED";
+    // Biểu đồ doanh thu trên dashboard lấy 30 ngày gần nhất
+    private static final int REVENUE_WINDOW_DAYS = 30;
+    private static final DateTimeFormatter MONTH_LABEL = DateTimeFormatter.ofPattern("MM/yyyy");
+
+    @Autowired
+    private SessionFactory sessionFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    private final AtomicReference<Counters> counters = new AtomicReference<>(new Counters());
+    private final AtomicBoolean initialized = new AtomicBoolean(false);
+    // Bật khi nhận được sự kiện không đủ dữ liệu để tính delta; lần đối chiếu kế tiếp sẽ chạy sớm
+    private final AtomicBoolean stale = new AtomicBoolean(false);
+    private volatile Date lastReconciledAt;
+
+    @PostConstruct
+    public void registerListeners() {
+        EventListenerRegistry registry = sessionFactory.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry().getService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_COMMIT_INSERT, this);
+        registry.appendListeners(EventType.POST_COMMIT_UPDATE, this);
+        registry.appendListeners(EventType.POST_COMMIT_DELETE, this);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        try {
+            reconcile();
+        } catch (Exception e) {
+            logger.error("Initial dashboard metrics load failed: {}", e.getMessage(), e);
+        }
+    }
+
+    @Scheduled(initialDelayString = "${app.dashboard.reconcile-interval-ms:300000}",
+            fixedDelayString = "${app.dashboard.reconcile-interval-ms:300000}")
+    public void scheduledReconcile() {
+        try {
+            reconcile();
+        } catch (Exception e) {
+            logger.error("Dashboard metrics reconciliation failed: {}", e.getMessage(), e);
+        }
+    }
+
+    @Scheduled(fixedDelay = 10000)
+    public void reconcileIfStale() {
+        if (stale.get()) {
+            scheduledReconcile();
+        }
+    }
+
+    @Override
+    public Map<String, Object> getDashboardMetrics() {
+        if (!initialized.get()) {
+            reconcile();
+        }
+        Counters current = counters.get();
+
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("totalUsers", current.users.sum());
+        metrics.put("totalProducts", current.products.sum());
+        metrics.put("totalOrders", current.orders.sum());
+        metrics.put("totalRevenue", current.completedRevenueCents.sum() / 100.0);
+
+        Map<String, Long> orderStatus = new TreeMap<>();
+        current.ordersByStatus.forEach((status, count) -> {
+            long value = count.sum();
+            if (value > 0) {
+                orderStatus.put(status, value);
+            }
+        });
+        metrics.put("orderStatus", toChartData(orderStatus));
+
+        LocalDate today = LocalDate.now();
+        Map<String, Double> revenueByMonth = new LinkedHashMap<>();
+        for (LocalDate day = today.minusDays(REVENUE_WINDOW_DAYS); !day.isAfter(today); day = day.plusDays(1)) {
+            LongAdder cents = current.revenueByDayCents.get(day);
+            if (cents != null) {
+                revenueByMonth.merge(day.format(MONTH_LABEL), cents.sum() / 100.0, Double::sum);
+            }
+        }
+        metrics.put("revenueByPeriod", toChartData(revenueByMonth));
+        metrics.put("lastReconciledAt", lastReconciledAt);
+        return metrics;
+    }
+
+    @Override
+    public synchronized void reconcile() {
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        template.setReadOnly(true);
+        Counters fresh = template.execute(status -> loadFromDatabase());
+        if (fresh == null) {
+            return;
+        }
+
+        Counters previous = counters.getAndSet(fresh);
+        stale.set(false);
+        lastReconciledAt = new Date();
+        if (initialized.getAndSet(true)) {
+            logDrift(previous, fresh);
+        } else {
+            logger.info("Dashboard metrics loaded: users={}, products={}, orders={}",
+                    fresh.users.sum(), fresh.products.sum(), fresh.orders.sum());
+        }
+    }
+
+    private Counters loadFromDatabase() {
+        Counters fresh = new Counters();
+        fresh.users.add(userRepository.countByFilters(null, null, null));
+        fresh.products.add(productRepository.countByFilters(null, null, null));
+
+        for (Object[] row : orderRepository.findOrderTotalsByStatus()) {
+            String status = (String) row[0];
+            long count = ((Number) row[1]).longValue();
+            fresh.orders.add(count);
+            fresh.statusCounter(status).add(count);
+            if (COMPLETED.equals(status)) {
+                fresh.completedRevenueCents.add(toCents(((Number) row[2]).doubleValue()));
+            }
+        }
+
+        LocalDate today = LocalDate.now();
+        Date fromDate = Date.from(today.minusDays(REVENUE_WINDOW_DAYS).atStartOfDay(ZoneId.systemDefault()).toInstant());
+        Date toDate = Date.from(today.plusDays(1).atStartOfDay(ZoneId.systemDefault()).toInstant());
+        // Kết quả nhóm theo ngày: DAY, MONTH, YEAR, SUM(totalAmount)
+        for (Object[] row : orderRepository.findRevenueByDateRange("daily", fromDate, toDate)) {
+            LocalDate day = LocalDate.of(((Number) row[2]).intValue(), ((Number) row[1]).intValue(),
+                    ((Number) row[0]).intValue());
+            fresh.dayCounter(day).add(toCents(((Number) row[3]).doubleValue()));
+        }
+        return fresh;
+    }
+
+    private void logDrift(Counters previous, Counters fresh) {
+        List<String> drift = new ArrayList<>();
+        compare(drift, "users", previous.users.sum(), fresh.users.sum());
+        compare(drift, "products", previous.products.sum(), fresh.products.sum());
+        compare(drift, "orders", previous.orders.sum(), fresh.orders.sum());
+        compare(drift, "completedRevenueCents", previous.completedRevenueCents.sum(),
+                fresh.completedRevenueCents.sum());
+        fresh.ordersByStatus.forEach((status, count) -> {
+            LongAdder old = previous.ordersByStatus.get(status);
+            compare(drift, "status." + status, old != null ? old.sum() : 0, count.sum());
+        });
+        if (drift.isEmpty()) {
+            logger.debug("Dashboard metrics reconciled without drift");
+        } else {
+            logger.warn("Dashboard metrics drift corrected: {}", drift);
+        }
+    }
+
+    private void compare(List<String> drift, String name, long counted, long actual) {
+        if (counted != actual) {
+            drift.add(name + " " + counted + " -> " + actual);
+        }
+    }
+
+    // ===== Sự kiện Hibernate sau commit =====
+
+    @Override
+    public boolean requiresPostCommitHandling(EntityPersister persister) {
+        Class<?> type = persister.getMappedClass();
+        return type == Order.class || type == User.class || type == Product.class;
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        Object entity = event.getEntity();
+        Counters current = counters.get();
+        if (entity instanceof User) {
+            current.users.increment();
+        } else if (entity instanceof Product) {
+            current.products.increment();
+        } else if (entity instanceof Order order) {
+            current.orders.increment();
+            applyOrder(current, order.getStatus(), order.getTotalAmount(), order.getOrderDate(), 1);
+        }
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        if (!(event.getEntity() instanceof Order order)) {
+            return;
+        }
+        Object[] oldState = event.getOldState();
+        if (oldState == null) {
+            stale.set(true);
+            return;
+        }
+        EntityPersister persister = event.getPersister();
+        String oldStatus = (String) propertyValue(persister, oldState, "status");
+        Number oldAmount = (Number) propertyValue(persister, oldState, "totalAmount");
+        Date oldDate = (Date) propertyValue(persister, oldState, "orderDate");
+
+        Counters current = counters.get();
+        applyOrder(current, oldStatus, oldAmount != null ? oldAmount.doubleValue() : 0, oldDate, -1);
+        applyOrder(current, order.getStatus(), order.getTotalAmount(), order.getOrderDate(), 1);
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        Object entity = event.getEntity();
+        Counters current = counters.get();
+        if (entity instanceof User) {
+            current.users.decrement();
+        } else if (entity instanceof Product) {
+            current.products.decrement();
+        } else if (entity instanceof Order order) {
+            current.orders.decrement();
+            applyOrder(current, order.getStatus(), order.getTotalAmount(), order.getOrderDate(), -1);
+        }
+    }
+
+    @Override
+    public void onPostInsertCommitFailed(PostInsertEvent event) {
+        // Transaction rollback: không có gì để hoàn tác
+    }
+
+    @Override
+    public void onPostUpdateCommitFailed(PostUpdateEvent event) {
+    }
+
+    @Override
+    public void onPostDeleteCommitFailed(PostDeleteEvent event) {
+    }
+
+    private void applyOrder(Counters current, String status, double amount, Date orderDate, int sign) {
+        long cents = toCents(amount);
+        if (status != null) {
+            current.statusCounter(status).add(sign);
+            if (COMPLETED.equals(status)) {
+                current.completedRevenueCents.add(sign * cents);
+            }
+        }
+        if (orderDate != null) {
+            LocalDate day = orderDate.toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
+            if (!day.isBefore(LocalDate.now().minusDays(REVENUE_WINDOW_DAYS))) {
+                current.dayCounter(day).add(sign * cents);
+            }
+        }
+    }
+
+    private Object propertyValue(EntityPersister persister, Object[] state, String propertyName) {
+        String[] names = persister.getPropertyNames();
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equals(propertyName)) {
+                return state[i];
+            }
+        }
+        return null;
+    }
+
+    private static long toCents(double amount) {
+        return Math.round(amount * 100);
+    }
+
+    private Map<String, Object> toChartData(Map<String, ?> data) {
+        Map<String, Object> chartData = new LinkedHashMap<>();
+        chartData.put("labels", new ArrayList<>(data.keySet()));
+        chartData.put("values", new ArrayList<>(data.values()));
+        return chartData;
+    }
+
+    private static class Counters {
+        final LongAdder users = new LongAdder();
+        final LongAdder products = new LongAdder();
+        final LongAdder orders = new LongAdder();
+        final LongAdder completedRevenueCents = new LongAdder();
+        final Map<String, LongAdder> ordersByStatus = new ConcurrentHashMap<>();
+        final Map<LocalDate, LongAdder> revenueByDayCents = new ConcurrentHashMap<>();
+
+        LongAdder statusCounter(String status) {
+            return ordersByStatus.computeIfAbsent(status, key -> new LongAdder());
+        }
+
+        LongAdder dayCounter(LocalDate day) {
+            return revenueByDayCents.computeIfAbsent(day, key -> new LongAdder());
+        }
+    }
+}
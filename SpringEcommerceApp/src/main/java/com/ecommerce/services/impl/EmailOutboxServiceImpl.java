@@ -0,0 +1,277 @@
+package com.ecommerce.services.impl;
+
+import com.ecommerce.pojo.EmailOutbox;
+import com.ecommerce.repositories.EmailOutboxRepository;
+import com.ecommerce.services.EmailOutboxService;
+import com.ecommerce.utils.OutboxPoller;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.MimeMessage;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Luồng email-outbox-dispatcher nhận tối đa workers * batch-size email đến hạn (đánh dấu SENDING trong
+ * lease-ms), chia lô cho các worker. Mỗi lô được gửi bằng một lần mailSender.send(MimeMessage...) nên
+ * dùng chung một kết nối SMTP. Email lỗi được thử lại sau OutboxPoller.backoff (tối đa MAX_BACKOFF_MS);
+ * worker chết giữa chừng thì email được nhận lại khi hết lease (có thể gửi trùng).
+ */
+@Service
+public class EmailOutboxServiceImpl implements EmailOutboxService {
+    private static final Logger logger = LoggerFactory.getLogger(EmailOutboxServiceImpl.class);
+
+    private static final List<String> DUE_STATUSES = List.of(STATUS_PENDING, STATUS_SENDING);
+    private static final long MAX_BACKOFF_MS = 6 * 60 * 60 * 1000L;
+    private static final int MAX_ERROR_LENGTH = 1000;
+    private static final long SHUTDOWN_WAIT_MS = 10000;
+
+    @Autowired
+    private EmailOutboxRepository emailOutboxRepository;
+
+    @Autowired
+    @Qualifier("mailSender")
+    private JavaMailSender mailSender;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${app.email.from:noreply@ecommerce.com}")
+    private String fromEmail;
+
+    @Value("${app.email.outbox.workers:2}")
+    private int workerCount;
+
+    @Value("${app.email.outbox.batch-size:20}")
+    private int batchSize;
+
+    @Value("${app.email.outbox.poll-interval-ms:5000}")
+    private long pollIntervalMs;
+
+    @Value("${app.email.outbox.max-attempts:8}")
+    private int maxAttempts;
+
+    @Value("${app.email.outbox.retry-base-ms:30000}")
+    private long retryBaseMs;
+
+    @Value("${app.email.outbox.lease-ms:300000}")
+    private long leaseMs;
+
+    @Value("${app.email.outbox.sent-retention-days:7}")
+    private int sentRetentionDays;
+
+    private ThreadPoolExecutor workers;
+    private OutboxPoller dispatcher;
+
+    private final AtomicLong enqueued = new AtomicLong();
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong retried = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private volatile int lastBatchSize;
+    private volatile long lastBatchMillis;
+
+    @PostConstruct
+    public void init() {
+        workerCount = Math.max(1, workerCount);
+        batchSize = Math.max(1, batchSize);
+        AtomicInteger threadCount = new AtomicInteger();
+        workers = new ThreadPoolExecutor(workerCount, workerCount, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable, "email-outbox-worker-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        dispatcher = new OutboxPoller("email-outbox-dispatcher", this::dispatch, workerCount * batchSize,
+                pollIntervalMs);
+        dispatcher.start();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        dispatcher.stop(SHUTDOWN_WAIT_MS);
+        workers.shutdownNow();
+    }
+
+    @Override
+    @Transactional
+    public void enqueue(String to, String subject, String body, boolean html) {
+        Date now = new Date();
+        EmailOutbox email = new EmailOutbox();
+        email.setRecipient(to);
+        email.setSubject(subject);
+        email.setBody(body);
+        email.setHtml(html);
+        email.setStatus(STATUS_PENDING);
+        email.setNextAttemptAt(now);
+        email.setCreatedAt(now);
+        emailOutboxRepository.save(email);
+        enqueued.incrementAndGet();
+        dispatcher.wakeUpAfterCommit();
+    }
+
+    @Override
+    public synchronized int dispatch() {
+        List<EmailOutbox> claimed = claim(workerCount * batchSize);
+        if (claimed.isEmpty()) {
+            return 0;
+        }
+        List<CompletableFuture<Void>> batches = new ArrayList<>();
+        for (int from = 0; from < claimed.size(); from += batchSize) {
+            List<EmailOutbox> batch = claimed.subList(from, Math.min(from + batchSize, claimed.size()));
+            batches.add(CompletableFuture.runAsync(() -> deliver(batch), workers));
+        }
+        CompletableFuture.allOf(batches.toArray(new CompletableFuture[0])).join();
+        return claimed.size();
+    }
+
+    @Scheduled(fixedDelayString = "${app.email.outbox.cleanup-interval-ms:3600000}")
+    @Transactional
+    public void purgeSent() {
+        Date cutoff = new Date(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(sentRetentionDays));
+        int deleted = emailOutboxRepository.deleteSentBefore(cutoff);
+        if (deleted > 0) {
+            logger.info("Deleted {} sent emails older than {} days", deleted, sentRetentionDays);
+        }
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("outbox", emailOutboxRepository.countByStatus());
+        stats.put("workers", workerCount);
+        stats.put("batchSize", batchSize);
+        stats.put("enqueued", enqueued.get());
+        stats.put("sent", sent.get());
+        stats.put("retried", retried.get());
+        stats.put("failed", failed.get());
+        stats.put("lastBatchSize", lastBatchSize);
+        stats.put("lastBatchMillis", lastBatchMillis);
+        return stats;
+    }
+
+    private List<EmailOutbox> claim(int limit) {
+        return new TransactionTemplate(transactionManager).execute(status -> {
+            Date now = new Date();
+            Date leaseUntil = new Date(now.getTime() + leaseMs);
+            List<EmailOutbox> due = emailOutboxRepository.findDueForUpdate(DUE_STATUSES, now, limit);
+            for (EmailOutbox email : due) {
+                email.setStatus(STATUS_SENDING);
+                email.setNextAttemptAt(leaseUntil);
+            }
+            return due;
+        });
+    }
+
+    private void deliver(List<EmailOutbox> batch) {
+        long start = System.currentTimeMillis();
+        Map<Long, String> errors = new HashMap<>();
+        Map<MimeMessage, EmailOutbox> byMessage = new IdentityHashMap<>();
+        for (EmailOutbox email : batch) {
+            try {
+                byMessage.put(toMimeMessage(email), email);
+            } catch (MessagingException e) {
+                errors.put(email.getId(), e.getMessage());
+            }
+        }
+        if (!byMessage.isEmpty()) {
+            try {
+                mailSender.send(byMessage.keySet().toArray(new MimeMessage[0]));
+            } catch (MailSendException e) {
+                Map<Object, Exception> failedMessages = e.getFailedMessages();
+                if (failedMessages.isEmpty()) {
+                    byMessage.values().forEach(email -> errors.put(email.getId(), e.getMessage()));
+                }
+                failedMessages.forEach((message, error) -> {
+                    EmailOutbox email = byMessage.get(message);
+                    if (email != null) {
+                        errors.put(email.getId(), error.getMessage());
+                    }
+                });
+            } catch (MailException e) {
+                byMessage.values().forEach(email -> errors.put(email.getId(), e.getMessage()));
+            }
+        }
+        try {
+            record(batch, errors);
+        } catch (Exception e) {
+            // Các email vẫn ở SENDING, được gửi lại khi hết lease
+            logger.error("Could not record delivery of {} emails: {}", batch.size(), e.getMessage(), e);
+        }
+        lastBatchSize = batch.size();
+        lastBatchMillis = System.currentTimeMillis() - start;
+    }
+
+    private void record(List<EmailOutbox> batch, Map<Long, String> errors) {
+        List<Long> sentIds = new ArrayList<>();
+        for (EmailOutbox email : batch) {
+            if (!errors.containsKey(email.getId())) {
+                sentIds.add(email.getId());
+            }
+        }
+        int givenUp = new TransactionTemplate(transactionManager).execute(status -> {
+            Date now = new Date();
+            if (!sentIds.isEmpty()) {
+                emailOutboxRepository.markSent(sentIds, now);
+            }
+            int failures = 0;
+            if (errors.isEmpty()) {
+                return failures;
+            }
+            for (EmailOutbox email : emailOutboxRepository.findByIds(errors.keySet())) {
+                int attempts = email.getAttempts() + 1;
+                email.setAttempts(attempts);
+                email.setLastError(OutboxPoller.truncate(errors.get(email.getId()), MAX_ERROR_LENGTH));
+                if (attempts >= maxAttempts) {
+                    email.setStatus(STATUS_FAILED);
+                    failures++;
+                    logger.error("Giving up email {} to {} after {} attempts: {}", email.getId(),
+                            email.getRecipient(), attempts, email.getLastError());
+                } else {
+                    email.setStatus(STATUS_PENDING);
+                    email.setNextAttemptAt(new Date(now.getTime()
+                            + OutboxPoller.backoff(retryBaseMs, attempts, MAX_BACKOFF_MS)));
+                }
+            }
+            return failures;
+        });
+        sent.addAndGet(sentIds.size());
+        failed.addAndGet(givenUp);
+        retried.addAndGet(errors.size() - givenUp);
+    }
+
+    private MimeMessage toMimeMessage(EmailOutbox email) throws MessagingException {
+        MimeMessage message = mailSender.createMimeMessage();
+        MimeMessageHelper helper = new MimeMessageHelper(message, email.isHtml(), "UTF-8");
+        helper.setFrom(fromEmail);
+        helper.setTo(email.getRecipient());
+        helper.setSubject(email.getSubject());
+        helper.setText(email.getBody(), email.isHtml());
+        return message;
+    }
+}
@@ -1,28 +1,40 @@
 package com.ecommerce.services.impl;
 
+import com.ecommerce.services.EmailOutboxService;
 import com.ecommerce.services.EmailService;
 import com.ecommerce.pojo.Order;
 import com.ecommerce.pojo.OrderDetail;
-import jakarta.mail.MessagingException;
-import jakarta.mail.internet.MimeMessage;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.mail.SimpleMailMessage;
-import org.springframework.mail.javamail.JavaMailSender;
-import org.springframework.mail.javamail.MimeMessageHelper;
 import org.springframework.stereotype.Service;
+import org.thymeleaf.context.Context;
+import org.thymeleaf.spring6.SpringTemplateEngine;
+import org.thymeleaf.templatemode.TemplateMode;
+import org.thymeleaf.templateresolver.ClassLoaderTemplateResolver;
 
 import java.text.NumberFormat;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 
+/**
+ * Email được render ở đây rồi đưa vào outbox, request không chờ SMTP. Template nằm trong
+ * templates/email và được engine riêng của email cache sau lần parse đầu tiên
+ * (không phụ thuộc spring.thymeleaf.cache của trang quản trị).
+ */
 @Service
 public class EmailServiceImpl implements EmailService {
+    private static final Logger logger = LoggerFactory.getLogger(EmailServiceImpl.class);
 
     @Autowired
-    @Qualifier("mailSender")
-    private JavaMailSender mailSender;
+    private EmailOutboxService emailOutboxService;
 
     @Value("${app.email.from:noreply@ecommerce.com}")
     private String fromEmail;
@@ -30,22 +42,24 @@ public class EmailServiceImpl implements EmailService {
     @Value("${app.frontend-url:${app.url:https://localhost:3000}}")
     private String appUrl;
 
+    private SpringTemplateEngine templateEngine;
+
+    @PostConstruct
+    public void init() {
+        ClassLoaderTemplateResolver resolver = new ClassLoaderTemplateResolver();
+        resolver.setPrefix("templates/email/");
+        resolver.setSuffix(".html");
+        resolver.setTemplateMode(TemplateMode.HTML);
+        resolver.setCharacterEncoding("UTF-8");
+        resolver.setCacheable(true);
+        templateEngine = new SpringTemplateEngine();
+        templateEngine.setTemplateResolver(resolver);
+        templateEngine.setEnableSpringELCompiler(true);
+    }
+
     @Override
     public void sendSimpleMessage(String to, String subject, String text) {
-        try {
-            SimpleMailMessage message = new SimpleMailMessage();
-            message.setFrom(fromEmail);
-            message.setTo(to);
-            message.setSubject(subject);
-            message.setText(text);
-
-            mailSender.send(message);
-            System.out.println("Email sent to: " + to);
-        } catch (Exception e) {
-            System.err.println("Error sending email: " + e.getMessage());
-            e.printStackTrace();
-            throw new RuntimeException("Không thể gửi email: " + e.getMessage(), e);
-        }
+        emailOutboxService.enqueue(to, subject, text, false);
     }
 
     @Override
@@ -58,8 +72,8 @@ public class EmailServiceImpl implements EmailService {
         sendSimpleMessage(to, subject, message);
 
         // In thông tin cho mục đích debugging
-        System.out.println("Password reset token for " + to + ": " + token);
-        System.out.println("Reset URL: " + resetUrl);
+        logger.debug("Password reset token for {}: {}", to, token);
+        logger.debug("Reset URL: {}", resetUrl);
     }
 
     @Override
@@ -67,19 +81,18 @@ public class EmailServiceImpl implements EmailService {
         try {
             String customerEmail = order.getUser().getEmail();
             if (customerEmail == null || customerEmail.isEmpty()) {
-                System.out.println("Customer email not found for order: " + order.getId());
+                logger.warn("Customer email not found for order: {}", order.getId());
                 return;
             }
 
             String subject = "Xác nhận đơn hàng #" + order.getId() + " - EcommerceWebsite";
             String htmlContent = buildOrderConfirmationEmailHtml(order);
 
-            sendHtmlMessage(customerEmail, subject, htmlContent);
+            emailOutboxService.enqueue(customerEmail, subject, htmlContent, true);
 
-            System.out.println("Order confirmation email sent to: " + customerEmail + " for order: " + order.getId());
+            logger.debug("Order confirmation email queued for order: {}", order.getId());
         } catch (Exception e) {
-            System.err.println("Error sending order confirmation email: " + e.getMessage());
-            e.printStackTrace();
+            logger.error("Error queueing order confirmation email for order {}: {}", order.getId(), e.getMessage(), e);
         }
     }
 
@@ -88,184 +101,69 @@ public class EmailServiceImpl implements EmailService {
         try {
             String customerEmail = order.getUser().getEmail();
             if (customerEmail == null || customerEmail.isEmpty()) {
-                System.out.println("Customer email not found for order: " + order.getId());
+                logger.warn("Customer email not found for order: {}", order.getId());
                 return;
             }
 
             String subject = "Cập nhật trạng thái đơn hàng #" + order.getId() + " - EcommerceWebsite";
             String htmlContent = buildOrderStatusUpdateEmailHtml(order, oldStatus, newStatus);
 
-            sendHtmlMessage(customerEmail, subject, htmlContent);
+            emailOutboxService.enqueue(customerEmail, subject, htmlContent, true);
 
-            System.out.println("Order status update email sent to: " + customerEmail + " for order: " + order.getId());
+            logger.debug("Order status update email queued for order: {}", order.getId());
         } catch (Exception e) {
-            System.err.println("Error sending order status update email: " + e.getMessage());
-            e.printStackTrace();
-        }
-    }
-
-    private void sendHtmlMessage(String to, String subject, String htmlContent) {
-        try {
-            MimeMessage message = mailSender.createMimeMessage();
-            MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
-
-            helper.setFrom(fromEmail);
-            helper.setTo(to);
-            helper.setSubject(subject);
-            helper.setText(htmlContent, true); // true indicates HTML content
-
-            mailSender.send(message);
-        } catch (MessagingException e) {
-            System.err.println("Error sending HTML email: " + e.getMessage());
-            e.printStackTrace();
-            throw new RuntimeException("Không thể gửi email HTML: " + e.getMessage(), e);
+            logger.error("Error queueing order status update email for order {}: {}", order.getId(), e.getMessage(),
+                    e);
         }
     }
 
     private String buildOrderConfirmationEmailHtml(Order order) {
-        StringBuilder html = new StringBuilder();
         SimpleDateFormat dateFormat = new SimpleDateFormat("dd/MM/yyyy HH:mm");
         NumberFormat currencyFormat = NumberFormat.getCurrencyInstance(Locale.forLanguageTag("vi-VN"));
 
-        html.append("<!DOCTYPE html>")
-                .append("<html>")
-                .append("<head>")
-                .append("<meta charset='UTF-8'>")
-                .append("<title>Xác nhận đơn hàng</title>")
-                .append("<style>")
-                .append("body { font-family: Arial, sans-serif; line-height: 1.6; color: #333; }")
-                .append(".container { max-width: 600px; margin: 0 auto; padding: 20px; }")
-                .append(".header { background-color: #2e7d32; color: white; padding: 20px; text-align: center; }")
-                .append(".content { background-color: #f9f9f9; padding: 20px; }")
-                .append(".order-info { background-color: white; padding: 15px; margin: 10px 0; border-left: 4px solid #2e7d32; }")
-                .append(".item-table { width: 100%; border-collapse: collapse; margin: 15px 0; }")
-                .append(".item-table th, .item-table td { padding: 10px; border: 1px solid #ddd; text-align: left; }")
-                .append(".item-table th { background-color: #f0f0f0; }")
-                .append(".total { font-weight: bold; font-size: 18px; color: #2e7d32; }")
-                .append(".footer { background-color: #333; color: white; padding: 15px; text-align: center; }")
-                .append("</style>")
-                .append("</head>")
-                .append("<body>")
-                .append("<div class='container'>")
-                .append("<div class='header'>")
-                .append("<h1>Xác nhận đơn hàng</h1>")
-                .append("<p>Cảm ơn bạn đã đặt hàng tại EcommerceWebsite!</p>")
-                .append("</div>")
-                .append("<div class='content'>")
-                .append("<div class='order-info'>")
-                .append("<h2>Thông tin đơn hàng</h2>")
-                .append("<p><strong>Mã đơn hàng:</strong> #").append(order.getId()).append("</p>")
-                .append("<p><strong>Ngày đặt hàng:</strong> ").append(dateFormat.format(order.getOrderDate()))
-                .append("</p>")
-                .append("<p><strong>Trạng thái:</strong> ").append(getStatusText(order.getStatus())).append("</p>")
-                .append("<p><strong>Khách hàng:</strong> ").append(order.getUser().getFullname()).append("</p>")
-                .append("</div>");
-
-        // Order items table
-        if (order.getOrderDetails() != null && !order.getOrderDetails().isEmpty()) {
-            html.append("<h3>Chi tiết đơn hàng</h3>")
-                    .append("<table class='item-table'>")
-                    .append("<tr>")
-                    .append("<th>Sản phẩm</th>")
-                    .append("<th>Số lượng</th>")
-                    .append("<th>Đơn giá</th>")
-                    .append("<th>Thành tiền</th>")
-                    .append("</tr>");
+        Context context = baseContext(order, dateFormat);
+        context.setVariable("statusText", getStatusText(order.getStatus()));
 
+        List<Map<String, Object>> items = new ArrayList<>();
+        if (order.getOrderDetails() != null) {
             for (OrderDetail detail : order.getOrderDetails()) {
-                double itemTotal = detail.getPrice() * detail.getQuantity();
-                html.append("<tr>")
-                        .append("<td>").append(detail.getProduct().getName()).append("</td>")
-                        .append("<td>").append(detail.getQuantity()).append("</td>")
-                        .append("<td>").append(currencyFormat.format(detail.getPrice())).append("</td>")
-                        .append("<td>").append(currencyFormat.format(itemTotal)).append("</td>")
-                        .append("</tr>");
+                Map<String, Object> item = new LinkedHashMap<>();
+                item.put("name", detail.getProduct().getName());
+                item.put("quantity", detail.getQuantity());
+                item.put("price", currencyFormat.format(detail.getPrice()));
+                item.put("total", currencyFormat.format(detail.getPrice() * detail.getQuantity()));
+                items.add(item);
             }
-
-            html.append("<tr class='total'>")
-                    .append("<td colspan='3'>Tổng cộng:</td>")
-                    .append("<td>").append(currencyFormat.format(order.getTotalAmount())).append("</td>")
-                    .append("</tr>")
-                    .append("</table>");
         }
+        context.setVariable("items", items);
+        context.setVariable("totalAmount", currencyFormat.format(order.getTotalAmount()));
 
-        // Payment info
         if (order.getPayment() != null) {
-            html.append("<div class='order-info'>")
-                    .append("<h3>Thông tin thanh toán</h3>")
-                    .append("<p><strong>Phương thức:</strong> ")
-                    .append(getPaymentMethodText(order.getPayment().getPaymentMethod().toString())).append("</p>")
-                    .append("<p><strong>Trạng thái thanh toán:</strong> ")
-                    .append(getPaymentStatusText(order.getPayment().getStatus())).append("</p>")
-                    .append("</div>");
+            context.setVariable("paymentMethodText",
+                    getPaymentMethodText(order.getPayment().getPaymentMethod().toString()));
+            context.setVariable("paymentStatusText", getPaymentStatusText(order.getPayment().getStatus()));
         }
-
-        html.append("<p>Bạn có thể theo dõi đơn hàng tại: <a href='").append(appUrl).append("/orders'>").append(appUrl)
-                .append("/orders</a></p>")
-                .append("<p>Cảm ơn bạn đã tin tùng và mua sắm tại EcommerceWebsite!</p>")
-                .append("</div>")
-                .append("<div class='footer'>")
-                .append("<p>© 2024 EcommerceWebsite. Mọi quyền được bảo lưu.</p>")
-                .append("<p>Email: ").append(fromEmail).append(" | Website: ").append(appUrl).append("</p>")
-                .append("</div>")
-                .append("</div>")
-                .append("</body>")
-                .append("</html>");
-
-        return html.toString();
+        return templateEngine.process("order-confirmation", context);
     }
 
     private String buildOrderStatusUpdateEmailHtml(Order order, String oldStatus, String newStatus) {
-        StringBuilder html = new StringBuilder();
         SimpleDateFormat dateFormat = new SimpleDateFormat("dd/MM/yyyy HH:mm");
 
-        html.append("<!DOCTYPE html>")
-                .append("<html>")
-                .append("<head>")
-                .append("<meta charset='UTF-8'>")
-                .append("<title>Cập nhật trạng thái đơn hàng</title>")
-                .append("<style>")
-                .append("body { font-family: Arial, sans-serif; line-height: 1.6; color: #333; }")
-                .append(".container { max-width: 600px; margin: 0 auto; padding: 20px; }")
-                .append(".header { background-color: #2e7d32; color: white; padding: 20px; text-align: center; }")
-                .append(".content { background-color: #f9f9f9; padding: 20px; }")
-                .append(".status-update { background-color: white; padding: 15px; margin: 10px 0; border-left: 4px solid #2e7d32; }")
-                .append(".status-change { background-color: #e8f5e8; padding: 10px; margin: 10px 0; border-radius: 5px; }")
-                .append(".footer { background-color: #333; color: white; padding: 15px; text-align: center; }")
-                .append("</style>")
-                .append("</head>")
-                .append("<body>")
-                .append("<div class='container'>")
-                .append("<div class='header'>")
-                .append("<h1>Cập nhật trạng thái đơn hàng</h1>")
-                .append("</div>")
-                .append("<div class='content'>")
-                .append("<div class='status-update'>")
-                .append("<h2>Đơn hàng #").append(order.getId()).append("</h2>")
-                .append("<p><strong>Khách hàng:</strong> ").append(order.getUser().getFullname()).append("</p>")
-                .append("<p><strong>Ngày đặt hàng:</strong> ").append(dateFormat.format(order.getOrderDate()))
-                .append("</p>")
-                .append("</div>")
-                .append("<div class='status-change'>")
-                .append("<h3>Thay đổi trạng thái</h3>")
-                .append("<p><strong>Từ:</strong> ").append(getStatusText(oldStatus)).append("</p>")
-                .append("<p><strong>Thành:</strong> ").append(getStatusText(newStatus)).append("</p>")
-                .append("<p><strong>Thời gian:</strong> ").append(dateFormat.format(new java.util.Date()))
-                .append("</p>")
-                .append("</div>")
-                .append("<p>Bạn có thể theo dõi đơn hàng tại: <a href='").append(appUrl).append("/orders'>")
-                .append(appUrl).append("/orders</a></p>")
-                .append("<p>Cảm ơn bạn đã tin tùng EcommerceWebsite!</p>")
-                .append("</div>")
-                .append("<div class='footer'>")
-                .append("<p>© 2024 EcommerceWebsite. Mọi quyền được bảo lưu.</p>")
-                .append("<p>Email: ").append(fromEmail).append(" | Website: ").append(appUrl).append("</p>")
-                .append("</div>")
-                .append("</div>")
-                .append("</body>")
-                .append("</html>");
+        Context context = baseContext(order, dateFormat);
+        context.setVariable("oldStatusText", getStatusText(oldStatus));
+        context.setVariable("newStatusText", getStatusText(newStatus));
+        context.setVariable("changedAt", dateFormat.format(new Date()));
+        return templateEngine.process("order-status-update", context);
+    }
 
-        return html.toString();
+    private Context baseContext(Order order, SimpleDateFormat dateFormat) {
+        Context context = new Context(Locale.forLanguageTag("vi-VN"));
+        context.setVariable("orderId", order.getId());
+        context.setVariable("orderDate", dateFormat.format(order.getOrderDate()));
+        context.setVariable("customerName", order.getUser().getFullname());
+        context.setVariable("appUrl", appUrl);
+        context.setVariable("fromEmail", fromEmail);
+        return context;
     }
 
     private String getStatusText(String status) {
@@ -0,0 +1,306 @@
+package com.ecommerce.services.impl;
+
+import com.ecommerce.pojo.Product;
+import com.ecommerce.pojo.StockReservation;
+import com.ecommerce.repositories.ProductRepository;
+import com.ecommerce.repositories.StockReservationRepository;
+import com.ecommerce.services.HotStockService;
+import com.ecommerce.services.ProductSearchService;
+import com.ecommerce.utils.TransactionUtils;
+import jakarta.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.hibernate.SessionFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Mỗi sản phẩm hot có một bộ đếm chia thành nhiều stripe để các luồng đặt hàng đồng thời
+ * không tranh nhau một biến. Bộ đếm = products.quantity trừ các giữ chỗ stockPending; giữ chỗ
+ * được ghi trong cùng transaction tạo đơn nên khi khởi động (kể cả sau crash) chỉ cần flush
+ * nốt các dòng stockPending rồi nạp lại bộ đếm từ products.quantity.
+ */
+@Service
+public class HotStockServiceImpl implements HotStockService {
+    private static final Logger logger = LoggerFactory.getLogger(HotStockServiceImpl.class);
+
+    // Số dòng giữ chỗ tối đa mỗi lượt flush
+    private static final int FLUSH_BATCH_SIZE = 5000;
+
+    @Autowired
+    private StockReservationRepository stockReservationRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ProductSearchService productSearchService;
+
+    @Autowired
+    private SessionFactory sessionFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${app.stock.hot-product-ids:}")
+    private String hotProductIds;
+
+    @Value("${app.stock.hot-stripes:8}")
+    private int stripes;
+
+    private final Map<Long, StripedCounter> counters = new ConcurrentHashMap<>();
+    private final AtomicLong flushedRows = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private volatile long lastFlushMillis;
+    private volatile int lastFlushRows;
+
+    // Chạy trước khi ứng dụng nhận request nên không có đơn nào đặt xen vào lúc nạp bộ đếm
+    @PostConstruct
+    public void init() {
+        int recovered = 0;
+        int flushed;
+        do {
+            flushed = flush();
+            recovered += flushed;
+        } while (flushed >= FLUSH_BATCH_SIZE);
+        if (recovered > 0) {
+            logger.info("Recovered {} pending stock reservations into products.quantity", recovered);
+        }
+
+        List<Long> productIds = parseIds(hotProductIds);
+        if (productIds.isEmpty()) {
+            return;
+        }
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        template.setReadOnly(true);
+        Map<Long, Product> products = template.execute(status -> productRepository.findAllByIds(productIds));
+        for (Long productId : productIds) {
+            Product product = products.get(productId);
+            if (product == null) {
+                logger.warn("Hot product {} does not exist, ignored", productId);
+                continue;
+            }
+            counters.put(productId, new StripedCounter(Math.max(1, stripes), product.getQuantity()));
+            logger.info("Hot stock counter loaded for product {}: {} units", productId, product.getQuantity());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.stock.hot-flush-interval-ms:1000}")
+    public void scheduledFlush() {
+        if (counters.isEmpty()) {
+            return;
+        }
+        try {
+            flush();
+        } catch (Exception e) {
+            // Các dòng vẫn còn stockPending, lượt sau flush lại
+            logger.error("Hot stock flush failed: {}", e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public boolean isHot(Long productId) {
+        return productId != null && counters.containsKey(productId);
+    }
+
+    @Override
+    public boolean tryAcquire(Long productId, int quantity) {
+        StripedCounter counter = counters.get(productId);
+        if (counter == null) {
+            throw new IllegalStateException("Product " + productId + " is not a hot product");
+        }
+        boolean acquired = counter.tryAcquire(quantity);
+        if (!acquired) {
+            rejected.incrementAndGet();
+        }
+        return acquired;
+    }
+
+    @Override
+    public void release(Long productId, int quantity) {
+        StripedCounter counter = counters.get(productId);
+        if (counter != null) {
+            counter.add(quantity);
+        }
+    }
+
+    @Override
+    public int getAvailable(Long productId) {
+        StripedCounter counter = counters.get(productId);
+        return counter != null ? counter.sum() : 0;
+    }
+
+    @Override
+    public void onStockEdited(Long productId, int newQuantity) {
+        StripedCounter counter = counters.get(productId);
+        if (counter == null) {
+            return;
+        }
+        // Khoá dòng để lượt flush không trừ xen vào giữa lúc đọc và lúc ghi tồn kho mới
+        Integer current = productRepository.lockQuantity(productId);
+        if (current != null && current != newQuantity) {
+            int delta = newQuantity - current;
+            TransactionUtils.runAfterCommit(() -> counter.add(delta));
+        }
+    }
+
+    @Override
+    public int flush() {
+        long start = System.currentTimeMillis();
+        Integer rows = new TransactionTemplate(transactionManager).execute(status -> {
+            List<StockReservation> pending = stockReservationRepository.findPendingForUpdate(FLUSH_BATCH_SIZE);
+            if (pending.isEmpty()) {
+                return 0;
+            }
+            Map<Long, Integer> deltas = new TreeMap<>();
+            for (StockReservation reservation : pending) {
+                deltas.merge(reservation.getProductId(), -reservation.getQuantity(), Integer::sum);
+                reservation.setStockPending(false);
+            }
+            productRepository.addStock(deltas);
+            List<Long> productIds = List.copyOf(deltas.keySet());
+            TransactionUtils.runAfterCommit(() -> {
+                for (Long productId : productIds) {
+                    sessionFactory.getCache().evictEntityData(Product.class, productId);
+                }
+            });
+            for (Long productId : productIds) {
+                productSearchService.indexProduct(productId);
+            }
+            return pending.size();
+        });
+        int flushed = rows != null ? rows : 0;
+        if (flushed > 0) {
+            flushedRows.addAndGet(flushed);
+            lastFlushRows = flushed;
+            lastFlushMillis = System.currentTimeMillis();
+            logger.debug("Flushed {} hot stock reservations in {} ms", flushed, lastFlushMillis - start);
+        }
+        return flushed;
+    }
+
+    @Override
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        Map<Long, Integer> available = new TreeMap<>();
+        counters.forEach((productId, counter) -> available.put(productId, counter.sum()));
+        stats.put("products", available);
+        stats.put("stripes", Math.max(1, stripes));
+        stats.put("rejected", rejected.get());
+        stats.put("flushedRows", flushedRows.get());
+        stats.put("lastFlushRows", lastFlushRows);
+        stats.put("lastFlushMillis", lastFlushMillis);
+        return stats;
+    }
+
+    private static List<Long> parseIds(String value) {
+        List<Long> ids = new ArrayList<>();
+        if (value == null) {
+            return ids;
+        }
+        for (String part : value.split(",")) {
+            String trimmed = part.trim();
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+            try {
+                ids.add(Long.valueOf(trimmed));
+            } catch (NumberFormatException e) {
+                logger.warn("Invalid hot product id '{}', ignored", trimmed);
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Tồn kho chia đều cho các stripe, không stripe nào âm. Lấy hàng thử CAS trên một stripe ngẫu nhiên
+     * rồi các stripe còn lại; chỉ khi không stripe nào đủ riêng lẻ mới khoá để gom tất cả về một stripe.
+     * Cộng và trừ tồn kho đều giữ khoá: phần trừ được rút dần từ các stripe, phần vượt quá tổng hiện có
+     * (người bán hạ tồn kho xuống dưới số đã bán) ghi vào debt và được trừ trước ở lần cộng hay gom sau.
+     * Khi debt > 0 mọi stripe đều bằng 0 nên đường CAS không thể lấy hàng.
+     */
+    private static final class StripedCounter {
+        private final AtomicInteger[] cells;
+        // Chỉ ghi khi giữ khoá
+        private volatile int debt;
+
+        StripedCounter(int stripes, int initial) {
+            cells = new AtomicInteger[stripes];
+            for (int i = 0; i < stripes; i++) {
+                cells[i] = new AtomicInteger(initial / stripes + (i < initial % stripes ? 1 : 0));
+            }
+        }
+
+        boolean tryAcquire(int quantity) {
+            int start = ThreadLocalRandom.current().nextInt(cells.length);
+            for (int i = 0; i < cells.length; i++) {
+                AtomicInteger cell = cells[(start + i) % cells.length];
+                int value = cell.get();
+                while (value >= quantity) {
+                    if (cell.compareAndSet(value, value - quantity)) {
+                        return true;
+                    }
+                    value = cell.get();
+                }
+            }
+            synchronized (this) {
+                int total = -debt;
+                for (AtomicInteger cell : cells) {
+                    total += cell.getAndSet(0);
+                }
+                boolean acquired = total >= quantity;
+                if (acquired) {
+                    total -= quantity;
+                }
+                debt = Math.max(0, -total);
+                cells[start].addAndGet(Math.max(0, total));
+                return acquired;
+            }
+        }
+
+        synchronized void add(int quantity) {
+            if (quantity >= 0) {
+                int repaid = Math.min(debt, quantity);
+                debt -= repaid;
+                cells[ThreadLocalRandom.current().nextInt(cells.length)].addAndGet(quantity - repaid);
+                return;
+            }
+            int remaining = -quantity;
+            int start = ThreadLocalRandom.current().nextInt(cells.length);
+            for (int i = 0; i < cells.length && remaining > 0; i++) {
+                AtomicInteger cell = cells[(start + i) % cells.length];
+                int value = cell.get();
+                while (value > 0) {
+                    int taken = Math.min(value, remaining);
+                    if (cell.compareAndSet(value, value - taken)) {
+                        remaining -= taken;
+                        break;
+                    }
+                    value = cell.get();
+                }
+            }
+            debt += remaining;
+        }
+
+        int sum() {
+            int total = -debt;
+            for (AtomicInteger cell : cells) {
+                total += cell.get();
+            }
+            return total;
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.ecommerce.services.impl;
+
+import com.ecommerce.pojo.User;
+import com.ecommerce.repositories.UserRepository;
+import com.ecommerce.services.LastLoginService;
+import jakarta.annotation.PreDestroy;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Ghi last_login bất đồng bộ: mỗi lần đăng nhập chỉ ghi vào map trong bộ nhớ
+ * (nhiều lần đăng nhập của cùng user được gộp lại), định kỳ flush xuống database
+ * bằng một JDBC batch.
+ */
+@Service
+public class LastLoginServiceImpl implements LastLoginService {
+    private static final Logger logger = LoggerFactory.getLogger(LastLoginServiceImpl.class);
+
+    private static final String UPDATE_SQL = "UPDATE users SET last_login = ? WHERE id = ?";
+
+    @Autowired
+    private SessionFactory sessionFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    // userId -> thời điểm đăng nhập mới nhất (epoch millis)
+    private final Map<Long, Long> pending = new ConcurrentHashMap<>();
+
+    @Override
+    public void recordLogin(Long userId) {
+        if (userId == null) {
+            return;
+        }
+        pending.merge(userId, System.currentTimeMillis(), Math::max);
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${app.last-login.flush-interval-ms:5000}")
+    public synchronized int flush() {
+        if (pending.isEmpty()) {
+            return 0;
+        }
+
+        List<Long> userIds = new ArrayList<>();
+        List<Long> loginTimes = new ArrayList<>();
+        for (Long userId : pending.keySet()) {
+            Long loginTime = pending.remove(userId);
+            if (loginTime != null) {
+                userIds.add(userId);
+                loginTimes.add(loginTime);
+            }
+        }
+        if (userIds.isEmpty()) {
+            return 0;
+        }
+
+        try {
+            new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+                Session session = sessionFactory.getCurrentSession();
+                session.doWork(connection -> {
+                    try (PreparedStatement ps = connection.prepareStatement(UPDATE_SQL)) {
+                        for (int i = 0; i < userIds.size(); i++) {
+                            ps.setTimestamp(1, new Timestamp(loginTimes.get(i)));
+                            ps.setLong(2, userIds.get(i));
+                            ps.addBatch();
+                        }
+                        ps.executeBatch();
+                    }
+                });
+            });
+        } catch (Exception e) {
+            // Đưa lại vào hàng đợi, lần flush sau sẽ thử lại (giữ giá trị mới hơn nếu có)
+            for (int i = 0; i < userIds.size(); i++) {
+                pending.merge(userIds.get(i), loginTimes.get(i), Math::max);
+            }
+            logger.error("Failed to flush {} last_login updates: {}", userIds.size(), e.getMessage());
+            return 0;
+        }
+
+        // Cập nhật bằng JDBC nên phải tự xoá User khỏi second-level cache, cache "users" (khoá theo id)
+        // và map cache của UserRepositoryImpl
+        Cache usersCache = cacheManager.getCache("users");
+        for (Long userId : userIds) {
+            sessionFactory.getCache().evictEntityData(User.class, userId);
+            userRepository.evict(userId);
+            if (usersCache != null) {
+                usersCache.evict(userId);
+            }
+        }
+        logger.debug("Flushed {} last_login updates", userIds.size());
+        return userIds.size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+}
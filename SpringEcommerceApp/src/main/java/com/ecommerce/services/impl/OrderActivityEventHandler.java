@@ -0,0 +1,46 @@
+package com.ecommerce.services.impl;
+
+import com.ecommerce.pojo.Order;
+import com.ecommerce.pojo.OrderEvent;
+import com.ecommerce.pojo.User;
+import com.ecommerce.repositories.UserRepository;
+import com.ecommerce.services.OrderEventHandler;
+import com.ecommerce.services.OrderEventService;
+import com.ecommerce.services.RecentActivityService;
+import com.ecommerce.utils.TransactionUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+/**
+ * Nhật ký hoạt động cho tạo đơn và đổi trạng thái có người thực hiện. Hoạt động đi qua hàng đợi trong bộ nhớ
+ * nên chỉ được đưa vào sau khi sự kiện đã được đánh dấu xử lý.
+ */
+@Service
+public class OrderActivityEventHandler implements OrderEventHandler {
+
+    @Autowired
+    private RecentActivityService recentActivityService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Override
+    public void handle(OrderEvent event, Order order) {
+        if (event.getActorId() == null || OrderEventService.PAYMENT_COMPLETED.equals(event.getEventType())) {
+            return;
+        }
+        User actor = userRepository.findById(event.getActorId());
+        if (actor == null) {
+            return;
+        }
+        String email = actor.getEmail();
+        String name = actor.getFullname() != null ? actor.getFullname() : actor.getUsername();
+        if (OrderEventService.ORDER_CREATED.equals(event.getEventType())) {
+            TransactionUtils.runAfterCommit(() -> recentActivityService.logOrderCreated(
+                    email, name, event.getOrderId(), event.getIpAddress()));
+        } else {
+            TransactionUtils.runAfterCommit(() -> recentActivityService.logOrderStatusChanged(
+                    email, name, event.getOrderId(), event.getNewStatus(), event.getIpAddress()));
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.ecommerce.services.impl;
+
+import com.ecommerce.pojo.Order;
+import com.ecommerce.pojo.OrderEvent;
+import com.ecommerce.services.EmailService;
+import com.ecommerce.services.OrderEventHandler;
+import com.ecommerce.services.OrderEventService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+/**
+ * Email xác nhận đơn mới và email cập nhật trạng thái; email được ghi vào email_outbox trong cùng
+ * transaction với sự kiện nên không bị gửi trùng khi sự kiện được xử lý lại.
+ */
+@Service
+public class OrderEmailEventHandler implements OrderEventHandler {
+
+    @Autowired
+    private EmailService emailService;
+
+    @Override
+    public void handle(OrderEvent event, Order order) {
+        if (OrderEventService.ORDER_CREATED.equals(event.getEventType())) {
+            emailService.sendOrderConfirmationEmail(order);
+        } else {
+            emailService.sendOrderStatusUpdateEmail(order, event.getOldStatus(), event.getNewStatus());
+        }
+    }
+}
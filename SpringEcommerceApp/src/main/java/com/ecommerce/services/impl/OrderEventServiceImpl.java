@@ -0,0 +1,264 @@
+package com.ecommerce.services.impl;
+
+import com.ecommerce.pojo.Order;
+import com.ecommerce.pojo.OrderEvent;
+import com.ecommerce.repositories.OrderEventRepository;
+import com.ecommerce.repositories.OrderRepository;
+import com.ecommerce.services.OrderEventHandler;
+import com.ecommerce.services.OrderEventService;
+import com.ecommerce.utils.OutboxPoller;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Luồng order-event-dispatcher nhận tối đa batch-size sự kiện đến hạn theo thứ tự ghi (đánh dấu PROCESSING
+ * trong lease-ms) rồi xử lý lần lượt, mỗi sự kiện một transaction: khoá lại dòng sự kiện (bỏ qua nếu đã hết
+ * lease và bị lượt khác nhận), chạy các handler, đánh dấu DONE. Thay đổi của handler và trạng thái DONE
+ * commit cùng nhau nên sự kiện bị giao lại (ít nhất một lần) không ghi trùng lịch sử hay email. Sự kiện lỗi
+ * được thử lại sau OutboxPoller.backoff (tối đa MAX_BACKOFF_MS), nên có thể bị sự kiện sau của cùng đơn
+ * vượt lên.
+ */
+@Service
+public class OrderEventServiceImpl implements OrderEventService {
+    private static final Logger logger = LoggerFactory.getLogger(OrderEventServiceImpl.class);
+
+    private static final List<String> DUE_STATUSES = List.of(STATUS_PENDING, STATUS_PROCESSING);
+    private static final long MAX_BACKOFF_MS = 60 * 60 * 1000L;
+    private static final int MAX_ERROR_LENGTH = 1000;
+    private static final int MAX_NOTE_LENGTH = 1000;
+    private static final int MAX_KEY_LENGTH = 100;
+    private static final long SHUTDOWN_WAIT_MS = 10000;
+
+    @Autowired
+    private OrderEventRepository orderEventRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private List<OrderEventHandler> handlers;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${app.order-events.batch-size:100}")
+    private int batchSize;
+
+    @Value("${app.order-events.poll-interval-ms:2000}")
+    private long pollIntervalMs;
+
+    @Value("${app.order-events.max-attempts:10}")
+    private int maxAttempts;
+
+    @Value("${app.order-events.retry-base-ms:10000}")
+    private long retryBaseMs;
+
+    @Value("${app.order-events.lease-ms:120000}")
+    private long leaseMs;
+
+    @Value("${app.order-events.done-retention-days:7}")
+    private int doneRetentionDays;
+
+    private OutboxPoller dispatcher;
+
+    private final AtomicLong published = new AtomicLong();
+    private final AtomicLong duplicates = new AtomicLong();
+    private final AtomicLong processed = new AtomicLong();
+    private final AtomicLong retried = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private volatile int lastBatchSize;
+    private volatile long lastBatchMillis;
+
+    @PostConstruct
+    public void init() {
+        batchSize = Math.max(1, batchSize);
+        dispatcher = new OutboxPoller("order-event-dispatcher", this::dispatch, batchSize, pollIntervalMs);
+        dispatcher.start();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        dispatcher.stop(SHUTDOWN_WAIT_MS);
+    }
+
+    @Override
+    @Transactional
+    public void publish(String eventType, Order order, String oldStatus, String note, Long actorId,
+            String ipAddress) {
+        Date now = new Date();
+        OrderEvent event = new OrderEvent();
+        event.setEventType(eventType);
+        event.setOrderId(order.getId());
+        event.setActorId(actorId);
+        event.setOldStatus(oldStatus);
+        event.setNewStatus(order.getStatus());
+        event.setNote(note != null && note.length() > MAX_NOTE_LENGTH ? note.substring(0, MAX_NOTE_LENGTH) : note);
+        event.setIpAddress(ipAddress);
+        event.setIdempotencyKey(ORDER_STATUS_CHANGED.equals(eventType)
+                ? statusChangeKey(order.getId(), orderRepository.nextStatusVersion(order.getId()), oldStatus,
+                        order.getStatus())
+                : idempotencyKey(eventType, order.getId()));
+        event.setStatus(STATUS_PENDING);
+        event.setNextAttemptAt(now);
+        event.setCreatedAt(now);
+        orderEventRepository.save(event);
+        published.incrementAndGet();
+        dispatcher.wakeUpAfterCommit();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public boolean isPublished(String eventType, Long orderId) {
+        if (ORDER_STATUS_CHANGED.equals(eventType)) {
+            throw new IllegalArgumentException("Status changes have no per-order idempotency key");
+        }
+        // Thanh toán có thể được báo hoàn tất nhiều lần (IPN và trang trả về, client gọi lại)
+        boolean published = orderEventRepository.existsByIdempotencyKey(idempotencyKey(eventType, orderId));
+        if (published) {
+            duplicates.incrementAndGet();
+        }
+        return published;
+    }
+
+    @Override
+    public synchronized int dispatch() {
+        // Làm tròn xuống giây để so sánh bằng được dù cột thời gian lưu ở độ chính xác nào
+        Date leaseUntil = new Date((System.currentTimeMillis() + leaseMs) / 1000 * 1000);
+        List<OrderEvent> claimed = claim(batchSize, leaseUntil);
+        if (claimed.isEmpty()) {
+            return 0;
+        }
+        long start = System.currentTimeMillis();
+        for (OrderEvent event : claimed) {
+            process(event.getId(), leaseUntil);
+        }
+        lastBatchSize = claimed.size();
+        lastBatchMillis = System.currentTimeMillis() - start;
+        return claimed.size();
+    }
+
+    @Scheduled(fixedDelayString = "${app.order-events.cleanup-interval-ms:3600000}")
+    @Transactional
+    public void purgeDone() {
+        Date cutoff = new Date(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(doneRetentionDays));
+        // Giữ lại PAYMENT_COMPLETED (một dòng mỗi đơn): idempotency key của nó chặn báo thanh toán lặp lại
+        int deleted = orderEventRepository.deleteDoneBefore(cutoff, List.of(PAYMENT_COMPLETED));
+        if (deleted > 0) {
+            logger.info("Deleted {} processed order events older than {} days", deleted, doneRetentionDays);
+        }
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("outbox", orderEventRepository.countByStatus());
+        stats.put("handlers", handlers.size());
+        stats.put("batchSize", batchSize);
+        stats.put("published", published.get());
+        stats.put("duplicates", duplicates.get());
+        stats.put("processed", processed.get());
+        stats.put("retried", retried.get());
+        stats.put("failed", failed.get());
+        stats.put("lastBatchSize", lastBatchSize);
+        stats.put("lastBatchMillis", lastBatchMillis);
+        return stats;
+    }
+
+    private List<OrderEvent> claim(int limit, Date leaseUntil) {
+        return new TransactionTemplate(transactionManager).execute(status -> {
+            List<OrderEvent> due = orderEventRepository.findDueForUpdate(DUE_STATUSES, new Date(), limit);
+            for (OrderEvent event : due) {
+                event.setStatus(STATUS_PROCESSING);
+                event.setNextAttemptAt(leaseUntil);
+            }
+            return due;
+        });
+    }
+
+    private void process(Long eventId, Date leaseUntil) {
+        try {
+            boolean handled = new TransactionTemplate(transactionManager).execute(status -> {
+                OrderEvent event = orderEventRepository.findClaimedForUpdate(eventId, leaseUntil);
+                if (event == null) {
+                    return false;
+                }
+                // Đơn đã bị xoá thì không còn gì để làm
+                Order order = orderRepository.findById(event.getOrderId());
+                if (order != null) {
+                    for (OrderEventHandler handler : handlers) {
+                        handler.handle(event, order);
+                    }
+                }
+                event.setStatus(STATUS_DONE);
+                event.setProcessedAt(new Date());
+                event.setLastError(null);
+                return true;
+            });
+            if (handled) {
+                processed.incrementAndGet();
+            }
+        } catch (Exception e) {
+            try {
+                recordFailure(eventId, leaseUntil, e);
+            } catch (Exception recordError) {
+                // Sự kiện vẫn ở PROCESSING, được xử lý lại khi hết lease
+                logger.error("Could not record failure of order event {}: {}", eventId, recordError.getMessage(),
+                        recordError);
+            }
+        }
+    }
+
+    private void recordFailure(Long eventId, Date leaseUntil, Exception error) {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            OrderEvent event = orderEventRepository.findClaimedForUpdate(eventId, leaseUntil);
+            if (event == null) {
+                return;
+            }
+            int attempts = event.getAttempts() + 1;
+            event.setAttempts(attempts);
+            event.setLastError(OutboxPoller.truncate(error.getMessage(), MAX_ERROR_LENGTH));
+            if (attempts >= maxAttempts) {
+                event.setStatus(STATUS_FAILED);
+                failed.incrementAndGet();
+                logger.error("Giving up order event {} ({} of order {}) after {} attempts: {}", eventId,
+                        event.getEventType(), event.getOrderId(), attempts, event.getLastError());
+            } else {
+                event.setStatus(STATUS_PENDING);
+                event.setNextAttemptAt(new Date(System.currentTimeMillis()
+                        + OutboxPoller.backoff(retryBaseMs, attempts, MAX_BACKOFF_MS)));
+                retried.incrementAndGet();
+                logger.warn("Order event {} ({} of order {}) failed (attempt {}/{}): {}", eventId,
+                        event.getEventType(), event.getOrderId(), attempts, maxAttempts, event.getLastError());
+            }
+        });
+    }
+
+    // Tạo đơn và hoàn tất thanh toán xảy ra một lần cho mỗi đơn
+    private static String idempotencyKey(String eventType, Long orderId) {
+        return eventType + ":" + orderId;
+    }
+
+    // Trạng thái có thể đổi nhiều lần: khoá theo lần đổi thứ mấy của đơn (orderId:version đã là duy nhất,
+    // phần trạng thái chỉ để đọc nên cắt bớt được)
+    private static String statusChangeKey(Long orderId, int statusVersion, String oldStatus, String newStatus) {
+        return OutboxPoller.truncate(
+                ORDER_STATUS_CHANGED + ":" + orderId + ":" + statusVersion + ":" + oldStatus + ":" + newStatus,
+                MAX_KEY_LENGTH);
+    }
+}
@@ -0,0 +1,50 @@
+package com.ecommerce.services.impl;
+
+import com.ecommerce.pojo.Order;
+import com.ecommerce.pojo.OrderEvent;
+import com.ecommerce.pojo.OrderStatusHistory;
+import com.ecommerce.repositories.OrderStatusHistoryRepository;
+import com.ecommerce.repositories.UserRepository;
+import com.ecommerce.services.OrderEventHandler;
+import com.ecommerce.services.OrderEventService;
+import java.util.Objects;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+/**
+ * Ghi lịch sử trạng thái cho đổi trạng thái và hoàn tất thanh toán. Lịch sử của đơn mới được lưu cùng đơn.
+ */
+@Service
+public class OrderHistoryEventHandler implements OrderEventHandler {
+
+    @Autowired
+    private OrderStatusHistoryRepository orderStatusHistoryRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Override
+    public void handle(OrderEvent event, Order order) {
+        if (OrderEventService.ORDER_CREATED.equals(event.getEventType())) {
+            return;
+        }
+        String note = event.getNote();
+        if (note == null) {
+            // Lưu lại trạng thái cũ mà không có ghi chú thì không có gì để ghi
+            if (Objects.equals(event.getOldStatus(), event.getNewStatus())) {
+                return;
+            }
+            note = "Trạng thái đơn hàng đã được cập nhật";
+        }
+        OrderStatusHistory history = new OrderStatusHistory();
+        history.setOrder(order);
+        history.setStatus(event.getNewStatus());
+        history.setNote(note);
+        // Thời điểm thay đổi thật, không phải lúc sự kiện được xử lý
+        history.setCreatedAt(event.getCreatedAt());
+        if (event.getActorId() != null) {
+            history.setCreatedBy(userRepository.findById(event.getActorId()));
+        }
+        orderStatusHistoryRepository.save(history);
+    }
+}
@@ -8,28 +8,48 @@ import com.ecommerce.dtos.OrderSummaryDTO;
 import com.ecommerce.repositories.OrderRepository;
 import com.ecommerce.repositories.OrderStatusHistoryRepository;
 import com.ecommerce.repositories.UserRepository;
+import com.ecommerce.services.OrderEventService;
 import com.ecommerce.services.OrderService;
+import com.ecommerce.services.SalesRollupService;
+import com.ecommerce.services.StockReservationService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import java.text.SimpleDateFormat;
 import java.util.*;
 import java.util.stream.Collectors;
 import java.util.NoSuchElementException;
-import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
 
-import org.apache.poi.ss.usermodel.Cell;
-import org.apache.poi.ss.usermodel.FillPatternType;
-import org.apache.poi.ss.usermodel.IndexedColors;
+import com.ecommerce.utils.ExcelUtils;
+import org.apache.poi.ss.usermodel.CellStyle;
 import org.apache.poi.ss.usermodel.Row;
-import org.apache.poi.xssf.usermodel.XSSFCellStyle;
-import org.apache.poi.xssf.usermodel.XSSFFont;
-import org.apache.poi.xssf.usermodel.XSSFSheet;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 
 @Service
 @Transactional
 public class OrderServiceImpl implements OrderService {
+    private static final Logger logger = LoggerFactory.getLogger(OrderServiceImpl.class);
+
+    // Số dòng lấy từ database mỗi lượt khi export
+    private static final int EXPORT_FETCH_SIZE = 1000;
+    private static final String[] EXPORT_HEADERS = { "ID", "Ngày đặt", "Khách hàng", "Email", "SĐT", "Trạng thái",
+            "Địa chỉ", "Tổng tiền" };
+    private static final int[] EXPORT_COLUMN_WIDTHS = { 10, 18, 25, 30, 15, 22, 50, 15 };
+    // Trạng thái đơn đã được thanh toán/xác nhận xử lý: giữ chỗ trong kho thành chính thức
+    private static final Set<String> STOCK_CONFIRMED_STATUSES = Set.of("PROCESSING", "PROCESSING_COD",
+            "SHIPPING", "COMPLETED");
+    // Số đơn quá hạn xử lý mỗi lượt quét
+    private static final int EXPIRED_RESERVATION_BATCH_SIZE = 200;
+
     @Autowired
     private OrderRepository orderRepository;
 
@@ -39,6 +59,18 @@ public class OrderServiceImpl implements OrderService {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private SalesRollupService salesRollupService;
+
+    @Autowired
+    private StockReservationService stockReservationService;
+
+    @Autowired
+    private OrderEventService orderEventService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
     @Override
     public void save(Order order) {
         if ((order.getStatusHistory() == null || order.getStatusHistory().isEmpty()) &&
@@ -47,6 +79,8 @@ public class OrderServiceImpl implements OrderService {
                     order.getUser().getId());
         }
         orderRepository.save(order);
+        stockReservationService.reserve(order);
+        salesRollupService.syncOrder(order.getId());
     }
 
     @Override
@@ -67,16 +101,86 @@ public class OrderServiceImpl implements OrderService {
         }
 
         orderRepository.update(order);
+        syncStockReservation(order);
+        salesRollupService.syncOrder(order.getId());
     }
 
     @Override
     public void updateWithoutHistory(Order order) {
 
         orderRepository.update(order);
+        syncStockReservation(order);
+        salesRollupService.syncOrder(order.getId());
+    }
+
+    @Override
+    public void save(Order order, Long actorId, String ipAddress) {
+        save(order);
+        orderEventService.publish(OrderEventService.ORDER_CREATED, order, null, null, actorId, ipAddress);
+    }
+
+    @Override
+    public void changeStatus(Order order, String previousStatus, String note, Long actorId, String ipAddress) {
+        updateWithoutHistory(order);
+        orderEventService.publish(OrderEventService.ORDER_STATUS_CHANGED, order, previousStatus, note, actorId,
+                ipAddress);
+    }
+
+    @Override
+    public boolean completePayment(Order order, String note, Long actorId) {
+        // Kiểm tra trước khi đổi trạng thái: đơn có thể đã sang SHIPPING/COMPLETED sau lần báo đầu tiên
+        if (orderEventService.isPublished(OrderEventService.PAYMENT_COMPLETED, order.getId())) {
+            return false;
+        }
+        String previousStatus = order.getStatus();
+        order.setStatus("PROCESSING");
+        updateWithoutHistory(order);
+        orderEventService.publish(OrderEventService.PAYMENT_COMPLETED, order, previousStatus, note, actorId, null);
+        return true;
+    }
+
+    // Đơn bị huỷ thì trả hàng về kho; đơn đã thanh toán/được xử lý thì giữ chỗ không còn hết hạn
+    private void syncStockReservation(Order order) {
+        if ("CANCELLED".equals(order.getStatus())) {
+            stockReservationService.release(order.getId());
+        } else if (STOCK_CONFIRMED_STATUSES.contains(order.getStatus())) {
+            stockReservationService.confirm(order.getId());
+        }
+    }
+
+    // Huỷ các đơn thanh toán online quá hạn giữ hàng; mỗi đơn một transaction để lỗi một đơn không chặn các đơn khác
+    @Scheduled(initialDelayString = "${app.stock.sweep-interval-ms:60000}",
+            fixedDelayString = "${app.stock.sweep-interval-ms:60000}")
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void cancelExpiredReservations() {
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        for (Long orderId : stockReservationService.findExpiredOrderIds(EXPIRED_RESERVATION_BATCH_SIZE)) {
+            try {
+                template.executeWithoutResult(status -> {
+                    // Khoá giữ chỗ trước: đơn vừa được thanh toán thì không còn RESERVED và được bỏ qua
+                    if (!stockReservationService.releaseIfReserved(orderId)) {
+                        return;
+                    }
+                    Order order = orderRepository.findById(orderId);
+                    if (order != null && !"CANCELLED".equals(order.getStatus())) {
+                        order.setStatus("CANCELLED");
+                        addOrderStatusHistory(order, "CANCELLED",
+                                "Đơn hàng tự động huỷ do quá hạn thanh toán, hàng đã được trả về kho", null);
+                        orderRepository.update(order);
+                        salesRollupService.syncOrder(orderId);
+                    }
+                    logger.info("Released expired stock reservation of order {}", orderId);
+                });
+            } catch (Exception e) {
+                logger.error("Could not release expired stock reservation of order {}: {}", orderId,
+                        e.getMessage(), e);
+            }
+        }
     }
 
     @Override
     public void delete(Long id) {
+        salesRollupService.removeOrder(id);
         orderRepository.delete(id);
     }
 
@@ -90,23 +194,34 @@ public class OrderServiceImpl implements OrderService {
         return orderRepository.findAll();
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public List<Order> findByFilters(String status, Date fromDate, Date toDate, String keyword, Long afterId,
+            int page, int size) {
+        return orderRepository.findByFilters(status, fromDate, toDate, keyword, afterId, page, size);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public long countByFilters(String status, Date fromDate, Date toDate, String keyword) {
+        return orderRepository.countByFilters(status, fromDate, toDate, keyword);
+    }
+
     @Override
     public List<Order> findByUserId(Long userId) {
         return orderRepository.findByUserId(userId);
     }
 
     @Override
+    @Transactional(readOnly = true)
     public List<OrderSummaryDTO> findByUserIdAsDTO(Long userId) {
-        try {
-            List<Order> orders = orderRepository.findByUserId(userId);
-            System.out.println("Converting " + orders.size() + " orders to DTOs");
+        return orderRepository.findSummariesByUserId(userId, null, null, 0);
+    }
 
-            return orders.stream().map(this::convertToOrderSummaryDTO).collect(Collectors.toList());
-        } catch (Exception e) {
-            System.err.println("Error converting orders to DTOs: " + e.getMessage());
-            e.printStackTrace();
-            return new ArrayList<>();
-        }
+    @Override
+    @Transactional(readOnly = true)
+    public List<OrderSummaryDTO> findByUserIdAsDTO(Long userId, Date beforeDate, Long beforeId, int size) {
+        return orderRepository.findSummariesByUserId(userId, beforeDate, beforeId, size);
     }
 
     private OrderSummaryDTO convertToOrderSummaryDTO(Order order) {
@@ -320,72 +435,73 @@ public class OrderServiceImpl implements OrderService {
     }
 
     @Override
-    public byte[] generateOrderExcel(List<Order> orders) {
-        try {
-            try (XSSFWorkbook workbook = new XSSFWorkbook()) {
-                XSSFSheet sheet = workbook.createSheet("Đơn hàng");
-
-                Row headerRow = sheet.createRow(0);
-                String[] headers = { "ID", "Ngày đặt", "Khách hàng", "Email", "SĐT", "Trạng thái", "Địa chỉ",
-                        "Tổng tiền" };
-
-                XSSFCellStyle headerStyle = workbook.createCellStyle();
-                headerStyle.setFillForegroundColor(IndexedColors.LIGHT_BLUE.getIndex());
-                headerStyle.setFillPattern(FillPatternType.SOLID_FOREGROUND);
-                XSSFFont font = workbook.createFont();
-                font.setFontHeightInPoints((short) 12);
-                font.setBold(true);
-                headerStyle.setFont(font);
-
-                for (int i = 0; i < headers.length; i++) {
-                    Cell cell = headerRow.createCell(i);
-                    cell.setCellValue(headers[i]);
-                    cell.setCellStyle(headerStyle);
-                }
-
-                int rowNum = 1;
-                for (Order order : orders) {
-                    Row row = sheet.createRow(rowNum++);
-                    row.createCell(0).setCellValue(order.getId());
-
-                    if (order.getOrderDate() != null) {
-                        Cell dateCell = row.createCell(1);
-                        dateCell.setCellValue(new SimpleDateFormat("dd/MM/yyyy HH:mm").format(order.getOrderDate()));
-                    } else {
-                        row.createCell(1).setCellValue("");
-                    }
-
-                    if (order.getUser() != null) {
-                        row.createCell(2).setCellValue(order.getUser().getFullname());
-                        row.createCell(3).setCellValue(order.getUser().getEmail());
-                        row.createCell(4).setCellValue(order.getUser().getPhone());
-                    } else {
-                        row.createCell(2).setCellValue("N/A");
-                        row.createCell(3).setCellValue("N/A");
-                        row.createCell(4).setCellValue("N/A");
-                    }
-
-                    row.createCell(5).setCellValue(getStatusDisplayName(order.getStatus()));
-                    row.createCell(6).setCellValue(order.getShippingAddress());
+    public List<Map<String, Object>> getSalesBySeller(Date fromDate, Date toDate) {
+        List<Map<String, Object>> sellers = new ArrayList<>();
+        for (Object[] result : orderRepository.findSalesBySeller(fromDate, toDate)) {
+            String fullname = (String) result[1];
+            String email = (String) result[3];
+            int orderCount = ((Number) result[4]).intValue();
+            double revenue = result[6] != null ? ((Number) result[6]).doubleValue() : 0.0;
+
+            Map<String, Object> seller = new HashMap<>();
+            seller.put("id", result[0]);
+            seller.put("name", fullname != null ? fullname : result[2]);
+            seller.put("email", email != null ? email : "N/A");
+            seller.put("orderCount", orderCount);
+            seller.put("productCount", result[5] != null ? ((Number) result[5]).intValue() : 0);
+            seller.put("revenue", revenue);
+            seller.put("avgRevenue", orderCount > 0 ? revenue / orderCount : 0.0);
+            sellers.add(seller);
+        }
+        return sellers;
+    }
 
-                    Cell totalCell = row.createCell(7);
-                    totalCell.setCellValue(order.getTotalAmount());
+    @Override
+    @Transactional(readOnly = true)
+    public void writeOrderExcel(String status, Date fromDate, Date toDate, OutputStream out) throws IOException {
+        SXSSFWorkbook workbook = ExcelUtils.createStreamingWorkbook();
+        try {
+            CellStyle headerStyle = ExcelUtils.createHeaderStyle(workbook);
+            SimpleDateFormat dateFormat = new SimpleDateFormat("dd/MM/yyyy HH:mm");
+            Sheet[] sheet = { newOrderSheet(workbook, headerStyle, 1) };
+            int[] rowNum = { 1 };
+
+            orderRepository.scrollExportRows(status, fromDate, toDate, EXPORT_FETCH_SIZE, result -> {
+                // Một sheet tối đa ~1 triệu dòng, vượt quá thì sang sheet mới
+                if (rowNum[0] >= ExcelUtils.MAX_ROWS) {
+                    sheet[0] = newOrderSheet(workbook, headerStyle, workbook.getNumberOfSheets() + 1);
+                    rowNum[0] = 1;
                 }
-
-                for (int i = 0; i < headers.length; i++) {
-                    sheet.autoSizeColumn(i);
+                Row row = sheet[0].createRow(rowNum[0]++);
+                row.createCell(0).setCellValue((Long) result[0]);
+                row.createCell(1).setCellValue(result[1] != null ? dateFormat.format((Date) result[1]) : "");
+                if (result[2] != null || result[3] != null) {
+                    row.createCell(2).setCellValue((String) result[2]);
+                    row.createCell(3).setCellValue((String) result[3]);
+                    row.createCell(4).setCellValue((String) result[4]);
+                } else {
+                    row.createCell(2).setCellValue("N/A");
+                    row.createCell(3).setCellValue("N/A");
+                    row.createCell(4).setCellValue("N/A");
                 }
-
-                ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-                workbook.write(outputStream);
-                return outputStream.toByteArray();
-            }
-        } catch (Exception e) {
-            e.printStackTrace();
-            return new byte[0];
+                row.createCell(5).setCellValue(result[5] != null ? getStatusDisplayName((String) result[5]) : "");
+                row.createCell(6).setCellValue((String) result[6]);
+                row.createCell(7).setCellValue(result[7] != null ? ((Number) result[7]).doubleValue() : 0.0);
+            });
+
+            workbook.write(out);
+            out.flush();
+        } finally {
+            ExcelUtils.dispose(workbook);
         }
     }
 
+    private Sheet newOrderSheet(SXSSFWorkbook workbook, CellStyle headerStyle, int index) {
+        Sheet sheet = workbook.createSheet(index == 1 ? "Đơn hàng" : "Đơn hàng (" + index + ")");
+        ExcelUtils.writeHeader(sheet, headerStyle, EXPORT_HEADERS, EXPORT_COLUMN_WIDTHS);
+        return sheet;
+    }
+
     @Override
     public byte[] generateReportExcel(String reportType, Date fromDate, Date toDate) {
         try {
@@ -6,8 +6,10 @@ import com.ecommerce.exceptions.ProductException;
 import com.ecommerce.exceptions.UserException;
 import com.ecommerce.pojo.*;
 
+import com.ecommerce.services.HotStockService;
 import com.ecommerce.services.ProductService;
 import com.ecommerce.services.UserService;
+import com.ecommerce.services.OrderValidationContext;
 import com.ecommerce.services.OrderValidationService;
 
 import org.springframework.beans.factory.annotation.Autowired;
@@ -16,6 +18,8 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.util.HashSet;
+import java.util.Set;
 
 @Service
 @Transactional
@@ -27,12 +31,16 @@ public class OrderValidationServiceImpl implements OrderValidationService {
     @Autowired
     private ProductService productService;
 
+    @Autowired
+    private HotStockService hotStockService;
+
     @Override
-    public void validateOrderCreation(OrderCreateDTO orderDTO) {
+    public OrderValidationContext validateOrderCreation(OrderCreateDTO orderDTO) {
         validateUser(orderDTO.getUserId());
-        validateOrderItems(orderDTO);
+        OrderValidationContext context = validateOrderItems(orderDTO);
         validatePaymentMethod(orderDTO.getPaymentMethod());
         validateOrderTotals(orderDTO);
+        return context;
     }
 
     @Override
@@ -50,7 +58,10 @@ public class OrderValidationServiceImpl implements OrderValidationService {
 
     @Override
     public void validateStockAvailability(Long productId, int requestedQuantity) {
-        Product product = productService.findById(productId);
+        validateStockAvailability(productService.findById(productId), productId, requestedQuantity);
+    }
+
+    private void validateStockAvailability(Product product, Long productId, int requestedQuantity) {
         if (product == null) {
             throw new ProductException.ProductNotFoundException(productId);
         }
@@ -59,9 +70,12 @@ public class OrderValidationServiceImpl implements OrderValidationService {
             throw new ProductException("Product is not active: " + product.getName());
         }
 
-        if (product.getQuantity() < requestedQuantity) {
+        // Sản phẩm hot: tồn kho trong database chưa trừ các đơn đang chờ flush, dùng bộ đếm trong bộ nhớ
+        int available = hotStockService.isHot(productId) ? hotStockService.getAvailable(productId)
+                : product.getQuantity();
+        if (available < requestedQuantity) {
             throw new ProductException.InsufficientStockException(
-                    product.getName(), requestedQuantity, product.getQuantity());
+                    product.getName(), requestedQuantity, available);
         }
     }
 
@@ -76,17 +90,24 @@ public class OrderValidationServiceImpl implements OrderValidationService {
         }
     }
 
-    private void validateOrderItems(OrderCreateDTO orderDTO) {
+    private OrderValidationContext validateOrderItems(OrderCreateDTO orderDTO) {
         if (orderDTO.getItems() == null || orderDTO.getItems().isEmpty()) {
             throw new OrderException("Order must contain at least one item");
         }
 
+        // Nạp tất cả sản phẩm của đơn trong một truy vấn
+        Set<Long> productIds = new HashSet<>();
+        for (OrderCreateDTO.OrderItemCreateDTO item : orderDTO.getItems()) {
+            productIds.add(item.getProductId());
+        }
+        OrderValidationContext context = new OrderValidationContext(productService.findAllByIds(productIds));
+
         double calculatedSubtotal = 0.0;
 
         for (OrderCreateDTO.OrderItemCreateDTO item : orderDTO.getItems()) {
-            validateStockAvailability(item.getProductId(), item.getQuantity());
+            Product product = context.getProduct(item.getProductId());
+            validateStockAvailability(product, item.getProductId(), item.getQuantity());
 
-            Product product = productService.findById(item.getProductId());
             if (!isPriceValid(product.getPrice(), item.getPrice())) {
                 throw new OrderException("Price mismatch for product: " + product.getName());
             }
@@ -98,6 +119,7 @@ public class OrderValidationServiceImpl implements OrderValidationService {
             throw new OrderException("Subtotal calculation error. Expected: " + calculatedSubtotal
                     + ", Received: " + orderDTO.getSubtotal());
         }
+        return context;
     }
 
     private void validatePaymentMethod(String paymentMethod) {
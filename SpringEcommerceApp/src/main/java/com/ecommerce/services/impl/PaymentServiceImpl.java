@@ -9,6 +9,8 @@ import com.ecommerce.repositories.PaymentRepository;
 import com.ecommerce.services.PaymentService;
 import com.ecommerce.services.MoMoService;
 import com.ecommerce.services.OrderService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -26,6 +28,7 @@ import java.util.List;
 @Service
 @Transactional
 public class PaymentServiceImpl implements PaymentService {
+    private static final Logger logger = LoggerFactory.getLogger(PaymentServiceImpl.class);
 
     @Autowired
     private PaymentRepository paymentRepository;
@@ -139,7 +142,7 @@ public class PaymentServiceImpl implements PaymentService {
                     } else {
                         paymentRepository.update(payment);
                     }
-                    orderRepository.update(order);
+                    orderService.updateWithoutHistory(order);
 
                     return new PaymentResponseDTO(
                             payment.getId(),
@@ -169,7 +172,7 @@ public class PaymentServiceImpl implements PaymentService {
                         System.out.println(
                                 "Updated existing payment record with ID: " + payment.getId() + " for PayPal.");
                     }
-                    orderRepository.update(order);
+                    orderService.updateWithoutHistory(order);
 
                     String approvalUrl = null;
                     for (Links link : createdPayment.getLinks()) {
@@ -210,7 +213,7 @@ public class PaymentServiceImpl implements PaymentService {
                         System.out
                                 .println("Updated existing payment record with ID: " + payment.getId() + " for MoMo.");
                     }
-                    orderRepository.update(order);
+                    orderService.updateWithoutHistory(order);
 
                     PaymentResponseDTO momoResponseDTO = new PaymentResponseDTO(
                             payment.getId(),
@@ -241,7 +244,7 @@ public class PaymentServiceImpl implements PaymentService {
                     paymentRepository.save(payment);
                 }
             }
-            orderRepository.update(order);
+            orderService.updateWithoutHistory(order);
 
             return new PaymentResponseDTO(
                     payment.getId(),
@@ -267,7 +270,7 @@ public class PaymentServiceImpl implements PaymentService {
                     paymentRepository.update(payment);
                 }
             }
-            orderRepository.update(order);
+            orderService.updateWithoutHistory(order);
 
             return new PaymentResponseDTO(
                     payment.getId(),
@@ -361,12 +364,15 @@ public class PaymentServiceImpl implements PaymentService {
                             executedPayment.getTransactions().get(0).getRelatedResources().get(0).getSale().getId());
                 }
                 paymentRecord.setPaymentDate(new Date());
-                order.setStatus("PROCESSING");
 
                 paymentRepository.update(paymentRecord);
-                orderRepository.update(order);
-
-                System.out.println("✅ Payment và Order đã được cập nhật thành công!");
+                if (orderService.completePayment(order, "PayPal payment completed (Payment ID: " + paymentId + ")",
+                        order.getUser().getId())) {
+                    logger.info("Order {} moved to PROCESSING after PayPal payment {}", order.getId(), paymentId);
+                } else {
+                    logger.info("Order {} was already marked paid, PayPal payment {} left it unchanged",
+                            order.getId(), paymentId);
+                }
                 System.out.println("=== KẾT THÚC PAYPAL PAYMENT EXECUTION ===");
 
                 return new PaymentResponseDTO(
@@ -383,7 +389,7 @@ public class PaymentServiceImpl implements PaymentService {
                 paymentRecord.setPaypalPayerId(payerId);
                 order.setStatus("PAYMENT_FAILED");
                 paymentRepository.update(paymentRecord);
-                orderRepository.update(order);
+                orderService.updateWithoutHistory(order);
                 return new PaymentResponseDTO(
                         paymentRecord.getId(),
                         order.getId(),
@@ -401,7 +407,7 @@ public class PaymentServiceImpl implements PaymentService {
             if (paymentRecord.getId() != null) {
                 paymentRepository.update(paymentRecord);
             }
-            orderRepository.update(order);
+            orderService.updateWithoutHistory(order);
             throw new RuntimeException("PayPal payment execution failed: " + e.getMessage(), e);
         }
     }
@@ -429,6 +435,7 @@ public class PaymentServiceImpl implements PaymentService {
                 return false;
             }
 
+            boolean completedNow = "COMPLETED".equals(status) && !"COMPLETED".equals(payment.getStatus());
             payment.setStatus(status);
             if (transactionId != null && !transactionId.isEmpty()) {
                 payment.setTransactionId(transactionId);
@@ -436,17 +443,17 @@ public class PaymentServiceImpl implements PaymentService {
             payment.setPaymentDate(new java.util.Date());
 
             paymentRepository.update(payment);
-            if ("COMPLETED".equals(status)) {
+            // IPN và trang trả về của MoMo đều báo hoàn tất, chỉ lần đầu mới cập nhật đơn
+            if (completedNow) {
                 Order order = orderRepository.findById(orderIdLong);
                 if (order != null) {
-                    order.setStatus("PROCESSING");
-                    orderRepository.update(order);
-                    System.out.println("Order " + orderId + " status updated to PROCESSING after MoMo payment");
-
                     String statusNote = "MoMo payment completed (Transaction ID: " +
                             (payment != null ? payment.getTransactionId() : "N/A") + ")";
-                    orderService.addOrderStatusHistory(order, "PROCESSING", statusNote, order.getUser().getId());
-                    System.out.println("Order status history added for MoMo payment completion");
+                    if (orderService.completePayment(order, statusNote, order.getUser().getId())) {
+                        logger.info("Order {} moved to PROCESSING after MoMo payment", orderId);
+                    } else {
+                        logger.info("Order {} was already marked paid, MoMo notification left it unchanged", orderId);
+                    }
                 }
             }
 
@@ -0,0 +1,748 @@
+package com.ecommerce.services.impl;
+
+import com.ecommerce.pojo.Product;
+import com.ecommerce.repositories.ProductRepository;
+import com.ecommerce.services.ProductSearchService;
+import com.ecommerce.utils.TextNormalizer;
+import com.ecommerce.utils.TransactionUtils;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Inverted index trong bộ nhớ cho tìm kiếm sản phẩm (tên, mô tả, danh mục, cửa hàng).
+ * Hỗ trợ bỏ dấu tiếng Việt, khớp tiền tố và xếp hạng BM25. Index được nạp nền khi
+ * ứng dụng khởi động; trong lúc chưa sẵn sàng, ProductServiceImpl dùng truy vấn SQL.
+ * Chỉ sản phẩm đang bán (active) được đưa vào index; sản phẩm bị ngừng bán bị gỡ khỏi index khi cập nhật.
+ */
+@Service
+public class ProductSearchServiceImpl implements ProductSearchService {
+    private static final Logger logger = LoggerFactory.getLogger(ProductSearchServiceImpl.class);
+
+    // Tham số BM25
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    // Trọng số field: term trong tên sản phẩm quan trọng hơn mô tả
+    private static final int NAME_WEIGHT = 3;
+    private static final int CATEGORY_WEIGHT = 2;
+    private static final int STORE_WEIGHT = 2;
+    private static final int DESCRIPTION_WEIGHT = 1;
+
+    // Term khớp tiền tố ("ao" -> "aothun") bị giảm điểm so với khớp nguyên từ
+    private static final double PREFIX_MATCH_FACTOR = 0.7;
+    private static final int MAX_PREFIX_EXPANSIONS = 64;
+
+    private static final int REBUILD_BATCH_SIZE = 1000;
+
+    // Cận trên (VNĐ, không bao gồm) của các khoảng giá trong facet; khoảng cuối không có cận trên
+    private static final double[] PRICE_BUCKET_BOUNDS = {100_000, 500_000, 1_000_000, 5_000_000};
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private volatile InvertedIndex index = new InvertedIndex();
+    private volatile boolean ready = false;
+    private volatile long lastRebuildMillis;
+    private volatile long lastRebuildDurationMillis;
+
+    private final AtomicBoolean rebuilding = new AtomicBoolean(false);
+    // Sản phẩm thay đổi trong lúc rebuild, được áp dụng lại sau khi đổi index
+    private final Set<Long> changedDuringRebuild = ConcurrentHashMap.newKeySet();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        Thread warmUpThread = new Thread(this::rebuild, "product-index-warmup");
+        warmUpThread.setDaemon(true);
+        warmUpThread.start();
+    }
+
+    // Rebuild định kỳ để bắt các thay đổi không đi qua ProductServiceImpl (đổi tên danh mục, cửa hàng...)
+    @Scheduled(initialDelayString = "${app.search.rebuild-interval-ms:1800000}",
+            fixedDelayString = "${app.search.rebuild-interval-ms:1800000}")
+    public void scheduledRebuild() {
+        rebuild();
+    }
+
+    @Override
+    public boolean isReady() {
+        return ready;
+    }
+
+    @Override
+    public void rebuild() {
+        if (!rebuilding.compareAndSet(false, true)) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        try {
+            changedDuringRebuild.clear();
+            InvertedIndex fresh = new InvertedIndex();
+            TransactionTemplate template = readOnlyTransaction();
+            Long afterId = null;
+            while (true) {
+                final Long cursor = afterId;
+                List<Product> batch = template.execute(status -> {
+                    List<Product> products = productRepository.findByFilters(null, null, true, cursor, 0,
+                            REBUILD_BATCH_SIZE);
+                    products.forEach(product -> fresh.put(toDocument(product)));
+                    return products;
+                });
+                if (batch == null || batch.isEmpty()) {
+                    break;
+                }
+                afterId = batch.get(batch.size() - 1).getId();
+            }
+
+            index = fresh;
+            ready = true;
+            for (Long productId : changedDuringRebuild) {
+                reindex(productId);
+            }
+            changedDuringRebuild.clear();
+
+            lastRebuildMillis = System.currentTimeMillis();
+            lastRebuildDurationMillis = lastRebuildMillis - start;
+            logger.info("Product search index rebuilt: {} products, {} terms in {} ms",
+                    fresh.size(), fresh.termCount(), lastRebuildDurationMillis);
+        } catch (Exception e) {
+            logger.error("Product search index rebuild failed: {}", e.getMessage(), e);
+        } finally {
+            rebuilding.set(false);
+        }
+    }
+
+    @Override
+    public void indexProduct(Long productId) {
+        if (productId != null) {
+            TransactionUtils.runAfterCommit(() -> reindex(productId));
+        }
+    }
+
+    @Override
+    public void removeProduct(Long productId) {
+        if (productId != null) {
+            TransactionUtils.runAfterCommit(() -> {
+                index.remove(productId);
+                if (rebuilding.get()) {
+                    changedDuringRebuild.add(productId);
+                }
+            });
+        }
+    }
+
+    private void reindex(Long productId) {
+        try {
+            if (rebuilding.get()) {
+                changedDuringRebuild.add(productId);
+            }
+            TransactionTemplate template = readOnlyTransaction();
+            template.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+            IndexedProduct document = template.execute(status -> {
+                List<Product> products = productRepository.findByIds(List.of(productId));
+                return products.isEmpty() || !products.get(0).isActive() ? null : toDocument(products.get(0));
+            });
+            if (document != null) {
+                index.put(document);
+            } else {
+                index.remove(productId);
+            }
+        } catch (Exception e) {
+            logger.error("Could not index product {}: {}", productId, e.getMessage());
+        }
+    }
+
+    @Override
+    public List<Long> search(String keyword, int limit) {
+        List<String> tokens = queryTokens(keyword);
+        if (tokens.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<Long, Double> scores = index.score(tokens);
+        List<Long> ids = new ArrayList<>(scores.keySet());
+        ids.sort((a, b) -> {
+            int byScore = Double.compare(scores.get(b), scores.get(a));
+            return byScore != 0 ? byScore : Long.compare(b, a);
+        });
+        return ids.size() > limit ? new ArrayList<>(ids.subList(0, limit)) : ids;
+    }
+
+    @Override
+    public List<Long> searchAdvanced(String name, Long storeId, Double minPrice, Double maxPrice,
+            String sortBy, String sortDir, int page, int size) {
+        if (!ready) {
+            return null;
+        }
+        Comparator<IndexedProduct> comparator = comparatorFor(sortBy);
+        // Field không có trong index (createdAt...): để SQL sắp xếp thay vì lặng lẽ xếp theo độ liên quan
+        if (comparator == null && sortBy != null && !sortBy.isEmpty() && !"relevance".equals(sortBy)) {
+            return null;
+        }
+        List<String> tokens = queryTokens(name);
+        Map<Long, Double> scores = tokens.isEmpty() ? null : index.score(tokens);
+        if (comparator == null && scores == null) {
+            return null;
+        }
+
+        List<IndexedProduct> matches = index.select(scores == null ? null : scores.keySet(), document ->
+                (storeId == null || storeId.equals(document.storeId))
+                        && (minPrice == null || document.price >= minPrice)
+                        && (maxPrice == null || document.price <= maxPrice));
+        return sortAndPage(matches, comparator, scores, sortDir, page, size);
+    }
+
+    @Override
+    public Map<String, Object> facetedSearch(String name, Long categoryId, Long storeId, Double minPrice,
+            Double maxPrice, Boolean inStock, String sortBy, String sortDir, int page, int size) {
+        if (!ready) {
+            return null;
+        }
+        List<String> tokens = queryTokens(name);
+        Map<Long, Double> scores = tokens.isEmpty() ? null : index.score(tokens);
+        Comparator<IndexedProduct> comparator = comparatorFor(sortBy);
+        if (comparator == null && scores == null) {
+            // Không có từ khoá để xếp theo độ liên quan: sản phẩm mới nhất lên trước
+            comparator = Comparator.comparingLong(document -> document.id);
+            sortDir = "desc";
+        }
+
+        FacetQuery query = new FacetQuery();
+        query.categoryId = categoryId;
+        query.storeId = storeId;
+        query.minPrice = minPrice;
+        query.maxPrice = maxPrice;
+        query.inStock = inStock;
+        FacetResult facets = index.facet(scores == null ? null : scores.keySet(), query);
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("productIds", sortAndPage(facets.matches, comparator, scores, sortDir, page, size));
+        result.put("totalElements", facets.matches.size());
+        result.put("facets", toFacetMap(facets));
+        return result;
+    }
+
+    private List<Long> sortAndPage(List<IndexedProduct> matches, Comparator<IndexedProduct> comparator,
+            Map<Long, Double> scores, String sortDir, int page, int size) {
+        if (comparator == null) {
+            // Không có sortBy hoặc relevance (facetedSearch: cả field ngoài index) và có từ khoá: xếp theo BM25
+            comparator = Comparator.comparingDouble((IndexedProduct document) -> scores.get(document.id)).reversed();
+        } else if ("desc".equalsIgnoreCase(sortDir)) {
+            comparator = comparator.reversed();
+        }
+        matches.sort(comparator.thenComparing(document -> document.id));
+
+        int from = Math.max(page, 0) * size;
+        List<Long> ids = new ArrayList<>();
+        for (int i = from; i < Math.min(from + size, matches.size()); i++) {
+            ids.add(matches.get(i).id);
+        }
+        return ids;
+    }
+
+    private Map<String, Object> toFacetMap(FacetResult facets) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("categories", toGroupList(facets.categoryCounts, facets.categoryNames));
+        result.put("stores", toGroupList(facets.storeCounts, facets.storeNames));
+
+        List<Map<String, Object>> priceRanges = new ArrayList<>();
+        for (int i = 0; i < facets.priceCounts.length; i++) {
+            Map<String, Object> range = new LinkedHashMap<>();
+            Double from = i == 0 ? null : PRICE_BUCKET_BOUNDS[i - 1];
+            Double to = i < PRICE_BUCKET_BOUNDS.length ? PRICE_BUCKET_BOUNDS[i] : null;
+            range.put("key", (from == null ? "*" : String.valueOf(from.longValue())) + "-"
+                    + (to == null ? "*" : String.valueOf(to.longValue())));
+            range.put("from", from);
+            range.put("to", to);
+            range.put("count", facets.priceCounts[i]);
+            priceRanges.add(range);
+        }
+        result.put("priceRanges", priceRanges);
+
+        Map<String, Object> stock = new LinkedHashMap<>();
+        stock.put("inStock", facets.inStockCount);
+        stock.put("outOfStock", facets.outOfStockCount);
+        result.put("stock", stock);
+        return result;
+    }
+
+    private List<Map<String, Object>> toGroupList(Map<Long, Integer> counts, Map<Long, String> names) {
+        List<Map<String, Object>> groups = new ArrayList<>();
+        counts.entrySet().stream()
+                .sorted(Map.Entry.<Long, Integer>comparingByValue().reversed()
+                        .thenComparing(Map.Entry.comparingByKey()))
+                .forEach(entry -> {
+                    Map<String, Object> group = new LinkedHashMap<>();
+                    group.put("id", entry.getKey());
+                    group.put("name", names.get(entry.getKey()));
+                    group.put("count", entry.getValue());
+                    groups.add(group);
+                });
+        return groups;
+    }
+
+    @Override
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        InvertedIndex current = index;
+        stats.put("ready", ready);
+        stats.put("rebuilding", rebuilding.get());
+        stats.put("documents", current.size());
+        stats.put("terms", current.termCount());
+        stats.put("lastRebuildMillis", lastRebuildMillis);
+        stats.put("lastRebuildDurationMillis", lastRebuildDurationMillis);
+        return stats;
+    }
+
+    private Comparator<IndexedProduct> comparatorFor(String sortBy) {
+        if (sortBy == null || sortBy.isEmpty() || "relevance".equals(sortBy)) {
+            return null;
+        }
+        switch (sortBy) {
+            case "name":
+                return Comparator.comparing(document -> document.sortName);
+            case "price":
+                return Comparator.comparingDouble(document -> document.price);
+            case "quantity":
+                return Comparator.comparingInt(document -> document.quantity);
+            case "id":
+                return Comparator.comparingLong(document -> document.id);
+            default:
+                return null;
+        }
+    }
+
+    private List<String> queryTokens(String keyword) {
+        return new ArrayList<>(new LinkedHashSet<>(TextNormalizer.tokenize(keyword)));
+    }
+
+    private IndexedProduct toDocument(Product product) {
+        Map<String, Integer> termFreqs = new HashMap<>();
+        addTerms(termFreqs, product.getName(), NAME_WEIGHT);
+        addTerms(termFreqs, product.getDescription(), DESCRIPTION_WEIGHT);
+        if (product.getCategory() != null) {
+            addTerms(termFreqs, product.getCategory().getName(), CATEGORY_WEIGHT);
+        }
+        if (product.getStore() != null) {
+            addTerms(termFreqs, product.getStore().getName(), STORE_WEIGHT);
+        }
+        IndexedProduct document = new IndexedProduct();
+        document.id = product.getId();
+        document.sortName = TextNormalizer.fold(product.getName());
+        if (product.getCategory() != null) {
+            document.categoryId = product.getCategory().getId();
+            document.categoryName = product.getCategory().getName();
+        }
+        if (product.getStore() != null) {
+            document.storeId = product.getStore().getId();
+            document.storeName = product.getStore().getName();
+        }
+        document.price = product.getPrice();
+        document.quantity = product.getQuantity();
+        document.termFreqs = termFreqs;
+        document.length = termFreqs.values().stream().mapToInt(Integer::intValue).sum();
+        return document;
+    }
+
+    private void addTerms(Map<String, Integer> termFreqs, String text, int weight) {
+        for (String token : TextNormalizer.tokenize(text)) {
+            termFreqs.merge(token, weight, Integer::sum);
+        }
+    }
+
+    private TransactionTemplate readOnlyTransaction() {
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        template.setReadOnly(true);
+        return template;
+    }
+
+    static final class IndexedProduct {
+        long id;
+        String sortName;
+        Long categoryId;
+        String categoryName;
+        Long storeId;
+        String storeName;
+        double price;
+        int quantity;
+        Map<String, Integer> termFreqs;
+        int length;
+        // Vị trí bit của sản phẩm trong các bitset facet, do InvertedIndex cấp
+        int ordinal;
+    }
+
+    interface DocumentFilter {
+        boolean accept(IndexedProduct document);
+    }
+
+    static final class FacetQuery {
+        Long categoryId;
+        Long storeId;
+        Double minPrice;
+        Double maxPrice;
+        Boolean inStock;
+    }
+
+    static final class FacetResult {
+        List<IndexedProduct> matches = new ArrayList<>();
+        Map<Long, Integer> categoryCounts = new HashMap<>();
+        Map<Long, Integer> storeCounts = new HashMap<>();
+        Map<Long, String> categoryNames = new HashMap<>();
+        Map<Long, String> storeNames = new HashMap<>();
+        int[] priceCounts = new int[PRICE_BUCKET_BOUNDS.length + 1];
+        int inStockCount;
+        int outOfStockCount;
+    }
+
+    static final class InvertedIndex {
+        private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        private final Map<Long, IndexedProduct> documents = new HashMap<>();
+        // term -> (productId -> tần suất có trọng số); TreeMap để duyệt theo tiền tố
+        private final NavigableMap<String, Map<Long, Integer>> postings = new TreeMap<>();
+        private long totalLength;
+
+        // Facet dạng bitset: bit thứ i ứng với sản phẩm có ordinal i; ordinal của sản phẩm
+        // bị xoá được dùng lại để các bitset không phình ra theo thời gian
+        private final List<IndexedProduct> byOrdinal = new ArrayList<>();
+        private final Deque<Integer> freeOrdinals = new ArrayDeque<>();
+        private final BitSet liveBits = new BitSet();
+        private final BitSet inStockBits = new BitSet();
+        private final BitSet[] priceBits = new BitSet[PRICE_BUCKET_BOUNDS.length + 1];
+        private final Map<Long, BitSet> categoryBits = new HashMap<>();
+        private final Map<Long, BitSet> storeBits = new HashMap<>();
+        private final Map<Long, String> categoryNames = new HashMap<>();
+        private final Map<Long, String> storeNames = new HashMap<>();
+
+        InvertedIndex() {
+            for (int i = 0; i < priceBits.length; i++) {
+                priceBits[i] = new BitSet();
+            }
+        }
+
+        void put(IndexedProduct document) {
+            lock.writeLock().lock();
+            try {
+                removeInternal(document.id);
+                documents.put(document.id, document);
+                totalLength += document.length;
+                document.termFreqs.forEach((term, tf) ->
+                        postings.computeIfAbsent(term, key -> new HashMap<>()).put(document.id, tf));
+                addFacets(document);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        void remove(long id) {
+            lock.writeLock().lock();
+            try {
+                removeInternal(id);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        private void removeInternal(long id) {
+            IndexedProduct previous = documents.remove(id);
+            if (previous == null) {
+                return;
+            }
+            totalLength -= previous.length;
+            for (String term : previous.termFreqs.keySet()) {
+                Map<Long, Integer> posting = postings.get(term);
+                if (posting != null) {
+                    posting.remove(id);
+                    if (posting.isEmpty()) {
+                        postings.remove(term);
+                    }
+                }
+            }
+            removeFacets(previous);
+        }
+
+        private void addFacets(IndexedProduct document) {
+            int ordinal;
+            if (freeOrdinals.isEmpty()) {
+                ordinal = byOrdinal.size();
+                byOrdinal.add(document);
+            } else {
+                ordinal = freeOrdinals.pop();
+                byOrdinal.set(ordinal, document);
+            }
+            document.ordinal = ordinal;
+            liveBits.set(ordinal);
+            inStockBits.set(ordinal, document.quantity > 0);
+            priceBits[priceBucket(document.price)].set(ordinal);
+            if (document.categoryId != null) {
+                categoryBits.computeIfAbsent(document.categoryId, key -> new BitSet()).set(ordinal);
+                if (document.categoryName != null) {
+                    categoryNames.put(document.categoryId, document.categoryName);
+                }
+            }
+            if (document.storeId != null) {
+                storeBits.computeIfAbsent(document.storeId, key -> new BitSet()).set(ordinal);
+                if (document.storeName != null) {
+                    storeNames.put(document.storeId, document.storeName);
+                }
+            }
+        }
+
+        private void removeFacets(IndexedProduct document) {
+            int ordinal = document.ordinal;
+            liveBits.clear(ordinal);
+            inStockBits.clear(ordinal);
+            priceBits[priceBucket(document.price)].clear(ordinal);
+            clearGroupBit(categoryBits, categoryNames, document.categoryId, ordinal);
+            clearGroupBit(storeBits, storeNames, document.storeId, ordinal);
+            byOrdinal.set(ordinal, null);
+            freeOrdinals.push(ordinal);
+        }
+
+        private void clearGroupBit(Map<Long, BitSet> groups, Map<Long, String> names, Long groupId, int ordinal) {
+            if (groupId == null) {
+                return;
+            }
+            BitSet bits = groups.get(groupId);
+            if (bits != null) {
+                bits.clear(ordinal);
+                if (bits.isEmpty()) {
+                    groups.remove(groupId);
+                    names.remove(groupId);
+                }
+            }
+        }
+
+        private static int priceBucket(double price) {
+            for (int i = 0; i < PRICE_BUCKET_BOUNDS.length; i++) {
+                if (price < PRICE_BUCKET_BOUNDS[i]) {
+                    return i;
+                }
+            }
+            return PRICE_BUCKET_BOUNDS.length;
+        }
+
+        int size() {
+            lock.readLock().lock();
+            try {
+                return documents.size();
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        int termCount() {
+            lock.readLock().lock();
+            try {
+                return postings.size();
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        /**
+         * Tính điểm BM25 cho các sản phẩm chứa tất cả các token (mỗi token khớp nguyên từ
+         * hoặc tiền tố của một term).
+         */
+        Map<Long, Double> score(List<String> tokens) {
+            lock.readLock().lock();
+            try {
+                int documentCount = documents.size();
+                if (documentCount == 0) {
+                    return new HashMap<>();
+                }
+                double averageLength = (double) totalLength / documentCount;
+
+                List<Map<Long, Double>> perToken = new ArrayList<>(tokens.size());
+                for (String token : tokens) {
+                    Map<Long, Double> tokenScores = new HashMap<>();
+                    int expansions = 0;
+                    for (Map.Entry<String, Map<Long, Integer>> entry
+                            : postings.tailMap(token, true).entrySet()) {
+                        String term = entry.getKey();
+                        if (!term.startsWith(token) || expansions++ >= MAX_PREFIX_EXPANSIONS) {
+                            break;
+                        }
+                        double factor = term.equals(token) ? 1.0 : PREFIX_MATCH_FACTOR;
+                        Map<Long, Integer> posting = entry.getValue();
+                        double idf = Math.log(1 + (documentCount - posting.size() + 0.5) / (posting.size() + 0.5));
+                        posting.forEach((id, tf) -> {
+                            double norm = K1 * (1 - B + B * documents.get(id).length / averageLength);
+                            double termScore = factor * idf * (tf * (K1 + 1)) / (tf + norm);
+                            tokenScores.merge(id, termScore, Math::max);
+                        });
+                    }
+                    if (tokenScores.isEmpty()) {
+                        return new HashMap<>();
+                    }
+                    perToken.add(tokenScores);
+                }
+
+                // Giao các tập kết quả, bắt đầu từ token ít kết quả nhất
+                perToken.sort(Comparator.comparingInt(Map::size));
+                Map<Long, Double> result = new HashMap<>(perToken.get(0));
+                for (int i = 1; i < perToken.size() && !result.isEmpty(); i++) {
+                    Map<Long, Double> next = perToken.get(i);
+                    result.keySet().retainAll(next.keySet());
+                    result.replaceAll((id, value) -> value + next.get(id));
+                }
+                return result;
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        List<IndexedProduct> select(Set<Long> candidateIds, DocumentFilter filter) {
+            lock.readLock().lock();
+            try {
+                List<IndexedProduct> selected = new ArrayList<>();
+                if (candidateIds == null) {
+                    for (IndexedProduct document : documents.values()) {
+                        if (filter.accept(document)) {
+                            selected.add(document);
+                        }
+                    }
+                } else {
+                    for (Long id : candidateIds) {
+                        IndexedProduct document = documents.get(id);
+                        if (document != null && filter.accept(document)) {
+                            selected.add(document);
+                        }
+                    }
+                }
+                return selected;
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        /**
+         * Lọc sản phẩm theo các điều kiện và đếm số lượng cho từng giá trị facet. Số lượng của một
+         * facet được tính với mọi điều kiện trừ điều kiện của chính facet đó, để giao diện hiển thị
+         * được số sản phẩm khi đổi sang giá trị khác (ví dụ danh mục khác) thay vì chỉ toàn 0.
+         */
+        FacetResult facet(Set<Long> candidateIds, FacetQuery query) {
+            lock.readLock().lock();
+            try {
+                BitSet base;
+                if (candidateIds == null) {
+                    base = (BitSet) liveBits.clone();
+                } else {
+                    base = new BitSet();
+                    for (Long id : candidateIds) {
+                        IndexedProduct document = documents.get(id);
+                        if (document != null) {
+                            base.set(document.ordinal);
+                        }
+                    }
+                }
+
+                BitSet category = query.categoryId == null ? null
+                        : categoryBits.getOrDefault(query.categoryId, new BitSet());
+                BitSet store = query.storeId == null ? null
+                        : storeBits.getOrDefault(query.storeId, new BitSet());
+                BitSet price = null;
+                if (query.minPrice != null || query.maxPrice != null) {
+                    price = new BitSet();
+                    for (int i = base.nextSetBit(0); i >= 0; i = base.nextSetBit(i + 1)) {
+                        double value = byOrdinal.get(i).price;
+                        if ((query.minPrice == null || value >= query.minPrice)
+                                && (query.maxPrice == null || value <= query.maxPrice)) {
+                            price.set(i);
+                        }
+                    }
+                }
+
+                FacetResult result = new FacetResult();
+                BitSet matched = restrict(base, category, store, price, query.inStock);
+                for (int i = matched.nextSetBit(0); i >= 0; i = matched.nextSetBit(i + 1)) {
+                    result.matches.add(byOrdinal.get(i));
+                }
+
+                BitSet forCategories = restrict(base, null, store, price, query.inStock);
+                categoryBits.forEach((id, bits) -> {
+                    int count = intersectionCount(bits, forCategories);
+                    if (count > 0) {
+                        result.categoryCounts.put(id, count);
+                        result.categoryNames.put(id, categoryNames.get(id));
+                    }
+                });
+
+                BitSet forStores = restrict(base, category, null, price, query.inStock);
+                storeBits.forEach((id, bits) -> {
+                    int count = intersectionCount(bits, forStores);
+                    if (count > 0) {
+                        result.storeCounts.put(id, count);
+                        result.storeNames.put(id, storeNames.get(id));
+                    }
+                });
+
+                BitSet forPrices = restrict(base, category, store, null, query.inStock);
+                for (int i = 0; i < priceBits.length; i++) {
+                    result.priceCounts[i] = intersectionCount(priceBits[i], forPrices);
+                }
+
+                BitSet forStock = restrict(base, category, store, price, null);
+                result.inStockCount = intersectionCount(inStockBits, forStock);
+                result.outOfStockCount = forStock.cardinality() - result.inStockCount;
+                return result;
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        private BitSet restrict(BitSet base, BitSet category, BitSet store, BitSet price, Boolean inStock) {
+            BitSet bits = (BitSet) base.clone();
+            if (category != null) {
+                bits.and(category);
+            }
+            if (store != null) {
+                bits.and(store);
+            }
+            if (price != null) {
+                bits.and(price);
+            }
+            if (Boolean.TRUE.equals(inStock)) {
+                bits.and(inStockBits);
+            } else if (Boolean.FALSE.equals(inStock)) {
+                bits.andNot(inStockBits);
+            }
+            return bits;
+        }
+
+        // Duyệt các bit của facet thay vì clone + and: tổng chi phí cho mọi giá trị của một facet là O(số sản phẩm)
+        private static int intersectionCount(BitSet facet, BitSet filter) {
+            int count = 0;
+            for (int i = facet.nextSetBit(0); i >= 0; i = facet.nextSetBit(i + 1)) {
+                if (filter.get(i)) {
+                    count++;
+                }
+            }
+            return count;
+        }
+    }
+}
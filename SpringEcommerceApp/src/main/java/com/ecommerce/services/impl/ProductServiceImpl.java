@@ -5,6 +5,9 @@ import com.ecommerce.pojo.Product;
 import com.ecommerce.pojo.ReviewProduct;
 import com.ecommerce.repositories.ProductRepository;
 import com.ecommerce.repositories.OrderDetailRepository;
+import com.ecommerce.services.AutocompleteService;
+import com.ecommerce.services.HotStockService;
+import com.ecommerce.services.ProductSearchService;
 import com.ecommerce.services.ProductService;
 import com.ecommerce.services.ReviewProductService;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -16,6 +19,8 @@ import com.cloudinary.Cloudinary;
 import com.cloudinary.utils.ObjectUtils;
 
 import java.io.IOException;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
@@ -24,6 +29,8 @@ import java.util.stream.Collectors;
 @Service
 @Transactional
 public class ProductServiceImpl implements ProductService {
+    // Số kết quả tối đa khi tìm kiếm qua index
+    private static final int MAX_SEARCH_RESULTS = 500;
 
     @Autowired
     private ProductRepository productRepository;
@@ -37,18 +44,32 @@ public class ProductServiceImpl implements ProductService {
     @Autowired
     private ReviewProductService reviewProductService;
 
+    @Autowired
+    private ProductSearchService productSearchService;
+
+    @Autowired
+    private AutocompleteService autocompleteService;
+
+    @Autowired
+    private HotStockService hotStockService;
+
     
 
 
     @Override
     public Product save(Product product) {
         productRepository.save(product);
+        productSearchService.indexProduct(product.getId());
+        autocompleteService.indexProduct(product.getId());
         return product;
     }
 
     @Override
     public Product update(Product product) {
+        hotStockService.onStockEdited(product.getId(), product.getQuantity());
         productRepository.update(product);
+        productSearchService.indexProduct(product.getId());
+        autocompleteService.indexProduct(product.getId());
         return product;
     }
 
@@ -59,6 +80,8 @@ public class ProductServiceImpl implements ProductService {
             throw new IllegalStateException("Sản phẩm đã phát sinh đơn hàng, không thể xóa. Vui lòng ngừng bán.");
         }
         productRepository.delete(id);
+        productSearchService.removeProduct(id);
+        autocompleteService.removeProduct(id);
     }
 
     @Override
@@ -66,13 +89,35 @@ public class ProductServiceImpl implements ProductService {
         return productRepository.findById(id);
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public Map<Long, Product> findAllByIds(Collection<Long> ids) {
+        return productRepository.findAllByIds(ids);
+    }
+
     @Override
     public List<Product> findAll() {
         return productRepository.findAll();
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public List<Product> findByFilters(String keyword, Long categoryId, Boolean active, Long afterId,
+            int page, int size) {
+        return productRepository.findByFilters(keyword, categoryId, active, afterId, page, size);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public long countByFilters(String keyword, Long categoryId, Boolean active) {
+        return productRepository.countByFilters(keyword, categoryId, active);
+    }
+
     @Override
     public List<Product> findByName(String name) {
+        if (productSearchService.isReady()) {
+            return productRepository.findByIds(productSearchService.search(name, MAX_SEARCH_RESULTS));
+        }
         return productRepository.findByName(name);
     }
 
@@ -88,13 +133,49 @@ public class ProductServiceImpl implements ProductService {
 
     @Override
     public List<Product> search(String keyword) {
+        if (productSearchService.isReady()) {
+            return productRepository.findByIds(productSearchService.search(keyword, MAX_SEARCH_RESULTS));
+        }
         return productRepository.search(keyword);
     }
 
     @Override
     public List<Product> searchAdvanced(String name, Long storeId, Double minPrice, Double maxPrice,
                                         String sortBy, String sortDir, int page, int size) {
+        List<Long> ids = productSearchService.searchAdvanced(name, storeId, minPrice, maxPrice, sortBy, sortDir,
+                page, size);
+        if (ids != null) {
+            return productRepository.findByIds(ids);
+        }
         return productRepository.searchAdvanced(name, storeId, minPrice, maxPrice, sortBy, sortDir, page, size);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Map<String, Object> searchWithFacets(String name, Long categoryId, Long storeId, Double minPrice,
+            Double maxPrice, Boolean inStock, String sortBy, String sortDir, int page, int size) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        Map<String, Object> indexed = productSearchService.facetedSearch(name, categoryId, storeId, minPrice,
+                maxPrice, inStock, sortBy, sortDir, page, size);
+        if (indexed != null) {
+            @SuppressWarnings("unchecked")
+            List<Long> ids = (List<Long>) indexed.get("productIds");
+            result.put("products", productRepository.findByIds(ids));
+            result.put("totalElements", indexed.get("totalElements"));
+            result.put("facets", indexed.get("facets"));
+            result.put("facetsAvailable", true);
+        } else {
+            // Index đang nạp lúc khởi động: lọc và đếm bằng SQL, không có facet
+            result.put("products", productRepository.searchWithFilters(name, categoryId, storeId, minPrice,
+                    maxPrice, inStock, sortBy, sortDir, page, size));
+            result.put("totalElements", productRepository.countWithFilters(name, categoryId, storeId, minPrice,
+                    maxPrice, inStock));
+            result.put("facets", Map.of());
+            result.put("facetsAvailable", false);
+        }
+        result.put("page", page);
+        result.put("size", size);
+        return result;
     }    @Override
     public List<Product> findByStoreId(Long storeId) {
         return productRepository.findByStoreId(storeId);
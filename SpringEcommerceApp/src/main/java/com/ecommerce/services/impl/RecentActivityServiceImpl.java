@@ -2,29 +2,136 @@ package com.ecommerce.services.impl;
 
 import com.ecommerce.pojo.RecentActivity;
 import com.ecommerce.repositories.RecentActivityRepository;
+import com.ecommerce.services.ActivityLogWriter;
 import com.ecommerce.services.RecentActivityService;
+import com.ecommerce.utils.TransactionUtils;
+import org.hibernate.SessionFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.scheduling.annotation.Async;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+/**
+ * Với MySQL bảng recent_activity được chia partition theo ngày (tạo trước partition-days-ahead ngày),
+ * truy vấn theo khoảng thời gian chỉ đọc các partition liên quan và dọn dữ liệu cũ là xoá cả partition.
+ * Việc chuyển bảng sang partition do admin chạy (partitionTable); bảo trì tự động chỉ thêm và xoá partition.
+ */
 @Service
 @Transactional
 public class RecentActivityServiceImpl implements RecentActivityService {
+  private static final Logger logger = LoggerFactory.getLogger(RecentActivityServiceImpl.class);
 
   @Autowired
   private RecentActivityRepository recentActivityRepository;
 
+  @Autowired
+  private ActivityLogWriter activityLogWriter;
+
+  @Autowired
+  private SessionFactory sessionFactory;
+
+  @Value("${app.activity.retention-days:90}")
+  private int retentionDays;
+
+  @Value("${app.activity.partition-days-ahead:7}")
+  private int partitionDaysAhead;
+
+  // Lượt bảo trì lúc khởi động, lượt định kỳ và lượt chuyển bảng của admin không chạy chồng lên nhau
+  private final AtomicBoolean maintaining = new AtomicBoolean(false);
+  private final AtomicBoolean unpartitionedWarned = new AtomicBoolean(false);
+
+  @EventListener(ApplicationReadyEvent.class)
+  @Transactional(propagation = Propagation.NOT_SUPPORTED)
+  public void maintainPartitionsOnStartup() {
+    // REORGANIZE/DROP PARTITION chỉ đụng tới partition pmax và các partition cũ, chạy nền để không chặn khởi động
+    Thread maintenanceThread = new Thread(this::maintainPartitions, "activity-partition-maintenance");
+    maintenanceThread.setDaemon(true);
+    maintenanceThread.start();
+  }
+
+  @Scheduled(initialDelayString = "${app.activity.maintenance-interval-ms:3600000}",
+      fixedDelayString = "${app.activity.maintenance-interval-ms:3600000}")
+  @Transactional(propagation = Propagation.NOT_SUPPORTED)
+  public void maintainPartitions() {
+    if (!maintaining.compareAndSet(false, true)) {
+      return;
+    }
+    try {
+      if (!recentActivityRepository.supportsPartitions()) {
+        cleanupOldActivities(retentionDays);
+        return;
+      }
+      LocalDate today = LocalDate.now();
+      LocalDate lastDay = today.plusDays(Math.max(partitionDaysAhead, 1));
+      List<LocalDate> days = partitionDays(recentActivityRepository.findPartitionNames());
+      if (days.isEmpty()) {
+        // Chưa chuyển sang partition: dọn dữ liệu cũ bằng DELETE như trước
+        if (unpartitionedWarned.compareAndSet(false, true)) {
+          logger.warn("recent_activity is not partitioned; run POST /api/admin/activity/partition "
+              + "during a maintenance window to enable daily partitions");
+        }
+      } else {
+        LocalDate latest = days.get(days.size() - 1);
+        List<LocalDate> newDays = new ArrayList<>();
+        for (LocalDate day = latest.plusDays(1); !day.isAfter(lastDay); day = day.plusDays(1)) {
+          newDays.add(day);
+        }
+        recentActivityRepository.addDayPartitions(newDays);
+      }
+      cleanupOldActivities(retentionDays);
+    } catch (Exception e) {
+      logger.error("Recent activity partition maintenance failed: {}", e.getMessage(), e);
+    } finally {
+      maintaining.set(false);
+    }
+  }
+
+  @Override
+  @Transactional(propagation = Propagation.NOT_SUPPORTED)
+  public boolean partitionTable() {
+    if (!maintaining.compareAndSet(false, true)) {
+      return false;
+    }
+    try {
+      if (!recentActivityRepository.supportsPartitions()
+          || !recentActivityRepository.findPartitionNames().isEmpty()) {
+        return false;
+      }
+      LocalDate today = LocalDate.now();
+      logger.info("Partitioning recent_activity by day");
+      long start = System.currentTimeMillis();
+      recentActivityRepository.partitionByDay(today.minusDays(retentionDays),
+          today.plusDays(Math.max(partitionDaysAhead, 1)));
+      logger.info("Partitioned recent_activity in {} ms", System.currentTimeMillis() - start);
+      return true;
+    } finally {
+      maintaining.set(false);
+    }
+  }
+
   @Override
   public RecentActivity saveActivity(RecentActivity activity) {
-    return recentActivityRepository.save(activity);
+    RecentActivity saved = recentActivityRepository.save(activity);
+    TransactionUtils.runAfterCommit(() -> activityLogWriter.recordSaved(saved));
+    return saved;
   }
 
   @Override
-  @Async
+  @Transactional(propagation = Propagation.SUPPORTS)
   public RecentActivity logActivity(String activityType, String description, String userEmail,
       String userName, Long entityId, String entityType, String ipAddress) {
     RecentActivity activity = new RecentActivity();
@@ -36,7 +143,9 @@ public class RecentActivityServiceImpl implements RecentActivityService {
     activity.setEntityType(entityType);
     activity.setIpAddress(ipAddress);
 
-    return saveActivity(activity);
+    // Chỉ đưa vào hàng đợi, ActivityLogWriter ghi xuống database theo lô
+    activityLogWriter.enqueue(activity);
+    return activity;
   }
 
   @Override
@@ -71,20 +180,42 @@ public class RecentActivityServiceImpl implements RecentActivityService {
   }
 
   @Override
-  @Transactional(readOnly = true)
+  @Transactional(propagation = Propagation.SUPPORTS)
   public Long getTodayActivitiesCount() {
-    return recentActivityRepository.countTodayActivities();
+    return activityLogWriter.getTodayCount();
   }
 
+  // Khi đã chia partition chỉ xoá các ngày nằm trọn trước mốc cắt, phần lẻ của ngày mốc được xoá ở lượt sau
   @Override
-  @Transactional
+  @Transactional(propagation = Propagation.NOT_SUPPORTED)
   public void cleanupOldActivities(int daysToKeep) {
     LocalDateTime cutoffDate = LocalDateTime.now().minusDays(daysToKeep);
-    recentActivityRepository.deleteOldActivities(cutoffDate);
+    if (!recentActivityRepository.supportsPartitions()) {
+      recentActivityRepository.deleteOldActivities(cutoffDate);
+      return;
+    }
+    List<String> names = recentActivityRepository.findPartitionNames();
+    if (names.isEmpty()) {
+      recentActivityRepository.deleteOldActivities(cutoffDate);
+      return;
+    }
+    List<String> expired = new ArrayList<>();
+    for (String name : names) {
+      LocalDate day = parsePartitionDay(name);
+      if (day != null && !day.plusDays(1).isAfter(cutoffDate.toLocalDate())) {
+        expired.add(name);
+      }
+    }
+    if (!expired.isEmpty()) {
+      recentActivityRepository.dropPartitions(expired);
+      // Xoá partition không đi qua Hibernate nên phải tự xoá second-level cache
+      sessionFactory.getCache().evictEntityData(RecentActivity.class);
+      logger.info("Dropped {} recent_activity partitions older than {}", expired.size(), cutoffDate.toLocalDate());
+    }
   }
 
   @Override
-  @Async
+  @Transactional(propagation = Propagation.SUPPORTS)
   public void logUserLogin(String userEmail, String userName, String ipAddress) {
     logActivity("LOGIN",
         String.format("%s đã đăng nhập vào hệ thống", userName != null ? userName : userEmail),
@@ -92,7 +223,7 @@ public class RecentActivityServiceImpl implements RecentActivityService {
   }
 
   @Override
-  @Async
+  @Transactional(propagation = Propagation.SUPPORTS)
   public void logUserLogout(String userEmail, String userName, String ipAddress) {
     logActivity("LOGOUT",
         String.format("%s đã đăng xuất khỏi hệ thống", userName != null ? userName : userEmail),
@@ -100,7 +231,7 @@ public class RecentActivityServiceImpl implements RecentActivityService {
   }
 
   @Override
-  @Async
+  @Transactional(propagation = Propagation.SUPPORTS)
   public void logUserRegistration(String userEmail, String userName, String ipAddress) {
     logActivity("USER_REGISTERED",
         String.format("Người dùng mới %s đã đăng ký tài khoản", userName != null ? userName : userEmail),
@@ -108,7 +239,7 @@ public class RecentActivityServiceImpl implements RecentActivityService {
   }
 
   @Override
-  @Async
+  @Transactional(propagation = Propagation.SUPPORTS)
   public void logOrderCreated(String userEmail, String userName, Long orderId, String ipAddress) {
     logActivity("ORDER_CREATED",
         String.format("%s đã tạo đơn hàng #%d", userName != null ? userName : userEmail, orderId),
@@ -116,7 +247,7 @@ public class RecentActivityServiceImpl implements RecentActivityService {
   }
 
   @Override
-  @Async
+  @Transactional(propagation = Propagation.SUPPORTS)
   public void logOrderStatusChanged(String userEmail, String userName, Long orderId, String newStatus,
       String ipAddress) {
     logActivity("ORDER_STATUS_CHANGED",
@@ -125,7 +256,7 @@ public class RecentActivityServiceImpl implements RecentActivityService {
   }
 
   @Override
-  @Async
+  @Transactional(propagation = Propagation.SUPPORTS)
   public void logProductAdded(String adminEmail, String adminName, Long productId, String productName,
       String ipAddress) {
     logActivity("PRODUCT_ADDED",
@@ -134,7 +265,7 @@ public class RecentActivityServiceImpl implements RecentActivityService {
   }
 
   @Override
-  @Async
+  @Transactional(propagation = Propagation.SUPPORTS)
   public void logProductUpdated(String adminEmail, String adminName, Long productId, String productName,
       String ipAddress) {
     logActivity("PRODUCT_UPDATED",
@@ -143,11 +274,35 @@ public class RecentActivityServiceImpl implements RecentActivityService {
   }
 
   @Override
-  @Async
+  @Transactional(propagation = Propagation.SUPPORTS)
   public void logProductDeleted(String adminEmail, String adminName, Long productId, String productName,
       String ipAddress) {
     logActivity("PRODUCT_DELETED",
         String.format("Admin %s đã xóa sản phẩm: %s", adminName != null ? adminName : adminEmail, productName),
         adminEmail, adminName, productId, "PRODUCT", ipAddress);
   }
+
+  private static List<LocalDate> partitionDays(List<String> names) {
+    List<LocalDate> days = new ArrayList<>();
+    for (String name : names) {
+      LocalDate day = parsePartitionDay(name);
+      if (day != null) {
+        days.add(day);
+      }
+    }
+    days.sort(null);
+    return days;
+  }
+
+  // null với pmax hoặc partition không theo tên pYYYYMMDD
+  private static LocalDate parsePartitionDay(String name) {
+    if (name == null || name.length() != 9 || name.charAt(0) != 'p') {
+      return null;
+    }
+    try {
+      return LocalDate.parse(name.substring(1), DateTimeFormatter.BASIC_ISO_DATE);
+    } catch (DateTimeParseException e) {
+      return null;
+    }
+  }
 }
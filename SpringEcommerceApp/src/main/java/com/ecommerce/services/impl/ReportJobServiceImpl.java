@@ -0,0 +1,281 @@
+package com.ecommerce.services.impl;
+
+import com.ecommerce.services.ReportJobService;
+import com.ecommerce.services.ReportService;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Báo cáo chạy trên một pool luồng riêng có giới hạn (hàng đợi đầy thì từ chối), không chiếm
+ * luồng xử lý request. Kết quả ghi ra file trong thư mục tạm, giữ trong result-ttl-ms rồi xoá.
+ * Trạng thái job chỉ nằm trong bộ nhớ nên file của lần chạy trước bị dọn khi khởi động.
+ */
+@Service
+public class ReportJobServiceImpl implements ReportJobService {
+    private static final Logger logger = LoggerFactory.getLogger(ReportJobServiceImpl.class);
+
+    private static final String FILE_PREFIX = "report-";
+    private static final Map<String, Integer> STAGE_PROGRESS = Map.of(
+            STAGE_QUEUED, 0, STAGE_GENERATING, 10, STAGE_WRITING, 80, STAGE_DONE, 100);
+
+    @Autowired
+    private ReportService reportService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${app.reports.workers:2}")
+    private int workers;
+
+    @Value("${app.reports.queue-capacity:20}")
+    private int queueCapacity;
+
+    @Value("${app.reports.result-ttl-ms:3600000}")
+    private long resultTtlMs;
+
+    @Value("${app.reports.store-dir:${java.io.tmpdir}/ecommerce-reports}")
+    private String storeDir;
+
+    private final Map<String, ReportJob> jobs = new ConcurrentHashMap<>();
+    // Khoá yêu cầu -> job đang chờ/đang chạy, để gộp các yêu cầu giống nhau
+    private final Map<String, ReportJob> inFlight = new ConcurrentHashMap<>();
+
+    private Path storePath;
+    private ThreadPoolExecutor executor;
+
+    @PostConstruct
+    public void init() throws IOException {
+        storePath = Paths.get(storeDir);
+        Files.createDirectories(storePath);
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(storePath, FILE_PREFIX + "*")) {
+            for (Path file : files) {
+                Files.deleteIfExists(file);
+            }
+        }
+        AtomicInteger threadCount = new AtomicInteger();
+        executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "report-job-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Override
+    public Map<String, Object> submit(String format, String reportType, String periodType, Date fromDate,
+            Date toDate) {
+        String key = String.join("|", format, reportType, periodType, formatDay(fromDate), formatDay(toDate));
+        ReportJob job = inFlight.computeIfAbsent(key, requestKey -> {
+            ReportJob created = new ReportJob(UUID.randomUUID().toString(), requestKey, format, reportType,
+                    periodType, fromDate, toDate);
+            jobs.put(created.id, created);
+            try {
+                executor.execute(() -> run(created));
+            } catch (RejectedExecutionException e) {
+                jobs.remove(created.id);
+                throw new IllegalStateException("Hệ thống đang tạo quá nhiều báo cáo, vui lòng thử lại sau");
+            }
+            return created;
+        });
+        return toStatus(job);
+    }
+
+    @Override
+    public Map<String, Object> getStatus(String jobId) {
+        ReportJob job = findJob(jobId);
+        return job != null ? toStatus(job) : null;
+    }
+
+    @Override
+    public Map<String, Object> await(String jobId, long timeoutMs) {
+        ReportJob job = findJob(jobId);
+        if (job == null) {
+            return null;
+        }
+        try {
+            job.done.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException | ExecutionException e) {
+            // Chưa xong, trả về tiến độ hiện tại
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return toStatus(job);
+    }
+
+    @Override
+    public Map<String, Object> getReportData(String jobId) throws IOException {
+        ReportJob job = findJob(jobId);
+        if (job == null || !STATUS_DONE.equals(job.status) || !FORMAT_DATA.equals(job.format)) {
+            return null;
+        }
+        return objectMapper.readValue(job.resultFile.toFile(), new TypeReference<Map<String, Object>>() {
+        });
+    }
+
+    @Override
+    public Path getResultFile(String jobId) {
+        ReportJob job = findJob(jobId);
+        return job != null && STATUS_DONE.equals(job.status) ? job.resultFile : null;
+    }
+
+    @Scheduled(fixedDelayString = "${app.reports.cleanup-interval-ms:300000}")
+    public void purgeExpired() {
+        for (ReportJob job : jobs.values()) {
+            if (isExpired(job)) {
+                jobs.remove(job.id);
+                deleteQuietly(job.resultFile);
+            }
+        }
+    }
+
+    private void run(ReportJob job) {
+        job.status = STATUS_RUNNING;
+        job.stage = STAGE_GENERATING;
+        String extension = FORMAT_EXCEL.equals(job.format) ? ".xlsx" : ".json";
+        Path target = storePath.resolve(FILE_PREFIX + job.id + extension);
+        Path temp = storePath.resolve(FILE_PREFIX + job.id + extension + ".tmp");
+        long start = System.currentTimeMillis();
+        try {
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(temp))) {
+                if (FORMAT_EXCEL.equals(job.format)) {
+                    reportService.exportReportToExcel(job.reportType, job.fromDate, job.toDate, out);
+                } else {
+                    Map<String, Object> data = generate(job);
+                    job.stage = STAGE_WRITING;
+                    objectMapper.writeValue(out, data);
+                }
+            }
+            // Chỉ công bố file khi đã ghi xong
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            job.resultFile = target;
+            job.stage = STAGE_DONE;
+            job.status = STATUS_DONE;
+            logger.info("Report job {} ({} {}) finished in {} ms", job.id, job.format, job.reportType,
+                    System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            logger.error("Report job {} failed: {}", job.id, e.getMessage(), e);
+            deleteQuietly(temp);
+            job.error = "Không thể tạo báo cáo: " + e.getMessage();
+            job.status = STATUS_FAILED;
+        } finally {
+            job.finishedAt = System.currentTimeMillis();
+            inFlight.remove(job.key, job);
+            job.done.complete(null);
+        }
+    }
+
+    private Map<String, Object> generate(ReportJob job) {
+        if ("sellers".equals(job.reportType)) {
+            return reportService.generateSellerReport(job.fromDate, job.toDate);
+        }
+        return reportService.generateSalesReport(job.periodType, job.fromDate, job.toDate);
+    }
+
+    private ReportJob findJob(String jobId) {
+        ReportJob job = jobId != null ? jobs.get(jobId) : null;
+        return job != null && !isExpired(job) ? job : null;
+    }
+
+    private boolean isExpired(ReportJob job) {
+        return job.finishedAt > 0 && System.currentTimeMillis() - job.finishedAt > resultTtlMs;
+    }
+
+    private Map<String, Object> toStatus(ReportJob job) {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("jobId", job.id);
+        status.put("status", job.status);
+        status.put("stage", job.stage);
+        status.put("progress", STAGE_PROGRESS.get(job.stage));
+        status.put("progressBasis", "STAGE");
+        status.put("format", job.format);
+        status.put("reportType", job.reportType);
+        status.put("periodType", job.periodType);
+        status.put("fromDate", formatDay(job.fromDate));
+        status.put("toDate", formatDay(job.toDate));
+        if (job.error != null) {
+            status.put("error", job.error);
+        }
+        if (job.finishedAt > 0) {
+            status.put("expiresAt", new Date(job.finishedAt + resultTtlMs));
+        }
+        return status;
+    }
+
+    private static String formatDay(Date date) {
+        return date != null ? new SimpleDateFormat("yyyy-MM-dd").format(date) : "";
+    }
+
+    private static void deleteQuietly(Path file) {
+        if (file == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            logger.warn("Could not delete report file {}: {}", file, e.getMessage());
+        }
+    }
+
+    private static final class ReportJob {
+        final String id;
+        final String key;
+        final String format;
+        final String reportType;
+        final String periodType;
+        final Date fromDate;
+        final Date toDate;
+        final CompletableFuture<Void> done = new CompletableFuture<>();
+
+        volatile String status = STATUS_QUEUED;
+        volatile String stage = STAGE_QUEUED;
+        volatile String error;
+        volatile Path resultFile;
+        volatile long finishedAt;
+
+        ReportJob(String id, String key, String format, String reportType, String periodType, Date fromDate,
+                Date toDate) {
+            this.id = id;
+            this.key = key;
+            this.format = format;
+            this.reportType = reportType;
+            this.periodType = periodType;
+            this.fromDate = fromDate;
+            this.toDate = toDate;
+        }
+    }
+}
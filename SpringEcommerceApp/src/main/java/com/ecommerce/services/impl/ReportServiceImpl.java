@@ -1,33 +1,34 @@
 package com.ecommerce.services.impl;
 
-import com.ecommerce.pojo.Order;
-import com.ecommerce.pojo.OrderDetail;
 import com.ecommerce.pojo.Product;
-import com.ecommerce.pojo.User;
+import com.ecommerce.repositories.OrderRepository;
 import com.ecommerce.services.OrderService;
 import com.ecommerce.services.ProductService;
 import com.ecommerce.services.ReportService;
+import com.ecommerce.services.SalesRollupService;
 import com.ecommerce.services.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.io.ByteArrayOutputStream;
+import com.ecommerce.utils.ExcelUtils;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.*;
 import java.util.stream.Collectors;
 
-import org.apache.poi.ss.usermodel.Cell;
-import org.apache.poi.ss.usermodel.FillPatternType;
-import org.apache.poi.ss.usermodel.IndexedColors;
+import org.apache.poi.ss.usermodel.CellStyle;
 import org.apache.poi.ss.usermodel.Row;
-import org.apache.poi.xssf.usermodel.XSSFCellStyle;
-import org.apache.poi.xssf.usermodel.XSSFFont;
-import org.apache.poi.xssf.usermodel.XSSFSheet;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 
 @Service
 @Transactional
 public class ReportServiceImpl implements ReportService {
+    // Số dòng lấy mỗi lượt khi duyệt các dòng đơn hàng cho báo cáo doanh số
+    private static final int SALES_FETCH_SIZE = 1000;
+    private static final int TOP_PRODUCTS_LIMIT = 10;
+    private static final int TOP_PRODUCTS_CHART_LIMIT = 5;
 
     @Autowired
     private OrderService orderService;
@@ -38,48 +39,44 @@ public class ReportServiceImpl implements ReportService {
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private SalesRollupService salesRollupService;
+
     @Override
+    @Transactional(readOnly = true)
     public Map<String, Object> generateSalesReport(String periodType, Date fromDate, Date toDate) {
         Map<String, Object> reportData = new HashMap<>();
 
-        List<Order> orders = orderService.findByStatusAndDateRange("COMPLETED", fromDate, toDate);
-
-        double totalRevenue = orders.stream()
-                .mapToDouble(Order::getTotalAmount)
-                .sum();
-
-        int totalOrders = orders.size();
-
-        double avgOrderValue = totalOrders > 0 ? totalRevenue / totalOrders : 0;
-
-        int totalProductsSold = orders.stream()
-                .flatMap(order -> order.getOrderDetails().stream())
-                .mapToInt(detail -> detail.getQuantity())
-                .sum();
+        // Một lượt duyệt các dòng đơn hoàn thành trong khoảng ngày, tính tổng, theo danh mục và theo sản phẩm cùng lúc
+        SalesAccumulator sales = new SalesAccumulator();
+        orderRepository.scrollSalesLines("COMPLETED", fromDate, toDate, SALES_FETCH_SIZE, sales::accept);
 
+        int totalOrders = sales.totalOrders;
+        double totalRevenue = sales.totalRevenue;
         reportData.put("totalRevenue", totalRevenue);
         reportData.put("totalOrders", totalOrders);
-        reportData.put("totalProductsSold", totalProductsSold);
-        reportData.put("avgOrderValue", avgOrderValue);
+        reportData.put("totalProductsSold", sales.totalProductsSold);
+        reportData.put("avgOrderValue", totalOrders > 0 ? totalRevenue / totalOrders : 0.0);
 
-        Map<String, Double> revenueByPeriod = orderService.getRevenueByDateRange(periodType, fromDate, toDate);
+        // Số liệu theo kỳ và theo danh mục đọc từ bảng tổng hợp theo ngày
+        Map<String, Double> revenueByPeriod = salesRollupService.getRevenueByPeriod(periodType, fromDate, toDate);
         reportData.put("revenueByPeriod", convertToChartData(revenueByPeriod));
 
-        Map<String, Integer> orderCountByPeriod = orderService.getOrderCountByDateRange(periodType, fromDate, toDate);
+        Map<String, Integer> orderCountByPeriod = salesRollupService.getOrderCountByPeriod(periodType, fromDate, toDate);
         reportData.put("orderCountByPeriod", convertToChartData(orderCountByPeriod));
 
         Map<String, Long> orderStatusCounts = orderService.getOrderCountByStatus();
         reportData.put("orderStatus", convertToChartData(orderStatusCounts));
 
-        Map<String, Double> categoryRevenue = orderService.getRevenueByCategoryDateRange(fromDate, toDate);
-        reportData.put("categoryRevenue", convertToChartData(categoryRevenue)); // Top sản phẩm bán chạy (cho biểu đồ)
-        Map<String, Integer> topProductsChart = orderService.getTopSellingProducts(5);
-        reportData.put("topProductsChart", convertToChartData(topProductsChart));
-        List<Map<String, Object>> categoryStats = generateCategoryStats(orders, totalRevenue);
-        reportData.put("categoryStats", categoryStats != null ? categoryStats : new ArrayList<>());
+        Map<String, Double> categoryRevenue = salesRollupService.getRevenueByCategory(fromDate, toDate);
+        reportData.put("categoryRevenue", convertToChartData(categoryRevenue));
 
-        List<Map<String, Object>> topProductsDetails = generateTopProductsDetails(orders, totalRevenue);
-        reportData.put("topProducts", topProductsDetails != null ? topProductsDetails : new ArrayList<>());
+        reportData.put("topProductsChart", convertToChartData(sales.topProductsChart(TOP_PRODUCTS_CHART_LIMIT)));
+        reportData.put("categoryStats", sales.categoryStats());
+        reportData.put("topProducts", sales.topProducts(TOP_PRODUCTS_LIMIT));
 
         return reportData;
     }
@@ -89,60 +86,21 @@ public class ReportServiceImpl implements ReportService {
     public Map<String, Object> generateSellerReport(Date fromDate, Date toDate) {
         Map<String, Object> reportData = new HashMap<>();
 
-        List<User> sellers = userService.findByRole("SELLER");
-
-        System.out.println("DEBUG: Found " + sellers.size() + " sellers with SELLER role");
-
-        if (sellers.isEmpty()) {
-            List<User> allUsers = userService.findAll();
-            System.out.println("DEBUG: No SELLER role users found, checking all " + allUsers.size() + " users");
-            sellers = allUsers;
+        long totalSellers = userService.countByFilters(null, "SELLER", null);
+        if (totalSellers == 0) {
+            totalSellers = userService.countByFilters(null, null, null);
         }
+        reportData.put("totalSellers", totalSellers);
 
-        reportData.put("totalSellers", sellers.size());
-
-        List<Map<String, Object>> sellerStatsList = new ArrayList<>();
-        Map<String, Double> revenueMap = new HashMap<>();
-        Map<String, Integer> ordersMap = new HashMap<>();
+        // Tổng hợp theo người bán từ bảng doanh số theo ngày của cửa hàng
+        List<Map<String, Object>> sellerStatsList = salesRollupService.getSalesBySeller(fromDate, toDate);
         double totalRevenue = 0;
         int totalOrders = 0;
         int totalProducts = 0;
-
-        for (User seller : sellers) {
-            List<Order> sellerOrders = orderService.findOrdersBySellerId(seller.getId());
-
-            List<Order> filteredOrders = sellerOrders.stream()
-                    .filter(order -> order.getOrderDate() != null &&
-                            (order.getOrderDate().after(fromDate) || order.getOrderDate().equals(fromDate)) &&
-                            (order.getOrderDate().before(toDate) || order.getOrderDate().equals(toDate)))
-                    .collect(Collectors.toList());
-
-            if (!filteredOrders.isEmpty()) {
-                String sellerName = seller.getFullname() != null ? seller.getFullname() : seller.getUsername();
-                double sellerRevenue = filteredOrders.stream()
-                        .mapToDouble(Order::getTotalAmount)
-                        .sum();
-
-                int orderCount = filteredOrders.size();
-                int productCount = filteredOrders.stream()
-                        .mapToInt(order -> order.getOrderDetails().size())
-                        .sum();
-                Map<String, Object> sellerStats = new HashMap<>();
-                sellerStats.put("name", sellerName);
-                sellerStats.put("email", seller.getEmail() != null ? seller.getEmail() : "N/A");
-                sellerStats.put("orderCount", orderCount);
-                sellerStats.put("productCount", productCount);
-                sellerStats.put("revenue", sellerRevenue);
-                sellerStats.put("avgRevenue", orderCount > 0 ? sellerRevenue / orderCount : 0);
-
-                sellerStatsList.add(sellerStats);
-                revenueMap.put(sellerName, sellerRevenue);
-                ordersMap.put(sellerName, orderCount);
-
-                totalRevenue += sellerRevenue;
-                totalOrders += orderCount;
-                totalProducts += productCount;
-            }
+        for (Map<String, Object> sellerStats : sellerStatsList) {
+            totalRevenue += (Double) sellerStats.get("revenue");
+            totalOrders += (Integer) sellerStats.get("orderCount");
+            totalProducts += (Integer) sellerStats.get("productCount");
         }
 
         for (Map<String, Object> sellerStats : sellerStatsList) {
@@ -151,8 +109,6 @@ public class ReportServiceImpl implements ReportService {
             sellerStats.put("percentage", percentage);
         }
 
-        sellerStatsList.sort((s1, s2) -> Double.compare((Double) s2.get("revenue"), (Double) s1.get("revenue")));
-
         List<Map<String, Object>> topSellers = sellerStatsList.stream()
                 .limit(5)
                 .collect(Collectors.toList());
@@ -173,6 +129,67 @@ public class ReportServiceImpl implements ReportService {
         return reportData;
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public Map<String, Object> getSellerStatistics(Long sellerId, String period, Date fromDate, Date toDate) {
+        Map<String, Object> statistics = new HashMap<>();
+
+        Object[] totals = orderRepository.findSellerSalesSummary(sellerId, fromDate, toDate);
+        int totalOrders = totals[0] != null ? ((Number) totals[0]).intValue() : 0;
+        double totalRevenue = totals[1] != null ? ((Number) totals[1]).doubleValue() : 0.0;
+        Map<String, Object> summary = new HashMap<>();
+        summary.put("totalRevenue", totalRevenue);
+        summary.put("totalOrders", totalOrders);
+        summary.put("totalProducts", totals[2] != null ? ((Number) totals[2]).intValue() : 0);
+        summary.put("averageOrderValue", totalOrders > 0 ? totalRevenue / totalOrders : 0);
+
+        // Doanh thu theo tháng từ database, gộp thành quý/năm ở đây (tối đa 12 dòng mỗi năm)
+        Map<String, Double> revenueByPeriod = new TreeMap<>();
+        for (Object[] row : orderRepository.findSellerRevenueByMonth(sellerId, fromDate, toDate)) {
+            int year = ((Number) row[0]).intValue();
+            int month = ((Number) row[1]).intValue();
+            String key;
+            if ("quarter".equals(period)) {
+                key = year + "-Q" + ((month - 1) / 3 + 1);
+            } else if ("year".equals(period)) {
+                key = String.valueOf(year);
+            } else {
+                key = String.format("%d-%02d", year, month);
+            }
+            revenueByPeriod.merge(key, ((Number) row[2]).doubleValue(), Double::sum);
+        }
+        List<Map<String, Object>> revenueByPeriodList = new ArrayList<>();
+        revenueByPeriod.forEach((key, revenue) -> {
+            Map<String, Object> item = new HashMap<>();
+            item.put("period", key);
+            item.put("revenue", revenue);
+            revenueByPeriodList.add(item);
+        });
+
+        List<Map<String, Object>> topProducts = new ArrayList<>();
+        for (Object[] row : orderRepository.findSellerTopProducts(sellerId, fromDate, toDate, 5)) {
+            Map<String, Object> product = new HashMap<>();
+            product.put("name", row[0]);
+            product.put("quantity", ((Number) row[1]).intValue());
+            product.put("revenue", ((Number) row[2]).doubleValue());
+            topProducts.add(product);
+        }
+
+        List<Map<String, Object>> categoryRevenue = new ArrayList<>();
+        for (Object[] row : orderRepository.findSellerRevenueByCategory(sellerId, fromDate, toDate)) {
+            Map<String, Object> item = new HashMap<>();
+            item.put("name", row[0] != null ? row[0] : "Uncategorized");
+            item.put("revenue", ((Number) row[1]).doubleValue());
+            categoryRevenue.add(item);
+        }
+
+        statistics.put("summary", summary);
+        statistics.put("revenueByPeriod", revenueByPeriodList);
+        statistics.put("productRevenue", topProducts);
+        statistics.put("categoryRevenue", categoryRevenue);
+        return statistics;
+    }
+
     @Override
     public Map<String, Object> generateInventoryReport() {
         Map<String, Object> reportData = new HashMap<>();
@@ -197,17 +214,12 @@ public class ReportServiceImpl implements ReportService {
     }
 
     @Override
-    public byte[] exportReportToExcel(String reportType, Date fromDate, Date toDate) {
-        try (XSSFWorkbook workbook = new XSSFWorkbook()) {
-            XSSFSheet sheet = workbook.createSheet("Báo cáo " + getReportTypeName(reportType));
-
-            XSSFCellStyle headerStyle = workbook.createCellStyle();
-            headerStyle.setFillForegroundColor(IndexedColors.LIGHT_BLUE.getIndex());
-            headerStyle.setFillPattern(FillPatternType.SOLID_FOREGROUND);
-            XSSFFont headerFont = workbook.createFont();
-            headerFont.setFontHeightInPoints((short) 12);
-            headerFont.setBold(true);
-            headerStyle.setFont(headerFont);
+    public void exportReportToExcel(String reportType, Date fromDate, Date toDate, OutputStream out)
+            throws IOException {
+        SXSSFWorkbook workbook = ExcelUtils.createStreamingWorkbook();
+        try {
+            Sheet sheet = workbook.createSheet("Báo cáo " + getReportTypeName(reportType));
+            CellStyle headerStyle = ExcelUtils.createHeaderStyle(workbook);
 
             Map<String, Object> reportData = null;
 
@@ -223,30 +235,17 @@ public class ReportServiceImpl implements ReportService {
                     break;
             }
 
-            for (int i = 0; i < 10; i++) {
-                sheet.autoSizeColumn(i);
-            }
-
-            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-            workbook.write(outputStream);
-            return outputStream.toByteArray();
-
-        } catch (Exception e) {
-            e.printStackTrace();
-            return new byte[0];
+            workbook.write(out);
+            out.flush();
+        } finally {
+            ExcelUtils.dispose(workbook);
         }
     }
 
-    private void createSalesReportSheet(XSSFSheet sheet, XSSFCellStyle headerStyle, Map<String, Object> data) {
+    private void createSalesReportSheet(Sheet sheet, CellStyle headerStyle, Map<String, Object> data) {
 
-        Row headerRow = sheet.createRow(0);
         String[] headers = { "Kỳ báo cáo", "Doanh thu (VNĐ)", "Số đơn hàng", "Giá trị trung bình" };
-
-        for (int i = 0; i < headers.length; i++) {
-            Cell cell = headerRow.createCell(i);
-            cell.setCellValue(headers[i]);
-            cell.setCellStyle(headerStyle);
-        }
+        ExcelUtils.writeHeader(sheet, headerStyle, headers, new int[] { 18, 20, 15, 20 });
         @SuppressWarnings("unchecked")
         Map<String, Object> revenueChartData = (Map<String, Object>) data.get("revenueByPeriod");
         @SuppressWarnings("unchecked")
@@ -338,90 +337,107 @@ public class ReportServiceImpl implements ReportService {
         return chartData;
     }
 
-    private List<Map<String, Object>> generateCategoryStats(List<Order> orders, double totalRevenue) {
-        Map<String, Integer> categoryOrderCount = new HashMap<>();
-        Map<String, Integer> categoryProductCount = new HashMap<>();
-        Map<String, Double> categoryRevenue = new HashMap<>();
-
-        for (Order order : orders) {
-            for (OrderDetail detail : order.getOrderDetails()) {
-                String categoryName = detail.getProduct().getCategory() != null
-                        ? detail.getProduct().getCategory().getName()
-                        : "Không xác định";
-
-                int orderCount = categoryOrderCount.getOrDefault(categoryName, 0) + 1;
-                categoryOrderCount.put(categoryName, orderCount);
-
-                int quantity = detail.getQuantity();
-                int productCount = categoryProductCount.getOrDefault(categoryName, 0) + quantity;
-                categoryProductCount.put(categoryName, productCount);
-
-                double lineRevenue = detail.getPrice() * quantity;
-                double revenue = categoryRevenue.getOrDefault(categoryName, 0.0) + lineRevenue;
-                categoryRevenue.put(categoryName, revenue);
+    /**
+     * Gom số liệu báo cáo doanh số từ các dòng [orderId, tổng tiền đơn, productId, tên sản phẩm, ảnh,
+     * tên danh mục, số lượng, đơn giá] sắp theo orderId. Tổng tiền đơn chỉ cộng một lần cho mỗi đơn.
+     */
+    private static final class SalesAccumulator {
+        private static final String UNKNOWN_CATEGORY = "Không xác định";
+
+        double totalRevenue;
+        int totalOrders;
+        int totalProductsSold;
+
+        private Long lastOrderId;
+        private final Map<String, CategoryTotals> categories = new HashMap<>();
+        private final Map<Long, ProductTotals> products = new HashMap<>();
+
+        void accept(Object[] row) {
+            Long orderId = (Long) row[0];
+            if (!orderId.equals(lastOrderId)) {
+                lastOrderId = orderId;
+                totalOrders++;
+                totalRevenue += row[1] != null ? ((Number) row[1]).doubleValue() : 0.0;
+            }
+            Long productId = (Long) row[2];
+            if (productId == null) {
+                return;
             }
+            int quantity = ((Number) row[6]).intValue();
+            double lineRevenue = ((Number) row[7]).doubleValue() * quantity;
+            String categoryName = row[5] != null ? (String) row[5] : UNKNOWN_CATEGORY;
+            totalProductsSold += quantity;
+
+            CategoryTotals category = categories.computeIfAbsent(categoryName, name -> new CategoryTotals());
+            if (!orderId.equals(category.lastOrderId)) {
+                category.lastOrderId = orderId;
+                category.orderCount++;
+            }
+            category.productCount += quantity;
+            category.revenue += lineRevenue;
+
+            ProductTotals product = products.computeIfAbsent(productId, id -> new ProductTotals());
+            product.name = (String) row[3];
+            product.image = (String) row[4];
+            product.categoryName = categoryName;
+            product.quantity += quantity;
+            product.revenue += lineRevenue;
         }
 
-        List<Map<String, Object>> categoryStats = new ArrayList<>();
-        for (String categoryName : categoryRevenue.keySet()) {
-            Map<String, Object> categoryData = new HashMap<>();
-            double revenue = categoryRevenue.get(categoryName);
-
-            categoryData.put("name", categoryName);
-            categoryData.put("orderCount", categoryOrderCount.get(categoryName));
-            categoryData.put("productCount", categoryProductCount.get(categoryName));
-            categoryData.put("revenue", revenue);
-            categoryData.put("percentage", totalRevenue > 0 ? revenue / totalRevenue : 0.0);
-
-            categoryStats.add(categoryData);
+        List<Map<String, Object>> categoryStats() {
+            List<Map<String, Object>> categoryStats = new ArrayList<>();
+            categories.forEach((name, totals) -> {
+                Map<String, Object> categoryData = new HashMap<>();
+                categoryData.put("name", name);
+                categoryData.put("orderCount", totals.orderCount);
+                categoryData.put("productCount", totals.productCount);
+                categoryData.put("revenue", totals.revenue);
+                categoryData.put("percentage", totalRevenue > 0 ? totals.revenue / totalRevenue : 0.0);
+                categoryStats.add(categoryData);
+            });
+            categoryStats.sort((a, b) -> Double.compare((Double) b.get("revenue"), (Double) a.get("revenue")));
+            return categoryStats;
         }
 
-        categoryStats.sort((a, b) -> Double.compare((Double) b.get("revenue"), (Double) a.get("revenue")));
+        List<Map<String, Object>> topProducts(int limit) {
+            return bestSelling(limit).stream().map(product -> {
+                Map<String, Object> productData = new HashMap<>();
+                productData.put("name", product.name);
+                productData.put("categoryName", product.categoryName);
+                productData.put("quantitySold", product.quantity);
+                productData.put("revenue", product.revenue);
+                productData.put("percentage", totalRevenue > 0 ? product.revenue / totalRevenue : 0.0);
+                productData.put("image", product.image);
+                return productData;
+            }).collect(Collectors.toList());
+        }
 
-        return categoryStats;
-    }
+        Map<String, Integer> topProductsChart(int limit) {
+            Map<String, Integer> chart = new LinkedHashMap<>();
+            bestSelling(limit).forEach(product -> chart.merge(product.name, product.quantity, Integer::sum));
+            return chart;
+        }
 
-    private List<Map<String, Object>> generateTopProductsDetails(List<Order> orders, double totalRevenue) {
-        Map<Long, Integer> productQuantities = new HashMap<>();
-        Map<Long, Double> productRevenues = new HashMap<>();
-        Map<Long, Product> productMap = new HashMap<>();
-
-        for (Order order : orders) {
-            for (OrderDetail detail : order.getOrderDetails()) {
-                Long productId = detail.getProduct().getId();
-                int quantity = detail.getQuantity();
-                int totalQuantity = productQuantities.getOrDefault(productId, 0) + quantity;
-                productQuantities.put(productId, totalQuantity);
-
-                double lineRevenue = detail.getPrice() * quantity;
-                double totalProductRevenue = productRevenues.getOrDefault(productId, 0.0) + lineRevenue;
-                productRevenues.put(productId, totalProductRevenue);
-                productMap.put(productId, detail.getProduct());
-            }
+        private List<ProductTotals> bestSelling(int limit) {
+            return products.values().stream()
+                    .sorted(Comparator.comparingInt((ProductTotals product) -> product.quantity).reversed())
+                    .limit(limit)
+                    .collect(Collectors.toList());
         }
+    }
 
-        List<Map<String, Object>> topProducts = new ArrayList<>();
+    private static final class CategoryTotals {
+        Long lastOrderId;
+        int orderCount;
+        int productCount;
+        double revenue;
+    }
 
-        productQuantities.entrySet().stream()
-                .sorted(Map.Entry.<Long, Integer>comparingByValue().reversed())
-                .limit(10)
-                .forEach(entry -> {
-                    Long productId = entry.getKey();
-                    Product product = productMap.get(productId);
-                    double revenue = productRevenues.get(productId);
-
-                    Map<String, Object> productData = new HashMap<>();
-                    productData.put("name", product.getName());
-                    productData.put("categoryName",
-                            product.getCategory() != null ? product.getCategory().getName() : "Không xác định");
-                    productData.put("quantitySold", entry.getValue());
-                    productData.put("revenue", revenue);
-                    productData.put("percentage", totalRevenue > 0 ? revenue / totalRevenue : 0.0);
-                    productData.put("image", product.getImage());
-
-                    topProducts.add(productData);
-                });
-
-        return topProducts;
+    private static final class ProductTotals {
+        String name;
+        String image;
+        String categoryName;
+        int quantity;
+        double revenue;
     }
 }
@@ -0,0 +1,513 @@
+package com.ecommerce.services.impl;
+
+import com.ecommerce.pojo.SalesRollupState;
+import com.ecommerce.repositories.SalesRollupRepository;
+import com.ecommerce.services.SalesRollupService;
+import com.ecommerce.utils.TransactionUtils;
+import jakarta.annotation.PreDestroy;
+import java.text.SimpleDateFormat;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Bảng tổng hợp doanh số theo ngày (toàn sàn, cửa hàng, danh mục, sản phẩm) cho báo cáo.
+ * Transaction ghi đơn hàng chỉ đánh dấu đơn (sau khi commit, trong bộ nhớ) để không khoá các dòng
+ * tổng hợp của ngày hôm nay, vốn mọi đơn trong ngày đều ghi vào. Định kỳ flush-interval-ms, các đơn đã
+ * đánh dấu được xử lý theo lô: phần đóng góp theo trạng thái cũ được trừ, cộng lại theo trạng thái mới,
+ * gộp theo dòng tổng hợp rồi mỗi dòng chỉ ghi một lần. Báo cáo vì vậy chậm tối đa một chu kỳ flush;
+ * đơn đánh dấu mà chưa flush khi ứng dụng dừng đột ngột được reconcile tính lại. Backfill tính lại từ
+ * dữ liệu gốc theo từng ngày; reconcile định kỳ kiểm tra các ngày gần đây và tính lại ngày bị lệch
+ * (ví dụ khi đơn được sửa bằng đường khác hoặc sản phẩm đổi danh mục).
+ */
+@Service
+public class SalesRollupServiceImpl implements SalesRollupService {
+    private static final Logger logger = LoggerFactory.getLogger(SalesRollupServiceImpl.class);
+
+    private static final String[] LINE_DIMENSIONS = {
+            SalesRollupRepository.STORE, SalesRollupRepository.CATEGORY, SalesRollupRepository.PRODUCT };
+
+    // Sai số cho phép khi so sánh doanh thu (double) lúc reconcile
+    private static final double REVENUE_TOLERANCE = 0.01;
+
+    // Số đơn tối đa mỗi transaction flush
+    private static final int FLUSH_BATCH_SIZE = 500;
+    // Số lượt flush lỗi liên tiếp trước khi bỏ đơn lại cho reconcile
+    private static final int MAX_FLUSH_ATTEMPTS = 5;
+
+    @Autowired
+    private SalesRollupRepository salesRollupRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${app.rollup.reconcile-days:3}")
+    private int reconcileDays;
+
+    private final ZoneId zone = ZoneId.systemDefault();
+    // Backfill và reconcile không chạy chồng lên nhau
+    private final AtomicBoolean rebuilding = new AtomicBoolean(false);
+
+    // Đơn đã commit thay đổi nhưng chưa ghi vào bảng tổng hợp; nhiều lần ghi cùng một đơn được gộp lại
+    private final Set<Long> pendingOrders = ConcurrentHashMap.newKeySet();
+    // orderId -> số lượt flush lỗi liên tiếp
+    private final Map<Long, Integer> failedAttempts = new HashMap<>();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillIfEmpty() {
+        Thread backfillThread = new Thread(() -> {
+            try {
+                Date firstOrderDate = readOnlyTransaction().execute(status ->
+                        salesRollupRepository.countStates() == 0 ? salesRollupRepository.findFirstOrderDate() : null);
+                if (firstOrderDate != null) {
+                    logger.info("Sales rollup tables are empty, starting backfill");
+                    backfill(toDay(firstOrderDate), LocalDate.now(zone));
+                }
+            } catch (Exception e) {
+                logger.error("Sales rollup backfill check failed: {}", e.getMessage(), e);
+            }
+        }, "sales-rollup-backfill");
+        backfillThread.setDaemon(true);
+        backfillThread.start();
+    }
+
+    @Scheduled(initialDelayString = "${app.rollup.reconcile-interval-ms:3600000}",
+            fixedDelayString = "${app.rollup.reconcile-interval-ms:3600000}")
+    public void scheduledReconcile() {
+        LocalDate today = LocalDate.now(zone);
+        reconcile(today.minusDays(Math.max(reconcileDays, 1) - 1), today);
+    }
+
+    @Override
+    public void syncOrder(Long orderId) {
+        if (orderId != null) {
+            TransactionUtils.runAfterCommit(() -> pendingOrders.add(orderId));
+        }
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${app.rollup.flush-interval-ms:1000}")
+    public synchronized int flush() {
+        int flushed = 0;
+        List<Long> orderIds;
+        while (!(orderIds = takePending()).isEmpty()) {
+            List<Long> batch = orderIds;
+            try {
+                new TransactionTemplate(transactionManager).executeWithoutResult(status -> applyOrders(batch));
+                batch.forEach(failedAttempts::remove);
+            } catch (Exception e) {
+                // Một đơn lỗi không chặn cả lô: ghi lại từng đơn, đơn vẫn lỗi được thử lại ở lượt sau
+                logger.warn("Sales rollup flush of {} orders failed, retrying one by one: {}", batch.size(),
+                        e.getMessage());
+                for (Long orderId : batch) {
+                    flushSingle(orderId);
+                }
+            }
+            flushed += batch.size();
+            if (batch.size() < FLUSH_BATCH_SIZE) {
+                break;
+            }
+        }
+        return flushed;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    private List<Long> takePending() {
+        List<Long> orderIds = new ArrayList<>();
+        for (Long orderId : pendingOrders) {
+            if (pendingOrders.remove(orderId)) {
+                orderIds.add(orderId);
+            }
+            if (orderIds.size() >= FLUSH_BATCH_SIZE) {
+                break;
+            }
+        }
+        Collections.sort(orderIds);
+        return orderIds;
+    }
+
+    private void flushSingle(Long orderId) {
+        try {
+            new TransactionTemplate(transactionManager).executeWithoutResult(
+                    status -> applyOrders(List.of(orderId)));
+            failedAttempts.remove(orderId);
+        } catch (Exception e) {
+            int attempts = failedAttempts.merge(orderId, 1, Integer::sum);
+            if (attempts >= MAX_FLUSH_ATTEMPTS) {
+                failedAttempts.remove(orderId);
+                logger.error("Giving up sales rollup update of order {} after {} attempts, left to reconciliation: {}",
+                        orderId, attempts, e.getMessage(), e);
+            } else {
+                pendingOrders.add(orderId);
+                logger.warn("Sales rollup update of order {} failed (attempt {}/{}): {}", orderId, attempts,
+                        MAX_FLUSH_ATTEMPTS, e.getMessage());
+            }
+        }
+    }
+
+    // Đưa bảng tổng hợp về trạng thái hiện tại của các đơn; dòng tổng hợp được ghi theo thứ tự khoá cố định
+    private void applyOrders(List<Long> orderIds) {
+        // "ngày|DIMENSION|id|status" -> [số đơn, số sản phẩm, doanh thu]
+        Map<String, double[]> deltas = new TreeMap<>();
+        for (Long orderId : orderIds) {
+            SalesRollupState state = salesRollupRepository.findStateForUpdate(orderId);
+            Object[] order = salesRollupRepository.findOrderSnapshot(orderId);
+            if (order == null) {
+                if (state != null) {
+                    logger.warn("Order {} no longer exists, rollup for {} will be fixed by reconciliation",
+                            orderId, state.getSaleDate());
+                }
+                continue;
+            }
+
+            LocalDate day = toDay((Date) order[0]);
+            String status = (String) order[1];
+            double totalAmount = ((Number) order[2]).doubleValue();
+            if (state != null && state.getSaleDate().equals(day) && state.getStatus().equals(status)
+                    && Math.abs(state.getTotalAmount() - totalAmount) < REVENUE_TOLERANCE) {
+                continue;
+            }
+
+            List<Object[]> lines = salesRollupRepository.findOrderLines(orderId);
+            if (state != null) {
+                collect(deltas, -1, state.getSaleDate(), state.getStatus(), state.getTotalAmount(), lines);
+            } else {
+                state = new SalesRollupState();
+                state.setOrderId(orderId);
+            }
+            collect(deltas, 1, day, status, totalAmount, lines);
+
+            state.setSaleDate(day);
+            state.setStatus(status);
+            state.setTotalAmount(totalAmount);
+            salesRollupRepository.saveState(state);
+        }
+        deltas.forEach((key, values) -> {
+            // Đơn chỉ đổi trạng thái qua lại trong cùng lô thì dòng không đổi
+            if (values[0] == 0 && values[1] == 0 && values[2] == 0) {
+                return;
+            }
+            String[] parts = key.split("\\|", 4);
+            salesRollupRepository.increment(parts[1], LocalDate.parse(parts[0]), Long.parseLong(parts[2]), parts[3],
+                    (long) values[0], (long) values[1], values[2]);
+        });
+    }
+
+    @Override
+    @Transactional
+    public void removeOrder(Long orderId) {
+        if (orderId == null) {
+            return;
+        }
+        SalesRollupState state = salesRollupRepository.findStateForUpdate(orderId);
+        if (state == null) {
+            return;
+        }
+        // Xoá đơn hiếm khi xảy ra và cần các dòng order_details còn tồn tại nên trừ ngay trong transaction
+        Map<String, double[]> deltas = new TreeMap<>();
+        collect(deltas, -1, state.getSaleDate(), state.getStatus(), state.getTotalAmount(),
+                salesRollupRepository.findOrderLines(orderId));
+        deltas.forEach((key, values) -> {
+            String[] parts = key.split("\\|", 4);
+            salesRollupRepository.increment(parts[1], LocalDate.parse(parts[0]), Long.parseLong(parts[2]), parts[3],
+                    (long) values[0], (long) values[1], values[2]);
+        });
+        salesRollupRepository.deleteState(orderId);
+    }
+
+    // Cộng (sign = 1) hoặc trừ (sign = -1) phần đóng góp của một đơn vào deltas
+    private void collect(Map<String, double[]> deltas, int sign, LocalDate day, String status, double totalAmount,
+            List<Object[]> lines) {
+        Map<String, Map<Long, double[]>> byDimension = new HashMap<>();
+        long items = 0;
+        for (Object[] line : lines) {
+            long quantity = ((Number) line[3]).longValue();
+            double revenue = ((Number) line[4]).doubleValue();
+            items += quantity;
+            for (int i = 0; i < LINE_DIMENSIONS.length; i++) {
+                double[] values = byDimension.computeIfAbsent(LINE_DIMENSIONS[i], key -> new TreeMap<>())
+                        .computeIfAbsent(((Number) line[i]).longValue(), key -> new double[2]);
+                values[0] += quantity;
+                values[1] += revenue;
+            }
+        }
+
+        addDelta(deltas, day, factKey(SalesRollupRepository.TOTAL, 0, status), sign, sign * items,
+                sign * totalAmount);
+        for (String dimension : LINE_DIMENSIONS) {
+            byDimension.getOrDefault(dimension, Map.of()).forEach((dimensionId, values) ->
+                    addDelta(deltas, day, factKey(dimension, dimensionId, status), sign, sign * (long) values[0],
+                            sign * values[1]));
+        }
+    }
+
+    private static void addDelta(Map<String, double[]> deltas, LocalDate day, String factKey, long orderCount,
+            long itemsSold, double revenue) {
+        double[] values = deltas.computeIfAbsent(day + "|" + factKey, key -> new double[3]);
+        values[0] += orderCount;
+        values[1] += itemsSold;
+        values[2] += revenue;
+    }
+
+    @Override
+    public int backfill(LocalDate fromDay, LocalDate toDay) {
+        if (!rebuilding.compareAndSet(false, true)) {
+            logger.warn("Sales rollup backfill/reconcile already running, skipping backfill request");
+            return 0;
+        }
+        long start = System.currentTimeMillis();
+        int days = 0;
+        try {
+            TransactionTemplate template = new TransactionTemplate(transactionManager);
+            for (LocalDate day = fromDay; !day.isAfter(toDay); day = day.plusDays(1)) {
+                final LocalDate current = day;
+                template.executeWithoutResult(status -> writeDay(current, computeDay(current)));
+                days++;
+            }
+            logger.info("Sales rollup backfilled {} days ({} - {}) in {} ms",
+                    days, fromDay, toDay, System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            logger.error("Sales rollup backfill failed after {} days: {}", days, e.getMessage(), e);
+        } finally {
+            rebuilding.set(false);
+        }
+        return days;
+    }
+
+    @Override
+    public Map<String, Object> reconcile(LocalDate fromDay, LocalDate toDay) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        // Đơn chưa flush không phải là lệch
+        flush();
+        if (!rebuilding.compareAndSet(false, true)) {
+            result.put("skipped", true);
+            return result;
+        }
+        List<String> repairedDays = new ArrayList<>();
+        int checked = 0;
+        try {
+            TransactionTemplate template = new TransactionTemplate(transactionManager);
+            for (LocalDate day = fromDay; !day.isAfter(toDay); day = day.plusDays(1)) {
+                final LocalDate current = day;
+                Boolean repaired = template.execute(status -> {
+                    DaySnapshot expected = computeDay(current);
+                    Map<String, double[]> stored = storedDay(current);
+                    if (matches(expected.facts, stored)) {
+                        return false;
+                    }
+                    writeDay(current, expected);
+                    return true;
+                });
+                checked++;
+                if (Boolean.TRUE.equals(repaired)) {
+                    repairedDays.add(current.toString());
+                }
+            }
+            if (!repairedDays.isEmpty()) {
+                logger.warn("Sales rollup drift repaired for days {}", repairedDays);
+            }
+        } catch (Exception e) {
+            logger.error("Sales rollup reconciliation failed: {}", e.getMessage(), e);
+        } finally {
+            rebuilding.set(false);
+        }
+        result.put("daysChecked", checked);
+        result.put("daysRepaired", repairedDays);
+        return result;
+    }
+
+    private static final class DaySnapshot {
+        final List<Object[]> orders;
+        // "DIMENSION|id|status" -> [số đơn, số sản phẩm, doanh thu]
+        final Map<String, double[]> facts = new TreeMap<>();
+
+        DaySnapshot(List<Object[]> orders) {
+            this.orders = orders;
+        }
+    }
+
+    private DaySnapshot computeDay(LocalDate day) {
+        Date start = toDate(day);
+        Date end = toDate(day.plusDays(1));
+        DaySnapshot snapshot = new DaySnapshot(salesRollupRepository.aggregateOrders(start, end));
+        for (Object[] order : snapshot.orders) {
+            double[] totals = snapshot.facts.computeIfAbsent(
+                    factKey(SalesRollupRepository.TOTAL, 0, (String) order[1]), key -> new double[3]);
+            totals[0] += 1;
+            totals[2] += ((Number) order[2]).doubleValue();
+        }
+        for (String dimension : LINE_DIMENSIONS) {
+            for (Object[] row : salesRollupRepository.aggregateLines(dimension, start, end)) {
+                String status = (String) row[1];
+                long items = ((Number) row[3]).longValue();
+                snapshot.facts.put(factKey(dimension, ((Number) row[0]).longValue(), status), new double[] {
+                        ((Number) row[2]).doubleValue(), items, ((Number) row[4]).doubleValue() });
+                if (SalesRollupRepository.PRODUCT.equals(dimension)) {
+                    snapshot.facts.computeIfAbsent(factKey(SalesRollupRepository.TOTAL, 0, status),
+                            key -> new double[3])[1] += items;
+                }
+            }
+        }
+        return snapshot;
+    }
+
+    private Map<String, double[]> storedDay(LocalDate day) {
+        Map<String, double[]> stored = new TreeMap<>();
+        for (String dimension : new String[] { SalesRollupRepository.TOTAL, SalesRollupRepository.STORE,
+                SalesRollupRepository.CATEGORY, SalesRollupRepository.PRODUCT }) {
+            for (Object[] row : salesRollupRepository.findDay(dimension, day)) {
+                double[] values = { ((Number) row[2]).doubleValue(), ((Number) row[3]).doubleValue(),
+                        ((Number) row[4]).doubleValue() };
+                // Dòng về 0 sau khi đơn đổi trạng thái tương đương với không có dòng
+                if (values[0] != 0 || values[1] != 0 || Math.abs(values[2]) >= REVENUE_TOLERANCE) {
+                    stored.put(factKey(dimension, ((Number) row[0]).longValue(), (String) row[1]), values);
+                }
+            }
+        }
+        return stored;
+    }
+
+    private boolean matches(Map<String, double[]> expected, Map<String, double[]> stored) {
+        if (!expected.keySet().equals(stored.keySet())) {
+            return false;
+        }
+        for (Map.Entry<String, double[]> entry : expected.entrySet()) {
+            double[] actual = stored.get(entry.getKey());
+            double[] values = entry.getValue();
+            if (actual[0] != values[0] || actual[1] != values[1]
+                    || Math.abs(actual[2] - values[2]) >= REVENUE_TOLERANCE) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void writeDay(LocalDate day, DaySnapshot snapshot) {
+        salesRollupRepository.deleteDay(day);
+        for (Object[] order : snapshot.orders) {
+            SalesRollupState state = new SalesRollupState();
+            state.setOrderId((Long) order[0]);
+            state.setSaleDate(day);
+            state.setStatus((String) order[1]);
+            state.setTotalAmount(((Number) order[2]).doubleValue());
+            salesRollupRepository.insertState(state);
+        }
+        snapshot.facts.forEach((key, values) -> {
+            String[] parts = key.split("\\|", 3);
+            salesRollupRepository.increment(parts[0], day, Long.parseLong(parts[1]), parts[2],
+                    (long) values[0], (long) values[1], values[2]);
+        });
+    }
+
+    private static String factKey(String dimension, long dimensionId, String status) {
+        return dimension + "|" + dimensionId + "|" + status;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Map<String, Double> getRevenueByPeriod(String periodType, Date fromDate, Date toDate) {
+        Map<String, Double> revenueByPeriod = new LinkedHashMap<>();
+        SimpleDateFormat format = periodFormat(periodType);
+        for (Object[] row : salesRollupRepository.findTotalsByDay(toDay(fromDate), toDay(toDate))) {
+            revenueByPeriod.merge(format.format(toDate((LocalDate) row[0])), ((Number) row[2]).doubleValue(),
+                    Double::sum);
+        }
+        return revenueByPeriod;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Map<String, Integer> getOrderCountByPeriod(String periodType, Date fromDate, Date toDate) {
+        Map<String, Integer> orderCountByPeriod = new LinkedHashMap<>();
+        SimpleDateFormat format = periodFormat(periodType);
+        for (Object[] row : salesRollupRepository.findTotalsByDay(toDay(fromDate), toDay(toDate))) {
+            orderCountByPeriod.merge(format.format(toDate((LocalDate) row[0])), ((Number) row[1]).intValue(),
+                    Integer::sum);
+        }
+        return orderCountByPeriod;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Map<String, Double> getRevenueByCategory(Date fromDate, Date toDate) {
+        Map<String, Double> categoryRevenue = new LinkedHashMap<>();
+        for (Object[] row : salesRollupRepository.findRevenueByCategory(toDay(fromDate), toDay(toDate))) {
+            categoryRevenue.put((String) row[0], ((Number) row[1]).doubleValue());
+        }
+        return categoryRevenue;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> getSalesBySeller(Date fromDate, Date toDate) {
+        List<Map<String, Object>> sellers = new ArrayList<>();
+        for (Object[] row : salesRollupRepository.findSalesBySeller(toDay(fromDate), toDay(toDate))) {
+            int orderCount = ((Number) row[4]).intValue();
+            double revenue = ((Number) row[6]).doubleValue();
+
+            Map<String, Object> seller = new HashMap<>();
+            seller.put("id", row[0]);
+            seller.put("name", row[1] != null ? row[1] : row[2]);
+            seller.put("email", Objects.requireNonNullElse(row[3], "N/A"));
+            seller.put("orderCount", orderCount);
+            seller.put("productCount", ((Number) row[5]).intValue());
+            seller.put("revenue", revenue);
+            seller.put("avgRevenue", orderCount > 0 ? revenue / orderCount : 0.0);
+            sellers.add(seller);
+        }
+        return sellers;
+    }
+
+    private SimpleDateFormat periodFormat(String periodType) {
+        if ("daily".equals(periodType)) {
+            return new SimpleDateFormat("dd/MM");
+        } else if ("weekly".equals(periodType)) {
+            return new SimpleDateFormat("'Week 'w, yyyy");
+        } else if ("monthly".equals(periodType)) {
+            return new SimpleDateFormat("MM/yyyy");
+        }
+        return new SimpleDateFormat("yyyy");
+    }
+
+    // Không dùng Date.toInstant(): java.sql.Date (từ JDBC) ném UnsupportedOperationException
+    private LocalDate toDay(Date date) {
+        return Instant.ofEpochMilli(date.getTime()).atZone(zone).toLocalDate();
+    }
+
+    private Date toDate(LocalDate day) {
+        return Date.from(day.atStartOfDay(zone).toInstant());
+    }
+
+    private TransactionTemplate readOnlyTransaction() {
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        template.setReadOnly(true);
+        return template;
+    }
+}
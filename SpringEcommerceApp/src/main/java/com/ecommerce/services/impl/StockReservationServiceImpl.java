@@ -0,0 +1,249 @@
+package com.ecommerce.services.impl;
+
+import com.ecommerce.exceptions.ProductException;
+import com.ecommerce.pojo.Order;
+import com.ecommerce.pojo.OrderDetail;
+import com.ecommerce.pojo.PaymentMethod;
+import com.ecommerce.pojo.Product;
+import com.ecommerce.pojo.StockReservation;
+import com.ecommerce.repositories.ProductRepository;
+import com.ecommerce.repositories.StockReservationRepository;
+import com.ecommerce.services.HotStockService;
+import com.ecommerce.services.ProductSearchService;
+import com.ecommerce.services.StockReservationService;
+import com.ecommerce.utils.TransactionUtils;
+import java.util.Collection;
+import java.util.Date;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import org.hibernate.SessionFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Kho được trừ bằng UPDATE có điều kiện (quantity >= số cần trừ) ngay trong transaction tạo đơn,
+ * nên kiểm tra tồn kho lúc validate chỉ để báo lỗi sớm, không còn là chốt chặn. Các sản phẩm
+ * được cập nhật theo thứ tự id để hai đơn trùng sản phẩm không khoá chéo nhau. Sản phẩm hot
+ * không khoá dòng products mà lấy hàng từ HotStockService, giữ chỗ được đánh dấu stockPending.
+ */
+@Service
+@Transactional
+public class StockReservationServiceImpl implements StockReservationService {
+    private static final Logger logger = LoggerFactory.getLogger(StockReservationServiceImpl.class);
+
+    // Phương thức thanh toán online: đơn chỉ giữ hàng trong reservation-ttl-ms chờ thanh toán
+    private static final Set<PaymentMethod> ONLINE_PAYMENT_METHODS = EnumSet.of(PaymentMethod.PAYPAL,
+            PaymentMethod.MOMO);
+
+    private static final List<String> ACTIVE_STATUSES = List.of(STATUS_RESERVED, STATUS_CONFIRMED);
+
+    @Autowired
+    private StockReservationRepository stockReservationRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ProductSearchService productSearchService;
+
+    @Autowired
+    private HotStockService hotStockService;
+
+    @Autowired
+    private SessionFactory sessionFactory;
+
+    @Value("${app.stock.reservation-ttl-ms:900000}")
+    private long reservationTtlMs;
+
+    @Override
+    public void reserve(Order order) {
+        Map<Long, Integer> quantities = new TreeMap<>();
+        if (order.getOrderDetails() != null) {
+            for (OrderDetail detail : order.getOrderDetails()) {
+                if (detail.getProduct() != null && detail.getProduct().getId() != null) {
+                    quantities.merge(detail.getProduct().getId(), detail.getQuantity(), Integer::sum);
+                }
+            }
+        }
+        if (quantities.isEmpty()) {
+            return;
+        }
+
+        Set<Long> pendingProductIds = takeStock(quantities);
+
+        boolean awaitingPayment = order.getPayment() != null
+                && ONLINE_PAYMENT_METHODS.contains(order.getPayment().getPaymentMethod());
+        Date now = new Date();
+        Date expiresAt = awaitingPayment ? new Date(now.getTime() + reservationTtlMs) : null;
+        for (Map.Entry<Long, Integer> entry : quantities.entrySet()) {
+            StockReservation reservation = new StockReservation();
+            reservation.setOrderId(order.getId());
+            reservation.setProductId(entry.getKey());
+            reservation.setQuantity(entry.getValue());
+            reservation.setStatus(awaitingPayment ? STATUS_RESERVED : STATUS_CONFIRMED);
+            reservation.setStockPending(pendingProductIds.contains(entry.getKey()));
+            reservation.setCreatedAt(now);
+            reservation.setExpiresAt(expiresAt);
+            stockReservationRepository.save(reservation);
+        }
+        afterStockChanged(withoutPending(quantities.keySet(), pendingProductIds));
+    }
+
+    @Override
+    public void confirm(Long orderId) {
+        if (orderId == null
+                || stockReservationRepository.updateStatus(orderId, STATUS_RESERVED, STATUS_CONFIRMED) > 0) {
+            return;
+        }
+        List<StockReservation> released = stockReservationRepository.findByOrderIdForUpdate(orderId,
+                List.of(STATUS_RELEASED));
+        if (released.isEmpty()) {
+            return;
+        }
+        Map<Long, Integer> quantities = toQuantities(released);
+        Set<Long> pendingProductIds;
+        try {
+            pendingProductIds = takeStock(quantities);
+        } catch (ProductException e) {
+            // Khách đã thanh toán nhưng hàng đã bán cho đơn khác: không chặn việc ghi nhận thanh toán
+            logger.error("Order {} was confirmed after its stock was released and cannot be re-reserved: {}",
+                    orderId, e.getMessage());
+            return;
+        }
+        for (StockReservation reservation : released) {
+            reservation.setStatus(STATUS_CONFIRMED);
+            reservation.setStockPending(pendingProductIds.contains(reservation.getProductId()));
+            reservation.setExpiresAt(null);
+        }
+        logger.warn("Order {} was confirmed after its stock reservation was released, stock re-reserved", orderId);
+        afterStockChanged(withoutPending(quantities.keySet(), pendingProductIds));
+    }
+
+    @Override
+    public void release(Long orderId) {
+        if (orderId != null) {
+            release(stockReservationRepository.findByOrderIdForUpdate(orderId, ACTIVE_STATUSES));
+        }
+    }
+
+    @Override
+    public boolean releaseIfReserved(Long orderId) {
+        List<StockReservation> reserved = stockReservationRepository.findByOrderIdForUpdate(orderId,
+                List.of(STATUS_RESERVED));
+        release(reserved);
+        return !reserved.isEmpty();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<Long> findExpiredOrderIds(int limit) {
+        return stockReservationRepository.findExpiredOrderIds(STATUS_RESERVED, new Date(), limit);
+    }
+
+    private void release(List<StockReservation> reservations) {
+        if (reservations.isEmpty()) {
+            return;
+        }
+        // Dòng stockPending chưa được trừ vào products nên chỉ cần trả về bộ đếm
+        Map<Long, Integer> databaseQuantities = new TreeMap<>();
+        Map<Long, Integer> hotQuantities = new TreeMap<>();
+        for (StockReservation reservation : reservations) {
+            if (!reservation.isStockPending()) {
+                databaseQuantities.merge(reservation.getProductId(), reservation.getQuantity(), Integer::sum);
+            }
+            if (hotStockService.isHot(reservation.getProductId())) {
+                hotQuantities.merge(reservation.getProductId(), reservation.getQuantity(), Integer::sum);
+            }
+            reservation.setStatus(STATUS_RELEASED);
+            reservation.setStockPending(false);
+            reservation.setExpiresAt(null);
+        }
+        if (!databaseQuantities.isEmpty()) {
+            productRepository.addStock(databaseQuantities);
+            afterStockChanged(databaseQuantities.keySet());
+        }
+        if (!hotQuantities.isEmpty()) {
+            TransactionUtils.runAfterCommit(() -> hotQuantities.forEach(hotStockService::release));
+        }
+    }
+
+    // Sản phẩm hot lấy hàng từ bộ đếm trong bộ nhớ, sản phẩm khác trừ trực tiếp trong database.
+    // Trả về id các sản phẩm hot (giữ chỗ stockPending); hàng lấy từ bộ đếm được trả lại nếu
+    // không đủ hàng hoặc transaction rollback
+    private Set<Long> takeStock(Map<Long, Integer> quantities) {
+        Map<Long, Integer> databaseQuantities = new TreeMap<>();
+        Map<Long, Integer> acquired = new TreeMap<>();
+        for (Map.Entry<Long, Integer> entry : quantities.entrySet()) {
+            Long productId = entry.getKey();
+            if (!hotStockService.isHot(productId)) {
+                databaseQuantities.put(productId, entry.getValue());
+            } else if (hotStockService.tryAcquire(productId, entry.getValue())) {
+                acquired.put(productId, entry.getValue());
+            } else {
+                acquired.forEach(hotStockService::release);
+                throw insufficientStock(productId, entry.getValue(), hotStockService.getAvailable(productId));
+            }
+        }
+        if (!databaseQuantities.isEmpty()) {
+            List<Long> insufficient = productRepository.decrementStock(databaseQuantities);
+            if (!insufficient.isEmpty()) {
+                acquired.forEach(hotStockService::release);
+                Long productId = insufficient.get(0);
+                throw insufficientStock(productId, databaseQuantities.get(productId), null);
+            }
+        }
+        if (!acquired.isEmpty()) {
+            TransactionUtils.runAfterRollback(() -> acquired.forEach(hotStockService::release));
+        }
+        return acquired.keySet();
+    }
+
+    // available == null: đọc lại từ database (dòng không đủ hàng không bị trừ nên là tồn kho thực tế)
+    private ProductException insufficientStock(Long productId, int requested, Integer available) {
+        Product product = productRepository.findById(productId);
+        if (product == null) {
+            return new ProductException.ProductNotFoundException(productId);
+        }
+        if (available == null) {
+            sessionFactory.getCurrentSession().refresh(product);
+            available = product.getQuantity();
+        }
+        return new ProductException.InsufficientStockException(product.getName(), requested, available);
+    }
+
+    private static Set<Long> withoutPending(Set<Long> productIds, Set<Long> pendingProductIds) {
+        Set<Long> result = new TreeSet<>(productIds);
+        result.removeAll(pendingProductIds);
+        return result;
+    }
+
+    private static Map<Long, Integer> toQuantities(List<StockReservation> reservations) {
+        Map<Long, Integer> quantities = new TreeMap<>();
+        for (StockReservation reservation : reservations) {
+            quantities.merge(reservation.getProductId(), reservation.getQuantity(), Integer::sum);
+        }
+        return quantities;
+    }
+
+    // Kho được cập nhật bằng JDBC nên phải tự xoá Product khỏi second-level cache (sau commit, để
+    // request khác không nạp lại giá trị cũ vào cache) và cập nhật index tìm kiếm (lọc còn hàng)
+    private void afterStockChanged(Collection<Long> productIds) {
+        List<Long> ids = List.copyOf(productIds);
+        TransactionUtils.runAfterCommit(() -> {
+            for (Long productId : ids) {
+                sessionFactory.getCache().evictEntityData(Product.class, productId);
+            }
+        });
+        for (Long productId : ids) {
+            productSearchService.indexProduct(productId);
+        }
+    }
+}
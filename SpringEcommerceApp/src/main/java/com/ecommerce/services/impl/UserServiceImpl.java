@@ -7,6 +7,7 @@ import com.ecommerce.pojo.Store;
 import com.ecommerce.repositories.UserRepository;
 import com.ecommerce.services.UserService;
 import com.ecommerce.services.SellerRequestService;
+import com.ecommerce.utils.JwtUtils;
 import java.io.IOException;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Lazy;
@@ -146,7 +147,7 @@ public class UserServiceImpl implements UserService {    @Autowired
     @CacheEvict(value = "users", key = "#user.id")
     public void update(User user) {
         userRepository.update(user);
-        userDetailsCache.remove(user.getUsername());
+        evictUserDetails(user.getUsername());
     }
 
     @Override
@@ -156,7 +157,7 @@ public class UserServiceImpl implements UserService {    @Autowired
         User user = userRepository.findById(id);
         if (user != null) {
             try {
-                userDetailsCache.remove(user.getUsername());
+                evictUserDetails(user.getUsername());
                 
                 System.out.println("Xóa user với ID=" + id);
                 
@@ -190,6 +191,19 @@ public class UserServiceImpl implements UserService {    @Autowired
         return userRepository.findAll();
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public List<User> findByFilters(String keyword, String roleName, Boolean active, Long afterId,
+            int page, int size) {
+        return userRepository.findByFilters(keyword, roleName, active, afterId, page, size);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public long countByFilters(String keyword, String roleName, Boolean active) {
+        return userRepository.countByFilters(keyword, roleName, active);
+    }
+
     @Override
     public User findByUsername(String username) {
         if (username == null || username.trim().isEmpty()) {
@@ -272,7 +286,7 @@ public class UserServiceImpl implements UserService {    @Autowired
                 
                 userRepository.update(user);
                 
-                userDetailsCache.remove(user.getUsername());
+                evictUserDetails(user.getUsername());
             }
         } catch (IOException e) {
             throw new RuntimeException("Không thể cập nhật avatar: " + e.getMessage());
@@ -299,7 +313,7 @@ public class UserServiceImpl implements UserService {    @Autowired
         userRepository.update(user);
         
         // Xóa cache
-        userDetailsCache.remove(user.getUsername());
+        evictUserDetails(user.getUsername());
     }
     
     @Override
@@ -430,7 +444,7 @@ public class UserServiceImpl implements UserService {    @Autowired
    
     @Override
     public void addRoleToUser(User user, Role role) {
-        userDetailsCache.remove(user.getUsername());
+        evictUserDetails(user.getUsername());
         
         if (user.getRoles() == null) {
             user.setRoles(new HashSet<>());
@@ -466,13 +480,22 @@ public class UserServiceImpl implements UserService {    @Autowired
         user.setRoles(roles);
         userRepository.update(user);
         
-        userDetailsCache.remove(user.getUsername());
+        evictUserDetails(user.getUsername());
     }
     
+    // UserDetails của user nằm ở userDetailsCache và cùng các token đã xác thực trong JwtUtils
+    private void evictUserDetails(String username) {
+        if (username == null) {
+            return;
+        }
+        userDetailsCache.remove(username);
+        JwtUtils.evictUserDetails(username);
+    }
+
     @Override
     public void clearUserCache(String username) {
         if (username != null) {
-            userDetailsCache.remove(username);
+            evictUserDetails(username);
             System.out.println("Cleared cache for user: " + username);
         }
     }       @Override
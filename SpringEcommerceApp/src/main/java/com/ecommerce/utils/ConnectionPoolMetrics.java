@@ -0,0 +1,121 @@
+package com.ecommerce.utils;
+
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Thu thập số liệu của connection pool (active, idle, pending) và histogram
+ * thời gian lấy connection cho từng pool HikariCP.
+ */
+public class ConnectionPoolMetrics implements MetricsTrackerFactory {
+
+    // Cận trên của các bucket (micro giây); bucket cuối chứa mọi giá trị lớn hơn
+    private static final long[] ACQUIRE_BUCKETS_MICROS = {
+            100, 250, 500, 1_000, 2_500, 5_000, 10_000, 25_000, 50_000, 100_000, 250_000, 500_000, 1_000_000
+    };
+
+    private final Map<String, PoolTracker> trackers = new ConcurrentHashMap<>();
+
+    @Override
+    public IMetricsTracker create(String poolName, PoolStats poolStats) {
+        PoolTracker tracker = new PoolTracker(poolStats);
+        trackers.put(poolName, tracker);
+        return tracker;
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> pools = new LinkedHashMap<>();
+        trackers.forEach((name, tracker) -> pools.put(name, tracker.snapshot()));
+        return pools;
+    }
+
+    private static class PoolTracker implements IMetricsTracker {
+        private final PoolStats poolStats;
+        private final LongAdder[] acquireBuckets = new LongAdder[ACQUIRE_BUCKETS_MICROS.length + 1];
+        private final LongAdder acquireCount = new LongAdder();
+        private final LongAdder acquireTotalNanos = new LongAdder();
+        private final LongAccumulator acquireMaxNanos = new LongAccumulator(Math::max, 0);
+        private final LongAdder usageCount = new LongAdder();
+        private final LongAdder usageTotalMillis = new LongAdder();
+        private final LongAdder createdCount = new LongAdder();
+        private final LongAdder createdTotalMillis = new LongAdder();
+        private final LongAdder timeouts = new LongAdder();
+
+        PoolTracker(PoolStats poolStats) {
+            this.poolStats = poolStats;
+            for (int i = 0; i < acquireBuckets.length; i++) {
+                acquireBuckets[i] = new LongAdder();
+            }
+        }
+
+        @Override
+        public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+            long micros = TimeUnit.NANOSECONDS.toMicros(elapsedAcquiredNanos);
+            int bucket = 0;
+            while (bucket < ACQUIRE_BUCKETS_MICROS.length && micros > ACQUIRE_BUCKETS_MICROS[bucket]) {
+                bucket++;
+            }
+            acquireBuckets[bucket].increment();
+            acquireCount.increment();
+            acquireTotalNanos.add(elapsedAcquiredNanos);
+            acquireMaxNanos.accumulate(elapsedAcquiredNanos);
+        }
+
+        @Override
+        public void recordConnectionUsageMillis(long elapsedBorrowedMillis) {
+            usageCount.increment();
+            usageTotalMillis.add(elapsedBorrowedMillis);
+        }
+
+        @Override
+        public void recordConnectionCreatedMillis(long connectionCreatedMillis) {
+            createdCount.increment();
+            createdTotalMillis.add(connectionCreatedMillis);
+        }
+
+        @Override
+        public void recordConnectionTimeout() {
+            timeouts.increment();
+        }
+
+        Map<String, Object> snapshot() {
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("active", poolStats.getActiveConnections());
+            result.put("idle", poolStats.getIdleConnections());
+            result.put("pending", poolStats.getPendingThreads());
+            result.put("total", poolStats.getTotalConnections());
+            result.put("max", poolStats.getMaxConnections());
+            result.put("min", poolStats.getMinConnections());
+
+            long count = acquireCount.sum();
+            Map<String, Object> acquire = new LinkedHashMap<>();
+            acquire.put("count", count);
+            acquire.put("meanMicros", count == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(acquireTotalNanos.sum() / count));
+            acquire.put("maxMicros", TimeUnit.NANOSECONDS.toMicros(acquireMaxNanos.get()));
+            acquire.put("timeouts", timeouts.sum());
+            Map<String, Long> histogram = new LinkedHashMap<>();
+            for (int i = 0; i < ACQUIRE_BUCKETS_MICROS.length; i++) {
+                histogram.put("le_" + ACQUIRE_BUCKETS_MICROS[i] + "us", acquireBuckets[i].sum());
+            }
+            histogram.put("gt_" + ACQUIRE_BUCKETS_MICROS[ACQUIRE_BUCKETS_MICROS.length - 1] + "us",
+                    acquireBuckets[ACQUIRE_BUCKETS_MICROS.length].sum());
+            acquire.put("histogram", histogram);
+            result.put("acquire", acquire);
+
+            long usages = usageCount.sum();
+            result.put("usageCount", usages);
+            result.put("usageMeanMillis", usages == 0 ? 0 : usageTotalMillis.sum() / usages);
+            long created = createdCount.sum();
+            result.put("connectionsCreated", created);
+            result.put("connectionCreateMeanMillis", created == 0 ? 0 : createdTotalMillis.sum() / created);
+            return result;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.ecommerce.utils;
+
+import org.apache.poi.ss.SpreadsheetVersion;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.FillPatternType;
+import org.apache.poi.ss.usermodel.Font;
+import org.apache.poi.ss.usermodel.IndexedColors;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+
+import java.io.IOException;
+
+public class ExcelUtils {
+    public static final String CONTENT_TYPE = "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet";
+
+    // Số dòng giữ trong bộ nhớ khi ghi; dòng cũ hơn được đẩy xuống file tạm (nén)
+    public static final int ROW_WINDOW = 100;
+
+    public static final int MAX_ROWS = SpreadsheetVersion.EXCEL2007.getMaxRows();
+
+    public static SXSSFWorkbook createStreamingWorkbook() {
+        SXSSFWorkbook workbook = new SXSSFWorkbook(ROW_WINDOW);
+        workbook.setCompressTempFiles(true);
+        return workbook;
+    }
+
+    public static CellStyle createHeaderStyle(Workbook workbook) {
+        CellStyle headerStyle = workbook.createCellStyle();
+        headerStyle.setFillForegroundColor(IndexedColors.LIGHT_BLUE.getIndex());
+        headerStyle.setFillPattern(FillPatternType.SOLID_FOREGROUND);
+        Font font = workbook.createFont();
+        font.setFontHeightInPoints((short) 12);
+        font.setBold(true);
+        headerStyle.setFont(font);
+        return headerStyle;
+    }
+
+    // autoSizeColumn cần đọc lại mọi dòng nên không dùng được khi ghi theo cửa sổ; độ rộng cố định tính theo số ký tự
+    public static void writeHeader(Sheet sheet, CellStyle headerStyle, String[] headers, int[] widths) {
+        Row headerRow = sheet.createRow(0);
+        for (int i = 0; i < headers.length; i++) {
+            Cell cell = headerRow.createCell(i);
+            cell.setCellValue(headers[i]);
+            cell.setCellStyle(headerStyle);
+            sheet.setColumnWidth(i, widths[i] * 256);
+        }
+    }
+
+    // Xoá file tạm của workbook, gọi trong finally kể cả khi ghi lỗi
+    @SuppressWarnings("deprecation")
+    public static void dispose(SXSSFWorkbook workbook) {
+        workbook.dispose();
+        try {
+            workbook.close();
+        } catch (IOException ignored) {
+            // Không còn gì để giải phóng
+        }
+    }
+}
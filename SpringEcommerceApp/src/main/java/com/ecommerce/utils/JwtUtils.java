@@ -12,7 +12,17 @@ import com.nimbusds.jose.crypto.MACSigner;
 import com.nimbusds.jose.crypto.MACVerifier;
 import com.nimbusds.jwt.JWTClaimsSet;
 import com.nimbusds.jwt.SignedJWT;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
 import java.util.Date;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -29,8 +39,55 @@ public class JwtUtils {
     private static final String SECRET = "12345678901234567890123456789012"; // 32 ký tự (AES key)
     private static final long EXPIRATION_MS = 86400000; // 1 ngày
 
+    // Token đã xác thực được giữ tối đa 10 phút (và không quá thời điểm hết hạn của token)
+    private static final long VERIFIED_CACHE_MAX_SIZE = 10_000;
+    private static final long VERIFIED_CACHE_TTL_NANOS = TimeUnit.MINUTES.toNanos(10);
+
+    // MACSigner/MACVerifier không giữ trạng thái sau khi khởi tạo nên dùng chung được giữa các thread
+    private static final JWSSigner SIGNER;
+    private static final JWSVerifier VERIFIER;
+    static {
+        try {
+            SIGNER = new MACSigner(SECRET);
+            VERIFIER = new MACVerifier(SECRET);
+        } catch (Exception e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    // Key là SHA-256 của token để không giữ nguyên token trong bộ nhớ
+    private static final Cache<String, VerifiedToken> VERIFIED_TOKENS = Caffeine.newBuilder()
+            .maximumSize(VERIFIED_CACHE_MAX_SIZE)
+            .expireAfter(new Expiry<String, VerifiedToken>() {
+                @Override
+                public long expireAfterCreate(String key, VerifiedToken value, long currentTime) {
+                    long untilExpiry = TimeUnit.MILLISECONDS.toNanos(value.expiresAt() - System.currentTimeMillis());
+                    return Math.max(0, Math.min(untilExpiry, VERIFIED_CACHE_TTL_NANOS));
+                }
+
+                @Override
+                public long expireAfterUpdate(String key, VerifiedToken value, long currentTime,
+                        long currentDuration) {
+                    return expireAfterCreate(key, value, currentTime);
+                }
+
+                @Override
+                public long expireAfterRead(String key, VerifiedToken value, long currentTime,
+                        long currentDuration) {
+                    return currentDuration;
+                }
+            })
+            .build();
+
+    // userDetails: UserDetails đã nạp cho token này (null nếu chưa nạp), bỏ đi khi user thay đổi
+    private record VerifiedToken(String username, long expiresAt, UserDetails userDetails) {
+    }
+
+    // Tăng mỗi lần evictUserDetails, để không lưu UserDetails nạp trước một lần evict
+    private static final AtomicLong USER_DETAILS_EVICTIONS = new AtomicLong();
+
     public static String generateToken(String username) throws Exception {
-        JWSSigner signer = new MACSigner(SECRET);
+        JWSSigner signer = SIGNER;
 
         JWTClaimsSet claimsSet = new JWTClaimsSet.Builder()
                 .subject(username)
@@ -45,7 +102,7 @@ public class JwtUtils {
 
         signedJWT.sign(signer);
         
-        logger.info("Generated token for user: {}", username);
+        logger.debug("Generated token for user: {}", username);
         
         return signedJWT.serialize();
     }
@@ -56,15 +113,27 @@ public class JwtUtils {
             return null;
         }
         
+        String cacheKey = digest(token);
+        VerifiedToken cached = VERIFIED_TOKENS.getIfPresent(cacheKey);
+        if (cached != null) {
+            if (cached.expiresAt() > System.currentTimeMillis()) {
+                return cached.username();
+            }
+            VERIFIED_TOKENS.invalidate(cacheKey);
+        }
+
         try {
             SignedJWT signedJWT = SignedJWT.parse(token);
-            JWSVerifier verifier = new MACVerifier(SECRET);
 
-            if (signedJWT.verify(verifier)) {
-                Date expiration = signedJWT.getJWTClaimsSet().getExpirationTime();
+            if (signedJWT.verify(VERIFIER)) {
+                JWTClaimsSet claims = signedJWT.getJWTClaimsSet();
+                Date expiration = claims.getExpirationTime();
                 if (expiration != null && expiration.after(new Date())) {
-                    String username = signedJWT.getJWTClaimsSet().getSubject();
-                    logger.info("Validated token for user: {}", username);
+                    String username = claims.getSubject();
+                    if (username != null) {
+                        VERIFIED_TOKENS.put(cacheKey, new VerifiedToken(username, expiration.getTime(), null));
+                    }
+                    logger.debug("Validated token for user: {}", username);
                     return username;
                 } else {
                     logger.warn("Token has expired or no expiration date");
@@ -110,6 +179,12 @@ public class JwtUtils {
     }
     
     public static String extractUsernameFromRequest(jakarta.servlet.http.HttpServletRequest request) {
+        // JwtAuthenticationFilter đã xác thực token của request này
+        Object verifiedUsername = request.getAttribute("jwt_username");
+        if (verifiedUsername != null) {
+            return verifiedUsername.toString();
+        }
+
         String authHeader = request.getHeader("Authorization");
         if (authHeader != null && authHeader.startsWith("Bearer ")) {
             String token = authHeader.substring(7);
@@ -124,4 +199,48 @@ public class JwtUtils {
         
         return null;
     }
+
+    // UserDetails đã lưu cùng token đã xác thực (null nếu chưa có hoặc token chưa được xác thực)
+    public static UserDetails getCachedUserDetails(String token) {
+        VerifiedToken cached = VERIFIED_TOKENS.getIfPresent(digest(token));
+        if (cached == null || cached.expiresAt() <= System.currentTimeMillis()) {
+            return null;
+        }
+        return cached.userDetails();
+    }
+
+    // Đọc trước khi nạp UserDetails rồi truyền cho cacheUserDetails
+    public static long userDetailsEvictions() {
+        return USER_DETAILS_EVICTIONS.get();
+    }
+
+    // Lưu UserDetails cùng token đã xác thực; bỏ qua nếu đã có evictUserDetails kể từ lúc bắt đầu nạp
+    public static void cacheUserDetails(String token, UserDetails userDetails, long evictionsBeforeLoad) {
+        if (userDetails == null) {
+            return;
+        }
+        VERIFIED_TOKENS.asMap().computeIfPresent(digest(token), (key, cached) ->
+                USER_DETAILS_EVICTIONS.get() == evictionsBeforeLoad
+                        && cached.username().equals(userDetails.getUsername())
+                        ? new VerifiedToken(cached.username(), cached.expiresAt(), userDetails)
+                        : cached);
+    }
+
+    // Gọi khi user đổi mật khẩu/quyền/trạng thái hoặc bị xoá: các token của user phải nạp lại UserDetails
+    public static void evictUserDetails(String username) {
+        if (username == null) {
+            return;
+        }
+        USER_DETAILS_EVICTIONS.incrementAndGet();
+        VERIFIED_TOKENS.asMap().values().removeIf(cached -> username.equals(cached.username()));
+    }
+
+    private static String digest(String token) {
+        try {
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            return Base64.getEncoder().encodeToString(sha256.digest(token.getBytes(StandardCharsets.US_ASCII)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
 }
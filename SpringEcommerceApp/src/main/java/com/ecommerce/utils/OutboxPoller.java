@@ -0,0 +1,83 @@
+package com.ecommerce.utils;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.IntSupplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Luồng nền của một bảng outbox: gọi dispatch liên tục, nhận đủ số tối đa (fullBatch) thì chạy tiếp không chờ
+ * vì có thể còn dòng đến hạn, ngược lại nghỉ poll-interval. wakeUpAfterCommit() cho dòng mới được xử lý ngay
+ * sau commit thay vì chờ tới lượt quét kế tiếp. Kèm backoff/truncate dùng chung khi ghi lại lần thử lỗi.
+ */
+public class OutboxPoller {
+    private static final Logger logger = LoggerFactory.getLogger(OutboxPoller.class);
+
+    private final String name;
+    private final IntSupplier dispatch;
+    private final int fullBatch;
+    private final long pollIntervalMs;
+
+    private Thread thread;
+    private volatile boolean running;
+
+    public OutboxPoller(String name, IntSupplier dispatch, int fullBatch, long pollIntervalMs) {
+        this.name = name;
+        this.dispatch = dispatch;
+        this.fullBatch = fullBatch;
+        this.pollIntervalMs = pollIntervalMs;
+    }
+
+    public void start() {
+        running = true;
+        thread = new Thread(this::loop, name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    // Dừng sau lượt dispatch đang chạy, chờ tối đa waitMs
+    public void stop(long waitMs) {
+        running = false;
+        LockSupport.unpark(thread);
+        try {
+            thread.join(waitMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public void wakeUpAfterCommit() {
+        TransactionUtils.runAfterCommit(() -> LockSupport.unpark(thread));
+    }
+
+    private void loop() {
+        while (running) {
+            int claimed = 0;
+            try {
+                claimed = dispatch.getAsInt();
+            } catch (Exception e) {
+                logger.error("{} dispatch failed: {}", name, e.getMessage(), e);
+            }
+            if (claimed < fullBatch && running) {
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(pollIntervalMs));
+            }
+        }
+    }
+
+    // retryBaseMs * 2^(attempts - 1), tối đa maxBackoffMs, cộng thêm tới 20% ngẫu nhiên để các dòng lỗi
+    // cùng lúc không thử lại cùng lúc
+    public static long backoff(long retryBaseMs, int attempts, long maxBackoffMs) {
+        long delay = retryBaseMs << Math.min(attempts - 1, 30);
+        delay = Math.min(Math.max(delay, retryBaseMs), maxBackoffMs);
+        return delay + ThreadLocalRandom.current().nextLong(delay / 5 + 1);
+    }
+
+    public static String truncate(String value, int maxLength) {
+        if (value == null) {
+            return null;
+        }
+        return value.length() > maxLength ? value.substring(0, maxLength) : value;
+    }
+}
@@ -0,0 +1,281 @@
+package com.ecommerce.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Trie cho gợi ý tìm kiếm: mỗi node lưu sẵn top-k gợi ý (theo weight) của cả nhánh con,
+ * nên tra cứu chỉ cần đi theo tiền tố, không phải duyệt cây. Thêm/xoá một gợi ý chỉ tính
+ * lại top-k trên các node thuộc đường đi của nó.
+ */
+public class SuggestionTrie {
+
+    public static final class Suggestion {
+        private final String key;
+        private final String type;
+        private final Long id;
+        private final String text;
+        private final long weight;
+
+        public Suggestion(String type, Long id, String text, long weight) {
+            this.key = type + ":" + id;
+            this.type = type;
+            this.id = id;
+            this.text = text;
+            this.weight = weight;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public String getType() {
+            return type;
+        }
+
+        public Long getId() {
+            return id;
+        }
+
+        public String getText() {
+            return text;
+        }
+
+        public long getWeight() {
+            return weight;
+        }
+    }
+
+    private static final Comparator<Suggestion> BY_WEIGHT = Comparator
+            .comparingLong(Suggestion::getWeight).reversed()
+            .thenComparing(Suggestion::getText, Comparator.nullsLast(Comparator.naturalOrder()));
+
+    private static final Suggestion[] NO_SUGGESTIONS = new Suggestion[0];
+
+    private static final class Node {
+        char[] labels = new char[0];
+        Node[] children = new Node[0];
+        List<Suggestion> terminals;
+        Suggestion[] top = NO_SUGGESTIONS;
+
+        Node child(char label) {
+            int index = Arrays.binarySearch(labels, label);
+            return index >= 0 ? children[index] : null;
+        }
+
+        Node getOrCreateChild(char label) {
+            int index = Arrays.binarySearch(labels, label);
+            if (index >= 0) {
+                return children[index];
+            }
+            int insertAt = -index - 1;
+            Node child = new Node();
+            char[] newLabels = new char[labels.length + 1];
+            Node[] newChildren = new Node[children.length + 1];
+            System.arraycopy(labels, 0, newLabels, 0, insertAt);
+            System.arraycopy(children, 0, newChildren, 0, insertAt);
+            newLabels[insertAt] = label;
+            newChildren[insertAt] = child;
+            System.arraycopy(labels, insertAt, newLabels, insertAt + 1, labels.length - insertAt);
+            System.arraycopy(children, insertAt, newChildren, insertAt + 1, children.length - insertAt);
+            labels = newLabels;
+            children = newChildren;
+            return child;
+        }
+
+        void removeChild(char label) {
+            int index = Arrays.binarySearch(labels, label);
+            if (index < 0) {
+                return;
+            }
+            char[] newLabels = new char[labels.length - 1];
+            Node[] newChildren = new Node[children.length - 1];
+            System.arraycopy(labels, 0, newLabels, 0, index);
+            System.arraycopy(children, 0, newChildren, 0, index);
+            System.arraycopy(labels, index + 1, newLabels, index, labels.length - index - 1);
+            System.arraycopy(children, index + 1, newChildren, index, children.length - index - 1);
+            labels = newLabels;
+            children = newChildren;
+        }
+
+        boolean isEmpty() {
+            return labels.length == 0 && (terminals == null || terminals.isEmpty());
+        }
+    }
+
+    private final int topK;
+    private final int maxKeyLength;
+    private final Node root = new Node();
+    // key của gợi ý -> các chuỗi đã đưa vào trie cho gợi ý đó (để xoá chính xác)
+    private final Map<String, List<String>> indexedTerms = new HashMap<>();
+    private final Map<String, Suggestion> suggestions = new HashMap<>();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public SuggestionTrie(int topK, int maxKeyLength) {
+        this.topK = topK;
+        this.maxKeyLength = maxKeyLength;
+    }
+
+    /**
+     * Thêm hoặc thay thế gợi ý. terms là các chuỗi (đã chuẩn hoá) dẫn tới gợi ý này,
+     * chỉ tối đa maxKeyLength ký tự đầu của mỗi chuỗi được lưu.
+     */
+    public void put(Suggestion suggestion, List<String> terms) {
+        lock.writeLock().lock();
+        try {
+            putInternal(suggestion, terms, true);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Nạp hàng loạt: chèn hết rồi mới tính top-k một lần cho toàn cây
+    public void putAll(Map<Suggestion, List<String>> entries) {
+        lock.writeLock().lock();
+        try {
+            entries.forEach((suggestion, terms) -> putInternal(suggestion, terms, false));
+            recomputeAll(root);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(String key) {
+        lock.writeLock().lock();
+        try {
+            removeInternal(key);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public Suggestion get(String key) {
+        lock.readLock().lock();
+        try {
+            return suggestions.get(key);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<Suggestion> suggest(String prefix, int limit) {
+        lock.readLock().lock();
+        try {
+            Node node = root;
+            int length = Math.min(prefix.length(), maxKeyLength);
+            for (int i = 0; i < length && node != null; i++) {
+                node = node.child(prefix.charAt(i));
+            }
+            if (node == null) {
+                return Collections.emptyList();
+            }
+            Suggestion[] top = node.top;
+            return Arrays.asList(Arrays.copyOf(top, Math.max(0, Math.min(limit, top.length))));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return suggestions.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void putInternal(Suggestion suggestion, List<String> terms, boolean recompute) {
+        removeInternal(suggestion.getKey());
+        List<String> keys = new ArrayList<>();
+        for (String term : terms) {
+            String key = term.length() > maxKeyLength ? term.substring(0, maxKeyLength) : term;
+            if (key.isEmpty() || keys.contains(key)) {
+                continue;
+            }
+            keys.add(key);
+            insert(key, suggestion, recompute);
+        }
+        indexedTerms.put(suggestion.getKey(), keys);
+        suggestions.put(suggestion.getKey(), suggestion);
+    }
+
+    private void insert(String key, Suggestion suggestion, boolean recompute) {
+        Node[] path = new Node[key.length() + 1];
+        path[0] = root;
+        for (int i = 0; i < key.length(); i++) {
+            path[i + 1] = path[i].getOrCreateChild(key.charAt(i));
+        }
+        Node leaf = path[key.length()];
+        if (leaf.terminals == null) {
+            leaf.terminals = new ArrayList<>(1);
+        }
+        leaf.terminals.add(suggestion);
+        if (recompute) {
+            for (int i = path.length - 1; i >= 0; i--) {
+                recomputeTop(path[i]);
+            }
+        }
+    }
+
+    private void recomputeAll(Node node) {
+        for (Node child : node.children) {
+            recomputeAll(child);
+        }
+        recomputeTop(node);
+    }
+
+    private void removeInternal(String suggestionKey) {
+        List<String> keys = indexedTerms.remove(suggestionKey);
+        suggestions.remove(suggestionKey);
+        if (keys == null) {
+            return;
+        }
+        for (String key : keys) {
+            Node[] path = new Node[key.length() + 1];
+            path[0] = root;
+            for (int i = 0; i < key.length() && path[i] != null; i++) {
+                path[i + 1] = path[i].child(key.charAt(i));
+            }
+            Node leaf = path[key.length()];
+            if (leaf == null) {
+                continue;
+            }
+            if (leaf.terminals != null) {
+                leaf.terminals.removeIf(suggestion -> suggestion.getKey().equals(suggestionKey));
+            }
+            for (int i = path.length - 1; i >= 0; i--) {
+                if (i > 0 && path[i].isEmpty()) {
+                    path[i - 1].removeChild(key.charAt(i - 1));
+                } else {
+                    recomputeTop(path[i]);
+                }
+            }
+        }
+    }
+
+    private void recomputeTop(Node node) {
+        // Cùng một gợi ý có thể xuất hiện ở nhiều nhánh con, giữ một bản
+        Map<String, Suggestion> candidates = new LinkedHashMap<>();
+        if (node.terminals != null) {
+            for (Suggestion suggestion : node.terminals) {
+                candidates.put(suggestion.getKey(), suggestion);
+            }
+        }
+        for (Node child : node.children) {
+            for (Suggestion suggestion : child.top) {
+                candidates.putIfAbsent(suggestion.getKey(), suggestion);
+            }
+        }
+        List<Suggestion> sorted = new ArrayList<>(candidates.values());
+        sorted.sort(BY_WEIGHT);
+        node.top = sorted.subList(0, Math.min(topK, sorted.size())).toArray(NO_SUGGESTIONS);
+    }
+}
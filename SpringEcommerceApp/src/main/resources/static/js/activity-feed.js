@@ -0,0 +1,95 @@
+/**
+ * activity-feed.js - Nhận hoạt động mới qua Server-Sent Events và thêm vào bảng "Hoạt động gần đây"
+ * Trình duyệt tự kết nối lại khi mất kết nối và gửi kèm Last-Event-ID để nhận phần còn thiếu
+ */
+var ACTIVITY_FEED_MAX_ROWS = 10;
+
+var ACTIVITY_BADGES = {
+    LOGIN: ['Đăng nhập', 'bg-success'],
+    LOGOUT: ['Đăng xuất', 'bg-secondary'],
+    USER_REGISTERED: ['Đăng ký', 'bg-info'],
+    ORDER_CREATED: ['Đặt hàng', 'bg-primary'],
+    ORDER_STATUS_CHANGED: ['Cập nhật đơn', 'bg-warning'],
+    PRODUCT_ADDED: ['Thêm SP', 'bg-success'],
+    PRODUCT_UPDATED: ['Sửa SP', 'bg-info'],
+    PRODUCT_DELETED: ['Xóa SP', 'bg-danger']
+};
+
+document.addEventListener('DOMContentLoaded', function() {
+    var container = document.getElementById('recentActivityTable');
+    if (!container || typeof EventSource === 'undefined') {
+        return;
+    }
+
+    var source = new EventSource(container.dataset.feedUrl + '?lastEventId='
+        + encodeURIComponent(container.dataset.lastEventId));
+    source.addEventListener('activity', function(event) {
+        prependActivity(JSON.parse(event.data));
+    });
+    // Phần còn thiếu đã bị đẩy khỏi bộ đệm của server hoặc server đã khởi động lại, tải lại trang để có danh sách đầy đủ
+    source.addEventListener('reset', function() {
+        source.close();
+        window.location.reload();
+    });
+});
+
+/**
+ * Thêm một dòng hoạt động lên đầu bảng, giữ tối đa ACTIVITY_FEED_MAX_ROWS dòng
+ */
+function prependActivity(activity) {
+    var rows = document.getElementById('recentActivityRows');
+    var row = document.createElement('tr');
+
+    var timeCell = document.createElement('td');
+    var time = document.createElement('span');
+    time.className = 'text-muted small';
+    time.textContent = activity.createdAt || '';
+    timeCell.appendChild(time);
+    row.appendChild(timeCell);
+
+    var userCell = document.createElement('td');
+    var userDiv = document.createElement('div');
+    var userName = document.createElement('strong');
+    userName.textContent = activity.userName != null ? activity.userName : (activity.userEmail || '');
+    userDiv.appendChild(userName);
+    userDiv.appendChild(document.createElement('br'));
+    if (activity.userName != null) {
+        var userEmail = document.createElement('small');
+        userEmail.className = 'text-muted';
+        userEmail.textContent = activity.userEmail || '';
+        userDiv.appendChild(userEmail);
+    }
+    userCell.appendChild(userDiv);
+    row.appendChild(userCell);
+
+    var descriptionCell = document.createElement('td');
+    var description = document.createElement('span');
+    description.textContent = activity.description || '';
+    descriptionCell.appendChild(description);
+    if (activity.ipAddress != null) {
+        var ip = document.createElement('div');
+        ip.className = 'text-muted small';
+        ip.textContent = 'IP: ' + activity.ipAddress;
+        descriptionCell.appendChild(ip);
+    }
+    row.appendChild(descriptionCell);
+
+    var typeCell = document.createElement('td');
+    var badge = document.createElement('span');
+    var badgeInfo = ACTIVITY_BADGES[activity.activityType];
+    badge.className = 'badge ' + (badgeInfo ? badgeInfo[1] : 'bg-light text-dark');
+    badge.textContent = badgeInfo ? badgeInfo[0] : activity.activityType;
+    typeCell.appendChild(badge);
+    row.appendChild(typeCell);
+
+    rows.insertBefore(row, rows.firstChild);
+    while (rows.children.length > ACTIVITY_FEED_MAX_ROWS) {
+        rows.removeChild(rows.lastElementChild);
+    }
+
+    document.getElementById('recentActivityTable').classList.remove('d-none');
+    var empty = document.getElementById('recentActivityEmpty');
+    if (empty) {
+        empty.remove();
+    }
+}
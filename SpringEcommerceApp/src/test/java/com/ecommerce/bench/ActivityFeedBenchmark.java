@@ -0,0 +1,218 @@
+package com.ecommerce.bench;
+
+import com.ecommerce.pojo.RecentActivity;
+import com.ecommerce.repositories.RecentActivityRepository;
+import com.ecommerce.services.ActivityFeedService;
+import com.ecommerce.services.impl.ActivityFeedServiceImpl;
+import java.lang.reflect.Proxy;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.autoconfigure.security.servlet.SecurityAutoConfiguration;
+import org.springframework.boot.autoconfigure.security.servlet.SecurityFilterAutoConfiguration;
+import org.springframework.boot.autoconfigure.security.servlet.UserDetailsServiceAutoConfiguration;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * Đo số lượt gửi SSE mỗi giây của ActivityFeedServiceImpl với nhiều kết nối đồng thời trên một node.
+ * Chạy ActivityFeedServiceImpl thật trong Undertow (không database, không security), mở N kết nối
+ * GET /feed bằng NIO không chặn, phát E sự kiện theo lô B (mặc định app.activity.batch-size: mỗi lượt ghi
+ * của ActivityLogWriter là một lần publish) rồi đếm số sự kiện "activity" mỗi kết nối nhận được.
+ *
+ * Chạy (từ thư mục SpringEcommerceApp):
+ * <pre>
+ * mvn -q test-compile dependency:build-classpath -Dmdep.outputFile=target/bench.cp
+ * java -cp target/classes:target/test-classes:$(cat target/bench.cp) \
+ *     com.ecommerce.bench.ActivityFeedBenchmark 1000,4000,8000 1000 500
+ * </pre>
+ * Tham số: danh sách số kết nối, số sự kiện mỗi lượt, kích thước lô. Các lô được phát liền nhau không nghỉ,
+ * nên phát dồn nhiều hơn app.activity.feed.client-buffer (1000) sự kiện thì kết nối chưa kịp gửi bị coi là
+ * chậm và bị đóng (slowDisconnects). Kết nối nhiều cần nâng ulimit -n.
+ */
+@SpringBootConfiguration
+@EnableAutoConfiguration(exclude = { DataSourceAutoConfiguration.class, SecurityAutoConfiguration.class,
+        UserDetailsServiceAutoConfiguration.class, SecurityFilterAutoConfiguration.class })
+@RestController
+public class ActivityFeedBenchmark {
+    private static final int PORT = 18080;
+    private static final byte[] EVENT_MARK = "event:activity".getBytes(StandardCharsets.US_ASCII);
+
+    private static ActivityFeedService service;
+    private static final ByteBuffer readBuffer = ByteBuffer.allocate(65536);
+
+    @Bean
+    ActivityFeedService activityFeedService() {
+        return new ActivityFeedServiceImpl();
+    }
+
+    // Không có database: ring buffer khởi tạo rỗng
+    @Bean
+    RecentActivityRepository recentActivityRepository() {
+        return (RecentActivityRepository) Proxy.newProxyInstance(ActivityFeedBenchmark.class.getClassLoader(),
+                new Class<?>[] { RecentActivityRepository.class }, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "equals":
+                            return proxy == args[0];
+                        case "toString":
+                            return "RecentActivityRepository(benchmark)";
+                        default:
+                            return method.getReturnType() == List.class ? List.of() : null;
+                    }
+                });
+    }
+
+    @GetMapping(value = "/feed", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    SseEmitter feed(@RequestParam(required = false) String lastEventId) {
+        return service.subscribe(lastEventId);
+    }
+
+    public static void main(String[] args) throws Exception {
+        int[] levels = Arrays.stream((args.length > 0 ? args[0] : "1000,4000,8000").split(","))
+                .mapToInt(Integer::parseInt).toArray();
+        int events = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        int batchSize = args.length > 2 ? Integer.parseInt(args[2]) : 500;
+        // Tắt các logger DEBUG/TRACE của application.yml, log mỗi lần dispatch async làm sai kết quả đo
+        ConfigurableApplicationContext context = SpringApplication.run(ActivityFeedBenchmark.class,
+                "--server.ssl.enabled=false", "--server.port=" + PORT, "--server.servlet.context-path=/",
+                "--spring.main.banner-mode=off", "--logging.level.root=WARN",
+                "--logging.level.org.springframework.security=WARN", "--logging.level.org.springframework.web=WARN",
+                "--logging.level.org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping=WARN",
+                "--logging.level.com.ecommerce=WARN", "--logging.level.org.thymeleaf=WARN",
+                "--app.activity.feed.max-subscribers=100000");
+        service = context.getBean(ActivityFeedService.class);
+        for (int subscribers : levels) {
+            run(subscribers, events, batchSize);
+        }
+        context.close();
+        System.exit(0);
+    }
+
+    private static void run(int subscribers, int events, int batchSize) throws Exception {
+        Selector selector = Selector.open();
+        byte[] request = ("GET /feed HTTP/1.1\r\nHost: localhost\r\nAccept: text/event-stream\r\n\r\n")
+                .getBytes(StandardCharsets.US_ASCII);
+        List<SocketChannel> channels = new ArrayList<>();
+        for (int i = 0; i < subscribers; i++) {
+            SocketChannel channel = SocketChannel.open(new InetSocketAddress("127.0.0.1", PORT));
+            channel.write(ByteBuffer.wrap(request));
+            channel.configureBlocking(false);
+            // [số sự kiện đã nhận, số ký tự của EVENT_MARK đã khớp ở lần đọc trước]
+            channel.register(selector, SelectionKey.OP_READ, new int[] { 0, 0 });
+            channels.add(channel);
+        }
+        long waitStart = System.currentTimeMillis();
+        while (subscriberCount() < subscribers && System.currentTimeMillis() - waitStart < 60000) {
+            drain(selector, 10);
+        }
+        int connected = subscriberCount();
+        Map<String, Object> before = service.getStatistics();
+        long expected = (long) connected * events;
+
+        long start = System.nanoTime();
+        for (int from = 0; from < events; from += batchSize) {
+            List<RecentActivity> batch = new ArrayList<>();
+            for (int i = from; i < Math.min(from + batchSize, events); i++) {
+                batch.add(activity("LOGIN", "user" + i + " đã đăng nhập vào hệ thống", i));
+            }
+            service.publish(batch);
+            drain(selector, 0);
+        }
+        long received = 0;
+        long deadline = System.currentTimeMillis() + 120000;
+        while (received < expected && System.currentTimeMillis() < deadline) {
+            drain(selector, 50);
+            received = 0;
+            for (SelectionKey key : selector.keys()) {
+                received += ((int[]) key.attachment())[0];
+            }
+        }
+        long millis = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+        long slowDisconnects = (long) service.getStatistics().get("slowDisconnects")
+                - (long) before.get("slowDisconnects");
+        System.out.printf("subscribers=%d events=%d batch=%d delivered=%d/%d in %d ms (%.0f deliveries/s) "
+                + "slowDisconnects=%d%n", connected, events, batchSize, received, expected, millis,
+                received * 1000.0 / millis, slowDisconnects);
+
+        for (SocketChannel channel : channels) {
+            channel.close();
+        }
+        selector.close();
+        // Kết nối đã đóng chỉ bị phát hiện ở lần gửi kế tiếp
+        long closeStart = System.currentTimeMillis();
+        while (subscriberCount() > 0 && System.currentTimeMillis() - closeStart < 30000) {
+            service.publish(List.of(activity("LOGOUT", "close", 0)));
+            Thread.sleep(100);
+        }
+    }
+
+    private static RecentActivity activity(String type, String description, int user) {
+        RecentActivity activity = new RecentActivity();
+        activity.setActivityType(type);
+        activity.setDescription(description);
+        activity.setUserEmail("user" + user + "@example.com");
+        activity.setUserName("user" + user);
+        activity.setEntityType("USER");
+        activity.setIpAddress("10.0.0.1");
+        activity.setCreatedAt(LocalDateTime.now());
+        return activity;
+    }
+
+    private static int subscriberCount() {
+        return (int) service.getStatistics().get("subscribers");
+    }
+
+    // Đếm số lần xuất hiện "event:activity" trong dữ liệu nhận được của mỗi kết nối
+    private static void drain(Selector selector, long timeoutMs) throws Exception {
+        if ((timeoutMs == 0 ? selector.selectNow() : selector.select(timeoutMs)) == 0) {
+            return;
+        }
+        Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+        while (keys.hasNext()) {
+            SelectionKey key = keys.next();
+            keys.remove();
+            int[] state = (int[]) key.attachment();
+            SocketChannel channel = (SocketChannel) key.channel();
+            int read;
+            while ((read = channel.read(readBuffer)) > 0) {
+                readBuffer.flip();
+                while (readBuffer.hasRemaining()) {
+                    byte b = readBuffer.get();
+                    if (b == EVENT_MARK[state[1]]) {
+                        if (++state[1] == EVENT_MARK.length) {
+                            state[0]++;
+                            state[1] = 0;
+                        }
+                    } else {
+                        state[1] = b == EVENT_MARK[0] ? 1 : 0;
+                    }
+                }
+                readBuffer.clear();
+            }
+            if (read < 0) {
+                key.cancel();
+                channel.close();
+            }
+        }
+    }
+}
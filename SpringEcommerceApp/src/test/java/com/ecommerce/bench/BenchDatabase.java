@@ -0,0 +1,145 @@
+package com.ecommerce.bench;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import java.lang.reflect.Field;
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.springframework.orm.hibernate5.HibernateTransactionManager;
+import org.springframework.orm.hibernate5.LocalSessionFactoryBuilder;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Database H2 trong bộ nhớ (chế độ MySQL) cho các driver trong package này: schema tạo từ các entity
+ * trong com.ecommerce.pojo, transaction quản lý bởi HibernateTransactionManager như ứng dụng thật nên
+ * repository và service (kể cả TransactionUtils.runAfterCommit) chạy nguyên bản, chỉ thiếu Spring context:
+ * các field @Autowired được gán bằng {@link #inject}.
+ */
+final class BenchDatabase implements AutoCloseable {
+    private final HikariDataSource dataSource;
+    private final SessionFactory sessionFactory;
+    private final HibernateTransactionManager transactionManager;
+
+    BenchDatabase(String name, int poolSize) {
+        HikariConfig config = new HikariConfig();
+        config.setPoolName("bench-" + name);
+        config.setJdbcUrl("jdbc:h2:mem:" + name + ";MODE=MySQL;DB_CLOSE_DELAY=-1;DEFAULT_LOCK_TIMEOUT=30000");
+        config.setMaximumPoolSize(poolSize);
+        config.setAutoCommit(false);
+        dataSource = new HikariDataSource(config);
+
+        Properties props = new Properties();
+        props.setProperty("hibernate.hbm2ddl.auto", "create");
+        props.setProperty("hibernate.show_sql", "false");
+        props.setProperty("hibernate.connection.provider_disables_autocommit", "true");
+        props.setProperty("hibernate.jdbc.batch_size", "50");
+        props.setProperty("hibernate.order_inserts", "true");
+        props.setProperty("hibernate.order_updates", "true");
+        props.setProperty("hibernate.cache.use_second_level_cache", "false");
+        props.setProperty("hibernate.cache.use_query_cache", "false");
+        // Dùng để đếm số câu SQL mỗi lần chạy
+        props.setProperty("hibernate.generate_statistics", "true");
+        sessionFactory = new LocalSessionFactoryBuilder(dataSource)
+                .scanPackages("com.ecommerce.pojo")
+                .addProperties(props)
+                .buildSessionFactory();
+
+        transactionManager = new HibernateTransactionManager(sessionFactory);
+    }
+
+    SessionFactory sessionFactory() {
+        return sessionFactory;
+    }
+
+    HibernateTransactionManager transactionManager() {
+        return transactionManager;
+    }
+
+    Session currentSession() {
+        return sessionFactory.getCurrentSession();
+    }
+
+    TransactionTemplate transactionTemplate() {
+        return new TransactionTemplate(transactionManager);
+    }
+
+    // Repository *Impl chỉ cần SessionFactory
+    <T> T repository(Class<T> type) {
+        try {
+            T repository = type.getDeclaredConstructor().newInstance();
+            inject(repository, "sessionFactory", sessionFactory);
+            return repository;
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // Câu SQL đã chạy kể từ lần gọi trước
+    long takeStatementCount() {
+        long count = sessionFactory.getStatistics().getPrepareStatementCount();
+        sessionFactory.getStatistics().clear();
+        return count;
+    }
+
+    static void inject(Object target, String fieldName, Object value) {
+        for (Class<?> type = target.getClass(); type != null; type = type.getSuperclass()) {
+            try {
+                Field field = type.getDeclaredField(fieldName);
+                field.setAccessible(true);
+                field.set(target, value);
+                return;
+            } catch (NoSuchFieldException e) {
+                // tìm tiếp ở lớp cha
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        throw new IllegalArgumentException(target.getClass().getSimpleName() + " has no field " + fieldName);
+    }
+
+    // Thay cho service không liên quan tới phép đo: mọi phương thức không làm gì, trả về giá trị rỗng
+    @SuppressWarnings("unchecked")
+    static <T> T stub(Class<T> type) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type }, (proxy, method, args) -> {
+            Class<?> returnType = method.getReturnType();
+            switch (method.getName()) {
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "equals":
+                    return proxy == args[0];
+                case "toString":
+                    return type.getSimpleName() + "(stub)";
+                default:
+                    break;
+            }
+            if (returnType == boolean.class) {
+                return false;
+            }
+            if (returnType == int.class || returnType == long.class) {
+                return returnType == int.class ? (Object) 0 : (Object) 0L;
+            }
+            if (returnType == List.class) {
+                return List.of();
+            }
+            return returnType == Map.class ? Map.of() : null;
+        });
+    }
+
+    // Vi phạm thì dừng ngay với mã lỗi 1, kể cả khi các luồng tải khác vẫn đang chạy
+    static void check(boolean condition, String message, Object... args) {
+        if (!condition) {
+            new IllegalStateException(String.format(message, args)).printStackTrace();
+            System.exit(1);
+        }
+    }
+
+    @Override
+    public void close() {
+        sessionFactory.close();
+        dataSource.close();
+    }
+}
@@ -0,0 +1,145 @@
+package com.ecommerce.bench;
+
+import com.ecommerce.utils.ConnectionPoolMetrics;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import javax.sql.DataSource;
+import org.h2.tools.Server;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+/**
+ * So sánh DriverManagerDataSource (mỗi transaction mở một kết nối mới, cấu hình trước đây) với HikariDataSource
+ * cấu hình như HibernateConfigs (pool 10 kết nối, autoCommit tắt sẵn, ConnectionPoolMetrics). Database là H2
+ * chạy qua TCP trên localhost để việc mở kết nối có bắt tay mạng như với MySQL; các thuộc tính riêng của driver
+ * MySQL (cache prepared statement...) không áp dụng. Mỗi transaction giống một request đọc của Hibernate: lấy
+ * kết nối, tắt autocommit nếu cần, một SELECT theo khoá chính, commit, trả kết nối. T luồng chạy liên tục
+ * trong D giây cho mỗi DataSource; in số transaction mỗi giây, độ trễ p50/p99/max, và histogram thời gian lấy
+ * kết nối của pool (như GET /api/admin/metrics/db-pool).
+ *
+ * Chạy (từ thư mục SpringEcommerceApp), tham số: số luồng, số giây mỗi lượt đo:
+ * <pre>
+ * mvn -q test-compile dependency:build-classpath -Dmdep.outputFile=target/bench.cp
+ * java -cp target/classes:target/test-classes:$(cat target/bench.cp) \
+ *     com.ecommerce.bench.ConnectionPoolBenchmark 32 10
+ * </pre>
+ */
+public class ConnectionPoolBenchmark {
+    private static final int PORT = 19092;
+    private static final String URL = "jdbc:h2:tcp://localhost:" + PORT + "/mem:pool;MODE=MySQL;DB_CLOSE_DELAY=-1";
+    private static final int ROWS = 10000;
+    private static final int POOL_SIZE = 10;
+
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 32;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        Server server = Server.createTcpServer("-tcpPort", String.valueOf(PORT), "-ifNotExists").start();
+        try {
+            seed();
+
+            DriverManagerDataSource driverManager = new DriverManagerDataSource(URL, "sa", "");
+            run("DriverManagerDataSource", driverManager, true, threads, seconds);
+
+            ConnectionPoolMetrics metrics = new ConnectionPoolMetrics();
+            HikariConfig config = new HikariConfig();
+            config.setPoolName("bench-pool");
+            config.setJdbcUrl(URL);
+            config.setUsername("sa");
+            config.setPassword("");
+            config.setMinimumIdle(5);
+            config.setMaximumPoolSize(POOL_SIZE);
+            config.setAutoCommit(false);
+            config.setMetricsTrackerFactory(metrics);
+            try (HikariDataSource hikari = new HikariDataSource(config)) {
+                run("HikariDataSource", hikari, false, threads, seconds);
+                System.out.println("pool metrics: " + metrics.snapshot());
+            }
+        } finally {
+            server.stop();
+        }
+        System.out.println("OK");
+        System.exit(0);
+    }
+
+    private static void seed() throws Exception {
+        try (Connection connection = new DriverManagerDataSource(URL, "sa", "").getConnection();
+                Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE products(id BIGINT PRIMARY KEY, name VARCHAR(255), price DOUBLE)");
+            statement.execute("INSERT INTO products SELECT x, CONCAT('product', x), 1000 * x FROM SYSTEM_RANGE(1, "
+                    + ROWS + ")");
+        }
+    }
+
+    private static void run(String name, DataSource dataSource, boolean disableAutoCommit, int threads,
+            int seconds) throws Exception {
+        // Khởi động JIT và pool, không tính
+        measure(dataSource, disableAutoCommit, threads, TimeUnit.SECONDS.toNanos(Math.max(1, seconds / 5)));
+        long[] latencies = measure(dataSource, disableAutoCommit, threads, TimeUnit.SECONDS.toNanos(seconds));
+        Arrays.sort(latencies);
+        System.out.printf("%-24s %8.0f tx/s  p50 %6d us  p99 %6d us  max %7d us%n", name,
+                latencies.length / (double) seconds, percentile(latencies, 0.50), percentile(latencies, 0.99),
+                TimeUnit.NANOSECONDS.toMicros(latencies[latencies.length - 1]));
+    }
+
+    private static long[] measure(DataSource dataSource, boolean disableAutoCommit, int threads, long durationNanos)
+            throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        long deadline = System.nanoTime() + durationNanos;
+        List<Future<long[]>> futures = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            futures.add(executor.submit(() -> {
+                long[] latencies = new long[1024];
+                int count = 0;
+                while (System.nanoTime() < deadline) {
+                    long start = System.nanoTime();
+                    transaction(dataSource, disableAutoCommit);
+                    if (count == latencies.length) {
+                        latencies = Arrays.copyOf(latencies, count * 2);
+                    }
+                    latencies[count++] = System.nanoTime() - start;
+                }
+                return Arrays.copyOf(latencies, count);
+            }));
+        }
+        long[] all = new long[0];
+        for (Future<long[]> future : futures) {
+            long[] latencies = future.get();
+            int offset = all.length;
+            all = Arrays.copyOf(all, offset + latencies.length);
+            System.arraycopy(latencies, 0, all, offset, latencies.length);
+        }
+        executor.shutdown();
+        return all;
+    }
+
+    private static void transaction(DataSource dataSource, boolean disableAutoCommit) throws Exception {
+        try (Connection connection = dataSource.getConnection()) {
+            if (disableAutoCommit) {
+                connection.setAutoCommit(false);
+            }
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "SELECT id, name, price FROM products WHERE id = ?")) {
+                statement.setLong(1, ThreadLocalRandom.current().nextLong(1, ROWS + 1));
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    BenchDatabase.check(resultSet.next(), "Product row missing");
+                }
+            }
+            connection.commit();
+        }
+    }
+
+    private static long percentile(long[] sorted, double fraction) {
+        return TimeUnit.NANOSECONDS.toMicros(sorted[Math.min(sorted.length - 1, (int) (sorted.length * fraction))]);
+    }
+}
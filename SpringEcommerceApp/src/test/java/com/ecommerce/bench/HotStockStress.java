@@ -0,0 +1,151 @@
+package com.ecommerce.bench;
+
+import com.ecommerce.repositories.ProductRepository;
+import com.ecommerce.repositories.impl.ProductRepositoryImpl;
+import com.ecommerce.repositories.impl.StockReservationRepositoryImpl;
+import com.ecommerce.services.ProductSearchService;
+import com.ecommerce.services.impl.HotStockServiceImpl;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Kiểm tra bộ đếm tồn kho hot (HotStockServiceImpl) khi người bán sửa tồn kho trong lúc nhiều luồng đang
+ * lấy hàng. Các luồng mua lấy 1-3 đơn vị liên tục (trả lại khoảng 10%); người bán lần lượt tăng/giảm tồn kho
+ * qua onStockEdited như ProductServiceImpl, cuối cùng giảm nhiều hơn toàn bộ số còn lại trong khi các stripe
+ * vẫn còn hàng. Sau lần giảm cuối không được lấy thêm đơn vị nào, và số đã lấy + bộ đếm phải bằng tồn kho
+ * ban đầu + tổng thay đổi.
+ *
+ * Chạy (từ thư mục SpringEcommerceApp), tham số: số vòng, số luồng mua, số stripe:
+ * <pre>
+ * mvn -q test-compile dependency:build-classpath -Dmdep.outputFile=target/bench.cp
+ * java -cp target/classes:target/test-classes:$(cat target/bench.cp) \
+ *     com.ecommerce.bench.HotStockStress 20 8 8
+ * </pre>
+ */
+public class HotStockStress {
+    private static final long PRODUCT_ID = 1L;
+    private static final int INITIAL_STOCK = 1000000;
+
+    public static void main(String[] args) throws Exception {
+        int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+        int stripes = args.length > 2 ? Integer.parseInt(args[2]) : 8;
+        for (int round = 1; round <= rounds; round++) {
+            try (BenchDatabase database = new BenchDatabase("hotstock" + round, 4)) {
+                run(database, round, threads, stripes);
+            }
+        }
+        System.out.println("OK");
+        System.exit(0);
+    }
+
+    private static void run(BenchDatabase database, int round, int threads, int stripes) throws Exception {
+        TransactionTemplate transaction = database.transactionTemplate();
+        transaction.executeWithoutResult(status -> database.currentSession().createNativeMutationQuery(
+                "INSERT INTO products(id, name, price, quantity, active) VALUES (:id, 'hot', 1000, :quantity, true)")
+                .setParameter("id", PRODUCT_ID)
+                .setParameter("quantity", INITIAL_STOCK)
+                .executeUpdate());
+
+        ProductRepository productRepository = database.repository(ProductRepositoryImpl.class);
+        HotStockServiceImpl hotStock = new HotStockServiceImpl();
+        BenchDatabase.inject(hotStock, "stockReservationRepository",
+                database.repository(StockReservationRepositoryImpl.class));
+        BenchDatabase.inject(hotStock, "productRepository", productRepository);
+        BenchDatabase.inject(hotStock, "productSearchService", BenchDatabase.stub(ProductSearchService.class));
+        BenchDatabase.inject(hotStock, "sessionFactory", database.sessionFactory());
+        BenchDatabase.inject(hotStock, "transactionManager", database.transactionManager());
+        BenchDatabase.inject(hotStock, "hotProductIds", String.valueOf(PRODUCT_ID));
+        BenchDatabase.inject(hotStock, "stripes", stripes);
+        hotStock.init();
+
+        AtomicLong acquired = new AtomicLong();
+        AtomicLong released = new AtomicLong();
+        AtomicLong acquiredAfterClose = new AtomicLong();
+        AtomicBoolean closed = new AtomicBoolean();
+        AtomicBoolean stop = new AtomicBoolean();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<?>> buyers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            buyers.add(pool.submit(() -> {
+                start.await();
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                while (!stop.get()) {
+                    boolean afterClose = closed.get();
+                    int quantity = 1 + random.nextInt(3);
+                    if (!hotStock.tryAcquire(PRODUCT_ID, quantity)) {
+                        Thread.onSpinWait();
+                        continue;
+                    }
+                    acquired.addAndGet(quantity);
+                    // Giới hạn tốc độ mua để lúc người bán giảm tồn kho các stripe vẫn còn hàng
+                    LockSupport.parkNanos(50000);
+                    if (afterClose) {
+                        acquiredAfterClose.addAndGet(quantity);
+                    } else if (random.nextInt(10) == 0) {
+                        hotStock.release(PRODUCT_ID, quantity);
+                        released.addAndGet(quantity);
+                    }
+                }
+                return null;
+            }));
+        }
+
+        start.countDown();
+        long edits = 0;
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < 40; i++) {
+            int delta = random.nextInt(4) == 0 ? 300 : -(50 + random.nextInt(400));
+            editStock(transaction, productRepository, hotStock, delta);
+            edits += delta;
+            Thread.sleep(1);
+        }
+        // Giảm nhiều hơn mọi thứ còn có thể bán: từ đây bộ đếm <= 0
+        int closing = -(INITIAL_STOCK + 40 * 300);
+        editStock(transaction, productRepository, hotStock, closing);
+        edits += closing;
+        closed.set(true);
+        Thread.sleep(100);
+        stop.set(true);
+        for (Future<?> buyer : buyers) {
+            buyer.get();
+        }
+        pool.shutdown();
+
+        long sold = acquired.get() - released.get();
+        int available = hotStock.getAvailable(PRODUCT_ID);
+        System.out.printf("round %d: sold=%d released=%d edits=%d counter=%d acquiredAfterClose=%d%n",
+                round, sold, released.get(), edits, available, acquiredAfterClose.get());
+        BenchDatabase.check(acquiredAfterClose.get() == 0,
+                "round %d: %d units acquired after stock was cut below zero", round, acquiredAfterClose.get());
+        BenchDatabase.check(sold + available == INITIAL_STOCK + edits,
+                "round %d: sold %d + counter %d != stock %d", round, sold, available, INITIAL_STOCK + edits);
+        BenchDatabase.check(!hotStock.tryAcquire(PRODUCT_ID, 1), "round %d: acquire succeeded on an empty counter",
+                round);
+        // Trả lại đủ phần nợ thì bán tiếp được đúng số vừa trả
+        editStock(transaction, productRepository, hotStock, 5 - available);
+        BenchDatabase.check(hotStock.getAvailable(PRODUCT_ID) == 5 && hotStock.tryAcquire(PRODUCT_ID, 5)
+                && !hotStock.tryAcquire(PRODUCT_ID, 1), "round %d: counter wrong after restocking", round);
+    }
+
+    // Như ProductServiceImpl.update: khoá dòng, báo bộ đếm, ghi tồn kho mới trong cùng transaction
+    private static void editStock(TransactionTemplate transaction, ProductRepository productRepository,
+            HotStockServiceImpl hotStock, int delta) {
+        transaction.executeWithoutResult(status -> {
+            int current = productRepository.lockQuantity(PRODUCT_ID);
+            hotStock.onStockEdited(PRODUCT_ID, current + delta);
+            productRepository.addStock(Map.of(PRODUCT_ID, delta));
+        });
+    }
+}
@@ -0,0 +1,192 @@
+package com.ecommerce.bench;
+
+import com.ecommerce.filters.JwtAuthenticationFilter;
+import com.ecommerce.pojo.Role;
+import com.ecommerce.pojo.User;
+import com.ecommerce.repositories.impl.UserRepositoryImpl;
+import com.ecommerce.services.UserService;
+import com.ecommerce.services.impl.UserServiceImpl;
+import com.ecommerce.utils.JwtUtils;
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Đo chi phí xác thực một request có JWT: cách cũ (JwtUtils.extractUsername rồi
+ * UserService.loadUserByUsername mỗi request) so với JwtAuthenticationFilter hiện tại (UserDetails lưu cùng
+ * token đã xác thực). UserServiceImpl thật chạy sau một proxy mở transaction cho mỗi lần gọi như
+ * {@code @Transactional} ở mức lớp, trên H2 (BenchDatabase); in thời gian mỗi request, số transaction và
+ * số câu SQL mỗi request. Cuối cùng kiểm tra đổi quyền của user (evict) làm filter nạp lại UserDetails.
+ *
+ * Chạy (từ thư mục SpringEcommerceApp), tham số: số request mỗi lượt đo, số lượt:
+ * <pre>
+ * mvn -q test-compile dependency:build-classpath -Dmdep.outputFile=target/bench.cp
+ * java -cp target/classes:target/test-classes:$(cat target/bench.cp) \
+ *     com.ecommerce.bench.JwtFilterBenchmark 200000 5
+ * </pre>
+ */
+public class JwtFilterBenchmark {
+    private static final String USERNAME = "bench";
+
+    private static long transactions;
+
+    public static void main(String[] args) throws Exception {
+        int requests = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        try (BenchDatabase database = new BenchDatabase("jwtfilter", 4)) {
+            run(database, requests, rounds);
+        }
+        System.out.println("OK");
+        System.exit(0);
+    }
+
+    private static void run(BenchDatabase database, int requests, int rounds) throws Exception {
+        TransactionTemplate transaction = database.transactionTemplate();
+        transaction.executeWithoutResult(status -> {
+            database.currentSession().createNativeMutationQuery(
+                    "INSERT INTO roles(id, name) VALUES (1, 'ROLE_USER')").executeUpdate();
+            database.currentSession().createNativeMutationQuery(
+                    "INSERT INTO users(id, username, password, email, is_active) "
+                            + "VALUES (1, :username, 'x', 'bench@example.com', true)")
+                    .setParameter("username", USERNAME)
+                    .executeUpdate();
+            database.currentSession().createNativeMutationQuery(
+                    "INSERT INTO user_roles(user_id, role_id) VALUES (1, 1)").executeUpdate();
+        });
+
+        UserRepositoryImpl userRepository = database.repository(UserRepositoryImpl.class);
+        BenchDatabase.inject(userRepository, "passwordEncoder", new BCryptPasswordEncoder());
+        UserServiceImpl target = new UserServiceImpl();
+        BenchDatabase.inject(target, "userRepository", userRepository);
+        BenchDatabase.inject(target, "sessionFactory", database.sessionFactory());
+        UserService userService = transactional(target, transaction);
+
+        JwtAuthenticationFilter filter = new JwtAuthenticationFilter();
+        BenchDatabase.inject(filter, "userService", userService);
+
+        String token = JwtUtils.generateToken(USERNAME);
+        Map<String, Object> attributes = new HashMap<>();
+        HttpServletRequest request = request(token, attributes);
+        HttpServletResponse response = BenchDatabase.stub(HttpServletResponse.class);
+        FilterChain chain = (req, res) -> {
+        };
+
+        for (int round = 1; round <= rounds; round++) {
+            measure("legacy", requests, database, () -> {
+                String username = JwtUtils.extractUsername(token);
+                UserDetails userDetails = userService.loadUserByUsername(username);
+                SecurityContextHolder.getContext().setAuthentication(
+                        new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities()));
+                SecurityContextHolder.clearContext();
+            });
+            measure("filter", requests, database, () -> {
+                attributes.clear();
+                filter.doFilter(request, response, chain);
+                BenchDatabase.check(SecurityContextHolder.getContext().getAuthentication() != null,
+                        "Request was not authenticated");
+                SecurityContextHolder.clearContext();
+            });
+        }
+
+        // Thêm quyền qua UserService (gọi JwtUtils.evictUserDetails): request kế tiếp phải thấy quyền mới
+        transaction.executeWithoutResult(status -> {
+            database.currentSession().createNativeMutationQuery(
+                    "INSERT INTO roles(id, name) VALUES (2, 'ROLE_SELLER')").executeUpdate();
+            userService.addRoleToUser(database.currentSession().get(User.class, 1L),
+                    database.currentSession().get(Role.class, 2L));
+        });
+        attributes.clear();
+        filter.doFilter(request, response, chain);
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        BenchDatabase.check(authentication != null && authentication.getAuthorities().size() == 2,
+                "Filter kept stale user details after eviction: %s", authentication);
+        SecurityContextHolder.clearContext();
+    }
+
+    private interface Request {
+        void run() throws Exception;
+    }
+
+    private static void measure(String name, int requests, BenchDatabase database, Request request)
+            throws Exception {
+        for (int i = 0; i < requests / 10; i++) {
+            request.run();
+        }
+        database.takeStatementCount();
+        long transactionsBefore = transactions;
+        long start = System.nanoTime();
+        for (int i = 0; i < requests; i++) {
+            request.run();
+        }
+        long elapsed = System.nanoTime() - start;
+        long statements = database.takeStatementCount();
+        System.out.printf("%-6s %8d requests  %7.0f ns/request  %.2f transactions/request  %.2f SQL/request%n",
+                name, requests, (double) elapsed / requests, (double) (transactions - transactionsBefore) / requests,
+                (double) statements / requests);
+    }
+
+    // Thay cho proxy @Transactional của Spring: mỗi lần gọi service là một transaction
+    private static UserService transactional(UserService target, TransactionTemplate transaction) {
+        return (UserService) Proxy.newProxyInstance(UserService.class.getClassLoader(),
+                new Class<?>[] { UserService.class }, (proxy, method, args) -> {
+                    transactions++;
+                    return transaction.execute(status -> {
+                        try {
+                            return method.invoke(target, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getCause() instanceof RuntimeException runtime
+                                    ? runtime
+                                    : new IllegalStateException(e.getCause());
+                        } catch (IllegalAccessException e) {
+                            throw new IllegalStateException(e);
+                        }
+                    });
+                });
+    }
+
+    // Request GET có header Authorization, attribute lưu trong map để OncePerRequestFilter chạy bình thường
+    private static HttpServletRequest request(String token, Map<String, Object> attributes) {
+        return (HttpServletRequest) Proxy.newProxyInstance(HttpServletRequest.class.getClassLoader(),
+                new Class<?>[] { HttpServletRequest.class }, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getHeader":
+                            return "Authorization".equalsIgnoreCase((String) args[0]) ? "Bearer " + token : null;
+                        case "getAttribute":
+                            return attributes.get((String) args[0]);
+                        case "setAttribute":
+                            attributes.put((String) args[0], args[1]);
+                            return null;
+                        case "removeAttribute":
+                            attributes.remove((String) args[0]);
+                            return null;
+                        case "getDispatcherType":
+                            return DispatcherType.REQUEST;
+                        case "getMethod":
+                            return "GET";
+                        case "getRequestURI":
+                            return "/api/orders";
+                        case "getRemoteAddr":
+                            return "127.0.0.1";
+                        case "isAsyncStarted":
+                            return false;
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "equals":
+                            return proxy == args[0];
+                        default:
+                            return null;
+                    }
+                });
+    }
+}
@@ -0,0 +1,162 @@
+package com.ecommerce.bench;
+
+import com.ecommerce.pojo.Order;
+import com.ecommerce.pojo.OrderDetail;
+import com.ecommerce.repositories.OrderRepository;
+import com.ecommerce.repositories.impl.OrderRepositoryImpl;
+import com.ecommerce.repositories.impl.SalesRollupRepositoryImpl;
+import com.ecommerce.services.SalesRollupService;
+import com.ecommerce.services.impl.OrderServiceImpl;
+import com.ecommerce.services.impl.ReportServiceImpl;
+import com.ecommerce.services.impl.SalesRollupServiceImpl;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import org.hibernate.Session;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * So sánh ReportServiceImpl.generateSalesReport với cách làm trước đó: nạp mọi đơn COMPLETED trong khoảng
+ * ngày thành entity (kèm dòng đơn, sản phẩm, danh mục) rồi duyệt trong Java, cộng thêm truy vấn top sản phẩm
+ * toàn thời gian cho biểu đồ. Dữ liệu H2 (BenchDatabase): N đơn (3/4 hoàn thành), 3N dòng đơn, 200 sản phẩm
+ * trong 10 danh mục (một số không có danh mục). Mỗi lượt in thời gian và số câu SQL của từng cách, và kiểm
+ * tra tổng doanh thu, số đơn, số sản phẩm bán và doanh thu theo danh mục của hai cách khớp nhau.
+ *
+ * Chạy (từ thư mục SpringEcommerceApp), tham số: số đơn, số lượt:
+ * <pre>
+ * mvn -q test-compile dependency:build-classpath -Dmdep.outputFile=target/bench.cp
+ * java -cp target/classes:target/test-classes:$(cat target/bench.cp) \
+ *     com.ecommerce.bench.SalesReportBenchmark 20000 3
+ * </pre>
+ */
+public class SalesReportBenchmark {
+    private static final String UNKNOWN_CATEGORY = "Không xác định";
+    private static final int PRODUCTS = 200;
+
+    public static void main(String[] args) throws Exception {
+        int orders = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+        try (BenchDatabase database = new BenchDatabase("salesreport", 4)) {
+            run(database, orders, rounds);
+        }
+        System.out.println("OK");
+        System.exit(0);
+    }
+
+    private static void run(BenchDatabase database, int orders, int rounds) {
+        TransactionTemplate transaction = database.transactionTemplate();
+        transaction.executeWithoutResult(status -> seed(database.currentSession(), orders));
+
+        OrderRepository orderRepository = database.repository(OrderRepositoryImpl.class);
+        SalesRollupServiceImpl salesRollupService = new SalesRollupServiceImpl();
+        BenchDatabase.inject(salesRollupService, "salesRollupRepository",
+                database.repository(SalesRollupRepositoryImpl.class));
+        BenchDatabase.inject(salesRollupService, "transactionManager", database.transactionManager());
+        OrderServiceImpl orderService = new OrderServiceImpl();
+        BenchDatabase.inject(orderService, "orderRepository", orderRepository);
+        ReportServiceImpl reportService = new ReportServiceImpl();
+        BenchDatabase.inject(reportService, "orderService", orderService);
+        BenchDatabase.inject(reportService, "orderRepository", orderRepository);
+        BenchDatabase.inject(reportService, "salesRollupService", salesRollupService);
+
+        Date fromDate = new Date(System.currentTimeMillis() - 365L * 24 * 60 * 60 * 1000);
+        Date toDate = new Date(System.currentTimeMillis() + 60 * 1000);
+        transaction.setReadOnly(true);
+        for (int round = 1; round <= rounds; round++) {
+            database.takeStatementCount();
+            long start = System.nanoTime();
+            Map<String, Object> before = transaction.execute(status ->
+                    legacySalesReport(orderService, salesRollupService, fromDate, toDate));
+            long beforeNanos = System.nanoTime() - start;
+            long beforeStatements = database.takeStatementCount();
+
+            start = System.nanoTime();
+            Map<String, Object> after = transaction.execute(status ->
+                    reportService.generateSalesReport("monthly", fromDate, toDate));
+            long afterNanos = System.nanoTime() - start;
+            long afterStatements = database.takeStatementCount();
+
+            System.out.printf("round %d: before %6d ms %6d SQL | after %6d ms %6d SQL%n", round,
+                    beforeNanos / 1000000, beforeStatements, afterNanos / 1000000, afterStatements);
+            compare(before, after);
+        }
+    }
+
+    private static void seed(Session session, int orders) {
+        session.createNativeMutationQuery(
+                "INSERT INTO categories(id, name) SELECT x, CONCAT('category', x) FROM SYSTEM_RANGE(1, 10)")
+                .executeUpdate();
+        session.createNativeMutationQuery("INSERT INTO users(id, username, email, password, fullname, is_active) "
+                + "VALUES (1, 'buyer', 'buyer@example.com', 'x', 'Buyer', true)").executeUpdate();
+        session.createNativeMutationQuery("INSERT INTO stores(id, name, seller_id, active) VALUES (1, 'store', 1, true)")
+                .executeUpdate();
+        session.createNativeMutationQuery("INSERT INTO products(id, name, price, quantity, active, store_id, "
+                + "category_id, image) SELECT x, CONCAT('product', x), 1000, 10, true, 1, "
+                + "CASE WHEN MOD(x, 17) = 0 THEN NULL ELSE MOD(x, 10) + 1 END, CONCAT('image', x) "
+                + "FROM SYSTEM_RANGE(1, " + PRODUCTS + ")").executeUpdate();
+        session.createNativeMutationQuery("INSERT INTO orders(id, user_id, order_date, status, total_amount) "
+                + "SELECT x, 1, DATEADD('MINUTE', -x, CURRENT_TIMESTAMP), "
+                + "CASE WHEN MOD(x, 4) = 0 THEN 'PENDING' ELSE 'COMPLETED' END, 1000 * MOD(x, 97) "
+                + "FROM SYSTEM_RANGE(1, " + orders + ")").executeUpdate();
+        session.createNativeMutationQuery("INSERT INTO order_details(id, order_id, product_id, quantity, price) "
+                + "SELECT x, MOD(x, " + orders + ") + 1, MOD(x * 7, " + PRODUCTS + ") + 1, 1 + MOD(x, 3), "
+                + "500 * MOD(x, 11) FROM SYSTEM_RANGE(1, " + (3 * orders) + ")").executeUpdate();
+    }
+
+    // Phần đọc dữ liệu của generateSalesReport trước khi chuyển sang scrollSalesLines
+    private static Map<String, Object> legacySalesReport(OrderServiceImpl orderService,
+            SalesRollupService salesRollupService, Date fromDate, Date toDate) {
+        List<Order> orders = orderService.findByStatusAndDateRange("COMPLETED", fromDate, toDate);
+        double totalRevenue = orders.stream().mapToDouble(Order::getTotalAmount).sum();
+        int totalProductsSold = 0;
+        Map<String, Double> categoryRevenue = new HashMap<>();
+        Map<Long, Integer> productQuantities = new HashMap<>();
+        for (Order order : orders) {
+            for (OrderDetail detail : order.getOrderDetails()) {
+                String categoryName = detail.getProduct().getCategory() != null
+                        ? detail.getProduct().getCategory().getName()
+                        : UNKNOWN_CATEGORY;
+                totalProductsSold += detail.getQuantity();
+                categoryRevenue.merge(categoryName, detail.getPrice() * detail.getQuantity(), Double::sum);
+                productQuantities.merge(detail.getProduct().getId(), detail.getQuantity(), Integer::sum);
+            }
+        }
+        salesRollupService.getRevenueByPeriod("monthly", fromDate, toDate);
+        salesRollupService.getOrderCountByPeriod("monthly", fromDate, toDate);
+        orderService.getOrderCountByStatus();
+        salesRollupService.getRevenueByCategory(fromDate, toDate);
+        orderService.getTopSellingProducts(5);
+
+        Map<String, Object> report = new HashMap<>();
+        report.put("totalRevenue", totalRevenue);
+        report.put("totalOrders", orders.size());
+        report.put("totalProductsSold", totalProductsSold);
+        report.put("categoryRevenue", new TreeMap<>(categoryRevenue));
+        return report;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void compare(Map<String, Object> before, Map<String, Object> after) {
+        BenchDatabase.check(before.get("totalOrders").equals(after.get("totalOrders")),
+                "totalOrders differs: %s vs %s", before.get("totalOrders"), after.get("totalOrders"));
+        BenchDatabase.check(before.get("totalProductsSold").equals(after.get("totalProductsSold")),
+                "totalProductsSold differs: %s vs %s", before.get("totalProductsSold"), after.get("totalProductsSold"));
+        BenchDatabase.check(same((Double) before.get("totalRevenue"), (Double) after.get("totalRevenue")),
+                "totalRevenue differs: %s vs %s", before.get("totalRevenue"), after.get("totalRevenue"));
+        Map<String, Double> beforeCategories = (Map<String, Double>) before.get("categoryRevenue");
+        Map<String, Double> afterCategories = new TreeMap<>();
+        for (Map<String, Object> category : (List<Map<String, Object>>) after.get("categoryStats")) {
+            afterCategories.put((String) category.get("name"), (Double) category.get("revenue"));
+        }
+        BenchDatabase.check(beforeCategories.keySet().equals(afterCategories.keySet()),
+                "Categories differ: %s vs %s", beforeCategories.keySet(), afterCategories.keySet());
+        beforeCategories.forEach((name, revenue) -> BenchDatabase.check(same(revenue, afterCategories.get(name)),
+                "Revenue of %s differs: %s vs %s", name, revenue, afterCategories.get(name)));
+    }
+
+    private static boolean same(double a, double b) {
+        return Math.abs(a - b) <= 1e-9 * Math.max(1.0, Math.abs(a));
+    }
+}
@@ -0,0 +1,143 @@
+package com.ecommerce.bench;
+
+import com.ecommerce.pojo.Order;
+import com.ecommerce.repositories.OrderRepository;
+import com.ecommerce.repositories.impl.OrderRepositoryImpl;
+import com.ecommerce.repositories.impl.SalesRollupRepositoryImpl;
+import com.ecommerce.repositories.impl.UserRepositoryImpl;
+import com.ecommerce.services.impl.ReportServiceImpl;
+import com.ecommerce.services.impl.SalesRollupServiceImpl;
+import com.ecommerce.services.impl.UserServiceImpl;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import org.hibernate.Session;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * So sánh ba cách lấy số liệu theo người bán cho báo cáo người bán: vòng lặp trước đây (findOrdersBySellerId
+ * cho từng người bán, nạp toàn bộ lịch sử đơn rồi lọc theo ngày trong Java), truy vấn GROUP BY
+ * OrderRepository.findSalesBySeller, và ReportServiceImpl.generateSellerReport hiện tại (đọc bảng tổng hợp
+ * theo ngày, được backfill trước khi đo). Dữ liệu H2 (BenchDatabase): S người bán mỗi người một cửa hàng
+ * 5 sản phẩm, N đơn rải trên 365 ngày, 3N dòng đơn; khoảng báo cáo là 30 ngày gần nhất. Mỗi lượt in thời
+ * gian và số câu SQL của từng cách, và kiểm tra số đơn theo từng người bán của ba cách khớp nhau.
+ *
+ * Chạy (từ thư mục SpringEcommerceApp), tham số: số người bán, số đơn, số lượt:
+ * <pre>
+ * mvn -q test-compile dependency:build-classpath -Dmdep.outputFile=target/bench.cp
+ * java -cp target/classes:target/test-classes:$(cat target/bench.cp) \
+ *     com.ecommerce.bench.SellerReportBenchmark 500 20000 3
+ * </pre>
+ */
+public class SellerReportBenchmark {
+    private static final int PRODUCTS_PER_SELLER = 5;
+    private static final int DAYS = 365;
+    private static final int REPORT_DAYS = 30;
+
+    public static void main(String[] args) throws Exception {
+        int sellers = args.length > 0 ? Integer.parseInt(args[0]) : 500;
+        int orders = args.length > 1 ? Integer.parseInt(args[1]) : 20000;
+        int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 3;
+        try (BenchDatabase database = new BenchDatabase("sellerreport", 4)) {
+            run(database, sellers, orders, rounds);
+        }
+        System.out.println("OK");
+        System.exit(0);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void run(BenchDatabase database, int sellers, int orders, int rounds) {
+        TransactionTemplate transaction = database.transactionTemplate();
+        transaction.executeWithoutResult(status -> seed(database.currentSession(), sellers, orders));
+
+        OrderRepository orderRepository = database.repository(OrderRepositoryImpl.class);
+        SalesRollupServiceImpl salesRollupService = new SalesRollupServiceImpl();
+        BenchDatabase.inject(salesRollupService, "salesRollupRepository",
+                database.repository(SalesRollupRepositoryImpl.class));
+        BenchDatabase.inject(salesRollupService, "transactionManager", database.transactionManager());
+        UserServiceImpl userService = new UserServiceImpl();
+        BenchDatabase.inject(userService, "userRepository", database.repository(UserRepositoryImpl.class));
+        ReportServiceImpl reportService = new ReportServiceImpl();
+        BenchDatabase.inject(reportService, "userService", userService);
+        BenchDatabase.inject(reportService, "salesRollupService", salesRollupService);
+
+        // Đơn nằm ở 1 giờ sáng các ngày trước hôm nay: khoảng theo thời điểm và theo ngày chứa cùng các đơn
+        LocalDate today = LocalDate.now();
+        salesRollupService.backfill(today.minusDays(DAYS + 1), today);
+        Date fromDate = Date.from(today.minusDays(REPORT_DAYS).atStartOfDay(ZoneId.systemDefault()).toInstant());
+        Date toDate = Date.from(today.atStartOfDay(ZoneId.systemDefault()).toInstant());
+
+        transaction.setReadOnly(true);
+        for (int round = 1; round <= rounds; round++) {
+            database.takeStatementCount();
+            long start = System.nanoTime();
+            Map<Long, Integer> loop = transaction.execute(status -> {
+                Map<Long, Integer> orderCounts = new TreeMap<>();
+                for (long sellerId = 1; sellerId <= sellers; sellerId++) {
+                    int count = 0;
+                    for (Order order : orderRepository.findOrdersBySellerId(sellerId)) {
+                        if (!order.getOrderDate().before(fromDate) && !order.getOrderDate().after(toDate)) {
+                            count++;
+                        }
+                    }
+                    if (count > 0) {
+                        orderCounts.put(sellerId, count);
+                    }
+                }
+                return orderCounts;
+            });
+            long loopNanos = System.nanoTime() - start;
+            long loopStatements = database.takeStatementCount();
+
+            start = System.nanoTime();
+            Map<Long, Integer> grouped = transaction.execute(status -> {
+                Map<Long, Integer> orderCounts = new TreeMap<>();
+                for (Object[] row : orderRepository.findSalesBySeller(fromDate, toDate)) {
+                    orderCounts.put(((Number) row[0]).longValue(), ((Number) row[4]).intValue());
+                }
+                return orderCounts;
+            });
+            long groupedNanos = System.nanoTime() - start;
+            long groupedStatements = database.takeStatementCount();
+
+            start = System.nanoTime();
+            Map<String, Object> report = transaction.execute(status ->
+                    reportService.generateSellerReport(fromDate, toDate));
+            long reportNanos = System.nanoTime() - start;
+            long reportStatements = database.takeStatementCount();
+            Map<Long, Integer> rollup = new TreeMap<>();
+            for (Map<String, Object> seller : (List<Map<String, Object>>) report.get("revenueBySeller")) {
+                rollup.put(((Number) seller.get("id")).longValue(), (Integer) seller.get("orderCount"));
+            }
+
+            System.out.printf("round %d: loop %6d ms %6d SQL | grouped %4d ms %2d SQL | report %4d ms %2d SQL%n",
+                    round, loopNanos / 1000000, loopStatements, groupedNanos / 1000000, groupedStatements,
+                    reportNanos / 1000000, reportStatements);
+            BenchDatabase.check(loop.equals(grouped), "Grouped query differs from loop: %s vs %s", grouped, loop);
+            BenchDatabase.check(loop.equals(rollup), "Rollup report differs from loop: %s vs %s", rollup, loop);
+        }
+    }
+
+    private static void seed(Session session, int sellers, int orders) {
+        int products = sellers * PRODUCTS_PER_SELLER;
+        session.createNativeMutationQuery("INSERT INTO categories(id, name) VALUES (1, 'category')").executeUpdate();
+        session.createNativeMutationQuery("INSERT INTO users(id, username, email, password, fullname, is_active) "
+                + "SELECT x, CONCAT('user', x), CONCAT('user', x, '@example.com'), 'x', CONCAT('User ', x), true "
+                + "FROM SYSTEM_RANGE(1, " + (sellers + 1) + ")").executeUpdate();
+        session.createNativeMutationQuery("INSERT INTO stores(id, name, seller_id, active) "
+                + "SELECT x, CONCAT('store', x), x, true FROM SYSTEM_RANGE(1, " + sellers + ")").executeUpdate();
+        session.createNativeMutationQuery("INSERT INTO products(id, name, price, quantity, active, store_id, "
+                + "category_id) SELECT x, CONCAT('product', x), 1000 * MOD(x, 50) + 1000, 10, true, "
+                + "MOD(x, " + sellers + ") + 1, 1 FROM SYSTEM_RANGE(1, " + products + ")").executeUpdate();
+        session.createNativeMutationQuery("INSERT INTO orders(id, user_id, order_date, status, total_amount) "
+                + "SELECT x, " + (sellers + 1) + ", "
+                + "DATEADD('HOUR', 1, DATEADD('DAY', -(MOD(x, " + DAYS + ") + 1), CURRENT_DATE)), "
+                + "'COMPLETED', 5000 FROM SYSTEM_RANGE(1, " + orders + ")").executeUpdate();
+        session.createNativeMutationQuery("INSERT INTO order_details(id, order_id, product_id, quantity, price) "
+                + "SELECT x, MOD(x, " + orders + ") + 1, MOD(x * 7, " + products + ") + 1, 1 + MOD(x, 3), 2000 "
+                + "FROM SYSTEM_RANGE(1, " + (3 * orders) + ")").executeUpdate();
+    }
+}
@@ -0,0 +1,236 @@
+package com.ecommerce.bench;
+
+import com.ecommerce.exceptions.ProductException;
+import com.ecommerce.pojo.Order;
+import com.ecommerce.pojo.OrderDetail;
+import com.ecommerce.pojo.Payment;
+import com.ecommerce.pojo.PaymentMethod;
+import com.ecommerce.pojo.Product;
+import com.ecommerce.repositories.impl.ProductRepositoryImpl;
+import com.ecommerce.repositories.impl.StockReservationRepositoryImpl;
+import com.ecommerce.services.ProductSearchService;
+import com.ecommerce.services.StockReservationService;
+import com.ecommerce.services.impl.HotStockServiceImpl;
+import com.ecommerce.services.impl.StockReservationServiceImpl;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Kiểm tra StockReservationServiceImpl dưới tải đồng thời, cả sản phẩm thường (UPDATE có điều kiện trên
+ * products) lẫn sản phẩm hot (bộ đếm HotStockServiceImpl, flush định kỳ). Nhiều luồng tạo đơn 1-3 dòng trên
+ * 4 sản phẩm (1, 2 hot; 3, 4 thường) với tổng nhu cầu gấp nhiều lần tồn kho; một phần đơn rollback sau khi
+ * giữ hàng, bị huỷ (release hai lần), được xác nhận hoặc hết hạn. Trong lúc chạy một luồng liên tục kiểm tra
+ * products.quantity không âm. Cuối cùng, sau khi flush hết, với mỗi sản phẩm:
+ * tồn kho ban đầu = products.quantity + tổng giữ chỗ chưa RELEASED, và bộ đếm hot = products.quantity.
+ *
+ * Chạy (từ thư mục SpringEcommerceApp), tham số: số luồng, số đơn mỗi luồng, tồn kho ban đầu mỗi sản phẩm:
+ * <pre>
+ * mvn -q test-compile dependency:build-classpath -Dmdep.outputFile=target/bench.cp
+ * java -cp target/classes:target/test-classes:$(cat target/bench.cp) \
+ *     com.ecommerce.bench.StockReservationStress 16 100 300
+ * </pre>
+ */
+public class StockReservationStress {
+    private static final int PRODUCTS = 4;
+    private static final String HOT_PRODUCT_IDS = "1,2";
+
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 16;
+        int ordersPerThread = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+        int initialStock = args.length > 2 ? Integer.parseInt(args[2]) : 300;
+
+        try (BenchDatabase database = new BenchDatabase("reservations", threads + 4)) {
+            run(database, threads, ordersPerThread, initialStock);
+        }
+        System.out.println("OK");
+        System.exit(0);
+    }
+
+    private static void run(BenchDatabase database, int threads, int ordersPerThread, int initialStock)
+            throws Exception {
+        TransactionTemplate transaction = database.transactionTemplate();
+        transaction.executeWithoutResult(status -> database.currentSession().createNativeMutationQuery(
+                "INSERT INTO products(id, name, price, quantity, active) "
+                        + "SELECT x, CONCAT('product ', x), 1000, :quantity, true FROM SYSTEM_RANGE(1, :products)")
+                .setParameter("quantity", initialStock)
+                .setParameter("products", PRODUCTS)
+                .executeUpdate());
+
+        ProductSearchService productSearchService = BenchDatabase.stub(ProductSearchService.class);
+        HotStockServiceImpl hotStock = new HotStockServiceImpl();
+        BenchDatabase.inject(hotStock, "stockReservationRepository",
+                database.repository(StockReservationRepositoryImpl.class));
+        BenchDatabase.inject(hotStock, "productRepository", database.repository(ProductRepositoryImpl.class));
+        BenchDatabase.inject(hotStock, "productSearchService", productSearchService);
+        BenchDatabase.inject(hotStock, "sessionFactory", database.sessionFactory());
+        BenchDatabase.inject(hotStock, "transactionManager", database.transactionManager());
+        BenchDatabase.inject(hotStock, "hotProductIds", HOT_PRODUCT_IDS);
+        BenchDatabase.inject(hotStock, "stripes", 8);
+        hotStock.init();
+
+        StockReservationServiceImpl reservations = new StockReservationServiceImpl();
+        BenchDatabase.inject(reservations, "stockReservationRepository",
+                database.repository(StockReservationRepositoryImpl.class));
+        BenchDatabase.inject(reservations, "productRepository", database.repository(ProductRepositoryImpl.class));
+        BenchDatabase.inject(reservations, "productSearchService", productSearchService);
+        BenchDatabase.inject(reservations, "hotStockService", hotStock);
+        BenchDatabase.inject(reservations, "sessionFactory", database.sessionFactory());
+        BenchDatabase.inject(reservations, "reservationTtlMs", 900000L);
+
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicInteger negativeSeen = new AtomicInteger();
+        // Như lịch @Scheduled của HotStockServiceImpl, nhưng dày hơn để flush chạy xen với các đơn
+        Thread flusher = new Thread(() -> {
+            while (running.get()) {
+                hotStock.flush();
+                sleep(2);
+            }
+        }, "hot-stock-flush");
+        Thread monitor = new Thread(() -> {
+            while (running.get()) {
+                Integer min = transaction.execute(status -> database.currentSession()
+                        .createNativeQuery("SELECT MIN(quantity) FROM products", Integer.class)
+                        .uniqueResult());
+                if (min != null && min < 0) {
+                    negativeSeen.incrementAndGet();
+                }
+                sleep(1);
+            }
+        }, "stock-monitor");
+        flusher.start();
+        monitor.start();
+
+        AtomicLong orderIds = new AtomicLong();
+        AtomicInteger created = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        AtomicInteger rolledBack = new AtomicInteger();
+        AtomicInteger cancelled = new AtomicInteger();
+        AtomicInteger expired = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<?>> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            workers.add(pool.submit(() -> {
+                start.await();
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < ordersPerThread; i++) {
+                    Order order = order(orderIds.incrementAndGet(), random);
+                    boolean failAfterReserve = random.nextInt(10) == 0;
+                    try {
+                        transaction.executeWithoutResult(status -> {
+                            reservations.reserve(order);
+                            if (failAfterReserve) {
+                                // Lỗi sau khi giữ hàng trong cùng transaction tạo đơn
+                                status.setRollbackOnly();
+                            }
+                        });
+                    } catch (ProductException.InsufficientStockException e) {
+                        rejected.incrementAndGet();
+                        continue;
+                    }
+                    if (failAfterReserve) {
+                        rolledBack.incrementAndGet();
+                        continue;
+                    }
+                    created.incrementAndGet();
+                    int outcome = random.nextInt(10);
+                    if (outcome < 2) {
+                        transaction.executeWithoutResult(status -> reservations.release(order.getId()));
+                        transaction.executeWithoutResult(status -> reservations.release(order.getId()));
+                        cancelled.incrementAndGet();
+                    } else if (outcome < 3) {
+                        // Hết hạn chờ thanh toán: chỉ trả hàng nếu vẫn RESERVED (đơn COD đã CONFIRMED)
+                        Boolean released = transaction.execute(
+                                status -> reservations.releaseIfReserved(order.getId()));
+                        if (Boolean.TRUE.equals(released)) {
+                            expired.incrementAndGet();
+                        }
+                    } else {
+                        transaction.executeWithoutResult(status -> reservations.confirm(order.getId()));
+                    }
+                }
+                return null;
+            }));
+        }
+
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Future<?> worker : workers) {
+            worker.get();
+        }
+        long millis = (System.nanoTime() - begin) / 1_000_000;
+        pool.shutdown();
+        running.set(false);
+        flusher.join();
+        monitor.join();
+        while (hotStock.flush() > 0) {
+            // flush nốt các giữ chỗ stockPending
+        }
+
+        System.out.printf("orders created=%d rejected=%d rolledBack=%d cancelled=%d expired=%d in %d ms%n",
+                created.get(), rejected.get(), rolledBack.get(), cancelled.get(), expired.get(), millis);
+        BenchDatabase.check(negativeSeen.get() == 0, "products.quantity was negative %d times", negativeSeen.get());
+        BenchDatabase.check(rejected.get() > 0, "demand never exceeded stock, raise orders or lower stock");
+
+        List<Object[]> rows = transaction.execute(status -> database.currentSession().createNativeQuery(
+                "SELECT p.id, p.quantity, "
+                        + "(SELECT COALESCE(SUM(r.quantity), 0) FROM stock_reservations r "
+                        + "WHERE r.product_id = p.id AND r.status <> :released), "
+                        + "(SELECT COUNT(*) FROM stock_reservations r WHERE r.product_id = p.id AND r.stock_pending) "
+                        + "FROM products p ORDER BY p.id", Object[].class)
+                .setParameter("released", StockReservationService.STATUS_RELEASED)
+                .getResultList());
+        for (Object[] row : rows) {
+            long productId = ((Number) row[0]).longValue();
+            int quantity = ((Number) row[1]).intValue();
+            int held = ((Number) row[2]).intValue();
+            int pending = ((Number) row[3]).intValue();
+            boolean hot = hotStock.isHot(productId);
+            System.out.printf("  product %d%s: quantity=%d held=%d%s%n", productId, hot ? " (hot)" : "", quantity,
+                    held, hot ? " counter=" + hotStock.getAvailable(productId) : "");
+            BenchDatabase.check(quantity >= 0, "product %d: negative stock %d", productId, quantity);
+            BenchDatabase.check(pending == 0, "product %d: %d reservations left unflushed", productId, pending);
+            BenchDatabase.check(quantity + held == initialStock, "product %d: quantity %d + held %d != %d",
+                    productId, quantity, held, initialStock);
+            BenchDatabase.check(!hot || hotStock.getAvailable(productId) == quantity,
+                    "product %d: counter %d != quantity %d", productId, hotStock.getAvailable(productId), quantity);
+        }
+    }
+
+    // Sản phẩm chỉ cần id; giữ chỗ chỉ lưu orderId nên đơn không cần ghi vào database
+    private static Order order(long id, ThreadLocalRandom random) {
+        Order order = new Order();
+        order.setId(id);
+        Payment payment = new Payment();
+        payment.setPaymentMethod(random.nextBoolean() ? PaymentMethod.PAYPAL : PaymentMethod.CASH_ON_DELIVERY);
+        order.setPayment(payment);
+        int lines = 1 + random.nextInt(3);
+        for (int i = 0; i < lines; i++) {
+            Product product = new Product();
+            product.setId((long) (1 + random.nextInt(PRODUCTS)));
+            OrderDetail detail = new OrderDetail();
+            detail.setProduct(product);
+            detail.setQuantity(1 + random.nextInt(3));
+            detail.setPrice(1000);
+            order.addOrderDetail(detail);
+        }
+        return order;
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}